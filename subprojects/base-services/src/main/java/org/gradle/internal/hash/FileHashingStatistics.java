@@ -0,0 +1,73 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.hash;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the files hashed by {@link HashUtil} in this process, so that the cost of hashing can be reported.
+ */
+public class FileHashingStatistics {
+    private static final AtomicLong FILES = new AtomicLong();
+    private static final AtomicLong BYTES = new AtomicLong();
+    private static final AtomicLong NANOS = new AtomicLong();
+
+    private final long files;
+    private final long bytes;
+    private final long nanos;
+
+    private FileHashingStatistics(long files, long bytes, long nanos) {
+        this.files = files;
+        this.bytes = bytes;
+        this.nanos = nanos;
+    }
+
+    public static void fileHashed(long bytes, long nanos) {
+        FILES.incrementAndGet();
+        BYTES.addAndGet(bytes);
+        NANOS.addAndGet(nanos);
+    }
+
+    /**
+     * Returns the statistics collected since the last call to this method, and starts collecting again.
+     */
+    public static FileHashingStatistics reset() {
+        return new FileHashingStatistics(FILES.getAndSet(0), BYTES.getAndSet(0), NANOS.getAndSet(0));
+    }
+
+    public long getFilesHashed() {
+        return files;
+    }
+
+    public long getBytesHashed() {
+        return bytes;
+    }
+
+    /**
+     * Returns the total time spent hashing, summed across all threads.
+     */
+    public long getHashingTimeNanos() {
+        return nanos;
+    }
+
+    @Override
+    public String toString() {
+        double millis = nanos / 1000000.0;
+        double megabytes = bytes / (1024.0 * 1024.0);
+        return String.format("%d files (%.1f MB) in %.0fms", files, megabytes, millis);
+    }
+}
@@ -19,10 +19,34 @@ import org.gradle.api.UncheckedIOException;
 import org.gradle.internal.UncheckedException;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
 public class HashUtil {
+    /**
+     * Files of at least this size are hashed through a {@link FileChannel} rather than a stream.
+     */
+    static final long LARGE_FILE_THRESHOLD = 1024 * 1024;
+    private static final int FILE_BUFFER_SIZE = 64 * 1024;
+    private static final int DIRECT_BUFFER_SIZE = 256 * 1024;
+    // Files are hashed concurrently by the file hasher workers, so each thread reuses its own buffers rather than allocating new ones for every file.
+    // Large files are read through a direct buffer instead of being mapped, as a mapping is only released when it is garbage collected and until then
+    // holds address space and, on Windows, prevents the file from being deleted or overwritten
+    private static final ThreadLocal<byte[]> FILE_BUFFER = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[FILE_BUFFER_SIZE];
+        }
+    };
+    private static final ThreadLocal<ByteBuffer> DIRECT_BUFFER = new ThreadLocal<ByteBuffer>() {
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocateDirect(DIRECT_BUFFER_SIZE);
+        }
+    };
+
     public static HashValue createHash(String scriptText, String algorithm) {
         MessageDigest messageDigest = createMessageDigest(algorithm);
         messageDigest.update(scriptText.getBytes());
@@ -30,8 +54,17 @@ public class HashUtil {
     }
 
     public static HashValue createHash(File file, String algorithm) {
+        long start = System.nanoTime();
         try {
-            return createHash(new FileInputStream(file), algorithm);
+            long length = file.length();
+            HashValue hash;
+            if (length < LARGE_FILE_THRESHOLD) {
+                hash = createHash(new FileInputStream(file), algorithm, FILE_BUFFER.get());
+            } else {
+                hash = createHashFromFileChannel(file, algorithm);
+            }
+            FileHashingStatistics.fileHashed(length, System.nanoTime() - start);
+            return hash;
         } catch (UncheckedIOException e) {
             // Catch any unchecked io exceptions and add the file path for troubleshooting
             throw new UncheckedIOException(String.format("Failed to create %s hash for file %s.", algorithm, file.getAbsolutePath()), e.getCause());
@@ -41,10 +74,13 @@ public class HashUtil {
     }
 
     public static HashValue createHash(InputStream instr, String algorithm) {
+        return createHash(instr, algorithm, new byte[4096]);
+    }
+
+    private static HashValue createHash(InputStream instr, String algorithm, byte[] buffer) {
         MessageDigest messageDigest;
         try {
             messageDigest = createMessageDigest(algorithm);
-            byte[] buffer = new byte[4096];
             try {
                 while (true) {
                     int nread = instr.read(buffer);
@@ -62,6 +98,28 @@ public class HashUtil {
         return new HashValue(messageDigest.digest());
     }
 
+    private static HashValue createHashFromFileChannel(File file, String algorithm) throws FileNotFoundException {
+        MessageDigest messageDigest = createMessageDigest(algorithm);
+        FileInputStream instr = new FileInputStream(file);
+        try {
+            try {
+                FileChannel channel = instr.getChannel();
+                ByteBuffer buffer = DIRECT_BUFFER.get();
+                buffer.clear();
+                while (channel.read(buffer) >= 0) {
+                    buffer.flip();
+                    messageDigest.update(buffer);
+                    buffer.clear();
+                }
+            } finally {
+                instr.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new HashValue(messageDigest.digest());
+    }
+
     private static MessageDigest createMessageDigest(String algorithm) {
         try {
             return MessageDigest.getInstance(algorithm);
@@ -18,6 +18,7 @@ package org.gradle.internal.concurrent
 import org.gradle.test.fixtures.concurrent.ConcurrentSpec
 
 import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
 
 class DefaultExecutorFactoryTest extends ConcurrentSpec {
 
@@ -76,6 +77,29 @@ class DefaultExecutorFactoryTest extends ConcurrentSpec {
         instant.stopped > instant.completed2
     }
 
+    def fixedSizeExecutorRunsAtMostTheGivenNumberOfJobsConcurrently() {
+        given:
+        def running = new AtomicInteger()
+        def maxRunning = new AtomicInteger()
+        def action = {
+            def count = running.incrementAndGet()
+            def max = maxRunning.get()
+            while (count > max && !maxRunning.compareAndSet(max, count)) {
+                max = maxRunning.get()
+            }
+            Thread.sleep(20)
+            running.decrementAndGet()
+        }
+
+        when:
+        def executor = factory.create('test', 2)
+        10.times { executor.execute(action) }
+        executor.stop()
+
+        then:
+        maxRunning.get() == 2
+    }
+
     public void cannotStopExecutorFromAnExecutorThread() {
         when:
         def executor = factory.create('<display-name>')
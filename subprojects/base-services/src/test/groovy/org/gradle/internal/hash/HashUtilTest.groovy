@@ -60,6 +60,41 @@ class HashUtilTest extends Specification {
         e.message.contains("MD5")
     }
 
+    def "createHash from large File returns same hash as from InputStream" () {
+        setup:
+        File file = File.createTempFile("HashUtilTest", null)
+        def bytes = new byte[HashUtil.LARGE_FILE_THRESHOLD * 2 + 17]
+        new Random(1234).nextBytes(bytes)
+        file.bytes = bytes
+
+        expect:
+        HashUtil.createHash(file, "MD5") == HashUtil.createHash(new ByteArrayInputStream(bytes), "MD5")
+        HashUtil.sha1(file) == HashUtil.sha1(bytes)
+
+        cleanup:
+        file.delete()
+    }
+
+    def "createHash from File records statistics" () {
+        setup:
+        File file = File.createTempFile("HashUtilTest", null)
+        file << stringToHash
+        FileHashingStatistics.reset()
+
+        when:
+        HashUtil.createHash(file, "MD5")
+        HashUtil.createHash(file, "SHA1")
+        def statistics = FileHashingStatistics.reset()
+
+        then:
+        statistics.filesHashed == 2
+        statistics.bytesHashed == 2 * stringToHash.length()
+        FileHashingStatistics.reset().filesHashed == 0
+
+        cleanup:
+        file.delete()
+    }
+
     def "createHash from InputStream returns MD5 hash" () {
         expect:
         HashUtil.createHash(new ByteArrayInputStream(stringToHash.bytes), "MD5").asHexString() == md5HashString
@@ -16,10 +16,16 @@
 package org.gradle.api.internal;
 
 import org.gradle.api.file.FileCollection;
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
 
 public interface TaskExecutionHistory {
     /**
      * Returns the set of output files which the task produced.
      */
     FileCollection getOutputFiles();
+
+    /**
+     * Returns the changes to the input files of the task since it last executed.
+     */
+    IncrementalTaskInputs getInputChanges();
 }
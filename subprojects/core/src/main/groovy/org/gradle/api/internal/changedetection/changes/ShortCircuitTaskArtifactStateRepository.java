@@ -16,6 +16,7 @@
 package org.gradle.api.internal.changedetection.changes;
 
 import org.gradle.StartParameter;
+import org.gradle.api.file.FileCollection;
 import org.gradle.api.internal.TaskExecutionHistory;
 import org.gradle.api.internal.TaskInternal;
 import org.gradle.api.internal.changedetection.TaskArtifactState;
@@ -78,7 +79,16 @@ public class ShortCircuitTaskArtifactStateRepository implements TaskArtifactStat
         }
 
         public TaskExecutionHistory getExecutionHistory() {
-            return delegate.getExecutionHistory();
+            final TaskExecutionHistory history = delegate.getExecutionHistory();
+            return new TaskExecutionHistory() {
+                public FileCollection getOutputFiles() {
+                    return history.getOutputFiles();
+                }
+
+                public IncrementalTaskInputs getInputChanges() {
+                    return RerunTaskArtifactState.this.getInputChanges();
+                }
+            };
         }
 
         public void beforeTask() {
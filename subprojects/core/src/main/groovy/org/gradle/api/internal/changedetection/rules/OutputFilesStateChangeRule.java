@@ -61,23 +61,9 @@ class OutputFilesStateChangeRule {
                 } else {
                     lastExecutionOutputFiles = previousExecution.getOutputFilesSnapshot();
                 }
-                FileCollectionSnapshot newOutputFiles = outputFilesBefore.changesSince(lastExecutionOutputFiles).applyTo(
-                        lastExecutionOutputFiles, new ChangeListener<FileCollectionSnapshot.Merge>() {
-                            public void added(FileCollectionSnapshot.Merge element) {
-                                // Ignore added files
-                                element.ignore();
-                            }
-
-                            public void removed(FileCollectionSnapshot.Merge element) {
-                                // Discard any files removed since the task was last executed
-                            }
-
-                            public void changed(FileCollectionSnapshot.Merge element) {
-                                // Update any files which were change since the task was last executed
-                            }
-                        });
                 FileCollectionSnapshot outputFilesAfter = outputFilesSnapshotter.snapshot(task.getOutputs().getFiles());
-                currentExecution.setOutputFilesSnapshot(outputFilesAfter.changesSince(outputFilesBefore).applyTo(newOutputFiles));
+                // Keep the files the task has created or changed, along with any files that belonged to the previous execution
+                currentExecution.setOutputFilesSnapshot(outputFilesAfter.mergeChangesSince(outputFilesBefore, lastExecutionOutputFiles));
             }
         };
     }
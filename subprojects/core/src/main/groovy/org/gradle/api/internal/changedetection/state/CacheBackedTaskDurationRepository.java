@@ -0,0 +1,74 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.internal.Factory;
+import org.gradle.messaging.serialize.BaseSerializerFactory;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stores task durations in the task history cache, separately from the task history itself so that they can be read without loading the history of each task.
+ * The cache is only created when durations are first read or written, so builds that do not use task durations do not open it.
+ */
+public class CacheBackedTaskDurationRepository implements TaskDurationRepository {
+    private final TaskArtifactStateCacheAccess cacheAccess;
+    private PersistentIndexedCache<String, Long> durationCache;
+
+    public CacheBackedTaskDurationRepository(TaskArtifactStateCacheAccess cacheAccess) {
+        this.cacheAccess = cacheAccess;
+    }
+
+    private PersistentIndexedCache<String, Long> getDurationCache() {
+        if (durationCache == null) {
+            durationCache = cacheAccess.createCache("taskDurations", String.class, BaseSerializerFactory.LONG_SERIALIZER);
+        }
+        return durationCache;
+    }
+
+    public Map<String, Long> getDurations(final Collection<String> taskPaths) {
+        return cacheAccess.useCache("Load task durations", new Factory<Map<String, Long>>() {
+            public Map<String, Long> create() {
+                PersistentIndexedCache<String, Long> durationCache = getDurationCache();
+                Map<String, Long> durations = new HashMap<String, Long>();
+                for (String taskPath : taskPaths) {
+                    Long duration = durationCache.get(taskPath);
+                    if (duration != null) {
+                        durations.put(taskPath, duration);
+                    }
+                }
+                return durations;
+            }
+        });
+    }
+
+    public void recordDurations(final Map<String, Long> durations) {
+        if (durations.isEmpty()) {
+            return;
+        }
+        cacheAccess.useCache("Update task durations", new Runnable() {
+            public void run() {
+                PersistentIndexedCache<String, Long> durationCache = getDurationCache();
+                for (Map.Entry<String, Long> entry : durations.entrySet()) {
+                    durationCache.put(entry.getKey(), entry.getValue());
+                }
+            }
+        });
+    }
+}
@@ -15,22 +15,57 @@
  */
 package org.gradle.api.internal.changedetection.state;
 
+import org.gradle.api.internal.hash.FileHashAlgorithm;
 import org.gradle.api.internal.hash.Hasher;
 import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.cache.PersistentStore;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.StoppableExecutor;
 import org.gradle.messaging.serialize.Decoder;
 import org.gradle.messaging.serialize.Encoder;
 import org.gradle.messaging.serialize.Serializer;
 
 import java.io.File;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class CachingFileSnapshotter implements FileSnapshotter, Stoppable {
+    /**
+     * The minimum number of files each worker should be given. Below this, the files are snapshotted on the calling thread.
+     */
+    static final int MIN_FILES_PER_WORKER = 64;
 
-public class CachingFileSnapshotter implements FileSnapshotter {
     private final PersistentIndexedCache<File, FileInfo> cache;
     private final Hasher hasher;
+    private final FileHashAlgorithm algorithm;
+    private final PersistentStore store;
+    private final ExecutorFactory executorFactory;
+    private final int maxWorkers;
     private final FileInfoSerializer serializer = new FileInfoSerializer();
+    private StoppableExecutor executor;
 
     public CachingFileSnapshotter(Hasher hasher, PersistentStore store) {
+        this(hasher, FileHashAlgorithm.MD5, store, null, 1);
+    }
+
+    public CachingFileSnapshotter(FileHashAlgorithm algorithm, PersistentStore store, ExecutorFactory executorFactory, int maxWorkers) {
+        this(algorithm.getHasher(), algorithm, store, executorFactory, maxWorkers);
+    }
+
+    CachingFileSnapshotter(Hasher hasher, FileHashAlgorithm algorithm, PersistentStore store, ExecutorFactory executorFactory, int maxWorkers) {
+        if (maxWorkers < 1) {
+            throw new IllegalArgumentException("Not a valid number of workers: " + maxWorkers);
+        }
         this.hasher = hasher;
+        this.algorithm = algorithm;
+        this.store = store;
+        this.executorFactory = executorFactory;
+        this.maxWorkers = maxWorkers;
         this.cache = store.createCache("fileHashes", File.class, serializer);
     }
 
@@ -39,22 +74,122 @@ public class CachingFileSnapshotter implements FileSnapshotter {
 
         long length = file.length();
         long timestamp = file.lastModified();
-        if (info != null && length == info.length && timestamp == info.timestamp) {
+        if (info != null && info.isUpToDate(algorithm, length, timestamp)) {
             return info;
         }
 
         byte[] hash = hasher.hash(file);
-        info = new FileInfo(hash, length, timestamp);
+        info = new FileInfo(algorithm, hash, length, timestamp);
         cache.put(file, info);
         return info;
     }
 
+    public Map<File, FileSnapshot> snapshot(Collection<File> files) {
+        // Cache lookups and updates must happen on the thread that holds the cache, so only the file system work is handed to the workers
+        final List<PendingSnapshot> pending = new ArrayList<PendingSnapshot>(files.size());
+        for (File file : files) {
+            if (file.isFile()) {
+                pending.add(new PendingSnapshot(file, cache.get(file)));
+            }
+        }
+
+        int workerCount = Math.min(maxWorkers, pending.size() / MIN_FILES_PER_WORKER);
+        if (executorFactory == null || workerCount < 2) {
+            for (PendingSnapshot snapshot : pending) {
+                snapshot.update(hasher, algorithm);
+            }
+        } else {
+            final int workers = workerCount;
+            store.longRunningOperation("Hash files", new Runnable() {
+                public void run() {
+                    updateInParallel(pending, workers);
+                }
+            });
+        }
+
+        Map<File, FileSnapshot> snapshots = new LinkedHashMap<File, FileSnapshot>();
+        for (PendingSnapshot snapshot : pending) {
+            if (snapshot.current != snapshot.previous) {
+                cache.put(snapshot.file, snapshot.current);
+            }
+            snapshots.put(snapshot.file, snapshot.current);
+        }
+        return snapshots;
+    }
+
+    private void updateInParallel(final List<PendingSnapshot> pending, int workerCount) {
+        final AtomicInteger nextIndex = new AtomicInteger();
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final CountDownLatch finished = new CountDownLatch(workerCount);
+        Executor executor = getExecutor();
+        try {
+            for (int i = 0; i < workerCount; i++) {
+                executor.execute(new Runnable() {
+                    public void run() {
+                        try {
+                            for (int index = nextIndex.getAndIncrement(); index < pending.size() && failure.get() == null; index = nextIndex.getAndIncrement()) {
+                                pending.get(index).update(hasher, algorithm);
+                            }
+                        } catch (Throwable throwable) {
+                            failure.compareAndSet(null, throwable);
+                        } finally {
+                            finished.countDown();
+                        }
+                    }
+                });
+            }
+            finished.await();
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+        if (failure.get() != null) {
+            throw UncheckedException.throwAsUncheckedException(failure.get());
+        }
+    }
+
+    private synchronized Executor getExecutor() {
+        if (executor == null) {
+            executor = executorFactory.create("File hasher", maxWorkers);
+        }
+        return executor;
+    }
+
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.stop();
+            executor = null;
+        }
+    }
+
+    private static class PendingSnapshot {
+        final File file;
+        final FileInfo previous;
+        FileInfo current;
+
+        PendingSnapshot(File file, FileInfo previous) {
+            this.file = file;
+            this.previous = previous;
+        }
+
+        void update(Hasher hasher, FileHashAlgorithm algorithm) {
+            long length = file.length();
+            long timestamp = file.lastModified();
+            if (previous != null && previous.isUpToDate(algorithm, length, timestamp)) {
+                current = previous;
+            } else {
+                current = new FileInfo(algorithm, hasher.hash(file), length, timestamp);
+            }
+        }
+    }
+
     public static class FileInfo implements FileSnapshot {
+        private final FileHashAlgorithm algorithm;
         private final byte[] hash;
         private final long timestamp;
         private final long length;
 
-        public FileInfo(byte[] hash, long length, long timestamp) {
+        public FileInfo(FileHashAlgorithm algorithm, byte[] hash, long length, long timestamp) {
+            this.algorithm = algorithm;
             this.hash = hash;
             this.length = length;
             this.timestamp = timestamp;
@@ -63,17 +198,26 @@ public class CachingFileSnapshotter implements FileSnapshotter {
         public byte[] getHash() {
             return hash;
         }
+
+        boolean isUpToDate(FileHashAlgorithm algorithm, long length, long timestamp) {
+            return this.algorithm == algorithm && this.length == length && this.timestamp == timestamp;
+        }
     }
 
+    /**
+     * Format 2: algorithm id, hash, timestamp, length. Entries written using an unknown algorithm are read with a null algorithm, so are never up-to-date.
+     */
     private static class FileInfoSerializer implements Serializer<FileInfo> {
         public FileInfo read(Decoder decoder) throws Exception {
+            FileHashAlgorithm algorithm = FileHashAlgorithm.forId(decoder.readByte());
             byte[] hash = decoder.readBinary();
             long timestamp = decoder.readLong();
             long length = decoder.readLong();
-            return new FileInfo(hash, length, timestamp);
+            return new FileInfo(algorithm, hash, length, timestamp);
         }
 
         public void write(Encoder encoder, FileInfo value) throws Exception {
+            encoder.writeByte(value.algorithm.getId());
             encoder.writeBinary(value.hash);
             encoder.writeLong(value.timestamp);
             encoder.writeLong(value.length);
@@ -0,0 +1,304 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import org.gradle.api.Nullable;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+
+import static org.gradle.api.internal.changedetection.state.DefaultFileCollectionSnapshotter.*;
+
+/**
+ * The entries of a file collection snapshot, held in a compact form which is cheap to keep in memory and to compare with the entries of another snapshot.
+ *
+ * <p>The entries are sorted by path. Each path is split into its parent directory, which is interned and so shared with the other entries in the same
+ * directory and with other snapshots, and its name. The kind of each entry is kept in a byte array, and the hashes of all files are packed into a single
+ * byte array. Two snapshots are compared by walking both in order, rather than by looking up each path.</p>
+ *
+ * <p>Instances are immutable.</p>
+ */
+class CompactFileSnapshots {
+    static final byte DIR = 1;
+    static final byte MISSING = 2;
+    static final byte FILE = 3;
+
+    private static final Interner<String> DIRECTORIES = Interners.newWeakInterner();
+
+    static final CompactFileSnapshots EMPTY = new Builder(0).build();
+
+    // The distinct parent directories, in sorted order, each including its trailing separator
+    private final String[] dirs;
+    private final int[] dirIndexes;
+    private final String[] names;
+    private final byte[] kinds;
+    // The hash of entry i is held in hashes[hashOffsets[i]] to hashes[hashOffsets[i + 1]]
+    private final int[] hashOffsets;
+    private final byte[] hashes;
+
+    private CompactFileSnapshots(String[] dirs, int[] dirIndexes, String[] names, byte[] kinds, int[] hashOffsets, byte[] hashes) {
+        this.dirs = dirs;
+        this.dirIndexes = dirIndexes;
+        this.names = names;
+        this.kinds = kinds;
+        this.hashOffsets = hashOffsets;
+        this.hashes = hashes;
+    }
+
+    static CompactFileSnapshots of(Map<String, IncrementalFileSnapshot> snapshots) {
+        Builder builder = new Builder(snapshots.size());
+        for (Map.Entry<String, IncrementalFileSnapshot> entry : snapshots.entrySet()) {
+            builder.add(entry.getKey(), entry.getValue());
+        }
+        return builder.build();
+    }
+
+    int size() {
+        return kinds.length;
+    }
+
+    String getPath(int index) {
+        return dirs[dirIndexes[index]] + names[index];
+    }
+
+    byte getKind(int index) {
+        return kinds[index];
+    }
+
+    /**
+     * Returns a copy of the hash of the given entry, or null when the entry is not a file.
+     */
+    @Nullable
+    byte[] getHash(int index) {
+        if (kinds[index] != FILE) {
+            return null;
+        }
+        return Arrays.copyOfRange(hashes, hashOffsets[index], hashOffsets[index + 1]);
+    }
+
+    int getHashLength(int index) {
+        return hashOffsets[index + 1] - hashOffsets[index];
+    }
+
+    IncrementalFileSnapshot getSnapshot(int index) {
+        switch (kinds[index]) {
+            case DIR:
+                return new DirSnapshot();
+            case MISSING:
+                return new MissingFileSnapshot();
+            default:
+                return new FileHashSnapshot(getHash(index));
+        }
+    }
+
+    /**
+     * Returns the index of the entry with the given path, or -1 when there is no such entry.
+     */
+    int indexOf(String path) {
+        int separator = separatorIndex(path);
+        String dir = path.substring(0, separator + 1);
+        String name = path.substring(separator + 1);
+        int low = 0;
+        int high = size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int result = compare(dirs[dirIndexes[mid]], names[mid], dir, name);
+            if (result < 0) {
+                low = mid + 1;
+            } else if (result > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Compares the path of an entry of this snapshot with the path of an entry of the other snapshot, in the order the entries are sorted.
+     */
+    int compare(int index, CompactFileSnapshots other, int otherIndex) {
+        return compare(dirs[dirIndexes[index]], names[index], other.dirs[other.dirIndexes[otherIndex]], other.names[otherIndex]);
+    }
+
+    /**
+     * Returns true when an entry of this snapshot has the same kind and hash as an entry of the other snapshot.
+     */
+    boolean isUpToDate(int index, CompactFileSnapshots other, int otherIndex) {
+        if (kinds[index] != other.kinds[otherIndex]) {
+            return false;
+        }
+        int length = getHashLength(index);
+        if (length != other.getHashLength(otherIndex)) {
+            return false;
+        }
+        int offset = hashOffsets[index];
+        int otherOffset = other.hashOffsets[otherIndex];
+        for (int i = 0; i < length; i++) {
+            if (hashes[offset + i] != other.hashes[otherOffset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int compare(String dir, String name, String otherDir, String otherName) {
+        // Directories are interned, so the same directory is usually the same instance
+        int result = dir == otherDir ? 0 : dir.compareTo(otherDir);
+        return result != 0 ? result : name.compareTo(otherName);
+    }
+
+    private static int separatorIndex(String path) {
+        return Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\'));
+    }
+
+    /**
+     * Collects entries in any order. Entries added in sorted order, such as those copied from another snapshot, are not sorted again. When the same path is
+     * added more than once, the last entry wins.
+     */
+    static class Builder {
+        private String[] dirs;
+        private String[] names;
+        private byte[] kinds;
+        private byte[][] hashes;
+        private int count;
+        private int hashesLength;
+        private boolean sorted = true;
+
+        Builder(int expectedSize) {
+            int capacity = Math.max(expectedSize, 4);
+            dirs = new String[capacity];
+            names = new String[capacity];
+            kinds = new byte[capacity];
+            hashes = new byte[capacity][];
+        }
+
+        Builder add(String path, IncrementalFileSnapshot snapshot) {
+            if (snapshot instanceof DirSnapshot) {
+                return add(path, DIR, null);
+            }
+            if (snapshot instanceof MissingFileSnapshot) {
+                return add(path, MISSING, null);
+            }
+            return add(path, FILE, ((FileHashSnapshot) snapshot).hash);
+        }
+
+        Builder add(String path, byte kind, @Nullable byte[] hash) {
+            int separator = separatorIndex(path);
+            return add(path.substring(0, separator + 1), path.substring(separator + 1), kind, hash);
+        }
+
+        /**
+         * Adds a copy of the given entry of another snapshot.
+         */
+        Builder add(CompactFileSnapshots snapshots, int index) {
+            return add(snapshots.dirs[snapshots.dirIndexes[index]], snapshots.names[index], snapshots.kinds[index], snapshots.getHash(index));
+        }
+
+        private Builder add(String dir, String name, byte kind, @Nullable byte[] hash) {
+            if (kind != FILE) {
+                hash = null;
+            }
+            if (count == kinds.length) {
+                int capacity = count * 2;
+                dirs = Arrays.copyOf(dirs, capacity);
+                names = Arrays.copyOf(names, capacity);
+                kinds = Arrays.copyOf(kinds, capacity);
+                hashes = Arrays.copyOf(hashes, capacity);
+            }
+            if (sorted && count > 0 && compare(dirs[count - 1], names[count - 1], dir, name) >= 0) {
+                sorted = false;
+            }
+            dirs[count] = dir;
+            names[count] = name;
+            kinds[count] = kind;
+            hashes[count] = hash;
+            hashesLength += hash == null ? 0 : hash.length;
+            count++;
+            return this;
+        }
+
+        CompactFileSnapshots build() {
+            int[] order = sorted ? null : sortedOrder();
+            int size = order == null ? count : order.length;
+            String[] entryNames = new String[size];
+            int[] dirIndexes = new int[size];
+            byte[] entryKinds = new byte[size];
+            int[] hashOffsets = new int[size + 1];
+            byte[] packedHashes = new byte[order == null ? hashesLength : packedLength(order)];
+            String[] distinctDirs = new String[size];
+            int dirCount = 0;
+            int offset = 0;
+            for (int i = 0; i < size; i++) {
+                int source = order == null ? i : order[i];
+                String dir = dirs[source];
+                if (dirCount == 0 || !distinctDirs[dirCount - 1].equals(dir)) {
+                    distinctDirs[dirCount++] = DIRECTORIES.intern(dir);
+                }
+                dirIndexes[i] = dirCount - 1;
+                entryNames[i] = names[source];
+                entryKinds[i] = kinds[source];
+                hashOffsets[i] = offset;
+                byte[] hash = hashes[source];
+                if (hash != null) {
+                    System.arraycopy(hash, 0, packedHashes, offset, hash.length);
+                    offset += hash.length;
+                }
+            }
+            hashOffsets[size] = offset;
+            return new CompactFileSnapshots(Arrays.copyOf(distinctDirs, dirCount), dirIndexes, entryNames, entryKinds, hashOffsets, packedHashes);
+        }
+
+        /**
+         * Returns the indexes of the added entries in sorted order, keeping only the last entry added for each path.
+         */
+        private int[] sortedOrder() {
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            // The sort is stable, so entries for the same path stay in the order they were added
+            Arrays.sort(order, new Comparator<Integer>() {
+                public int compare(Integer left, Integer right) {
+                    return CompactFileSnapshots.compare(dirs[left], names[left], dirs[right], names[right]);
+                }
+            });
+            int[] result = new int[count];
+            int size = 0;
+            for (int i = 0; i < count; i++) {
+                int index = order[i];
+                if (size > 0 && CompactFileSnapshots.compare(dirs[result[size - 1]], names[result[size - 1]], dirs[index], names[index]) == 0) {
+                    result[size - 1] = index;
+                } else {
+                    result[size++] = index;
+                }
+            }
+            return Arrays.copyOf(result, size);
+        }
+
+        private int packedLength(int[] order) {
+            int length = 0;
+            for (int index : order) {
+                length += hashes[index] == null ? 0 : hashes[index].length;
+            }
+            return length;
+        }
+    }
+}
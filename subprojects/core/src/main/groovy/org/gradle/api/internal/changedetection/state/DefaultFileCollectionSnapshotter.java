@@ -29,10 +29,16 @@ import java.util.*;
 public class DefaultFileCollectionSnapshotter implements FileCollectionSnapshotter {
     private final FileSnapshotter snapshotter;
     private TaskArtifactStateCacheAccess cacheAccess;
+    private final WatchedFileCollectionSnapshots watchedSnapshots;
 
     public DefaultFileCollectionSnapshotter(FileSnapshotter snapshotter, TaskArtifactStateCacheAccess cacheAccess) {
+        this(snapshotter, cacheAccess, new WatchedFileCollectionSnapshots(null));
+    }
+
+    public DefaultFileCollectionSnapshotter(FileSnapshotter snapshotter, TaskArtifactStateCacheAccess cacheAccess, WatchedFileCollectionSnapshots watchedSnapshots) {
         this.snapshotter = snapshotter;
         this.cacheAccess = cacheAccess;
+        this.watchedSnapshots = watchedSnapshots;
     }
 
     public void registerSerializers(SerializerRegistry<FileCollectionSnapshot> registry) {
@@ -40,29 +46,38 @@ public class DefaultFileCollectionSnapshotter implements FileCollectionSnapshott
     }
 
     public FileCollectionSnapshot emptySnapshot() {
-        return new FileCollectionSnapshotImpl(new HashMap<String, IncrementalFileSnapshot>());
+        return new FileCollectionSnapshotImpl(CompactFileSnapshots.EMPTY);
     }
 
     public FileCollectionSnapshot snapshot(FileCollection input) {
         final Set<File> files = input.getAsFileTree().getFiles();
         if (files.isEmpty()) {
-            return new FileCollectionSnapshotImpl(Collections.<String, IncrementalFileSnapshot>emptyMap());
+            return new FileCollectionSnapshotImpl(CompactFileSnapshots.EMPTY);
+        }
+        FileCollectionSnapshot retained = watchedSnapshots.get(files);
+        if (retained != null) {
+            return retained;
         }
-        final Map<String, IncrementalFileSnapshot> snapshots = new HashMap<String, IncrementalFileSnapshot>();
+        long mark = watchedSnapshots.watch(files);
+        final CompactFileSnapshots.Builder builder = new CompactFileSnapshots.Builder(files.size());
         cacheAccess.useCache("Create file snapshot", new Runnable() {
             public void run() {
+                Map<File, FileSnapshot> fileSnapshots = snapshotter.snapshot(files);
                 for (File file : files) {
-                    if (file.isFile()) {
-                        snapshots.put(file.getAbsolutePath(), new FileHashSnapshot(snapshotter.snapshot(file).getHash()));
+                    FileSnapshot fileSnapshot = fileSnapshots.get(file);
+                    if (fileSnapshot != null) {
+                        builder.add(file.getAbsolutePath(), CompactFileSnapshots.FILE, fileSnapshot.getHash());
                     } else if (file.isDirectory()) {
-                        snapshots.put(file.getAbsolutePath(), new DirSnapshot());
+                        builder.add(file.getAbsolutePath(), CompactFileSnapshots.DIR, null);
                     } else {
-                        snapshots.put(file.getAbsolutePath(), new MissingFileSnapshot());
+                        builder.add(file.getAbsolutePath(), CompactFileSnapshots.MISSING, null);
                     }
                 }
             }
         });
-        return new FileCollectionSnapshotImpl(snapshots);
+        FileCollectionSnapshot snapshot = new FileCollectionSnapshotImpl(builder.build());
+        watchedSnapshots.put(files, mark, snapshot);
+        return snapshot;
     }
 
     static interface IncrementalFileSnapshot {
@@ -108,17 +123,32 @@ public class DefaultFileCollectionSnapshotter implements FileCollectionSnapshott
     }
 
     static class FileCollectionSnapshotImpl implements FileCollectionSnapshot {
-        final Map<String, IncrementalFileSnapshot> snapshots;
+        final CompactFileSnapshots entries;
 
         public FileCollectionSnapshotImpl(Map<String, IncrementalFileSnapshot> snapshots) {
-            this.snapshots = snapshots;
+            this(CompactFileSnapshots.of(snapshots));
+        }
+
+        FileCollectionSnapshotImpl(CompactFileSnapshots entries) {
+            this.entries = entries;
+        }
+
+        /**
+         * Returns a copy of the entries of this snapshot, keyed by path.
+         */
+        Map<String, IncrementalFileSnapshot> getSnapshots() {
+            Map<String, IncrementalFileSnapshot> snapshots = new LinkedHashMap<String, IncrementalFileSnapshot>();
+            for (int i = 0; i < entries.size(); i++) {
+                snapshots.put(entries.getPath(i), entries.getSnapshot(i));
+            }
+            return snapshots;
         }
 
         public FileCollection getFiles() {
             List<File> files = new ArrayList<File>();
-            for (Map.Entry<String, IncrementalFileSnapshot> entry : snapshots.entrySet()) {
-                if (entry.getValue() instanceof FileHashSnapshot) {
-                    files.add(new File(entry.getKey()));
+            for (int i = 0; i < entries.size(); i++) {
+                if (entries.getKind(i) == CompactFileSnapshots.FILE) {
+                    files.add(new File(entries.getPath(i)));
                 }
             }
             return new SimpleFileCollection(files);
@@ -127,9 +157,9 @@ public class DefaultFileCollectionSnapshotter implements FileCollectionSnapshott
         public FilesSnapshotSet getSnapshot() {
             return new FilesSnapshotSet() {
                 public FileSnapshot findSnapshot(File file) {
-                    IncrementalFileSnapshot s = snapshots.get(file.getAbsolutePath());
-                    if (s instanceof FileSnapshot) {
-                        return (FileSnapshot) s;
+                    int index = entries.indexOf(file.getAbsolutePath());
+                    if (index >= 0 && entries.getKind(index) == CompactFileSnapshots.FILE) {
+                        return new FileHashSnapshot(entries.getHash(index));
                     }
                     return null;
                 }
@@ -137,73 +167,139 @@ public class DefaultFileCollectionSnapshotter implements FileCollectionSnapshott
         }
 
         public ChangeIterator<String> iterateChangesSince(FileCollectionSnapshot oldSnapshot) {
-            FileCollectionSnapshotImpl other = (FileCollectionSnapshotImpl) oldSnapshot;
-            final Map<String, IncrementalFileSnapshot> otherSnapshots = new HashMap<String, IncrementalFileSnapshot>(other.snapshots);
-            final Iterator<String> currentFiles = snapshots.keySet().iterator();
+            final CompactFileSnapshots otherEntries = ((FileCollectionSnapshotImpl) oldSnapshot).entries;
 
+            // Both snapshots are sorted by path, so walk them together
             return new ChangeIterator<String>() {
-                private Iterator<String> removedFiles;
+                private int current;
+                private int other;
 
                 public boolean next(ChangeListener<String> listener) {
-                    while (currentFiles.hasNext()) {
-                        String currentFile = currentFiles.next();
-                        IncrementalFileSnapshot otherFile = otherSnapshots.remove(currentFile);
-
-                        if (otherFile == null) {
-                            listener.added(currentFile);
+                    while (current < entries.size() || other < otherEntries.size()) {
+                        int result = compare(entries, current, otherEntries, other);
+                        if (result < 0) {
+                            listener.added(entries.getPath(current++));
                             return true;
-                        } else if (!snapshots.get(currentFile).isUpToDate(otherFile)) {
-                            listener.changed(currentFile);
+                        } else if (result > 0) {
+                            listener.removed(otherEntries.getPath(other++));
+                            return true;
+                        }
+                        boolean upToDate = entries.isUpToDate(current, otherEntries, other);
+                        current++;
+                        other++;
+                        if (!upToDate) {
+                            listener.changed(entries.getPath(current - 1));
                             return true;
                         }
                     }
-
-                    // Create a single iterator to use for all of the removed files
-                    if (removedFiles == null) {
-                        removedFiles = otherSnapshots.keySet().iterator();
-                    }
-
-                    if (removedFiles.hasNext()) {
-                        listener.removed(removedFiles.next());
-                        return true;
-                    }
-
                     return false;
                 }
             };
         }
 
         public Diff changesSince(final FileCollectionSnapshot oldSnapshot) {
-            final FileCollectionSnapshotImpl other = (FileCollectionSnapshotImpl) oldSnapshot;
+            final CompactFileSnapshots otherEntries = ((FileCollectionSnapshotImpl) oldSnapshot).entries;
             return new Diff() {
                 public FileCollectionSnapshot applyTo(FileCollectionSnapshot snapshot) {
                     return applyTo(snapshot, new NoOpChangeListener<Merge>());
                 }
 
-                public FileCollectionSnapshot applyTo(FileCollectionSnapshot snapshot, final ChangeListener<Merge> listener) {
-                    FileCollectionSnapshotImpl target = (FileCollectionSnapshotImpl) snapshot;
-                    final Map<String, IncrementalFileSnapshot> newSnapshots = new HashMap<String, IncrementalFileSnapshot>(target.snapshots);
-                    diff(snapshots, other.snapshots, new MapMergeChangeListener<String, IncrementalFileSnapshot>(listener, newSnapshots));
-                    return new FileCollectionSnapshotImpl(newSnapshots);
+                public FileCollectionSnapshot applyTo(FileCollectionSnapshot snapshot, ChangeListener<Merge> listener) {
+                    CompactFileSnapshots target = ((FileCollectionSnapshotImpl) snapshot).entries;
+                    return new FileCollectionSnapshotImpl(merge(entries, otherEntries, target, listener));
                 }
             };
         }
 
-        private void diff(Map<String, IncrementalFileSnapshot> snapshots, Map<String, IncrementalFileSnapshot> oldSnapshots,
-                          ChangeListener<Map.Entry<String, IncrementalFileSnapshot>> listener) {
-            Map<String, IncrementalFileSnapshot> otherSnapshots = new HashMap<String, IncrementalFileSnapshot>(oldSnapshots);
-            for (Map.Entry<String, IncrementalFileSnapshot> entry : snapshots.entrySet()) {
-                IncrementalFileSnapshot otherFile = otherSnapshots.remove(entry.getKey());
-                if (otherFile == null) {
-                    listener.added(entry);
-                } else if (!entry.getValue().isUpToDate(otherFile)) {
-                    listener.changed(entry);
+        public FileCollectionSnapshot mergeChangesSince(FileCollectionSnapshot before, FileCollectionSnapshot previous) {
+            CompactFileSnapshots beforeEntries = ((FileCollectionSnapshotImpl) before).entries;
+            CompactFileSnapshots previousEntries = ((FileCollectionSnapshotImpl) previous).entries;
+            CompactFileSnapshots.Builder builder = new CompactFileSnapshots.Builder(entries.size());
+
+            // All three snapshots are sorted by path, so walk them together
+            int beforeIndex = 0;
+            int previousIndex = 0;
+            for (int current = 0; current < entries.size(); current++) {
+                while (beforeIndex < beforeEntries.size() && beforeEntries.compare(beforeIndex, entries, current) < 0) {
+                    beforeIndex++;
+                }
+                while (previousIndex < previousEntries.size() && previousEntries.compare(previousIndex, entries, current) < 0) {
+                    previousIndex++;
+                }
+                boolean inPrevious = previousIndex < previousEntries.size() && previousEntries.compare(previousIndex, entries, current) == 0;
+                boolean unchanged = beforeIndex < beforeEntries.size() && beforeEntries.compare(beforeIndex, entries, current) == 0
+                        && entries.isUpToDate(current, beforeEntries, beforeIndex);
+                if (inPrevious || !unchanged) {
+                    builder.add(entries, current);
+                }
+            }
+            return new FileCollectionSnapshotImpl(builder.build());
+        }
+
+        /**
+         * Applies the changes from the old entries to the new entries onto the target entries. All three are sorted by path, so are walked together and
+         * the result is built in sorted order.
+         */
+        private static CompactFileSnapshots merge(CompactFileSnapshots newEntries, CompactFileSnapshots oldEntries, CompactFileSnapshots target,
+                                                  ChangeListener<Merge> listener) {
+            CompactFileSnapshots.Builder builder = new CompactFileSnapshots.Builder(Math.max(target.size(), newEntries.size()));
+            int current = 0;
+            int old = 0;
+            int targetIndex = 0;
+            while (current < newEntries.size() || old < oldEntries.size()) {
+                int result = compare(newEntries, current, oldEntries, old);
+                CompactFileSnapshots changed;
+                int changedIndex;
+                if (result > 0) {
+                    changed = oldEntries;
+                    changedIndex = old++;
+                } else {
+                    if (result == 0 && newEntries.isUpToDate(current, oldEntries, old++)) {
+                        current++;
+                        continue;
+                    }
+                    changed = newEntries;
+                    changedIndex = current++;
+                }
+
+                // Keep the target entries which come before the changed path
+                while (targetIndex < target.size() && target.compare(targetIndex, changed, changedIndex) < 0) {
+                    builder.add(target, targetIndex++);
+                }
+
+                MapMergeChangeListener.DefaultMerge merge = new MapMergeChangeListener.DefaultMerge();
+                if (result < 0) {
+                    listener.added(merge);
+                } else if (result > 0) {
+                    listener.removed(merge);
+                } else {
+                    listener.changed(merge);
+                }
+                if (merge.isIgnore()) {
+                    // Any target entry for the path is kept with the following entries
+                    continue;
+                }
+                if (targetIndex < target.size() && target.compare(targetIndex, changed, changedIndex) == 0) {
+                    targetIndex++;
+                }
+                if (result <= 0) {
+                    builder.add(changed, changedIndex);
                 }
             }
-            for (Map.Entry<String, IncrementalFileSnapshot> entry : otherSnapshots.entrySet()) {
-                listener.removed(entry);
+            while (targetIndex < target.size()) {
+                builder.add(target, targetIndex++);
             }
+            return builder.build();
         }
 
+        private static int compare(CompactFileSnapshots entries, int index, CompactFileSnapshots otherEntries, int otherIndex) {
+            if (index == entries.size()) {
+                return 1;
+            }
+            if (otherIndex == otherEntries.size()) {
+                return -1;
+            }
+            return entries.compare(index, otherEntries, otherIndex);
+        }
     }
 }
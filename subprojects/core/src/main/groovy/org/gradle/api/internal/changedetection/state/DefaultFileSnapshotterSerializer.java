@@ -20,45 +20,36 @@ import org.gradle.messaging.serialize.Decoder;
 import org.gradle.messaging.serialize.Encoder;
 import org.gradle.messaging.serialize.Serializer;
 
-import java.util.HashMap;
-import java.util.Map;
-
 class DefaultFileSnapshotterSerializer implements Serializer<DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl> {
     public DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl read(Decoder decoder) throws Exception {
-        Map<String, DefaultFileCollectionSnapshotter.IncrementalFileSnapshot> snapshots = new HashMap<String, DefaultFileCollectionSnapshotter.IncrementalFileSnapshot>();
-        DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl snapshot = new DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl(snapshots);
         int snapshotsCount = decoder.readSmallInt();
+        CompactFileSnapshots.Builder builder = new CompactFileSnapshots.Builder(snapshotsCount);
         for (int i = 0; i < snapshotsCount; i++) {
             String key = decoder.readString();
             byte fileSnapshotKind = decoder.readByte();
-            if (fileSnapshotKind == 1) {
-                snapshots.put(key, new DefaultFileCollectionSnapshotter.DirSnapshot());
-            } else if (fileSnapshotKind == 2) {
-                snapshots.put(key, new DefaultFileCollectionSnapshotter.MissingFileSnapshot());
-            } else if (fileSnapshotKind == 3) {
+            if (fileSnapshotKind == CompactFileSnapshots.DIR || fileSnapshotKind == CompactFileSnapshots.MISSING) {
+                builder.add(key, fileSnapshotKind, null);
+            } else if (fileSnapshotKind == CompactFileSnapshots.FILE) {
                 byte hashSize = decoder.readByte();
                 byte[] hash = new byte[hashSize];
                 decoder.readBytes(hash);
-                snapshots.put(key, new DefaultFileCollectionSnapshotter.FileHashSnapshot(hash));
+                builder.add(key, fileSnapshotKind, hash);
             } else {
                 throw new RuntimeException("Unable to read serialized file collection snapshot. Unrecognized value found in the data stream.");
             }
         }
-        return snapshot;
+        return new DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl(builder.build());
     }
 
     public void write(Encoder encoder, DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl value) throws Exception {
-        encoder.writeSmallInt(value.snapshots.size());
-        for (String key : value.snapshots.keySet()) {
-            encoder.writeString(key);
-            DefaultFileCollectionSnapshotter.IncrementalFileSnapshot incrementalFileSnapshot = value.snapshots.get(key);
-            if (incrementalFileSnapshot instanceof DefaultFileCollectionSnapshotter.DirSnapshot) {
-                encoder.writeByte((byte) 1);
-            } else if (incrementalFileSnapshot instanceof DefaultFileCollectionSnapshotter.MissingFileSnapshot) {
-                encoder.writeByte((byte) 2);
-            } else if (incrementalFileSnapshot instanceof DefaultFileCollectionSnapshotter.FileHashSnapshot) {
-                encoder.writeByte((byte) 3);
-                byte[] hash = ((DefaultFileCollectionSnapshotter.FileHashSnapshot) incrementalFileSnapshot).hash;
+        CompactFileSnapshots entries = value.entries;
+        encoder.writeSmallInt(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            encoder.writeString(entries.getPath(i));
+            byte kind = entries.getKind(i);
+            encoder.writeByte(kind);
+            if (kind == CompactFileSnapshots.FILE) {
+                byte[] hash = entries.getHash(i);
                 encoder.writeByte((byte) hash.length);
                 encoder.writeBytes(hash);
             }
@@ -15,26 +15,50 @@
  */
 package org.gradle.api.internal.changedetection.state;
 
+import org.gradle.api.Nullable;
 import org.gradle.api.invocation.Gradle;
 import org.gradle.cache.CacheRepository;
 import org.gradle.cache.PersistentCache;
 import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.cache.PersistentIndexedCacheParameters;
+import org.gradle.cache.PersistentIndexedCacheParameters.StorageLayout;
 import org.gradle.cache.internal.CacheDecorator;
 import org.gradle.cache.internal.FileLockManager;
 import org.gradle.internal.Factory;
 import org.gradle.messaging.serialize.Serializer;
 
 import java.io.Closeable;
+import java.util.Collections;
+import java.util.Set;
 
 import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode;
 
 public class DefaultTaskArtifactStateCacheAccess implements TaskArtifactStateCacheAccess, Closeable {
+    /**
+     * When set, the task history caches are stored in append-only logs rather than B-trees.
+     */
+    public static final String APPEND_ONLY_LOG_TOGGLE = "org.gradle.cache.appendonlylog";
+    /**
+     * The number of entries of each cache kept in memory for the duration of a build, when there is no decorator to keep them in memory across builds.
+     */
+    static final int MAX_ENTRIES_IN_MEMORY = 10000;
+    static final int MAX_PENDING_WRITES = 1000;
+    // Writes to these caches are buffered, as losing them when the process is killed only means that their entries are calculated again
+    private static final Set<String> BUFFERED_CACHES = Collections.singleton("fileHashes");
     private final CacheDecorator inMemoryDecorator;
+    private final StorageLayout storageLayout;
     private final PersistentCache cache;
 
-    public DefaultTaskArtifactStateCacheAccess(Gradle gradle, CacheRepository cacheRepository, CacheDecorator decorator) {
+    /**
+     * @param decorator the decorator that keeps entries in memory across builds, or null to keep entries in memory for the duration of the build only.
+     */
+    public DefaultTaskArtifactStateCacheAccess(Gradle gradle, CacheRepository cacheRepository, @Nullable CacheDecorator decorator) {
+        this(gradle, cacheRepository, decorator, Boolean.getBoolean(APPEND_ONLY_LOG_TOGGLE) ? StorageLayout.AppendOnlyLog : StorageLayout.BTree);
+    }
+
+    public DefaultTaskArtifactStateCacheAccess(Gradle gradle, CacheRepository cacheRepository, @Nullable CacheDecorator decorator, StorageLayout storageLayout) {
         this.inMemoryDecorator = decorator;
+        this.storageLayout = storageLayout;
         cache = cacheRepository
                 .cache(gradle, "taskArtifacts")
                 .withDisplayName("task history cache")
@@ -48,7 +72,15 @@ public class DefaultTaskArtifactStateCacheAccess implements TaskArtifactStateCac
 
     public <K, V> PersistentIndexedCache<K, V> createCache(final String cacheName, final Class<K> keyType, final Serializer<V> valueSerializer) {
         PersistentIndexedCacheParameters<K, V> parameters = new PersistentIndexedCacheParameters<K, V>(cacheName, keyType, valueSerializer)
-                .cacheDecorator(inMemoryDecorator);
+                .storageLayout(storageLayout);
+        if (inMemoryDecorator != null) {
+            parameters.cacheDecorator(inMemoryDecorator);
+        } else {
+            parameters.maxEntriesInMemory(MAX_ENTRIES_IN_MEMORY);
+        }
+        if (BUFFERED_CACHES.contains(cacheName)) {
+            parameters.maxPendingWrites(MAX_PENDING_WRITES);
+        }
         return cache.createCache(parameters);
     }
 
@@ -28,6 +28,18 @@ public interface FileCollectionSnapshot {
 
     Diff changesSince(FileCollectionSnapshot oldSnapshot);
 
+    /**
+     * Merges the files of this snapshot which have been added or changed since the given {@code before} snapshot into the given {@code previous}
+     * snapshot. Files of the previous snapshot which are no longer in this snapshot are discarded, and the remaining files take their state from this
+     * snapshot.
+     *
+     * <p>This gives the same result as applying the changes from {@code before} to {@code previous} while ignoring added files, and then applying the
+     * changes from this snapshot to the result, but does not build the intermediate snapshot.</p>
+     *
+     * @return the merged snapshot
+     */
+    FileCollectionSnapshot mergeChangesSince(FileCollectionSnapshot before, FileCollectionSnapshot previous);
+
     FileCollection getFiles();
 
     FilesSnapshotSet getSnapshot();
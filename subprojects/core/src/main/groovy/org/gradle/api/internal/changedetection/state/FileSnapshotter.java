@@ -17,6 +17,8 @@
 package org.gradle.api.internal.changedetection.state;
 
 import java.io.File;
+import java.util.Collection;
+import java.util.Map;
 
 public interface FileSnapshotter {
     /**
@@ -24,4 +26,11 @@ public interface FileSnapshotter {
      */
     FileSnapshot snapshot(File file);
 
+    /**
+     * Takes a snapshot of the current content of each of the given files. Entries which are not files (for example, missing files or directories) are not
+     * included in the result.
+     *
+     * @return The snapshots, keyed by file, in the iteration order of the given files.
+     */
+    Map<File, FileSnapshot> snapshot(Collection<File> files);
 }
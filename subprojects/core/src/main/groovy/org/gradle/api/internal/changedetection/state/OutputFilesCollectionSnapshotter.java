@@ -23,7 +23,6 @@ import org.gradle.messaging.serialize.DefaultSerializerRegistry;
 import org.gradle.messaging.serialize.LongSerializer;
 import org.gradle.messaging.serialize.SerializerRegistry;
 import org.gradle.util.ChangeListener;
-import org.gradle.util.DiffUtil;
 import org.gradle.util.NoOpChangeListener;
 
 import java.io.File;
@@ -44,13 +43,20 @@ public class OutputFilesCollectionSnapshotter implements FileCollectionSnapshott
     private final FileCollectionSnapshotter snapshotter;
     private final IdGenerator<Long> idGenerator;
     private final TaskArtifactStateCacheAccess cacheAccess;
+    private final WatchedFileCollectionSnapshots watchedSnapshots;
     private final PersistentIndexedCache<String, Long> dirIdentifierCache;
 
     public OutputFilesCollectionSnapshotter(FileCollectionSnapshotter snapshotter, IdGenerator<Long> idGenerator,
                                             TaskArtifactStateCacheAccess cacheAccess) {
+        this(snapshotter, idGenerator, cacheAccess, new WatchedFileCollectionSnapshots(null));
+    }
+
+    public OutputFilesCollectionSnapshotter(FileCollectionSnapshotter snapshotter, IdGenerator<Long> idGenerator,
+                                            TaskArtifactStateCacheAccess cacheAccess, WatchedFileCollectionSnapshots watchedSnapshots) {
         this.snapshotter = snapshotter;
         this.idGenerator = idGenerator;
         this.cacheAccess = cacheAccess;
+        this.watchedSnapshots = watchedSnapshots;
         dirIdentifierCache = cacheAccess.createCache("outputFileStates", String.class, new LongSerializer());
     }
 
@@ -67,6 +73,8 @@ public class OutputFilesCollectionSnapshotter implements FileCollectionSnapshott
     public OutputFilesSnapshot snapshot(final FileCollection files) {
         final Map<String, Long> snapshotDirIds = new HashMap<String, Long>();
         final Set<File> theFiles = files.getFiles();
+        // The task is about to change, or has just changed, its outputs. Don't wait for the change events to arrive
+        watchedSnapshots.invalidate(theFiles);
         cacheAccess.useCache("create dir snapshots", new Runnable() {
             public void run() {
                 for (File file : theFiles) {
@@ -108,7 +116,7 @@ public class OutputFilesCollectionSnapshotter implements FileCollectionSnapshott
 
         public Diff changesSince(final FileCollectionSnapshot oldSnapshot) {
             OutputFilesSnapshot other = (OutputFilesSnapshot) oldSnapshot;
-            return new OutputFilesDiff(rootFileIds, other.rootFileIds, filesSnapshot.changesSince(other.filesSnapshot));
+            return new OutputFilesDiff(rootFileIds, filesSnapshot.changesSince(other.filesSnapshot));
         }
 
         public ChangeIterator<String> iterateChangesSince(FileCollectionSnapshot oldSnapshot) {
@@ -134,41 +142,43 @@ public class OutputFilesCollectionSnapshotter implements FileCollectionSnapshott
             };
         }
 
-        private ChangeIterator<String> iterateRootFileIdChanges(final OutputFilesSnapshot other) {
-            // Inlining DiffUtil.diff makes the inefficiencies here a bit more explicit
-            Map<String, Long> added = new HashMap<String, Long>(rootFileIds);
-            added.keySet().removeAll(other.rootFileIds.keySet());
-            final Iterator<String> addedIterator = added.keySet().iterator();
-
-            Map<String, Long> removed = new HashMap<String, Long>(other.rootFileIds);
-            removed.keySet().removeAll(rootFileIds.keySet());
-            final Iterator<String> removedIterator = removed.keySet().iterator();
-
-            Set<String> changed = new HashSet<String>();
-            for (Map.Entry<String, Long> current : rootFileIds.entrySet()) {
-                 // Only care about rootIds that used to exist, and have changed or been removed
-                Long otherValue = other.rootFileIds.get(current.getKey());
-                if (otherValue != null && !otherValue.equals(current.getValue())) {
-                    changed.add(current.getKey());
-                }
-            }
-            final Iterator<String> changedIterator = changed.iterator();
+        public FileCollectionSnapshot mergeChangesSince(FileCollectionSnapshot before, FileCollectionSnapshot previous) {
+            OutputFilesSnapshot beforeSnapshot = (OutputFilesSnapshot) before;
+            OutputFilesSnapshot previousSnapshot = (OutputFilesSnapshot) previous;
+            return new OutputFilesSnapshot(rootFileIds, filesSnapshot.mergeChangesSince(beforeSnapshot.filesSnapshot, previousSnapshot.filesSnapshot));
+        }
 
+        private ChangeIterator<String> iterateRootFileIdChanges(final OutputFilesSnapshot other) {
+            // Reports the added, then the removed, then the changed root files, looking each one up in the other map rather than copying either map
             return new ChangeIterator<String>() {
+                private Iterator<Map.Entry<String, Long>> added = rootFileIds.entrySet().iterator();
+                private Iterator<Map.Entry<String, Long>> removed = other.rootFileIds.entrySet().iterator();
+                private Iterator<Map.Entry<String, Long>> changed = rootFileIds.entrySet().iterator();
+
                 public boolean next(ChangeListener<String> listener) {
-                    if (addedIterator.hasNext()) {
-                        listener.added(addedIterator.next());
-                        return true;
+                    while (added.hasNext()) {
+                        String file = added.next().getKey();
+                        if (!other.rootFileIds.containsKey(file)) {
+                            listener.added(file);
+                            return true;
+                        }
                     }
-                    if (removedIterator.hasNext()) {
-                        listener.removed(removedIterator.next());
-                        return true;
+                    while (removed.hasNext()) {
+                        String file = removed.next().getKey();
+                        if (!rootFileIds.containsKey(file)) {
+                            listener.removed(file);
+                            return true;
+                        }
                     }
-                    if (changedIterator.hasNext()) {
-                        listener.changed(changedIterator.next());
-                        return true;
+                    while (changed.hasNext()) {
+                        Map.Entry<String, Long> current = changed.next();
+                        // Only care about rootIds that used to exist, and have changed or been removed
+                        Long otherValue = other.rootFileIds.get(current.getKey());
+                        if (otherValue != null && !otherValue.equals(current.getValue())) {
+                            listener.changed(current.getKey());
+                            return true;
+                        }
                     }
-
                     return false;
                 }
             };
@@ -203,22 +213,16 @@ public class OutputFilesCollectionSnapshotter implements FileCollectionSnapshott
 
     private static class OutputFilesDiff implements FileCollectionSnapshot.Diff {
         private final Map<String, Long> newFileIds;
-        private final Map<String, Long> oldFileIds;
         private final FileCollectionSnapshot.Diff filesDiff;
 
-        public OutputFilesDiff(Map<String, Long> newFileIds, Map<String, Long> oldFileIds,
-                               FileCollectionSnapshot.Diff filesDiff) {
+        public OutputFilesDiff(Map<String, Long> newFileIds, FileCollectionSnapshot.Diff filesDiff) {
             this.newFileIds = newFileIds;
-            this.oldFileIds = oldFileIds;
             this.filesDiff = filesDiff;
         }
 
         public FileCollectionSnapshot applyTo(FileCollectionSnapshot snapshot,
                                               ChangeListener<FileCollectionSnapshot.Merge> listener) {
             OutputFilesSnapshot other = (OutputFilesSnapshot) snapshot;
-            Map<String, Long> dirIds = new HashMap<String, Long>(other.rootFileIds);
-            DiffUtil.diff(newFileIds, oldFileIds, new MapMergeChangeListener<String, Long>(
-                    new NoOpChangeListener<FileCollectionSnapshot.Merge>(), dirIds));
             return new OutputFilesSnapshot(newFileIds, filesDiff.applyTo(other.filesSnapshot, listener));
         }
 
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import org.gradle.api.Nullable;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.filewatch.FileWatcher;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * Retains the snapshots of file collections across the builds of a long-lived process, and hands a snapshot back out for as long as the watcher reports
+ * no change to the directories containing its files. The set of files is the key, so files that are added to or removed from a collection still cause it
+ * to be snapshotted again.
+ *
+ * <p>A directory stops being watched once no retained snapshot contains files of the directory, and the record of invalidated files is discarded up to
+ * the mark of the oldest retained snapshot.</p>
+ *
+ * <p>Does nothing when no watcher is available.</p>
+ */
+public class WatchedFileCollectionSnapshots implements Stoppable {
+    public static final String TOGGLE = "org.gradle.filewatch";
+    public static final long NOT_WATCHED = -1;
+    private static final long MAX_RETAINED_FILES = 1000000;
+
+    private final FileWatcher watcher;
+    private final Cache<Set<File>, RetainedSnapshot> snapshots;
+    // The number of retained snapshots per watched directory and per mark
+    private final Map<File, Integer> directoryUsages = new HashMap<File, Integer>();
+    private final SortedMap<Long, Integer> markUsages = new TreeMap<Long, Integer>();
+
+    public WatchedFileCollectionSnapshots(@Nullable FileWatcher watcher) {
+        this(watcher, MAX_RETAINED_FILES);
+    }
+
+    WatchedFileCollectionSnapshots(@Nullable FileWatcher watcher, long maxRetainedFiles) {
+        this.watcher = watcher;
+        this.snapshots = CacheBuilder.newBuilder()
+                .maximumWeight(maxRetainedFiles)
+                .weigher(new Weigher<Set<File>, RetainedSnapshot>() {
+                    public int weigh(Set<File> files, RetainedSnapshot snapshot) {
+                        return files.size();
+                    }
+                })
+                .removalListener(new RemovalListener<Set<File>, RetainedSnapshot>() {
+                    public void onRemoval(RemovalNotification<Set<File>, RetainedSnapshot> notification) {
+                        release(notification.getValue());
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Returns the retained snapshot of the given files, or null when there is none or the files may have changed since it was taken.
+     */
+    @Nullable
+    public FileCollectionSnapshot get(Set<File> files) {
+        if (watcher == null) {
+            return null;
+        }
+        RetainedSnapshot retained = snapshots.getIfPresent(files);
+        if (retained == null) {
+            return null;
+        }
+        for (File directory : retained.directories) {
+            if (watcher.isChangedSince(directory, retained.mark)) {
+                snapshots.invalidate(files);
+                return null;
+            }
+        }
+        return retained.snapshot;
+    }
+
+    /**
+     * Starts watching the directories containing the given files. Must be called before the files are snapshotted, so that changes made while
+     * snapshotting are noticed.
+     *
+     * @return the mark to retain the snapshot with, or {@link #NOT_WATCHED} when the files cannot be watched.
+     */
+    public long watch(Set<File> files) {
+        if (watcher == null) {
+            return NOT_WATCHED;
+        }
+        for (File directory : directoriesOf(files)) {
+            if (!watcher.watch(directory)) {
+                return NOT_WATCHED;
+            }
+        }
+        return watcher.mark();
+    }
+
+    /**
+     * Retains the snapshot of the given files, taken after the given mark.
+     */
+    public void put(Set<File> files, long mark, FileCollectionSnapshot snapshot) {
+        if (watcher == null || mark == NOT_WATCHED) {
+            return;
+        }
+        RetainedSnapshot retained = new RetainedSnapshot(directoriesOf(files), mark, snapshot);
+        retain(retained);
+        snapshots.put(files, retained);
+    }
+
+    /**
+     * Stops handing out the snapshots of the given files, and of any files under them, which were taken before now. Used for files that are
+     * changed by the build itself, as change events may arrive too late for the next snapshot of those files.
+     */
+    public void invalidate(Iterable<File> files) {
+        if (watcher == null) {
+            return;
+        }
+        for (File file : files) {
+            watcher.invalidate(file);
+        }
+        Long oldestMark = getOldestMark();
+        if (oldestMark != null) {
+            watcher.discardInvalidationsBefore(oldestMark);
+        }
+    }
+
+    public void stop() {
+        snapshots.invalidateAll();
+        if (watcher != null) {
+            watcher.stop();
+        }
+    }
+
+    private synchronized void retain(RetainedSnapshot retained) {
+        for (File directory : retained.directories) {
+            increment(directoryUsages, directory);
+        }
+        increment(markUsages, retained.mark);
+    }
+
+    private synchronized void release(RetainedSnapshot retained) {
+        for (File directory : retained.directories) {
+            if (decrement(directoryUsages, directory)) {
+                watcher.unwatch(directory);
+            }
+        }
+        decrement(markUsages, retained.mark);
+    }
+
+    @Nullable
+    private synchronized Long getOldestMark() {
+        return markUsages.isEmpty() ? null : markUsages.firstKey();
+    }
+
+    private static <T> void increment(Map<T, Integer> usages, T key) {
+        Integer count = usages.get(key);
+        usages.put(key, count == null ? 1 : count + 1);
+    }
+
+    /**
+     * Returns true when the key is no longer used.
+     */
+    private static <T> boolean decrement(Map<T, Integer> usages, T key) {
+        Integer count = usages.get(key);
+        if (count == null) {
+            return false;
+        }
+        if (count == 1) {
+            usages.remove(key);
+            return true;
+        }
+        usages.put(key, count - 1);
+        return false;
+    }
+
+    private static Set<File> directoriesOf(Set<File> files) {
+        Set<File> directories = new HashSet<File>();
+        for (File file : files) {
+            File parent = file.getParentFile();
+            if (parent != null) {
+                directories.add(parent);
+            }
+        }
+        return directories;
+    }
+
+    private static class RetainedSnapshot {
+        final Set<File> directories;
+        final long mark;
+        final FileCollectionSnapshot snapshot;
+
+        RetainedSnapshot(Set<File> directories, long mark, FileCollectionSnapshot snapshot) {
+            this.directories = directories;
+            this.mark = mark;
+            this.snapshot = snapshot;
+        }
+    }
+}
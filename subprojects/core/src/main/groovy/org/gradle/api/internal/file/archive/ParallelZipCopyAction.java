@@ -0,0 +1,423 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.file.archive;
+
+import org.apache.tools.zip.UnixStat;
+import org.apache.tools.zip.Zip64RequiredException;
+import org.apache.tools.zip.ZipEntry;
+import org.apache.tools.zip.ZipOutputStream;
+import org.gradle.api.GradleException;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.internal.DocumentationRegistry;
+import org.gradle.api.internal.file.CopyActionProcessingStreamAction;
+import org.gradle.api.internal.file.copy.CopyAction;
+import org.gradle.api.internal.file.copy.CopyActionProcessingStream;
+import org.gradle.api.internal.file.copy.FileCopyDetailsInternal;
+import org.gradle.api.internal.tasks.SimpleWorkResult;
+import org.gradle.api.tasks.WorkResult;
+import org.gradle.api.tasks.bundling.Zip;
+import org.gradle.internal.UncheckedException;
+import org.gradle.util.GFileUtils;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes a ZIP archive, compressing the entries concurrently on the given workers. The entries are written to the archive in the order they are
+ * visited, so the archive is the same whatever the number of workers.
+ *
+ * <p>The content of a plain source file is read by the worker which compresses it. Other content, such as filtered files or the entries of another
+ * archive, can only be read while it is being visited, so it is captured first and compressed on a worker afterwards. Content and compressed entries
+ * larger than {@link #SPILL_THRESHOLD} are kept in files in the given temporary directory, and at most a few entries per worker are waiting to be
+ * written at any time.</p>
+ *
+ * <p>When deflating, entries which are already compressed, recognized by their extension or because deflating them does not make them any smaller,
+ * are stored instead.</p>
+ *
+ * <p>The Zip64 extensions are not supported, so this is only used for archives which do not allow them.</p>
+ */
+public class ParallelZipCopyAction implements CopyAction {
+    public static final String TOGGLE = "org.gradle.zip.parallel";
+    static final int SPILL_THRESHOLD = 1024 * 1024;
+    private static final int PENDING_ENTRIES_PER_WORKER = 4;
+    private static final Set<String> COMPRESSED_EXTENSIONS = new HashSet<String>(Arrays.asList(
+            "zip", "jar", "war", "ear", "aar", "apk", "gz", "tgz", "bz2", "tbz2", "xz", "txz", "7z", "rar",
+            "png", "jpg", "jpeg", "gif", "mp3", "mp4", "ogg"
+    ));
+
+    private final File zipFile;
+    private final int entryCompressionMethod;
+    private final DocumentationRegistry documentationRegistry;
+    private final Executor executor;
+    private final int maxPendingEntries;
+    private final File temporaryDir;
+
+    /**
+     * @param executor the workers to compress the entries on. Should run no more than {@code maxWorkers} entries at a time.
+     * @param temporaryDir the directory to keep large content in while it is waiting to be written.
+     */
+    public ParallelZipCopyAction(File zipFile, int entryCompressionMethod, DocumentationRegistry documentationRegistry, Executor executor,
+                                 int maxWorkers, File temporaryDir) {
+        if (maxWorkers < 1) {
+            throw new IllegalArgumentException("At least one worker is required.");
+        }
+        this.zipFile = zipFile;
+        this.entryCompressionMethod = entryCompressionMethod;
+        this.documentationRegistry = documentationRegistry;
+        this.executor = executor;
+        this.maxPendingEntries = maxWorkers * PENDING_ENTRIES_PER_WORKER;
+        this.temporaryDir = temporaryDir;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(TOGGLE);
+    }
+
+    public WorkResult execute(CopyActionProcessingStream stream) {
+        ZipArchiveWriter writer;
+        try {
+            writer = new ZipArchiveWriter(zipFile);
+        } catch (Exception e) {
+            throw new GradleException(String.format("Could not create ZIP '%s'.", zipFile), e);
+        }
+
+        StreamAction action = new StreamAction(writer);
+        try {
+            try {
+                stream.process(action);
+                action.writePendingEntries(0);
+                writer.finish();
+            } finally {
+                action.discardPendingEntries();
+                writer.close();
+            }
+        } catch (IOException e) {
+            throw failure(e);
+        } catch (UncheckedIOException e) {
+            throw failure(e.getCause());
+        }
+
+        return new SimpleWorkResult(true);
+    }
+
+    private RuntimeException failure(Throwable e) {
+        if (e instanceof Zip64RequiredException) {
+            return new org.gradle.api.tasks.bundling.internal.Zip64RequiredException(
+                    String.format("%s\n\nTo build this archive, please enable the zip64 extension.\nSee: %s", e.getMessage(), documentationRegistry.getDslRefForProperty(Zip.class, "zip64"))
+            );
+        }
+        return new UncheckedIOException(String.format("Could not write ZIP '%s'.", zipFile), e);
+    }
+
+    private class StreamAction implements CopyActionProcessingStreamAction {
+        private final ZipArchiveWriter writer;
+        private final LinkedList<FutureTask<CompressedEntry>> pending = new LinkedList<FutureTask<CompressedEntry>>();
+        private volatile boolean discarding;
+
+        public StreamAction(ZipArchiveWriter writer) {
+            this.writer = writer;
+        }
+
+        public void processFile(FileCopyDetailsInternal details) {
+            final ZipEntry entry;
+            final EntryContent content;
+            try {
+                if (details.isDirectory()) {
+                    // Trailing slash in name indicates that entry is a directory
+                    entry = new ZipEntry(details.getRelativePath().getPathString() + '/');
+                    entry.setUnixMode(UnixStat.DIR_FLAG | details.getMode());
+                    content = null;
+                } else {
+                    entry = new ZipEntry(details.getRelativePath().getPathString());
+                    entry.setUnixMode(UnixStat.FILE_FLAG | details.getMode());
+                    content = capture(details);
+                }
+                entry.setTime(details.getLastModified());
+            } catch (Exception e) {
+                throw new GradleException(String.format("Could not add %s to ZIP '%s'.", details, zipFile), e);
+            }
+
+            FutureTask<CompressedEntry> task = new FutureTask<CompressedEntry>(new Callable<CompressedEntry>() {
+                public CompressedEntry call() throws Exception {
+                    if (discarding) {
+                        if (content != null) {
+                            content.discard();
+                        }
+                        return null;
+                    }
+                    return compress(entry, content);
+                }
+            });
+            pending.add(task);
+            executor.execute(task);
+            try {
+                writePendingEntries(maxPendingEntries);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private EntryContent capture(FileCopyDetailsInternal details) throws IOException {
+            File sourceFile = details.getUnfilteredSourceFile();
+            if (sourceFile != null) {
+                return new SourceFileContent(sourceFile);
+            }
+            SpillableBuffer buffer = new SpillableBuffer();
+            try {
+                details.copyTo(buffer);
+            } finally {
+                buffer.close();
+            }
+            return buffer;
+        }
+
+        /**
+         * Writes the compressed entries in the order they were visited, until no more than the given number of entries are pending.
+         */
+        void writePendingEntries(int maxPending) throws IOException {
+            while (pending.size() > maxPending) {
+                CompressedEntry entry = get(pending.removeFirst());
+                try {
+                    InputStream data = entry.data == null ? new ByteArrayInputStream(new byte[0]) : entry.data.open();
+                    try {
+                        writer.write(entry.entry, entry.method, entry.crc, entry.size, entry.compressedSize, data);
+                    } finally {
+                        data.close();
+                    }
+                } finally {
+                    entry.discard();
+                }
+            }
+        }
+
+        /**
+         * Discards the entries which have not been written. The workers are shared, so waits for the entries which are being compressed to finish
+         * rather than stopping the workers.
+         */
+        void discardPendingEntries() {
+            discarding = true;
+            for (FutureTask<CompressedEntry> task : pending) {
+                try {
+                    CompressedEntry entry = task.get();
+                    if (entry != null) {
+                        entry.discard();
+                    }
+                } catch (Exception e) {
+                    // Already failed, so nothing to discard
+                }
+            }
+            pending.clear();
+        }
+
+        private CompressedEntry get(FutureTask<CompressedEntry> task) throws IOException {
+            try {
+                return task.get();
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw UncheckedException.throwAsUncheckedException(e.getCause());
+            }
+        }
+    }
+
+    private CompressedEntry compress(ZipEntry entry, EntryContent content) throws IOException {
+        if (content == null) {
+            return new CompressedEntry(entry, ZipOutputStream.STORED, 0, 0, 0, null);
+        }
+
+        boolean done = false;
+        try {
+            CRC32 crc = new CRC32();
+            if (entryCompressionMethod == ZipOutputStream.DEFLATED && !isAlreadyCompressed(entry.getName())) {
+                SpillableBuffer deflated = new SpillableBuffer();
+                long size;
+                try {
+                    size = deflate(content, crc, deflated);
+                } catch (IOException e) {
+                    deflated.discard();
+                    throw e;
+                }
+                if (deflated.size() < size) {
+                    content.discard();
+                    done = true;
+                    return new CompressedEntry(entry, ZipOutputStream.DEFLATED, crc.getValue(), size, deflated.size(), deflated);
+                }
+                // Deflating does not make the content any smaller, so store it instead
+                deflated.discard();
+                crc.reset();
+            }
+            long size = checksum(content, crc);
+            done = true;
+            return new CompressedEntry(entry, ZipOutputStream.STORED, crc.getValue(), size, size, content);
+        } finally {
+            if (!done) {
+                content.discard();
+            }
+        }
+    }
+
+    private static long deflate(EntryContent content, CRC32 crc, SpillableBuffer deflated) throws IOException {
+        long size = 0;
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        InputStream inputStream = content.open();
+        try {
+            DeflaterOutputStream outputStream = new DeflaterOutputStream(deflated, deflater, 8192);
+            byte[] buffer = new byte[8192];
+            for (int read = inputStream.read(buffer); read >= 0; read = inputStream.read(buffer)) {
+                crc.update(buffer, 0, read);
+                outputStream.write(buffer, 0, read);
+                size += read;
+            }
+            outputStream.close();
+        } finally {
+            inputStream.close();
+            deflater.end();
+        }
+        return size;
+    }
+
+    private static long checksum(EntryContent content, CRC32 crc) throws IOException {
+        long size = 0;
+        InputStream inputStream = content.open();
+        try {
+            byte[] buffer = new byte[8192];
+            for (int read = inputStream.read(buffer); read >= 0; read = inputStream.read(buffer)) {
+                crc.update(buffer, 0, read);
+                size += read;
+            }
+        } finally {
+            inputStream.close();
+        }
+        return size;
+    }
+
+    private static boolean isAlreadyCompressed(String name) {
+        int extension = name.lastIndexOf('.');
+        return extension >= 0 && COMPRESSED_EXTENSIONS.contains(name.substring(extension + 1).toLowerCase(Locale.ENGLISH));
+    }
+
+    private static class CompressedEntry {
+        final ZipEntry entry;
+        final int method;
+        final long crc;
+        final long size;
+        final long compressedSize;
+        final EntryContent data;
+
+        private CompressedEntry(ZipEntry entry, int method, long crc, long size, long compressedSize, EntryContent data) {
+            this.entry = entry;
+            this.method = method;
+            this.crc = crc;
+            this.size = size;
+            this.compressedSize = compressedSize;
+            this.data = data;
+        }
+
+        void discard() {
+            if (data != null) {
+                data.discard();
+            }
+        }
+    }
+
+    private interface EntryContent {
+        InputStream open() throws IOException;
+
+        void discard();
+    }
+
+    private static class SourceFileContent implements EntryContent {
+        private final File file;
+
+        private SourceFileContent(File file) {
+            this.file = file;
+        }
+
+        public InputStream open() throws IOException {
+            return new FileInputStream(file);
+        }
+
+        public void discard() {
+        }
+    }
+
+    /**
+     * Content held in memory, or in a file in the temporary directory once it grows larger than {@link #SPILL_THRESHOLD}.
+     */
+    private class SpillableBuffer extends OutputStream implements EntryContent {
+        private ByteArrayOutputStream memory = new ByteArrayOutputStream();
+        private File spillFile;
+        private OutputStream spillStream;
+        private long size;
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (spillStream == null && memory.size() + len > SPILL_THRESHOLD) {
+                spillFile = File.createTempFile(zipFile.getName(), ".tmp", temporaryDir);
+                spillStream = new BufferedOutputStream(new FileOutputStream(spillFile));
+                memory.writeTo(spillStream);
+                memory = null;
+            }
+            if (spillStream != null) {
+                spillStream.write(b, off, len);
+            } else {
+                memory.write(b, off, len);
+            }
+            size += len;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (spillStream != null) {
+                spillStream.close();
+            }
+        }
+
+        long size() {
+            return size;
+        }
+
+        public InputStream open() throws IOException {
+            if (spillFile != null) {
+                return new BufferedInputStream(new FileInputStream(spillFile));
+            }
+            return new ByteArrayInputStream(memory.toByteArray());
+        }
+
+        public void discard() {
+            if (spillFile != null) {
+                GFileUtils.deleteQuietly(spillFile);
+            }
+            memory = null;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.file.archive;
+
+import org.apache.tools.zip.Zip64RequiredException;
+import org.apache.tools.zip.ZipEntry;
+import org.apache.tools.zip.ZipOutputStream;
+import org.apache.tools.zip.ZipUtil;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+
+/**
+ * Writes a ZIP archive from entries whose content has already been compressed, so that the entries can be compressed elsewhere and then written
+ * in order. The Zip64 extensions are not supported: a {@link Zip64RequiredException} is thrown when the archive would need them.
+ *
+ * <p>The headers match those written by {@link ZipOutputStream}, except that the sizes and CRC of each entry are always known up front, so no data
+ * descriptors are written.</p>
+ */
+class ZipArchiveWriter implements Closeable {
+    private static final int LOCAL_FILE_HEADER = 0x04034b50;
+    private static final int CENTRAL_FILE_HEADER = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int DEFLATE_MIN_VERSION = 20;
+    private static final int INITIAL_VERSION = 10;
+    private static final int UTF8_NAMES_FLAG = 1 << 11;
+    private static final long MAX_SIZE = 0xFFFFFFFFL;
+    private static final int MAX_ENTRIES = 0xFFFF;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final OutputStream outputStream;
+    private final ByteArrayOutputStream centralDirectory = new ByteArrayOutputStream();
+    private final ByteBuffer header = ByteBuffer.allocate(46).order(ByteOrder.LITTLE_ENDIAN);
+    private final byte[] buffer = new byte[8192];
+    private long offset;
+    private int entries;
+
+    ZipArchiveWriter(File zipFile) throws IOException {
+        outputStream = new BufferedOutputStream(new FileOutputStream(zipFile), 65536);
+    }
+
+    /**
+     * Writes an entry, copying its already compressed content from the given stream.
+     *
+     * @param entry the entry, which provides the name, time and attributes
+     * @param method {@link ZipOutputStream#STORED} or {@link ZipOutputStream#DEFLATED}
+     */
+    void write(ZipEntry entry, int method, long crc, long size, long compressedSize, InputStream content) throws IOException {
+        if (size > MAX_SIZE || compressedSize > MAX_SIZE) {
+            throw new Zip64RequiredException(entry.getName() + "'s size exceeds the limit of 4GByte.");
+        }
+        if (offset > MAX_SIZE) {
+            throw new Zip64RequiredException("archive's size exceeds the limit of 4GByte.");
+        }
+        if (++entries > MAX_ENTRIES) {
+            throw new Zip64RequiredException("archive contains more than 65535 entries.");
+        }
+        byte[] name = entry.getName().getBytes(UTF8);
+        byte[] time = ZipUtil.toDosTime(entry.getTime());
+        int version = method == ZipOutputStream.DEFLATED ? DEFLATE_MIN_VERSION : INITIAL_VERSION;
+
+        header.clear();
+        header.putInt(LOCAL_FILE_HEADER);
+        header.putShort((short) version);
+        header.putShort((short) UTF8_NAMES_FLAG);
+        header.putShort((short) method);
+        header.put(time);
+        header.putInt((int) crc);
+        header.putInt((int) compressedSize);
+        header.putInt((int) size);
+        header.putShort((short) name.length);
+        header.putShort((short) 0);
+        outputStream.write(header.array(), 0, header.position());
+        outputStream.write(name);
+
+        header.clear();
+        header.putInt(CENTRAL_FILE_HEADER);
+        header.putShort((short) ((entry.getPlatform() << 8) | DEFLATE_MIN_VERSION));
+        header.putShort((short) version);
+        header.putShort((short) UTF8_NAMES_FLAG);
+        header.putShort((short) method);
+        header.put(time);
+        header.putInt((int) crc);
+        header.putInt((int) compressedSize);
+        header.putInt((int) size);
+        header.putShort((short) name.length);
+        header.putShort((short) 0);
+        header.putShort((short) 0);
+        header.putShort((short) 0);
+        header.putShort((short) entry.getInternalAttributes());
+        header.putInt((int) entry.getExternalAttributes());
+        header.putInt((int) offset);
+        centralDirectory.write(header.array(), 0, header.position());
+        centralDirectory.write(name);
+
+        long copied = 0;
+        for (int read = content.read(buffer); read >= 0; read = content.read(buffer)) {
+            outputStream.write(buffer, 0, read);
+            copied += read;
+        }
+        if (copied != compressedSize) {
+            throw new IOException(String.format("Expected %s bytes of content for ZIP entry '%s' but got %s.", compressedSize, entry.getName(), copied));
+        }
+        offset += 30 + name.length + compressedSize;
+    }
+
+    /**
+     * Writes the central directory. No more entries can be written after this.
+     */
+    void finish() throws IOException {
+        if (offset > MAX_SIZE || offset + centralDirectory.size() > MAX_SIZE) {
+            throw new Zip64RequiredException("archive's size exceeds the limit of 4GByte.");
+        }
+        centralDirectory.writeTo(outputStream);
+
+        header.clear();
+        header.putInt(END_OF_CENTRAL_DIRECTORY);
+        header.putShort((short) 0);
+        header.putShort((short) 0);
+        header.putShort((short) entries);
+        header.putShort((short) entries);
+        header.putInt(centralDirectory.size());
+        header.putInt((int) offset);
+        header.putShort((short) 0);
+        outputStream.write(header.array(), 0, header.position());
+        outputStream.flush();
+    }
+
+    public void close() throws IOException {
+        outputStream.close();
+    }
+}
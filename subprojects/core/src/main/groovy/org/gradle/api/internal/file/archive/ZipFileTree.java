@@ -32,6 +32,7 @@ import org.gradle.internal.nativeintegration.filesystem.Chmod;
 import org.gradle.internal.nativeintegration.filesystem.FileSystem;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Enumeration;
@@ -39,8 +40,10 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
 
 public class ZipFileTree implements MinimalFileTree, FileSystemMirroringFileTree {
+    public static final String INDEX_TOGGLE = "org.gradle.ziptree.index";
     private final File zipFile;
     private final Chmod chmod;
     private final File tmpDir;
@@ -71,48 +74,77 @@ public class ZipFileTree implements MinimalFileTree, FileSystemMirroringFileTree
         AtomicBoolean stopFlag = new AtomicBoolean();
 
         try {
-            ZipFile zip = new ZipFile(zipFile);
-            try {
-                // The iteration order of zip.getEntries() is based on the hash of the zip entry. This isn't much use
-                // to us. So, collect the entries in a map and iterate over them in alphabetical order.
-                Map<String, ZipEntry> entriesByName = new TreeMap<String, ZipEntry>();
-                Enumeration entries = zip.getEntries();
-                while (entries.hasMoreElements()) {
-                    ZipEntry entry = (ZipEntry) entries.nextElement();
-                    entriesByName.put(entry.getName(), entry);
-                }
-                Iterator<ZipEntry> sortedEntries = entriesByName.values().iterator();
-                while (!stopFlag.get() && sortedEntries.hasNext()) {
-                    ZipEntry entry = sortedEntries.next();
-                    if (entry.isDirectory()) {
-                        visitor.visitDir(new DetailsImpl(entry, zip, stopFlag, chmod));
-                    } else {
-                        visitor.visitFile(new DetailsImpl(entry, zip, stopFlag, chmod));
-                    }
-                }
-            } finally {
-                zip.close();
+            ZipIndex index = isIndexed() ? ZipIndex.of(zipFile) : null;
+            if (index != null) {
+                visitIndex(index, visitor, stopFlag);
+            } else {
+                visitZip(visitor, stopFlag);
             }
         } catch (Exception e) {
             throw new GradleException(String.format("Could not expand %s.", getDisplayName()), e);
         }
     }
 
-    private class DetailsImpl extends AbstractFileTreeElement implements FileVisitDetails {
-        private final ZipEntry entry;
-        private final ZipFile zip;
+    /**
+     * Returns true when the entries are read using a cached index of the central directory of the ZIP file, rather than by opening the file
+     * with {@link ZipFile} on every visit.
+     */
+    public static boolean isIndexed() {
+        return Boolean.getBoolean(INDEX_TOGGLE);
+    }
+
+    private void visitIndex(ZipIndex index, FileVisitor visitor, AtomicBoolean stopFlag) {
+        Iterator<ZipIndex.Entry> entries = index.getEntries().iterator();
+        while (!stopFlag.get() && entries.hasNext()) {
+            ZipIndex.Entry entry = entries.next();
+            if (entry.isDirectory()) {
+                visitor.visitDir(new IndexedDetailsImpl(index, entry, stopFlag, chmod));
+            } else {
+                visitor.visitFile(new IndexedDetailsImpl(index, entry, stopFlag, chmod));
+            }
+        }
+    }
+
+    private void visitZip(FileVisitor visitor, AtomicBoolean stopFlag) throws IOException {
+        ZipFile zip = new ZipFile(zipFile);
+        try {
+            // The iteration order of zip.getEntries() is based on the hash of the zip entry. This isn't much use
+            // to us. So, collect the entries in a map and iterate over them in alphabetical order.
+            Map<String, ZipEntry> entriesByName = new TreeMap<String, ZipEntry>();
+            Enumeration entries = zip.getEntries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = (ZipEntry) entries.nextElement();
+                entriesByName.put(entry.getName(), entry);
+            }
+            Iterator<ZipEntry> sortedEntries = entriesByName.values().iterator();
+            while (!stopFlag.get() && sortedEntries.hasNext()) {
+                ZipEntry entry = sortedEntries.next();
+                if (entry.isDirectory()) {
+                    visitor.visitDir(new DetailsImpl(entry, zip, stopFlag, chmod));
+                } else {
+                    visitor.visitFile(new DetailsImpl(entry, zip, stopFlag, chmod));
+                }
+            }
+        } finally {
+            zip.close();
+        }
+    }
+
+    private abstract class AbstractDetails extends AbstractFileTreeElement implements FileVisitDetails {
         private final AtomicBoolean stopFlag;
         private File file;
 
-        public DetailsImpl(ZipEntry entry, ZipFile zip, AtomicBoolean stopFlag, Chmod chmod) {
+        protected AbstractDetails(AtomicBoolean stopFlag, Chmod chmod) {
             super(chmod);
-            this.entry = entry;
-            this.zip = zip;
             this.stopFlag = stopFlag;
         }
 
+        protected abstract String getEntryName();
+
+        protected abstract int getUnixMode();
+
         public String getDisplayName() {
-            return String.format("zip entry %s!%s", zipFile, entry.getName());
+            return String.format("zip entry %s!%s", zipFile, getEntryName());
         }
 
         public void stopVisiting() {
@@ -121,12 +153,52 @@ public class ZipFileTree implements MinimalFileTree, FileSystemMirroringFileTree
 
         public File getFile() {
             if (file == null) {
-                file = new File(tmpDir, entry.getName());
-                copyTo(file);
+                file = new File(tmpDir, getEntryName());
+                extractTo(file);
             }
             return file;
         }
 
+        protected void extractTo(File file) {
+            copyTo(file);
+        }
+
+        public RelativePath getRelativePath() {
+            return new RelativePath(!isDirectory(), getEntryName().split("/"));
+        }
+
+        public int getMode() {
+            int unixMode = getUnixMode() & 0777;
+            if(unixMode == 0){
+                //no mode infos available - fall back to defaults
+                if(isDirectory()){
+                    unixMode = FileSystem.DEFAULT_DIR_MODE;
+                }else{
+                    unixMode = FileSystem.DEFAULT_FILE_MODE;
+                }
+            }
+            return unixMode;
+        }
+    }
+
+    private class DetailsImpl extends AbstractDetails {
+        private final ZipEntry entry;
+        private final ZipFile zip;
+
+        public DetailsImpl(ZipEntry entry, ZipFile zip, AtomicBoolean stopFlag, Chmod chmod) {
+            super(stopFlag, chmod);
+            this.entry = entry;
+            this.zip = zip;
+        }
+
+        protected String getEntryName() {
+            return entry.getName();
+        }
+
+        protected int getUnixMode() {
+            return entry.getUnixMode();
+        }
+
         public long getLastModified() {
             return entry.getTime();
         }
@@ -146,22 +218,78 @@ public class ZipFileTree implements MinimalFileTree, FileSystemMirroringFileTree
                 throw new UncheckedIOException(e);
             }
         }
+    }
 
-        public RelativePath getRelativePath() {
-            return new RelativePath(!entry.isDirectory(), entry.getName().split("/"));
+    private class IndexedDetailsImpl extends AbstractDetails {
+        private final ZipIndex index;
+        private final ZipIndex.Entry entry;
+
+        public IndexedDetailsImpl(ZipIndex index, ZipIndex.Entry entry, AtomicBoolean stopFlag, Chmod chmod) {
+            super(stopFlag, chmod);
+            this.index = index;
+            this.entry = entry;
         }
 
-        public int getMode() {
-            int unixMode = entry.getUnixMode() & 0777;
-            if(unixMode == 0){
-                //no mode infos available - fall back to defaults
-                if(isDirectory()){
-                    unixMode = FileSystem.DEFAULT_DIR_MODE;
-                }else{
-                    unixMode = FileSystem.DEFAULT_FILE_MODE;
+        protected String getEntryName() {
+            return entry.getName();
+        }
+
+        protected int getUnixMode() {
+            return entry.getUnixMode();
+        }
+
+        public long getLastModified() {
+            return entry.getTime();
+        }
+
+        public boolean isDirectory() {
+            return entry.isDirectory();
+        }
+
+        public long getSize() {
+            return entry.getSize();
+        }
+
+        public InputStream open() {
+            try {
+                return index.open(entry);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Reuses a file extracted by an earlier visit when it still has the size, timestamp and CRC of the entry. The CRC is checked as well because
+         * the extracted files are kept across builds, and an archive can be rebuilt with the same sizes and timestamps but different content.
+         */
+        @Override
+        protected void extractTo(File file) {
+            if (!isDirectory() && file.isFile() && file.length() == entry.getSize() && file.lastModified() == entry.getTime() && crcOf(file) == entry.getCrc()) {
+                return;
+            }
+            copyTo(file);
+            if (!isDirectory()) {
+                file.setLastModified(entry.getTime());
+            }
+        }
+
+        private long crcOf(File file) {
+            CRC32 crc = new CRC32();
+            try {
+                InputStream inputStream = new FileInputStream(file);
+                try {
+                    byte[] buffer = new byte[8192];
+                    for (int read = inputStream.read(buffer); read >= 0; read = inputStream.read(buffer)) {
+                        crc.update(buffer, 0, read);
+                    }
+                } finally {
+                    inputStream.close();
                 }
+            } catch (IOException e) {
+                // Extract the entry again
+                return -1;
             }
-            return unixMode;
+            return crc.getValue();
         }
     }
 }
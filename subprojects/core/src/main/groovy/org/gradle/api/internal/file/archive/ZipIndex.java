@@ -0,0 +1,286 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.file.archive;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.tools.zip.ZipEntry;
+import org.apache.tools.zip.ZipUtil;
+import org.gradle.api.Nullable;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * The entries of a ZIP file, sorted by name, as read from its central directory. Unlike {@link org.apache.tools.zip.ZipFile}, the local header of
+ * each entry is only read when the entry is opened.
+ *
+ * <p>Indexes are kept for the life of the process, keyed by the path, length and last modified time of the file, so the central directory of an
+ * unchanged file is read only once.</p>
+ */
+class ZipIndex {
+    private static final int LOCAL_FILE_HEADER = 0x04034b50;
+    private static final int CENTRAL_FILE_HEADER = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_LENGTH = 22;
+    private static final int MAX_COMMENT_LENGTH = 0xFFFF;
+    private static final int LOCAL_FILE_HEADER_LENGTH = 30;
+    private static final int CENTRAL_FILE_HEADER_LENGTH = 46;
+    private static final int UTF8_NAMES_FLAG = 1 << 11;
+    private static final long ZIP64_MARKER = 0xFFFFFFFFL;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final Cache<String, ZipIndex> CACHE = CacheBuilder.newBuilder().maximumSize(100).softValues().build();
+
+    private final File zipFile;
+    private final List<Entry> entries;
+
+    private ZipIndex(File zipFile, List<Entry> entries) {
+        this.zipFile = zipFile;
+        this.entries = entries;
+    }
+
+    /**
+     * Returns the index of the given file, or null when the file uses features not supported here, such as the Zip64 extensions.
+     */
+    @Nullable
+    static ZipIndex of(File zipFile) throws IOException {
+        String key = zipFile.getAbsolutePath() + File.pathSeparator + zipFile.length() + File.pathSeparator + zipFile.lastModified();
+        ZipIndex index = CACHE.getIfPresent(key);
+        if (index == null) {
+            List<Entry> entries = readCentralDirectory(zipFile);
+            if (entries == null) {
+                return null;
+            }
+            index = new ZipIndex(zipFile, entries);
+            CACHE.put(key, index);
+        }
+        return index;
+    }
+
+    List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Opens the uncompressed content of the given entry.
+     */
+    InputStream open(Entry entry) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(zipFile, "r");
+        try {
+            ByteBuffer header = read(file, entry.localHeaderOffset, LOCAL_FILE_HEADER_LENGTH);
+            if (header.getInt(0) != LOCAL_FILE_HEADER) {
+                throw new ZipException(String.format("Local file header of entry '%s' not found.", entry.name));
+            }
+            long dataOffset = entry.localHeaderOffset + LOCAL_FILE_HEADER_LENGTH + (header.getShort(26) & 0xFFFF) + (header.getShort(28) & 0xFFFF);
+            switch (entry.method) {
+                case ZipEntry.STORED:
+                    return new RegionInputStream(file, dataOffset, entry.compressedSize, false);
+                case ZipEntry.DEFLATED:
+                    // The inflater needs an extra byte after the compressed data when the data has no zlib header
+                    final Inflater inflater = new Inflater(true);
+                    return new InflaterInputStream(new RegionInputStream(file, dataOffset, entry.compressedSize, true), inflater, 8192) {
+                        @Override
+                        public void close() throws IOException {
+                            try {
+                                super.close();
+                            } finally {
+                                inflater.end();
+                            }
+                        }
+                    };
+                default:
+                    throw new ZipException(String.format("Unsupported compression method %s used for entry '%s'.", entry.method, entry.name));
+            }
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        } catch (RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    @Nullable
+    private static List<Entry> readCentralDirectory(File zipFile) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(zipFile, "r");
+        try {
+            long length = file.length();
+            int tailLength = (int) Math.min(length, END_OF_CENTRAL_DIRECTORY_LENGTH + MAX_COMMENT_LENGTH);
+            ByteBuffer tail = read(file, length - tailLength, tailLength);
+            int end = tailLength - END_OF_CENTRAL_DIRECTORY_LENGTH;
+            while (end >= 0 && tail.getInt(end) != END_OF_CENTRAL_DIRECTORY) {
+                end--;
+            }
+            if (end < 0) {
+                throw new ZipException("End of central directory not found.");
+            }
+            int entryCount = tail.getShort(end + 10) & 0xFFFF;
+            long directoryLength = tail.getInt(end + 12) & ZIP64_MARKER;
+            long directoryOffset = tail.getInt(end + 16) & ZIP64_MARKER;
+            if (entryCount == 0xFFFF || directoryLength == ZIP64_MARKER || directoryOffset == ZIP64_MARKER
+                    || directoryOffset + directoryLength != length - tailLength + end) {
+                // Zip64, or data before or after the archive
+                return null;
+            }
+
+            ByteBuffer directory = read(file, directoryOffset, (int) directoryLength);
+            TreeMap<String, Entry> entriesByName = new TreeMap<String, Entry>();
+            int pos = 0;
+            for (int i = 0; i < entryCount; i++) {
+                if (pos + CENTRAL_FILE_HEADER_LENGTH > directoryLength || directory.getInt(pos) != CENTRAL_FILE_HEADER) {
+                    throw new ZipException("Central directory is corrupt.");
+                }
+                int platform = (directory.getShort(pos + 4) & 0xFFFF) >> 8;
+                int flags = directory.getShort(pos + 8) & 0xFFFF;
+                int method = directory.getShort(pos + 10) & 0xFFFF;
+                long time = ZipUtil.dosToJavaTime(directory.getInt(pos + 12) & ZIP64_MARKER);
+                long crc = directory.getInt(pos + 16) & ZIP64_MARKER;
+                long compressedSize = directory.getInt(pos + 20) & ZIP64_MARKER;
+                long size = directory.getInt(pos + 24) & ZIP64_MARKER;
+                int nameLength = directory.getShort(pos + 28) & 0xFFFF;
+                int extraLength = directory.getShort(pos + 30) & 0xFFFF;
+                int commentLength = directory.getShort(pos + 32) & 0xFFFF;
+                long externalAttributes = directory.getInt(pos + 38) & ZIP64_MARKER;
+                long localHeaderOffset = directory.getInt(pos + 42) & ZIP64_MARKER;
+                if (compressedSize == ZIP64_MARKER || size == ZIP64_MARKER || localHeaderOffset == ZIP64_MARKER) {
+                    return null;
+                }
+                Charset charset = (flags & UTF8_NAMES_FLAG) != 0 ? UTF8 : Charset.defaultCharset();
+                String name = new String(directory.array(), pos + CENTRAL_FILE_HEADER_LENGTH, nameLength, charset);
+                int unixMode = platform == ZipEntry.PLATFORM_UNIX ? (int) ((externalAttributes >> 16) & 0xFFFF) : 0;
+                entriesByName.put(name, new Entry(name, method, time, crc, compressedSize, size, unixMode, localHeaderOffset));
+                pos += CENTRAL_FILE_HEADER_LENGTH + nameLength + extraLength + commentLength;
+            }
+            return Collections.unmodifiableList(new ArrayList<Entry>(entriesByName.values()));
+        } finally {
+            file.close();
+        }
+    }
+
+    private static ByteBuffer read(RandomAccessFile file, long offset, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        file.seek(offset);
+        file.readFully(bytes);
+        return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    static class Entry {
+        private final String name;
+        private final int method;
+        private final long time;
+        private final long crc;
+        private final long compressedSize;
+        private final long size;
+        private final int unixMode;
+        private final long localHeaderOffset;
+
+        private Entry(String name, int method, long time, long crc, long compressedSize, long size, int unixMode, long localHeaderOffset) {
+            this.name = name;
+            this.method = method;
+            this.time = time;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.unixMode = unixMode;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        boolean isDirectory() {
+            return name.endsWith("/");
+        }
+
+        long getTime() {
+            return time;
+        }
+
+        long getCrc() {
+            return crc;
+        }
+
+        long getSize() {
+            return size;
+        }
+
+        int getUnixMode() {
+            return unixMode;
+        }
+    }
+
+    /**
+     * Reads a region of a file, optionally followed by a single zero byte. Closes the file when closed.
+     */
+    private static class RegionInputStream extends InputStream {
+        private final RandomAccessFile file;
+        private long pos;
+        private long remaining;
+        private boolean addDummyByte;
+
+        RegionInputStream(RandomAccessFile file, long offset, long length, boolean addDummyByte) {
+            this.file = file;
+            this.pos = offset;
+            this.remaining = length;
+            this.addDummyByte = addDummyByte;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (remaining <= 0) {
+                if (addDummyByte) {
+                    addDummyByte = false;
+                    b[off] = 0;
+                    return 1;
+                }
+                return -1;
+            }
+            file.seek(pos);
+            int read = file.read(b, off, (int) Math.min(len, remaining));
+            if (read < 0) {
+                throw new EOFException("Unexpected end of ZIP file.");
+            }
+            pos += read;
+            remaining -= read;
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            file.close();
+        }
+    }
+}
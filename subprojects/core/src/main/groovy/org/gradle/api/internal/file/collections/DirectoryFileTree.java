@@ -16,7 +16,7 @@
 
 package org.gradle.api.internal.file.collections;
 
-import org.gradle.api.GradleException;
+import org.gradle.api.JavaVersion;
 import org.gradle.api.file.*;
 import org.gradle.api.internal.file.DefaultFileTreeElement;
 import org.gradle.api.internal.file.DefaultFileVisitDetails;
@@ -25,16 +25,15 @@ import org.gradle.api.logging.Logging;
 import org.gradle.api.specs.Spec;
 import org.gradle.api.tasks.util.PatternFilterable;
 import org.gradle.api.tasks.util.PatternSet;
+import org.gradle.internal.UncheckedException;
 import org.gradle.internal.nativeintegration.filesystem.FileSystem;
 import org.gradle.internal.nativeintegration.services.FileSystems;
 import org.gradle.util.GFileUtils;
 import org.gradle.util.GUtil;
 
 import java.io.File;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Pattern;
 
@@ -48,19 +47,44 @@ import java.util.regex.Pattern;
  */
 public class DirectoryFileTree implements MinimalFileTree, PatternFilterableFileTree, RandomAccessFileCollection, LocalFileTree, DirectoryTree {
     private static final Logger LOGGER = Logging.getLogger(DirectoryFileTree.class);
+    private static final DirectoryWalker DEFAULT_WALKER = createDefaultWalker();
 
     private final File dir;
     private PatternSet patternSet;
     private boolean postfix;
     private final FileSystem fileSystem = FileSystems.getDefault();
+    private final DirectoryWalker walker;
 
     public DirectoryFileTree(File dir) {
         this(dir, new PatternSet());
     }
 
     public DirectoryFileTree(File dir, PatternSet patternSet) {
+        this(dir, patternSet, DEFAULT_WALKER);
+    }
+
+    DirectoryFileTree(File dir, PatternSet patternSet, DirectoryWalker walker) {
         this.patternSet = patternSet;
         this.dir = GFileUtils.canonicalise(dir);
+        this.walker = walker;
+    }
+
+    private static DirectoryWalker createDefaultWalker() {
+        // Use java 7 APIs, if available
+        String jdk7Type = "org.gradle.api.internal.file.collections.jdk7.Jdk7DirectoryWalker";
+        FileSystem fileSystem = FileSystems.getDefault();
+        if (JavaVersion.current().isJava7Compatible()) {
+            try {
+                Class<?> walkerClass = DirectoryFileTree.class.getClassLoader().loadClass(jdk7Type);
+                return (DirectoryWalker) walkerClass.getConstructor(FileSystem.class).newInstance(fileSystem);
+            } catch (ClassNotFoundException e) {
+                // Ignore
+            } catch (Exception e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+        }
+        LOGGER.debug("Unable to load {}. Continuing with fallback {}.", jdk7Type, DefaultDirectoryWalker.class.getName());
+        return new DefaultDirectoryWalker(fileSystem);
     }
 
     public String getDisplayName() {
@@ -89,7 +113,7 @@ public class DirectoryFileTree implements MinimalFileTree, PatternFilterableFile
     public DirectoryFileTree filter(PatternFilterable patterns) {
         PatternSet patternSet = this.patternSet.intersect();
         patternSet.copyFrom(patterns);
-        return new DirectoryFileTree(dir, patternSet);
+        return new DirectoryFileTree(dir, patternSet, walker);
     }
 
     public boolean contains(File file) {
@@ -122,7 +146,7 @@ public class DirectoryFileTree implements MinimalFileTree, PatternFilterableFile
             if (dir.isFile()) {
                 processSingleFile(dir, visitor, spec, stopFlag);
             } else {
-                walkDir(dir, path, visitor, spec, stopFlag);
+                walker.walkDir(dir, path, visitor, spec, stopFlag, postfix);
             }
         } else {
             LOGGER.info("file or directory '" + dir + "', not found");
@@ -137,43 +161,6 @@ public class DirectoryFileTree implements MinimalFileTree, PatternFilterableFile
         }
     }
 
-    private void walkDir(File file, RelativePath path, FileVisitor visitor, Spec<FileTreeElement> spec, AtomicBoolean stopFlag) {
-        File[] children = file.listFiles();
-        if (children == null) {
-            if (file.isDirectory() && !file.canRead()) {
-                throw new GradleException(String.format("Could not list contents of directory '%s' as it is not readable.", file));
-            }
-            // else, might be a link which points to nothing, or has been removed while we're visiting, or ...
-            throw new GradleException(String.format("Could not list contents of '%s'.", file));
-        }
-        List<FileVisitDetails> dirs = new ArrayList<FileVisitDetails>();
-        for (int i = 0; !stopFlag.get() && i < children.length; i++) {
-            File child = children[i];
-            boolean isFile = child.isFile();
-            RelativePath childPath = path.append(isFile, child.getName());
-            FileVisitDetails details = new DefaultFileVisitDetails(child, childPath, stopFlag, fileSystem, fileSystem);
-            if (isAllowed(details, spec)) {
-                if (isFile) {
-                    visitor.visitFile(details);
-                } else {
-                    dirs.add(details);
-                }
-            }
-        }
-
-        // now handle dirs
-        for (int i = 0; !stopFlag.get() && i < dirs.size(); i++) {
-            FileVisitDetails dir = dirs.get(i);
-            if (postfix) {
-                walkDir(dir.getFile(), dir.getRelativePath(), visitor, spec, stopFlag);
-                visitor.visitDir(dir);
-            } else {
-                visitor.visitDir(dir);
-                walkDir(dir.getFile(), dir.getRelativePath(), visitor, spec, stopFlag);
-            }
-        }
-    }
-
     boolean isAllowed(FileTreeElement element, Spec<FileTreeElement> spec) {
         return spec.isSatisfiedBy(element);
     }
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.file.collections.jdk7;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.file.FileTreeElement;
+import org.gradle.api.file.FileVisitDetails;
+import org.gradle.api.file.FileVisitor;
+import org.gradle.api.file.RelativePath;
+import org.gradle.api.internal.file.DefaultFileVisitDetails;
+import org.gradle.api.internal.file.collections.DirectoryWalker;
+import org.gradle.api.specs.Spec;
+import org.gradle.internal.nativeintegration.filesystem.FileSystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A {@link DirectoryWalker} which reads the attributes of each entry with a single stat while listing a directory, and keeps them for the visitor.
+ */
+public class Jdk7DirectoryWalker implements DirectoryWalker {
+    private final FileSystem fileSystem;
+
+    public Jdk7DirectoryWalker(FileSystem fileSystem) {
+        this.fileSystem = fileSystem;
+    }
+
+    public void walkDir(File dir, RelativePath path, FileVisitor visitor, Spec<FileTreeElement> spec, AtomicBoolean stopFlag, boolean postfix) {
+        walkDir(dir.toPath(), path, visitor, spec, stopFlag, postfix);
+    }
+
+    private void walkDir(Path dir, RelativePath path, FileVisitor visitor, Spec<FileTreeElement> spec, AtomicBoolean stopFlag, boolean postfix) {
+        List<FileVisitDetails> dirs = visitContents(dir, path, visitor, spec, stopFlag);
+        for (int i = 0; !stopFlag.get() && i < dirs.size(); i++) {
+            FileVisitDetails childDir = dirs.get(i);
+            if (postfix) {
+                walkDir(childDir.getFile().toPath(), childDir.getRelativePath(), visitor, spec, stopFlag, postfix);
+                visitor.visitDir(childDir);
+            } else {
+                visitor.visitDir(childDir);
+                walkDir(childDir.getFile().toPath(), childDir.getRelativePath(), visitor, spec, stopFlag, postfix);
+            }
+        }
+    }
+
+    /**
+     * Visits the files of the given directory, and returns the child directories to walk.
+     */
+    private List<FileVisitDetails> visitContents(Path dir, RelativePath path, FileVisitor visitor, Spec<FileTreeElement> spec, AtomicBoolean stopFlag) {
+        DirectoryStream<Path> children;
+        try {
+            children = Files.newDirectoryStream(dir);
+        } catch (AccessDeniedException e) {
+            throw new GradleException(String.format("Could not list contents of directory '%s' as it is not readable.", dir), e);
+        } catch (IOException e) {
+            // might be a link which points to nothing, or has been removed while we're visiting, or ...
+            throw new GradleException(String.format("Could not list contents of '%s'.", dir), e);
+        }
+        List<FileVisitDetails> dirs = new ArrayList<FileVisitDetails>();
+        try {
+            for (Path child : children) {
+                if (stopFlag.get()) {
+                    break;
+                }
+                BasicFileAttributes attributes = readAttributes(child);
+                boolean isFile = attributes != null && attributes.isRegularFile();
+                RelativePath childPath = path.append(isFile, child.getFileName().toString());
+                FileVisitDetails details = new AttributeBasedFileVisitDetails(child.toFile(), childPath, stopFlag, fileSystem, attributes);
+                if (spec.isSatisfiedBy(details)) {
+                    if (isFile) {
+                        visitor.visitFile(details);
+                    } else {
+                        dirs.add(details);
+                    }
+                }
+            }
+        } catch (DirectoryIteratorException e) {
+            throw new GradleException(String.format("Could not list contents of '%s'.", dir), e.getCause());
+        } finally {
+            close(children);
+        }
+        return dirs;
+    }
+
+    private static void close(DirectoryStream<Path> children) {
+        try {
+            children.close();
+        } catch (IOException e) {
+            // Ignore
+        }
+    }
+
+    private static BasicFileAttributes readAttributes(Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            // A link which points to nothing, or has been removed while we're visiting. Treat as a directory, as File.isFile() would
+            return null;
+        }
+    }
+
+    private static class AttributeBasedFileVisitDetails extends DefaultFileVisitDetails {
+        private final BasicFileAttributes attributes;
+
+        AttributeBasedFileVisitDetails(File file, RelativePath relativePath, AtomicBoolean stop, FileSystem fileSystem, BasicFileAttributes attributes) {
+            super(file, relativePath, stop, fileSystem, fileSystem);
+            this.attributes = attributes;
+        }
+
+        @Override
+        public boolean isDirectory() {
+            return attributes != null ? attributes.isDirectory() : super.isDirectory();
+        }
+
+        @Override
+        public long getLastModified() {
+            return attributes != null ? attributes.lastModifiedTime().toMillis() : super.getLastModified();
+        }
+
+        @Override
+        public long getSize() {
+            return attributes != null ? attributes.size() : super.getSize();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.file.copy;
+
+import org.gradle.api.Action;
+import org.gradle.api.Nullable;
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
+import org.gradle.api.tasks.incremental.InputFileDetails;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Collects the source files of a copy task which have changed since the task last ran, so that only those files are copied again.
+ *
+ * <p>Incremental copying is enabled with the {@link #TOGGLE} system property, which also enables copying unfiltered files in parallel. The task does not track changes to its filters, renames or file modes,
+ * so a change to these is only applied to the source files which have also changed. In this mode, {@code Sync} only deletes the files it copied
+ * before, and leaves any other files in the destination directory.</p>
+ */
+public class ChangedSourceFiles {
+    public static final String TOGGLE = "org.gradle.copy.incremental";
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(TOGGLE);
+    }
+
+    /**
+     * Returns the source files which have been added or changed since the task last ran, or null when all files should be copied.
+     */
+    @Nullable
+    public static Set<File> collect(IncrementalTaskInputs inputs) {
+        if (!isEnabled() || !inputs.isIncremental()) {
+            return null;
+        }
+        final Set<File> changed = new HashSet<File>();
+        inputs.outOfDate(new Action<InputFileDetails>() {
+            public void execute(InputFileDetails details) {
+                changed.add(details.getFile());
+            }
+        });
+        return changed;
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.file.copy;
+
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.StoppableExecutor;
+
+import java.util.concurrent.Executor;
+
+/**
+ * The workers which the copy and archive tasks of a build copy and compress files on. The number of workers is fixed and the workers are shared by all
+ * tasks, so that tasks running in parallel do not each start their own. The workers are started when first used.
+ */
+public class CopyWorkerPool implements Stoppable {
+    private final ExecutorFactory executorFactory;
+    private final int maxWorkers;
+    private StoppableExecutor executor;
+
+    public CopyWorkerPool(ExecutorFactory executorFactory, int maxWorkers) {
+        if (maxWorkers < 1) {
+            throw new IllegalArgumentException("Not a valid number of workers: " + maxWorkers);
+        }
+        this.executorFactory = executorFactory;
+        this.maxWorkers = maxWorkers;
+    }
+
+    public int getMaxWorkers() {
+        return maxWorkers;
+    }
+
+    public synchronized Executor getExecutor() {
+        if (executor == null) {
+            executor = executorFactory.create("Copy worker", maxWorkers);
+        }
+        return executor;
+    }
+
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.stop();
+            executor = null;
+        }
+    }
+}
@@ -22,6 +22,7 @@ import org.gradle.api.file.DuplicatesStrategy;
 import org.gradle.api.file.FileVisitDetails;
 import org.gradle.api.file.RelativePath;
 import org.gradle.api.internal.file.AbstractFileTreeElement;
+import org.gradle.api.internal.file.DefaultFileTreeElement;
 import org.gradle.internal.nativeintegration.filesystem.Chmod;
 
 import java.io.*;
@@ -63,6 +64,13 @@ public class DefaultFileCopyDetails extends AbstractFileTreeElement implements F
         }
     }
 
+    public File getUnfilteredSourceFile() {
+        if (filterChain.hasFilters() || !(fileDetails instanceof DefaultFileTreeElement) || fileDetails.isDirectory()) {
+            return null;
+        }
+        return fileDetails.getFile();
+    }
+
     public boolean isDirectory() {
         return fileDetails.isDirectory();
     }
@@ -15,36 +15,142 @@
  */
 package org.gradle.api.internal.file.copy;
 
+import org.gradle.api.Nullable;
 import org.gradle.api.internal.file.CopyActionProcessingStreamAction;
 import org.gradle.api.internal.file.FileResolver;
 import org.gradle.api.internal.tasks.SimpleWorkResult;
 import org.gradle.api.tasks.WorkResult;
+import org.gradle.internal.UncheckedException;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Copies files into a destination directory.
+ *
+ * <p>When an executor is given, files whose content is copied unchanged from the file system are collected while the stream is processed, and copied on
+ * the executor at the end. Other files, which may run filters written by the build script, are copied on the calling thread in the order they are
+ * processed.</p>
+ *
+ * <p>When the set of changed source files is known, an unchanged source file is not copied again if its target file already exists.</p>
+ */
 public class FileCopyAction implements CopyAction {
+    static final int MIN_FILES_PER_WORKER = 16;
 
     private final FileResolver fileResolver;
+    private final Set<File> changedSources;
+    private final Executor executor;
+    private final int maxWorkers;
 
     public FileCopyAction(FileResolver fileResolver) {
+        this(fileResolver, null, null, 1);
+    }
+
+    /**
+     * @param changedSources the source files which have changed since the files were last copied, or null when all files should be copied.
+     * @param executor the executor to copy the unfiltered files on, or null to copy all files on the calling thread.
+     * @param maxWorkers the maximum number of threads to copy the unfiltered files on, including the calling thread.
+     */
+    public FileCopyAction(FileResolver fileResolver, @Nullable Set<File> changedSources, @Nullable Executor executor, int maxWorkers) {
+        if (maxWorkers < 1) {
+            throw new IllegalArgumentException("Not a valid number of workers: " + maxWorkers);
+        }
         this.fileResolver = fileResolver;
+        this.changedSources = changedSources;
+        this.executor = executor;
+        this.maxWorkers = maxWorkers;
     }
 
     public WorkResult execute(CopyActionProcessingStream stream) {
         FileCopyDetailsInternalAction action = new FileCopyDetailsInternalAction();
         stream.process(action);
+        action.copyPending();
         return new SimpleWorkResult(action.didWork);
     }
 
     private class FileCopyDetailsInternalAction implements CopyActionProcessingStreamAction {
+        // Keyed by target, so that only the last file copied to a target is kept, as when the files are copied in order
+        private final Map<File, FileCopyDetailsInternal> pending = new LinkedHashMap<File, FileCopyDetailsInternal>();
         private boolean didWork;
 
         public void processFile(FileCopyDetailsInternal details) {
             File target = fileResolver.resolve(details.getRelativePath().getPathString());
+            // A file copied to the same target replaces any earlier one
+            pending.remove(target);
+            File source = details.getUnfilteredSourceFile();
+            if (source != null && changedSources != null && !changedSources.contains(source) && target.isFile()) {
+                // Unchanged since it was last copied
+                return;
+            }
+            if (source != null && executor != null) {
+                pending.put(target, details);
+                return;
+            }
             boolean copied = details.copyTo(target);
             if (copied) {
                 didWork = true;
             }
         }
+
+        void copyPending() {
+            List<Map.Entry<File, FileCopyDetailsInternal>> copies = new ArrayList<Map.Entry<File, FileCopyDetailsInternal>>(pending.entrySet());
+            pending.clear();
+            int workerCount = Math.min(maxWorkers, copies.size() / MIN_FILES_PER_WORKER);
+            if (workerCount < 2) {
+                for (Map.Entry<File, FileCopyDetailsInternal> copy : copies) {
+                    if (copy.getValue().copyTo(copy.getKey())) {
+                        didWork = true;
+                    }
+                }
+            } else if (copyInParallel(copies, workerCount)) {
+                didWork = true;
+            }
+        }
+
+        private boolean copyInParallel(final List<Map.Entry<File, FileCopyDetailsInternal>> copies, int workerCount) {
+            final AtomicInteger nextIndex = new AtomicInteger();
+            final AtomicBoolean copied = new AtomicBoolean();
+            final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+            final CountDownLatch finished = new CountDownLatch(workerCount);
+            Runnable worker = new Runnable() {
+                public void run() {
+                    try {
+                        for (int index = nextIndex.getAndIncrement(); index < copies.size() && failure.get() == null; index = nextIndex.getAndIncrement()) {
+                            Map.Entry<File, FileCopyDetailsInternal> copy = copies.get(index);
+                            if (copy.getValue().copyTo(copy.getKey())) {
+                                copied.set(true);
+                            }
+                        }
+                    } catch (Throwable throwable) {
+                        failure.compareAndSet(null, throwable);
+                    } finally {
+                        finished.countDown();
+                    }
+                }
+            };
+            // The calling thread is one of the workers, so that the copy makes progress while the shared workers are busy with other tasks
+            for (int i = 1; i < workerCount; i++) {
+                executor.execute(worker);
+            }
+            worker.run();
+            try {
+                finished.await();
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+            if (failure.get() != null) {
+                throw UncheckedException.throwAsUncheckedException(failure.get());
+            }
+            return copied.get();
+        }
     }
 }
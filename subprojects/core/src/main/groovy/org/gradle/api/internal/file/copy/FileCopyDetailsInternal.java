@@ -16,10 +16,20 @@
 
 package org.gradle.api.internal.file.copy;
 
+import org.gradle.api.Nullable;
 import org.gradle.api.file.FileCopyDetails;
 
+import java.io.File;
+
 public interface FileCopyDetailsInternal extends FileCopyDetails {
 
     boolean isIncludeEmptyDirs();
 
+    /**
+     * Returns the file in the file system whose content is copied unchanged to the target, or null when the content is filtered, or does not come
+     * from a regular file.
+     */
+    @Nullable
+    File getUnfilteredSourceFile();
+
 }
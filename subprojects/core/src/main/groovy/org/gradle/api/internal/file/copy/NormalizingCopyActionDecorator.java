@@ -117,6 +117,10 @@ public class NormalizingCopyActionDecorator implements CopyAction {
             return includeEmptyDirs;
         }
 
+        public File getUnfilteredSourceFile() {
+            return null;
+        }
+
         @Override
         public String getDisplayName() {
             return path.toString();
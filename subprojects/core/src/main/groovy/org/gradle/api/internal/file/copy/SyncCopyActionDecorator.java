@@ -15,6 +15,7 @@
  */
 package org.gradle.api.internal.file.copy;
 
+import org.gradle.api.Nullable;
 import org.gradle.api.file.FileVisitDetails;
 import org.gradle.api.file.FileVisitor;
 import org.gradle.api.file.RelativePath;
@@ -26,16 +27,25 @@ import org.gradle.api.tasks.WorkResult;
 import org.gradle.util.GFileUtils;
 
 import java.io.File;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.*;
 
 public class SyncCopyActionDecorator implements CopyAction {
     private final File baseDestDir;
     private final CopyAction delegate;
+    private final Iterable<File> previousFiles;
 
     public SyncCopyActionDecorator(File baseDestDir, CopyAction delegate) {
+        this(baseDestDir, delegate, null);
+    }
+
+    /**
+     * @param previousFiles the files copied into the destination directory by the previous sync, or null when not known. When known, only these
+     * files are deleted when they are no longer copied, rather than every other file found by walking the destination directory.
+     */
+    public SyncCopyActionDecorator(File baseDestDir, CopyAction delegate, @Nullable Iterable<File> previousFiles) {
         this.baseDestDir = baseDestDir;
         this.delegate = delegate;
+        this.previousFiles = previousFiles;
     }
 
     public WorkResult execute(final CopyActionProcessingStream stream) {
@@ -52,13 +62,53 @@ public class SyncCopyActionDecorator implements CopyAction {
             }
         });
 
-        SyncCopyActionDecoratorFileVisitor fileVisitor = new SyncCopyActionDecoratorFileVisitor(visited);
-
-        MinimalFileTree walker = new DirectoryFileTree(baseDestDir).postfix();
-        walker.visit(fileVisitor);
+        boolean deleted;
+        if (previousFiles != null) {
+            deleted = deletePreviousFiles(visited);
+        } else {
+            SyncCopyActionDecoratorFileVisitor fileVisitor = new SyncCopyActionDecoratorFileVisitor(visited);
+            MinimalFileTree walker = new DirectoryFileTree(baseDestDir).postfix();
+            walker.visit(fileVisitor);
+            deleted = fileVisitor.didWork;
+        }
         visited.clear();
 
-        return new SimpleWorkResult(didWork.getDidWork() || fileVisitor.didWork);
+        return new SimpleWorkResult(didWork.getDidWork() || deleted);
+    }
+
+    private boolean deletePreviousFiles(Set<RelativePath> visited) {
+        boolean didWork = false;
+        for (File file : previousFiles) {
+            RelativePath path = relativePath(file);
+            if (path == null || visited.contains(path) || !file.isFile()) {
+                continue;
+            }
+            GFileUtils.deleteQuietly(file);
+            didWork = true;
+
+            // Remove the directories left empty, unless they were copied
+            File dir = file.getParentFile();
+            for (RelativePath dirPath = path.getParent(); dirPath.getSegments().length > 0 && !visited.contains(dirPath); dirPath = dirPath.getParent()) {
+                if (!dir.delete()) {
+                    break;
+                }
+                dir = dir.getParentFile();
+            }
+        }
+        return didWork;
+    }
+
+    @Nullable
+    private RelativePath relativePath(File file) {
+        List<String> segments = new ArrayList<String>();
+        for (File current = file; current != null; current = current.getParentFile()) {
+            if (current.equals(baseDestDir)) {
+                Collections.reverse(segments);
+                return new RelativePath(true, segments.toArray(new String[segments.size()]));
+            }
+            segments.add(current.getName());
+        }
+        return null;
     }
 
     private static class SyncCopyActionDecoratorFileVisitor implements FileVisitor {
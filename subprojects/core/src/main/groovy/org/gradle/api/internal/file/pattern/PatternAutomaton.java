@@ -0,0 +1,180 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.file.pattern;
+
+import java.util.*;
+
+/**
+ * A {@link PathMatcher} which matches a path against a set of patterns at once, rather than trying each pattern in turn.
+ *
+ * <p>The patterns are compiled into a single automaton over path segments. The states form a trie, so patterns which start with the same segments share
+ * states. Fixed segments are followed with a map lookup, other segments with a {@link PatternStep}, and a '**' becomes a state which consumes any
+ * segment. A path is matched by moving the set of current states forward one segment at a time, and stops as soon as no state is left.</p>
+ *
+ * <p>This class is immutable once compiled, and can be used concurrently.</p>
+ */
+public class PatternAutomaton implements PathMatcher {
+    private final State start;
+    private final int minSegments;
+    private final int maxSegments;
+
+    private PatternAutomaton(State start, int minSegments, int maxSegments) {
+        this.start = start;
+        this.minSegments = minSegments;
+        this.maxSegments = maxSegments;
+    }
+
+    public static PatternAutomaton compile(Collection<String> patterns, boolean caseSensitive) {
+        State start = new State();
+        int minSegments = Integer.MAX_VALUE;
+        int maxSegments = 0;
+        for (String pattern : patterns) {
+            State state = start;
+            int segments = 0;
+            boolean greedy = false;
+            for (String part : split(pattern)) {
+                if (part.equals("**")) {
+                    if (!state.anySegment) {
+                        state = state.greedyState();
+                    }
+                    greedy = true;
+                } else {
+                    state = state.nextState(part, caseSensitive);
+                    segments++;
+                }
+            }
+            state.accepting = true;
+            minSegments = Math.min(minSegments, segments);
+            maxSegments = greedy || maxSegments == Integer.MAX_VALUE ? Integer.MAX_VALUE : Math.max(maxSegments, segments);
+        }
+        return new PatternAutomaton(start, patterns.isEmpty() ? 0 : minSegments, maxSegments);
+    }
+
+    private static String[] split(String pattern) {
+        if (pattern.length() == 0) {
+            return new String[0];
+        }
+        // trailing / or \ assumes **
+        if (pattern.endsWith("/") || pattern.endsWith("\\")) {
+            pattern = pattern + "**";
+        }
+        return pattern.split("\\\\|/");
+    }
+
+    public int getMinSegments() {
+        return minSegments;
+    }
+
+    public int getMaxSegments() {
+        return maxSegments;
+    }
+
+    public boolean matches(String[] segments, int startIndex) {
+        int remaining = segments.length - startIndex;
+        if (remaining < minSegments || remaining > maxSegments) {
+            return false;
+        }
+        for (State state : run(segments, startIndex)) {
+            if (state.accepting) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns true when the path matches, or can match once more segments are added to its end. For a directory, this tells whether anything below it
+     * can match, so the directory does not need to be traversed when it returns false.
+     */
+    public boolean isPrefix(String[] segments, int startIndex) {
+        return !run(segments, startIndex).isEmpty();
+    }
+
+    private List<State> run(String[] segments, int startIndex) {
+        List<State> current = new ArrayList<State>();
+        start.addTo(current);
+        for (int i = startIndex; i < segments.length && !current.isEmpty(); i++) {
+            List<State> next = new ArrayList<State>();
+            for (State state : current) {
+                state.advance(segments[i], next);
+            }
+            current = next;
+        }
+        return current;
+    }
+
+    private static class State {
+        private final Map<String, State> fixedTransitions = new HashMap<String, State>();
+        private final Map<String, State> stepTransitions = new HashMap<String, State>();
+        private final List<PatternStep> steps = new ArrayList<PatternStep>();
+        private final List<State> stepTargets = new ArrayList<State>();
+        // The state reached by a '**', which is also in effect whenever this state is
+        private State greedy;
+        // Whether this state is reached by a '**', and so stays in effect for any following segment
+        private boolean anySegment;
+        private boolean accepting;
+
+        State greedyState() {
+            if (greedy == null) {
+                greedy = new State();
+                greedy.anySegment = true;
+            }
+            return greedy;
+        }
+
+        State nextState(String part, boolean caseSensitive) {
+            PatternStep step = PatternStepFactory.getStep(part, caseSensitive);
+            Map<String, State> transitions = step instanceof FixedPatternStep && caseSensitive ? fixedTransitions : stepTransitions;
+            State next = transitions.get(part);
+            if (next == null) {
+                next = new State();
+                transitions.put(part, next);
+                if (transitions == stepTransitions) {
+                    steps.add(step);
+                    stepTargets.add(next);
+                }
+            }
+            return next;
+        }
+
+        void addTo(List<State> states) {
+            // Few states are in effect at once, so a list is cheaper than a set
+            if (states.contains(this)) {
+                return;
+            }
+            states.add(this);
+            if (greedy != null) {
+                greedy.addTo(states);
+            }
+        }
+
+        void advance(String segment, List<State> next) {
+            if (anySegment) {
+                addTo(next);
+            }
+            State fixed = fixedTransitions.get(segment);
+            if (fixed != null) {
+                fixed.addTo(next);
+            }
+            for (int i = 0; i < steps.size(); i++) {
+                if (steps.get(i).matches(segment)) {
+                    stepTargets.get(i).addTo(next);
+                }
+            }
+        }
+    }
+}
@@ -19,6 +19,7 @@ import org.gradle.api.file.RelativePath;
 import org.gradle.api.specs.Spec;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 public class PatternMatcherFactory {
@@ -30,6 +31,13 @@ public class PatternMatcherFactory {
         return new PathMatcherBackedSpec(partialMatchDirs, pathMatcher);
     }
 
+    /**
+     * Returns a spec which is satisfied by a path when any of the given patterns match it. The patterns are compiled into a single {@link PatternAutomaton}.
+     */
+    public static Spec<RelativePath> getPatternsMatcher(boolean partialMatchDirs, boolean caseSensitive, Collection<String> patterns) {
+        return new PathMatcherBackedSpec(partialMatchDirs, PatternAutomaton.compile(patterns, caseSensitive));
+    }
+
     private static PathMatcher compile(boolean caseSensitive, String pattern) {
         if (pattern.length() == 0) {
             return END_OF_PATH_MATCHER;
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.hash;
+
+/**
+ * The algorithms that can be used to hash the content of task input and output files.
+ */
+public enum FileHashAlgorithm {
+    MD5(1, new DefaultHasher()),
+    MURMUR3_128(2, new Murmur3Hasher());
+
+    /**
+     * The system property that selects the algorithm to use. Defaults to {@link #MD5}.
+     */
+    public static final String SYSTEM_PROPERTY = "org.gradle.internal.filehash.algorithm";
+
+    private final byte id;
+    private final Hasher hasher;
+
+    FileHashAlgorithm(int id, Hasher hasher) {
+        this.id = (byte) id;
+        this.hasher = hasher;
+    }
+
+    /**
+     * Returns a stable identifier for this algorithm, suitable for persisting.
+     */
+    public byte getId() {
+        return id;
+    }
+
+    public Hasher getHasher() {
+        return hasher;
+    }
+
+    /**
+     * Returns the algorithm with the given identifier, or null if there is no such algorithm.
+     */
+    public static FileHashAlgorithm forId(byte id) {
+        for (FileHashAlgorithm algorithm : values()) {
+            if (algorithm.id == id) {
+                return algorithm;
+            }
+        }
+        return null;
+    }
+
+    public static FileHashAlgorithm fromSystemProperties() {
+        String value = System.getProperty(SYSTEM_PROPERTY);
+        if (value == null) {
+            return MD5;
+        }
+        for (FileHashAlgorithm algorithm : values()) {
+            if (algorithm.name().equalsIgnoreCase(value.replace('-', '_'))) {
+                return algorithm;
+            }
+        }
+        throw new IllegalArgumentException(String.format("Unknown file hash algorithm '%s' specified using system property '%s'.", value, SYSTEM_PROPERTY));
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.hash;
+
+import org.gradle.BuildAdapter;
+import org.gradle.BuildResult;
+import org.gradle.api.invocation.Gradle;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.hash.FileHashingStatistics;
+
+/**
+ * Logs the number of files and bytes hashed during a build, and the time spent hashing them.
+ */
+public class FileHashingStatisticsReporter extends BuildAdapter {
+    private static final Logger LOGGER = Logging.getLogger(FileHashingStatisticsReporter.class);
+
+    @Override
+    public void buildStarted(Gradle gradle) {
+        FileHashingStatistics.reset();
+    }
+
+    @Override
+    public void buildFinished(BuildResult result) {
+        LOGGER.info("Hashed {}.", FileHashingStatistics.reset());
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.hash;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.internal.hash.FileHashingStatistics;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A {@link Hasher} that uses the non-cryptographic 128 bit Murmur3 hash, which is considerably cheaper to calculate than MD5.
+ */
+public class Murmur3Hasher implements Hasher {
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    public byte[] hash(File file) {
+        long start = System.nanoTime();
+        try {
+            byte[] hash = Files.hash(file, HASH_FUNCTION).asBytes();
+            FileHashingStatistics.fileHashed(file.length(), System.nanoTime() - start);
+            return hash;
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Failed to create Murmur3 hash for file %s.", file.getAbsolutePath()), e);
+        }
+    }
+}
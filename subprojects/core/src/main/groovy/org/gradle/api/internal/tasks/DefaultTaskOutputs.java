@@ -105,4 +105,8 @@ public class DefaultTaskOutputs implements TaskOutputsInternal {
     public void setHistory(TaskExecutionHistory history) {
         this.history = history;
     }
+
+    public TaskExecutionHistory getHistory() {
+        return history;
+    }
 }
@@ -17,8 +17,10 @@ package org.gradle.api.tasks;
 
 import groovy.lang.Closure;
 import org.gradle.api.Action;
+import org.gradle.api.Nullable;
 import org.gradle.api.file.*;
 import org.gradle.api.internal.ConventionTask;
+import org.gradle.api.internal.TaskExecutionHistory;
 import org.gradle.api.internal.file.FileLookup;
 import org.gradle.api.internal.file.FileResolver;
 import org.gradle.api.internal.file.copy.*;
@@ -27,6 +29,7 @@ import org.gradle.internal.nativeplatform.filesystem.FileSystem;
 import org.gradle.internal.reflect.Instantiator;
 
 import javax.inject.Inject;
+import java.io.File;
 import java.io.FilterReader;
 import java.util.Map;
 import java.util.Set;
@@ -73,6 +76,24 @@ public abstract class AbstractCopyTask extends ConventionTask implements CopySpe
         throw new UnsupportedOperationException();
     }
 
+    @Inject
+    protected CopyWorkerPool getCopyWorkerPool() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Returns the source files which have changed since the task last ran, so that only those files are copied again. Returns null when all files should
+     * be copied, because incremental copying is not enabled, the task is not executing, or the changes since the task last ran are not known.
+     */
+    @Nullable
+    protected Set<File> collectChangedSources() {
+        if (!ChangedSourceFiles.isEnabled()) {
+            return null;
+        }
+        TaskExecutionHistory history = getOutputs().getHistory();
+        return history == null ? null : ChangedSourceFiles.collect(history.getInputChanges());
+    }
+
     @TaskAction
     protected void copy() {
         Instantiator instantiator = getInstantiator();
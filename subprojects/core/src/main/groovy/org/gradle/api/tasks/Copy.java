@@ -18,13 +18,16 @@ package org.gradle.api.tasks;
 
 import org.gradle.api.InvalidUserDataException;
 import org.gradle.api.internal.file.FileResolver;
+import org.gradle.api.internal.file.copy.ChangedSourceFiles;
 import org.gradle.api.internal.file.copy.CopyAction;
 import org.gradle.api.internal.file.copy.CopySpecInternal;
+import org.gradle.api.internal.file.copy.CopyWorkerPool;
 import org.gradle.api.internal.file.copy.DestinationRootCopySpec;
 import org.gradle.api.internal.file.copy.FileCopyAction;
 import org.gradle.internal.reflect.Instantiator;
 
 import java.io.File;
+import java.util.concurrent.Executor;
 
 /**
  * Copies files into a destination directory. This task can also rename and filter files as it copies. The task
@@ -70,13 +73,19 @@ import java.io.File;
 @ParallelizableTask
 public class Copy extends AbstractCopyTask {
 
+    /**
+     * Creates the action which copies the files. When incremental copying is enabled, only the source files which have changed since the task last ran
+     * are copied again, and unfiltered files are copied in parallel.
+     */
     @Override
     protected CopyAction createCopyAction() {
         File destinationDir = getDestinationDir();
         if (destinationDir == null) {
             throw new InvalidUserDataException("No copy destination directory has been specified, use 'into' to specify a target directory.");
         }
-        return new FileCopyAction(getFileLookup().getFileResolver(destinationDir));
+        CopyWorkerPool workerPool = getCopyWorkerPool();
+        Executor executor = ChangedSourceFiles.isEnabled() ? workerPool.getExecutor() : null;
+        return new FileCopyAction(getFileLookup().getFileResolver(destinationDir), collectChangedSources(), executor, workerPool.getMaxWorkers());
     }
 
     @Override
@@ -22,19 +22,30 @@ import org.gradle.api.internal.file.copy.*;
 import org.gradle.internal.reflect.Instantiator;
 
 import java.io.File;
+import java.util.Set;
+import java.util.concurrent.Executor;
 
 /**
  * Synchronises the contents of a destination directory with some source directories and files.
  */
 public class Sync extends AbstractCopyTask {
 
+    /**
+     * Creates the action which synchronises the files. When incremental copying is enabled, only the source files which have changed since the task last
+     * ran are copied again, unfiltered files are copied in parallel, and only the files copied by the previous sync are considered for deletion.
+     */
     @Override
     protected CopyAction createCopyAction() {
         File destinationDir = getDestinationDir();
         if (destinationDir == null) {
             throw new InvalidUserDataException("No copy destination directory has been specified, use 'into' to specify a target directory.");
         }
-        return new SyncCopyActionDecorator(destinationDir, new FileCopyAction(getFileLookup().getFileResolver(destinationDir)));
+        CopyWorkerPool workerPool = getCopyWorkerPool();
+        Executor executor = ChangedSourceFiles.isEnabled() ? workerPool.getExecutor() : null;
+        Set<File> changedSources = collectChangedSources();
+        FileCopyAction copyAction = new FileCopyAction(getFileLookup().getFileResolver(destinationDir), changedSources, executor, workerPool.getMaxWorkers());
+        // When copying incrementally, the files copied by the previous sync are known, so the destination directory does not need to be walked
+        return new SyncCopyActionDecorator(destinationDir, copyAction, changedSources != null ? getOutputs().getPreviousFiles() : null);
     }
 
     @Override
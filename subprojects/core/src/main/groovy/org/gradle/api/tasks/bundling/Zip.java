@@ -18,6 +18,7 @@ package org.gradle.api.tasks.bundling;
 import org.apache.tools.zip.ZipOutputStream;
 import org.gradle.api.Incubating;
 import org.gradle.api.internal.DocumentationRegistry;
+import org.gradle.api.internal.file.archive.ParallelZipCopyAction;
 import org.gradle.api.internal.file.archive.ZipCopyAction;
 import org.gradle.api.internal.file.copy.*;
 
@@ -50,6 +51,12 @@ public class Zip extends AbstractArchiveTask {
     @Override
     protected CopyAction createCopyAction() {
         DocumentationRegistry documentationRegistry = getServices().get(DocumentationRegistry.class);
+        if (ParallelZipCopyAction.isEnabled() && !allowZip64) {
+            int entryCompressionMethod = entryCompression == ZipEntryCompression.STORED ? ZipOutputStream.STORED : ZipOutputStream.DEFLATED;
+            CopyWorkerPool workerPool = getCopyWorkerPool();
+            return new ParallelZipCopyAction(getArchivePath(), entryCompressionMethod, documentationRegistry, workerPool.getExecutor(), workerPool.getMaxWorkers(),
+                    getTemporaryDir());
+        }
         return new ZipCopyAction(getArchivePath(), getCompressor(), documentationRegistry);
     }
 
@@ -22,7 +22,6 @@ import groovy.lang.Closure;
 import org.apache.tools.ant.DirectoryScanner;
 import org.gradle.api.Action;
 import org.gradle.api.file.FileTreeElement;
-import org.gradle.api.file.RelativePath;
 import org.gradle.api.internal.file.RelativePathSpec;
 import org.gradle.api.internal.file.pattern.PatternMatcherFactory;
 import org.gradle.api.specs.*;
@@ -126,9 +125,8 @@ public class PatternSet implements AntBuilderAware, PatternFilterable {
 
     public Spec<FileTreeElement> getAsIncludeSpec() {
         List<Spec<FileTreeElement>> matchers = Lists.newArrayList();
-        for (String include : includes) {
-            Spec<RelativePath> patternMatcher = PatternMatcherFactory.getPatternMatcher(true, caseSensitive, include);
-            matchers.add(new RelativePathSpec(patternMatcher));
+        if (!includes.isEmpty()) {
+            matchers.add(new RelativePathSpec(PatternMatcherFactory.getPatternsMatcher(true, caseSensitive, includes)));
         }
 
         matchers.addAll(includeSpecs);
@@ -140,10 +138,7 @@ public class PatternSet implements AntBuilderAware, PatternFilterable {
         Collections.addAll(allExcludes, DirectoryScanner.getDefaultExcludes());
 
         List<Spec<FileTreeElement>> matchers = Lists.newArrayList();
-        for (String exclude : allExcludes) {
-            Spec<RelativePath> patternMatcher = PatternMatcherFactory.getPatternMatcher(false, caseSensitive, exclude);
-            matchers.add(new RelativePathSpec(patternMatcher));
-        }
+        matchers.add(new RelativePathSpec(PatternMatcherFactory.getPatternsMatcher(false, caseSensitive, allExcludes)));
 
         matchers.addAll(excludeSpecs);
         return new OrSpec<FileTreeElement>(matchers);
@@ -26,6 +26,9 @@ public class PersistentIndexedCacheParameters<K, V> {
     private final Serializer<K> keySerializer;
     private final Serializer<V> valueSerializer;
     private CacheDecorator cacheDecorator;
+    private StorageLayout storageLayout = StorageLayout.BTree;
+    private int maxEntriesInMemory;
+    private int maxPendingWrites;
 
     public PersistentIndexedCacheParameters(String cacheName, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
         this.cacheName = cacheName;
@@ -67,4 +70,59 @@ public class PersistentIndexedCacheParameters<K, V> {
         this.cacheDecorator = cacheDecorator;
         return this;
     }
+
+    public StorageLayout getStorageLayout() {
+        return storageLayout;
+    }
+
+    public PersistentIndexedCacheParameters<K, V> storageLayout(StorageLayout storageLayout) {
+        assert storageLayout != null;
+        this.storageLayout = storageLayout;
+        return this;
+    }
+
+    public int getMaxEntriesInMemory() {
+        return maxEntriesInMemory;
+    }
+
+    /**
+     * Keeps up to the given number of entries in memory, in front of the cache file. Entries held in memory can be read by any number of threads at the
+     * same time without the cache lock, and the same instance is returned to every caller, so values must not be mutated. Default is 0, which reads every
+     * entry from the cache file.
+     */
+    public PersistentIndexedCacheParameters<K, V> maxEntriesInMemory(int maxEntriesInMemory) {
+        assert maxEntriesInMemory >= 0;
+        this.maxEntriesInMemory = maxEntriesInMemory;
+        return this;
+    }
+
+    public int getMaxPendingWrites() {
+        return maxPendingWrites;
+    }
+
+    /**
+     * Buffers up to the given number of writes in memory, and writes them to the cache file in a batch. Pending writes are also written when the cache is
+     * closed, before the cross-process lock is released, but are lost if the process is killed. Default is 0, which writes each entry to the cache file
+     * straight away.
+     */
+    public PersistentIndexedCacheParameters<K, V> maxPendingWrites(int maxPendingWrites) {
+        assert maxPendingWrites >= 0;
+        this.maxPendingWrites = maxPendingWrites;
+        return this;
+    }
+
+    /**
+     * The layout of the file that the entries of the cache are stored in.
+     */
+    public enum StorageLayout {
+        /**
+         * A B-tree, updated in place.
+         */
+        BTree,
+        /**
+         * An append-only log of updates with an in-memory index, compacted when it contains too many stale entries. Writes are sequential, but the whole
+         * file is read when the cache is opened.
+         */
+        AppendOnlyLog
+    }
 }
\ No newline at end of file
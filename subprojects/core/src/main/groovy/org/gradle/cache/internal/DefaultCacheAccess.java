@@ -20,14 +20,17 @@ import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.cache.CacheOpenException;
 import org.gradle.cache.PersistentIndexedCacheParameters;
+import org.gradle.cache.internal.appendlog.AppendOnlyLogPersistentIndexedCache;
 import org.gradle.cache.internal.btree.BTreePersistentIndexedCache;
+import org.gradle.cache.internal.btree.BlockStore;
+import org.gradle.cache.internal.btree.FileBackedBlockStore;
+import org.gradle.cache.internal.btree.MappedFileBlockStore;
 import org.gradle.cache.internal.cacheops.CacheAccessOperationsStack;
 import org.gradle.cache.internal.filelock.LockOptions;
 import org.gradle.internal.Factories;
 import org.gradle.internal.Factory;
 import org.gradle.internal.UncheckedException;
 import org.gradle.internal.concurrent.CompositeStoppable;
-import org.gradle.messaging.serialize.Serializer;
 
 import java.io.File;
 import java.util.HashSet;
@@ -41,6 +44,10 @@ import static org.gradle.cache.internal.FileLockManager.LockMode.Shared;
 
 @ThreadSafe
 public class DefaultCacheAccess implements CacheCoordinator {
+    /**
+     * When set, the blocks of B-tree cache files are read through a memory mapping.
+     */
+    public static final String MEMORY_MAPPED_TOGGLE = "org.gradle.cache.mmap";
 
     private final static Logger LOG = Logging.getLogger(DefaultCacheAccess.class);
 
@@ -314,14 +321,16 @@ public class DefaultCacheAccess implements CacheCoordinator {
     }
 
     public <K, V> MultiProcessSafePersistentIndexedCache<K, V> newCache(final PersistentIndexedCacheParameters<K, V> parameters) {
-        final File cacheFile = new File(baseDir, parameters.getCacheName() + ".bin");
-        Factory<BTreePersistentIndexedCache<K, V>> indexedCacheFactory = new Factory<BTreePersistentIndexedCache<K, V>>() {
-            public BTreePersistentIndexedCache<K, V> create() {
-                return doCreateCache(cacheFile, parameters.getKeySerializer(), parameters.getValueSerializer());
+        String extension = parameters.getStorageLayout() == PersistentIndexedCacheParameters.StorageLayout.AppendOnlyLog ? ".log" : ".bin";
+        final File cacheFile = new File(baseDir, parameters.getCacheName() + extension);
+        Factory<FileBackedPersistentIndexedCache<K, V>> indexedCacheFactory = new Factory<FileBackedPersistentIndexedCache<K, V>>() {
+            public FileBackedPersistentIndexedCache<K, V> create() {
+                return doCreateCache(cacheFile, parameters);
             }
         };
 
-        MultiProcessSafePersistentIndexedCache<K, V> indexedCache = new DefaultMultiProcessSafePersistentIndexedCache<K, V>(indexedCacheFactory, fileAccess);
+        MultiProcessSafePersistentIndexedCache<K, V> indexedCache = new DefaultMultiProcessSafePersistentIndexedCache<K, V>(indexedCacheFactory, fileAccess,
+                parameters.getMaxEntriesInMemory(), parameters.getMaxPendingWrites());
         CacheDecorator decorator = parameters.getCacheDecorator();
         indexedCache = decorator == null ? indexedCache : decorator.decorate(cacheFile.getAbsolutePath(), parameters.getCacheName(), indexedCache);
 
@@ -338,8 +347,12 @@ public class DefaultCacheAccess implements CacheCoordinator {
         return indexedCache;
     }
 
-    <K, V> BTreePersistentIndexedCache<K, V> doCreateCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
-        return new BTreePersistentIndexedCache<K, V>(cacheFile, keySerializer, valueSerializer);
+    <K, V> FileBackedPersistentIndexedCache<K, V> doCreateCache(File cacheFile, PersistentIndexedCacheParameters<K, V> parameters) {
+        if (parameters.getStorageLayout() == PersistentIndexedCacheParameters.StorageLayout.AppendOnlyLog) {
+            return new AppendOnlyLogPersistentIndexedCache<K, V>(cacheFile, parameters.getKeySerializer(), parameters.getValueSerializer());
+        }
+        BlockStore fileStore = Boolean.getBoolean(MEMORY_MAPPED_TOGGLE) ? new MappedFileBlockStore(cacheFile) : new FileBackedBlockStore(cacheFile);
+        return new BTreePersistentIndexedCache<K, V>(cacheFile, parameters.getKeySerializer(), parameters.getValueSerializer(), fileStore);
     }
 
     private boolean onStartWork() {
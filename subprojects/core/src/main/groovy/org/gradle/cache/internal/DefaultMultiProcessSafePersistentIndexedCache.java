@@ -15,76 +15,185 @@
  */
 package org.gradle.cache.internal;
 
-import org.gradle.cache.PersistentIndexedCache;
-import org.gradle.cache.internal.btree.BTreePersistentIndexedCache;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.gradle.internal.Factory;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A {@link MultiProcessSafePersistentIndexedCache} backed by a cache file, optionally with a concurrent in-memory front and buffered writes.
+ *
+ * <p>When enabled, entries read from or written to the cache file are kept in a size-bounded in-memory cache, so that they can be read without going back
+ * to the file. Lookups that can be answered from memory do not need the cache lock, so any number of threads can read from the cache at the same time.
+ * Lookups that miss still require the calling thread to hold the cache lock. The in-memory entries are discarded when another process updates the cache.</p>
+ *
+ * <p>When enabled, writes are buffered in memory and written to the cache file in batches, when enough writes are pending and when the cache is closed,
+ * which happens before the cross-process lock is released. Otherwise, each write is written to the cache file straight away.</p>
+ */
 public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements MultiProcessSafePersistentIndexedCache<K, V> {
+    // Marks an entry known to be missing from the cache
+    private static final Object REMOVED = new Object();
     private final FileAccess fileAccess;
-    private final Factory<BTreePersistentIndexedCache<K, V>> factory;
-    private BTreePersistentIndexedCache<K, V> cache;
+    private final Factory<FileBackedPersistentIndexedCache<K, V>> factory;
+    private final Cache<K, Object> entries;
+    private final int maxPendingWrites;
+    private final ConcurrentMap<K, Object> pendingWrites = new ConcurrentHashMap<K, Object>();
+    private final Object stateLock = new Object();
+    private FileLock.State stateAtEndOfWork;
+    private FileBackedPersistentIndexedCache<K, V> cache;
 
-    public DefaultMultiProcessSafePersistentIndexedCache(Factory<BTreePersistentIndexedCache<K, V>> factory, FileAccess fileAccess) {
+    public DefaultMultiProcessSafePersistentIndexedCache(Factory<FileBackedPersistentIndexedCache<K, V>> factory, FileAccess fileAccess) {
+        this(factory, fileAccess, 0, 0);
+    }
+
+    /**
+     * @param maxEntriesInMemory the number of entries to keep in memory, or 0 to read every entry from the cache file.
+     * @param maxPendingWrites the number of writes to buffer before writing them to the cache file, or 0 to write each entry straight away.
+     */
+    public DefaultMultiProcessSafePersistentIndexedCache(Factory<FileBackedPersistentIndexedCache<K, V>> factory, FileAccess fileAccess, int maxEntriesInMemory, int maxPendingWrites) {
         this.factory = factory;
         this.fileAccess = fileAccess;
+        this.maxPendingWrites = maxPendingWrites;
+        this.entries = maxEntriesInMemory == 0 ? null : CacheBuilder.newBuilder()
+                .concurrencyLevel(Runtime.getRuntime().availableProcessors())
+                .maximumSize(maxEntriesInMemory)
+                .<K, Object>build();
     }
 
     public V get(final K key) {
-        final PersistentIndexedCache<K, V> cache = getCache();
-        try {
-            return fileAccess.readFile(new Factory<V>() {
-                public V create() {
-                    return cache.get(key);
+        Object value = entries == null ? null : entries.getIfPresent(key);
+        if (value == null) {
+            // May have been evicted from memory before it was written to the cache file
+            value = pendingWrites.get(key);
+        }
+        if (value == null) {
+            final FileBackedPersistentIndexedCache<K, V> cache = getCache();
+            try {
+                value = fileAccess.readFile(new Factory<V>() {
+                    public V create() {
+                        return cache.get(key);
+                    }
+                });
+            } catch (FileIntegrityViolationException e) {
+                return null;
+            }
+            if (entries != null) {
+                Object existing = entries.asMap().putIfAbsent(key, value == null ? REMOVED : value);
+                if (existing != null) {
+                    value = existing;
                 }
-            });
-        } catch (FileIntegrityViolationException e) {
-            return null;
+            }
         }
+        return value == REMOVED ? null : DefaultMultiProcessSafePersistentIndexedCache.<V>cast(value);
     }
 
-    public void put(final K key, final V value) {
-        final PersistentIndexedCache<K, V> cache = getCache();
-        // Use writeFile because the cache can internally recover from datafile
-        // corruption, so we don't care at this level if it's corrupt
-        fileAccess.writeFile(new Runnable() {
-            public void run() {
-                cache.put(key, value);
+    public void put(K key, V value) {
+        write(key, value);
+    }
+
+    public void remove(K key) {
+        write(key, REMOVED);
+    }
+
+    private void write(final K key, final Object value) {
+        if (maxPendingWrites == 0) {
+            final FileBackedPersistentIndexedCache<K, V> cache = getCache();
+            // Use writeFile because the cache can internally recover from datafile
+            // corruption, so we don't care at this level if it's corrupt
+            fileAccess.writeFile(new Runnable() {
+                public void run() {
+                    writeEntry(cache, key, value);
+                }
+            });
+            if (entries != null) {
+                entries.put(key, value);
             }
-        });
+            return;
+        }
+
+        if (entries != null) {
+            entries.put(key, value);
+        }
+        pendingWrites.put(key, value);
+        if (pendingWrites.size() >= maxPendingWrites) {
+            flush();
+        }
     }
 
-    public void remove(final K key) {
-        final PersistentIndexedCache<K, V> cache = getCache();
+    private void flush() {
+        final FileBackedPersistentIndexedCache<K, V> cache = getCache();
         // Use writeFile because the cache can internally recover from datafile
         // corruption, so we don't care at this level if it's corrupt
         fileAccess.writeFile(new Runnable() {
             public void run() {
-                cache.remove(key);
+                writePending(cache);
             }
         });
     }
 
+    private void writePending(FileBackedPersistentIndexedCache<K, V> cache) {
+        for (Map.Entry<K, Object> entry : pendingWrites.entrySet()) {
+            K key = entry.getKey();
+            Object value = entry.getValue();
+            writeEntry(cache, key, value);
+            // Keep the entry if it has been written again in the meantime
+            pendingWrites.remove(key, value);
+        }
+    }
+
+    private void writeEntry(FileBackedPersistentIndexedCache<K, V> cache, K key, Object value) {
+        if (value == REMOVED) {
+            cache.remove(key);
+        } else {
+            cache.put(key, DefaultMultiProcessSafePersistentIndexedCache.<V>cast(value));
+        }
+    }
+
     public void onStartWork(String operationDisplayName, FileLock.State currentCacheState) {
+        synchronized (stateLock) {
+            if (entries != null && (stateAtEndOfWork == null || currentCacheState.hasBeenUpdatedSince(stateAtEndOfWork))) {
+                entries.invalidateAll();
+            }
+        }
     }
 
     public void onEndWork(FileLock.State currentCacheState) {
+        synchronized (stateLock) {
+            stateAtEndOfWork = currentCacheState;
+        }
     }
 
     public void close() {
-        if (cache != null) {
-            try {
-                fileAccess.writeFile(new Runnable() {
-                    public void run() {
+        if (cache == null && pendingWrites.isEmpty()) {
+            return;
+        }
+        final FileBackedPersistentIndexedCache<K, V> cache = getCache();
+        try {
+            fileAccess.writeFile(new Runnable() {
+                public void run() {
+                    try {
+                        writePending(cache);
+                    } finally {
                         cache.close();
                     }
-                });
-            } finally {
-                cache = null;
+                }
+            });
+        } finally {
+            this.cache = null;
+            // Anything not written by now is lost, so don't serve it from memory either
+            if (!pendingWrites.isEmpty()) {
+                pendingWrites.clear();
+                if (entries != null) {
+                    entries.invalidateAll();
+                }
             }
         }
     }
 
-    private PersistentIndexedCache<K, V> getCache() {
+    private FileBackedPersistentIndexedCache<K, V> getCache() {
         if (cache == null) {
             // Use writeFile because the cache can internally recover from datafile
             // corruption, so we don't care at this level if it's corrupt
@@ -96,4 +205,9 @@ public class DefaultMultiProcessSafePersistentIndexedCache<K, V> implements Mult
         }
         return cache;
     }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T cast(Object value) {
+        return (T) value;
+    }
 }
@@ -0,0 +1,351 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.cache.internal.appendlog;
+
+import org.gradle.api.UncheckedIOException;
+import org.gradle.cache.internal.FileBackedPersistentIndexedCache;
+import org.gradle.messaging.serialize.Serializer;
+import org.gradle.messaging.serialize.kryo.KryoBackedDecoder;
+import org.gradle.messaging.serialize.kryo.KryoBackedEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * A {@link FileBackedPersistentIndexedCache} which stores its entries in an append-only log of updates. Each update appends a record to the end of the file,
+ * so writing is sequential and never rewrites existing parts of the file. The location of the latest value for each key is kept in an in-memory hash index,
+ * which is rebuilt by reading the whole log when the cache is opened.
+ *
+ * <p>Records replaced by later updates are garbage. When the cache is closed and at least half of the log is garbage, the log is compacted by copying the
+ * live records to a new file which then replaces the log. The new file is only given its final name once it is completely written, so when the process
+ * crashes before the log has been replaced, the replacement is completed the next time the cache is opened.</p>
+ *
+ * <p>Each record has a checksum. A record that was not completely written, for example because the process crashed, is discarded along with everything
+ * after it when the cache is opened.</p>
+ */
+public class AppendOnlyLogPersistentIndexedCache<K, V> implements FileBackedPersistentIndexedCache<K, V> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AppendOnlyLogPersistentIndexedCache.class);
+    private static final int MAGIC = 0x474c4f47;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    // Key length, value length and checksum
+    private static final int RECORD_OVERHEAD = 12;
+    private static final int REMOVED = -1;
+    static final long MIN_COMPACTION_GARBAGE = 64 * 1024;
+
+    private final File cacheFile;
+    private final File compactedFile;
+    private final File partialCompactedFile;
+    private final Serializer<K> keySerializer;
+    private final Serializer<V> valueSerializer;
+    private final long minCompactionGarbage;
+    private final Map<RecordKey, ValueLocation> index = new HashMap<RecordKey, ValueLocation>();
+    private RandomAccessFile file;
+    private long end;
+    private long garbage;
+
+    public AppendOnlyLogPersistentIndexedCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+        this(cacheFile, keySerializer, valueSerializer, MIN_COMPACTION_GARBAGE);
+    }
+
+    AppendOnlyLogPersistentIndexedCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer, long minCompactionGarbage) {
+        this.cacheFile = cacheFile;
+        this.compactedFile = new File(cacheFile.getParentFile(), cacheFile.getName() + ".compact");
+        this.partialCompactedFile = new File(cacheFile.getParentFile(), cacheFile.getName() + ".compact.tmp");
+        this.keySerializer = keySerializer;
+        this.valueSerializer = valueSerializer;
+        this.minCompactionGarbage = minCompactionGarbage;
+        try {
+            open();
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not open %s.", this), e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("cache %s (%s)", cacheFile.getName(), cacheFile);
+    }
+
+    private void open() throws IOException {
+        LOGGER.debug("Opening {}", this);
+        cacheFile.getParentFile().mkdirs();
+        if (compactedFile.isFile()) {
+            LOGGER.debug("Completing compaction of {}", this);
+            replaceWithCompactedFile();
+        }
+        partialCompactedFile.delete();
+        file =  new RandomAccessFile(cacheFile, "rw");
+        if (file.length() == 0) {
+            writeHeader();
+            return;
+        }
+        if (!readLog()) {
+            LOGGER.warn(String.format("%s is corrupt. Discarding.", this));
+            index.clear();
+            garbage = 0;
+            file.setLength(0);
+            writeHeader();
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        file.seek(0);
+        file.writeInt(MAGIC);
+        file.writeInt(VERSION);
+        end = HEADER_SIZE;
+    }
+
+    /**
+     * Rebuilds the index from the log. Returns false when the log is not usable at all.
+     */
+    private boolean readLog() throws IOException {
+        long length = file.length();
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)));
+        try {
+            if (length < HEADER_SIZE || input.readInt() != MAGIC || input.readInt() != VERSION) {
+                return false;
+            }
+            long pos = HEADER_SIZE;
+            while (pos < length) {
+                long remaining = length - pos;
+                if (remaining < RECORD_OVERHEAD) {
+                    break;
+                }
+                int keyLength = input.readInt();
+                int valueLength = input.readInt();
+                if (keyLength < 0 || valueLength < REMOVED || (long) keyLength + Math.max(valueLength, 0) > remaining - RECORD_OVERHEAD) {
+                    break;
+                }
+                byte[] key = new byte[keyLength];
+                input.readFully(key);
+                byte[] value = new byte[Math.max(valueLength, 0)];
+                input.readFully(value);
+                if (input.readInt() != checksum(key, value, valueLength)) {
+                    break;
+                }
+                long valuePos = pos + 8 + keyLength;
+                pos = valuePos + value.length + 4;
+                apply(new RecordKey(key), valueLength, valuePos);
+            }
+            end = pos;
+        } finally {
+            input.close();
+        }
+        if (end < length) {
+            LOGGER.warn(String.format("%s has an incomplete entry. Discarding the end of the file.", this));
+            file.setLength(end);
+        }
+        return true;
+    }
+
+    public V get(K key) {
+        try {
+            ValueLocation location = index.get(new RecordKey(serialize(keySerializer, key)));
+            if (location == null) {
+                return null;
+            }
+            byte[] value = new byte[location.length];
+            file.seek(location.pos);
+            file.readFully(value);
+            return valueSerializer.read(new KryoBackedDecoder(new ByteArrayInputStream(value)));
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not read entry '%s' from %s.", key, this), e);
+        }
+    }
+
+    public void put(K key, V value) {
+        try {
+            append(serialize(keySerializer, key), serialize(valueSerializer, value), false);
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not add entry '%s' to %s.", key, this), e);
+        }
+    }
+
+    public void remove(K key) {
+        try {
+            byte[] serializedKey = serialize(keySerializer, key);
+            if (index.containsKey(new RecordKey(serializedKey))) {
+                append(serializedKey, new byte[0], true);
+            }
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not remove entry '%s' from %s.", key, this), e);
+        }
+    }
+
+    private void append(byte[] key, byte[] value, boolean removed) throws IOException {
+        int valueLength = removed ? REMOVED : value.length;
+        ByteArrayOutputStream record = new ByteArrayOutputStream(RECORD_OVERHEAD + key.length + value.length);
+        DataOutputStream output = new DataOutputStream(record);
+        output.writeInt(key.length);
+        output.writeInt(valueLength);
+        output.write(key);
+        output.write(value);
+        output.writeInt(checksum(key, value, valueLength));
+        output.flush();
+
+        file.seek(end);
+        file.write(record.toByteArray());
+        apply(new RecordKey(key), valueLength, end + 8 + key.length);
+        end += record.size();
+    }
+
+    private void apply(RecordKey key, int valueLength, long valuePos) {
+        ValueLocation previous;
+        if (valueLength == REMOVED) {
+            previous = index.remove(key);
+            garbage += RECORD_OVERHEAD + key.bytes.length;
+        } else {
+            previous = index.put(key, new ValueLocation(valuePos, valueLength));
+        }
+        if (previous != null) {
+            garbage += RECORD_OVERHEAD + key.bytes.length + previous.length;
+        }
+    }
+
+    public void close() {
+        LOGGER.debug("Closing {}", this);
+        try {
+            try {
+                if (garbage >= minCompactionGarbage && garbage * 2 >= end - HEADER_SIZE) {
+                    compact();
+                }
+            } finally {
+                index.clear();
+                file.close();
+            }
+        } catch (Exception e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void compact() throws IOException {
+        LOGGER.debug("Compacting {}, {} of {} bytes are garbage", this, garbage, end);
+        List<Map.Entry<RecordKey, ValueLocation>> entries = new ArrayList<Map.Entry<RecordKey, ValueLocation>>(index.entrySet());
+        // Read the live values in log order
+        Collections.sort(entries, new Comparator<Map.Entry<RecordKey, ValueLocation>>() {
+            public int compare(Map.Entry<RecordKey, ValueLocation> o1, Map.Entry<RecordKey, ValueLocation> o2) {
+                long pos1 = o1.getValue().pos;
+                long pos2 = o2.getValue().pos;
+                return pos1 < pos2 ? -1 : pos1 == pos2 ? 0 : 1;
+            }
+        });
+
+        FileOutputStream outputFile = new FileOutputStream(partialCompactedFile);
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(outputFile));
+        try {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            for (Map.Entry<RecordKey, ValueLocation> entry : entries) {
+                byte[] key = entry.getKey().bytes;
+                byte[] value = new byte[entry.getValue().length];
+                file.seek(entry.getValue().pos);
+                file.readFully(value);
+                output.writeInt(key.length);
+                output.writeInt(value.length);
+                output.write(key);
+                output.write(value);
+                output.writeInt(checksum(key, value, value.length));
+            }
+            output.flush();
+            outputFile.getFD().sync();
+        } finally {
+            output.close();
+        }
+        if (!partialCompactedFile.renameTo(compactedFile)) {
+            throw new IOException(String.format("Could not rename compacted file %s to %s.", partialCompactedFile, compactedFile));
+        }
+
+        file.close();
+        replaceWithCompactedFile();
+    }
+
+    /**
+     * Replaces the log with the completely written compacted file. Where the rename cannot replace an existing file, the log is deleted first. When the
+     * process crashes in between, the compacted file is still there and replaces the log when the cache is next opened.
+     */
+    private void replaceWithCompactedFile() throws IOException {
+        if (compactedFile.renameTo(cacheFile)) {
+            return;
+        }
+        if (cacheFile.exists() && !cacheFile.delete() || !compactedFile.renameTo(cacheFile)) {
+            throw new IOException(String.format("Could not replace %s with compacted file %s.", cacheFile, compactedFile));
+        }
+    }
+
+    private static <T> byte[] serialize(Serializer<T> serializer, T value) throws Exception {
+        ByteArrayOutputStream outStr = new ByteArrayOutputStream();
+        KryoBackedEncoder encoder = new KryoBackedEncoder(outStr);
+        serializer.write(encoder, value);
+        encoder.flush();
+        return outStr.toByteArray();
+    }
+
+    private static int checksum(byte[] key, byte[] value, int valueLength) {
+        CRC32 crc = new CRC32();
+        updateInt(crc, key.length);
+        updateInt(crc, valueLength);
+        crc.update(key);
+        crc.update(value);
+        return (int) crc.getValue();
+    }
+
+    private static void updateInt(CRC32 crc, int value) {
+        crc.update(value >>> 24);
+        crc.update(value >>> 16);
+        crc.update(value >>> 8);
+        crc.update(value);
+    }
+
+    private static class RecordKey {
+        private final byte[] bytes;
+        private final int hashCode;
+
+        private RecordKey(byte[] bytes) {
+            this.bytes = bytes;
+            this.hashCode = Arrays.hashCode(bytes);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (obj == null || obj.getClass() != getClass()) {
+                return false;
+            }
+            return Arrays.equals(bytes, ((RecordKey) obj).bytes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private static class ValueLocation {
+        private final long pos;
+        private final int length;
+
+        private ValueLocation(long pos, int length) {
+            this.pos = pos;
+            this.length = length;
+        }
+    }
+}
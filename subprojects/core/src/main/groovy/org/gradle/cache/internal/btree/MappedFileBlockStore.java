@@ -0,0 +1,378 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.cache.internal.btree;
+
+import org.gradle.api.UncheckedIOException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * A {@link BlockStore} which reads blocks from memory mappings of the cache file, and writes blocks to the file through its channel. Reading a block
+ * parses it directly from the mapped pages, without a seek or an intermediate buffer per block.
+ *
+ * <p>The file is mapped in fixed-size chunks, each of which is mapped once, when a block is first read from it. Only chunks which are completely
+ * contained in the file are mapped, so a growing file never causes an existing mapping to be replaced. Blocks in the incomplete last chunk, blocks which
+ * span two chunks and blocks beyond the first {@value #MAX_MAPPED_SIZE} bytes of the file are read through the channel instead.</p>
+ *
+ * <p>Uses the same file format as {@link FileBackedBlockStore}. The mappings are released when the store is closed or cleared, where the JVM allows this,
+ * as some platforms, such as Windows, do not allow a mapped file to be truncated or deleted.</p>
+ */
+public class MappedFileBlockStore implements BlockStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MappedFileBlockStore.class);
+    static final long MAX_MAPPED_SIZE = Integer.MAX_VALUE;
+    static final int CHUNK_SIZE = 1024 * 1024;
+    private final File cacheFile;
+    private final int chunkSize;
+    private final List<MappedByteBuffer> chunks = new ArrayList<MappedByteBuffer>();
+    private RandomAccessFile file;
+    private FileChannel channel;
+    private long fileLength;
+    private long nextBlock;
+    private Factory factory;
+
+    public MappedFileBlockStore(File cacheFile) {
+        this(cacheFile, CHUNK_SIZE);
+    }
+
+    MappedFileBlockStore(File cacheFile, int chunkSize) {
+        this.cacheFile = cacheFile;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("cache '%s'", cacheFile);
+    }
+
+    public void open(Runnable runnable, Factory factory) {
+        this.factory = factory;
+        try {
+            cacheFile.getParentFile().mkdirs();
+            file = new RandomAccessFile(cacheFile, "rw");
+            channel = file.getChannel();
+            fileLength = file.length();
+            nextBlock = fileLength;
+            if (fileLength == 0) {
+                runnable.run();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void close() {
+        releaseChunks();
+        try {
+            file.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void clear() {
+        releaseChunks();
+        try {
+            file.setLength(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        fileLength = 0;
+        nextBlock = 0;
+    }
+
+    public void attach(BlockPayload block) {
+        if (block.getBlock() == null) {
+            block.setBlock(new BlockImpl(block));
+        }
+    }
+
+    public void remove(BlockPayload block) {
+        BlockImpl blockImpl = (BlockImpl) block.getBlock();
+        blockImpl.detach();
+    }
+
+    public void flush() {
+    }
+
+    public <T extends BlockPayload> T readFirst(Class<T> payloadType) {
+        return read(new BlockPointer(0), payloadType);
+    }
+
+    public <T extends BlockPayload> T read(BlockPointer pos, Class<T> payloadType) {
+        assert !pos.isNull();
+        try {
+            T payload = payloadType.cast(factory.create(payloadType));
+            BlockImpl block = new BlockImpl(payload, pos);
+            block.read();
+            return payload;
+        } catch (CorruptedCacheException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void write(BlockPayload block) {
+        BlockImpl blockImpl = (BlockImpl) block.getBlock();
+        try {
+            blockImpl.write();
+        } catch (CorruptedCacheException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long alloc(long length) {
+        long pos = nextBlock;
+        nextBlock += length;
+        return pos;
+    }
+
+    /**
+     * Returns a buffer containing the given region of the file, positioned at the start of the region.
+     */
+    private ByteBuffer region(long pos, int length) throws IOException {
+        long chunkStart = pos - pos % chunkSize;
+        long chunkEnd = chunkStart + chunkSize;
+        if (pos + length <= chunkEnd && chunkEnd <= fileLength && chunkEnd <= MAX_MAPPED_SIZE) {
+            ByteBuffer buffer = getChunk((int) (chunkStart / chunkSize), chunkStart).duplicate();
+            buffer.limit((int) (pos - chunkStart) + length);
+            buffer.position((int) (pos - chunkStart));
+            return buffer;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, pos + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private MappedByteBuffer getChunk(int chunk, long chunkStart) throws IOException {
+        while (chunks.size() <= chunk) {
+            chunks.add(null);
+        }
+        MappedByteBuffer mapping = chunks.get(chunk);
+        if (mapping == null) {
+            mapping = channel.map(FileChannel.MapMode.READ_ONLY, chunkStart, chunkSize);
+            chunks.set(chunk, mapping);
+        }
+        return mapping;
+    }
+
+    private void releaseChunks() {
+        for (MappedByteBuffer mapping : chunks) {
+            if (mapping != null) {
+                unmap(mapping);
+            }
+        }
+        chunks.clear();
+    }
+
+    /**
+     * Releases the given mapping without waiting for it to be garbage collected. There is no public API for this, so this uses the mapping's cleaner
+     * where the JVM provides one, and otherwise leaves the mapping to the garbage collector.
+     */
+    private static void unmap(MappedByteBuffer mapping) {
+        try {
+            Method cleanerMethod = mapping.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(mapping);
+            if (cleaner != null) {
+                Method cleanMethod = cleaner.getClass().getMethod("clean");
+                cleanMethod.setAccessible(true);
+                cleanMethod.invoke(cleaner);
+            }
+        } catch (Exception e) {
+            LOGGER.debug("Could not release mapping, leaving it to the garbage collector.", e);
+        }
+    }
+
+    private final class BlockImpl extends Block {
+        private static final int HEADER_SIZE = 2 + INT_SIZE;
+        private static final int TAIL_SIZE = LONG_SIZE;
+        static final int BLOCK_MARKER = 0xCC;
+
+        private BlockPointer pos;
+        private int payloadSize;
+
+        private BlockImpl(BlockPayload payload, BlockPointer pos) {
+            this(payload);
+            setPos(pos);
+        }
+
+        public BlockImpl(BlockPayload payload) {
+            super(payload);
+            pos = null;
+            payloadSize = -1;
+        }
+
+        @Override
+        public boolean hasPos() {
+            return pos != null;
+        }
+
+        @Override
+        public BlockPointer getPos() {
+            if (pos == null) {
+                pos = new BlockPointer(alloc(getSize()));
+            }
+            return pos;
+        }
+
+        @Override
+        public void setPos(BlockPointer pos) {
+            assert this.pos == null && !pos.isNull();
+            this.pos = pos;
+        }
+
+        public int getSize() {
+            if (payloadSize < 0) {
+                payloadSize = getPayload().getSize();
+            }
+            return payloadSize + HEADER_SIZE + TAIL_SIZE;
+        }
+
+        @Override
+        public void setSize(int size) {
+            int newPayloadSize = size - HEADER_SIZE - TAIL_SIZE;
+            assert newPayloadSize >= payloadSize;
+            payloadSize = newPayloadSize;
+        }
+
+        public void write() throws Exception {
+            long pos = getPos().getPos();
+            BlockPayload payload = getPayload();
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(HEADER_SIZE + TAIL_SIZE + Math.max(payloadSize, 0));
+            DataOutputStream outputStream = new DataOutputStream(bytes);
+
+            // Write header
+            outputStream.writeByte(BLOCK_MARKER);
+            outputStream.writeByte(payload.getType());
+            outputStream.writeInt(payloadSize);
+            long finalSize = pos + HEADER_SIZE + TAIL_SIZE + payloadSize;
+
+            // Write body
+            payload.write(outputStream);
+
+            // Write checksum
+            outputStream.flush();
+            CRC32 checksum = new CRC32();
+            checksum.update(bytes.toByteArray());
+            outputStream.writeLong(checksum.getValue());
+            outputStream.flush();
+
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, pos + buffer.position());
+            }
+
+            // Pad
+            fileLength = Math.max(fileLength, pos + buffer.capacity());
+            if (fileLength < finalSize) {
+                file.setLength(finalSize);
+                fileLength = finalSize;
+            }
+        }
+
+        public void read() throws Exception {
+            long pos = getPos().getPos();
+            assert pos >= 0;
+            if (pos + HEADER_SIZE >= fileLength) {
+                throw blockCorruptedException();
+            }
+
+            // Read header
+            ByteBuffer header = region(pos, HEADER_SIZE);
+            if (header.get() != (byte) BLOCK_MARKER) {
+                throw blockCorruptedException();
+            }
+            BlockPayload payload = getPayload();
+            if (header.get() != (byte) payload.getType()) {
+                throw blockCorruptedException();
+            }
+            payloadSize = header.getInt();
+            if (payloadSize < 0 || pos + HEADER_SIZE + TAIL_SIZE + payloadSize > fileLength) {
+                throw blockCorruptedException();
+            }
+
+            // Read body, which may be shorter than the payload size
+            ByteBuffer block = region(pos, HEADER_SIZE + payloadSize + TAIL_SIZE);
+            Crc32ByteBufferInputStream checkSumInputStream = new Crc32ByteBufferInputStream(block);
+            DataInputStream inputStream = new DataInputStream(checkSumInputStream);
+            inputStream.readFully(new byte[HEADER_SIZE]);
+            payload.read(inputStream);
+
+            // Read and verify checksum
+            long actualChecksum = checkSumInputStream.checksum.getValue();
+            long checksum = inputStream.readLong();
+            if (actualChecksum != checksum) {
+                throw blockCorruptedException();
+            }
+        }
+
+        public RuntimeException blockCorruptedException() {
+            return new CorruptedCacheException(String.format("Corrupted %s found in %s.", this,
+                    MappedFileBlockStore.this));
+        }
+    }
+
+    private static class Crc32ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+        private final CRC32 checksum = new CRC32();
+
+        private Crc32ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int b = buffer.get() & 0xFF;
+            checksum.update(b);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int max) throws IOException {
+            if (max == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(max, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            checksum.update(bytes, offset, count);
+            return count;
+        }
+    }
+}
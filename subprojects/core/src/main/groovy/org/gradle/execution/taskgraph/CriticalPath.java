@@ -0,0 +1,120 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.SetMultimap;
+import org.gradle.util.CollectionUtils;
+
+import java.util.*;
+
+import static org.gradle.util.Clock.prettyTime;
+
+/**
+ * The longest chain of tasks in an execution plan where each task has to wait for the previous one to complete, weighted by task duration. No matter how
+ * many workers are used, the plan cannot complete in less time than its critical path.
+ *
+ * <p>The tasks of the plan are expected to be in execution plan order, so that each task comes after the tasks it waits for.</p>
+ */
+class CriticalPath {
+    private final List<TaskInfo> tasks;
+    private final long duration;
+
+    private CriticalPath(List<TaskInfo> tasks, long duration) {
+        this.tasks = tasks;
+        this.duration = duration;
+    }
+
+    public List<TaskInfo> getTasks() {
+        return tasks;
+    }
+
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * Returns the critical path of the given plan. Tasks without a duration are assumed to take no time.
+     */
+    public static CriticalPath of(Collection<TaskInfo> plan, Map<TaskInfo, Long> durations) {
+        Map<TaskInfo, Long> lengths = new HashMap<TaskInfo, Long>();
+        Map<TaskInfo, TaskInfo> previous = new HashMap<TaskInfo, TaskInfo>();
+        TaskInfo last = null;
+        for (TaskInfo task : plan) {
+            long longestDependency = 0;
+            for (TaskInfo dependency : dependencies(task)) {
+                Long length = lengths.get(dependency);
+                if (length != null && (previous.get(task) == null || length > longestDependency)) {
+                    longestDependency = length;
+                    previous.put(task, dependency);
+                }
+            }
+            long length = longestDependency + durationOf(task, durations);
+            lengths.put(task, length);
+            if (last == null || length > lengths.get(last)) {
+                last = task;
+            }
+        }
+
+        LinkedList<TaskInfo> tasks = new LinkedList<TaskInfo>();
+        for (TaskInfo task = last; task != null; task = previous.get(task)) {
+            tasks.addFirst(task);
+        }
+        return new CriticalPath(tasks, last == null ? 0 : lengths.get(last));
+    }
+
+    /**
+     * Returns, for each task of the given plan, the duration of the longest chain of tasks that starts with that task. Executing the tasks with the
+     * longest remaining chains first shortens the plan when there are enough workers to run everything else alongside.
+     */
+    public static Map<TaskInfo, Long> remainingDurations(Collection<TaskInfo> plan, Map<TaskInfo, Long> durations) {
+        SetMultimap<TaskInfo, TaskInfo> dependents = LinkedHashMultimap.create();
+        for (TaskInfo task : plan) {
+            for (TaskInfo dependency : dependencies(task)) {
+                dependents.put(dependency, task);
+            }
+        }
+
+        Map<TaskInfo, Long> remaining = new HashMap<TaskInfo, Long>();
+        for (TaskInfo task : Lists.reverse(CollectionUtils.toList(plan))) {
+            long longestDependent = 0;
+            for (TaskInfo dependent : dependents.get(task)) {
+                Long length = remaining.get(dependent);
+                if (length != null) {
+                    longestDependent = Math.max(longestDependent, length);
+                }
+            }
+            remaining.put(task, longestDependent + durationOf(task, durations));
+        }
+        return remaining;
+    }
+
+    private static Iterable<TaskInfo> dependencies(TaskInfo task) {
+        return Iterables.concat(task.getMustSuccessors(), task.getDependencySuccessors());
+    }
+
+    private static long durationOf(TaskInfo task, Map<TaskInfo, Long> durations) {
+        Long duration = durations.get(task);
+        return duration == null ? 0 : duration;
+    }
+
+    public String toString() {
+        return String.format("%s (%s)", CollectionUtils.join(" -> ", tasks), prettyTime(duration));
+    }
+}
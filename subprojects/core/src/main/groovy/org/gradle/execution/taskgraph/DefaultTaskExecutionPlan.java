@@ -18,16 +18,17 @@ package org.gradle.execution.taskgraph;
 
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
-import com.google.common.base.StandardSystemProperty;
 import com.google.common.collect.*;
 import org.gradle.api.*;
 import org.gradle.api.internal.TaskInternal;
+import org.gradle.api.internal.changedetection.state.TaskDurationRepository;
 import org.gradle.api.internal.tasks.CachingTaskDependencyResolveContext;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.api.specs.Spec;
 import org.gradle.api.specs.Specs;
 import org.gradle.api.tasks.ParallelizableTask;
+import org.gradle.api.tasks.TaskState;
 import org.gradle.execution.MultipleBuildFailures;
 import org.gradle.execution.TaskFailureHandler;
 import org.gradle.initialization.BuildCancellationToken;
@@ -39,7 +40,6 @@ import org.gradle.internal.graph.DirectedGraphRenderer;
 import org.gradle.internal.graph.GraphNodeRenderer;
 import org.gradle.logging.StyledTextOutput;
 import org.gradle.util.CollectionUtils;
-import org.gradle.util.TextUtil;
 
 import java.io.File;
 import java.io.IOException;
@@ -56,11 +56,13 @@ import java.util.concurrent.locks.ReentrantLock;
 public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
 
     public static final String INTRA_PROJECT_TOGGLE = "org.gradle.parallel.intra";
+    public static final String CRITICAL_PATH_TOGGLE = "org.gradle.parallel.criticalpath";
 
     private final static Logger LOGGER = Logging.getLogger(DefaultTaskExecutionPlan.class);
 
     private final Lock lock = new ReentrantLock();
     private final Condition condition = lock.newCondition();
+    private final Condition completed = lock.newCondition();
     private final Set<TaskInfo> tasksInUnknownState = new LinkedHashSet<TaskInfo>();
     private final Set<TaskInfo> entryTasks = new LinkedHashSet<TaskInfo>();
     private final TaskDependencyGraph graph = new TaskDependencyGraph();
@@ -73,25 +75,48 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
     private final Multiset<String> projectsWithRunningTasks = HashMultiset.create();
     private final Multiset<String> projectsWithRunningNonParallelizableTasks = HashMultiset.create();
     private final Set<TaskInternal> runningTasks = Sets.newIdentityHashSet();
+    private final Set<TaskInternal> runningTasksWithUnindexedOutputs = Sets.newIdentityHashSet();
+    private final OutputPathIndex runningTaskOutputPaths = new OutputPathIndex();
     private final Map<Task, Set<String>> canonicalizedOutputCache = Maps.newIdentityHashMap();
     private final Map<Task, Boolean> isParallelSafeCache = Maps.newIdentityHashMap();
+    private final Map<TaskInfo, Long> predictedDurations = new HashMap<TaskInfo, Long>();
+    private final Map<TaskInfo, Long> startTimes = new HashMap<TaskInfo, Long>();
+    private final Map<TaskInfo, Long> actualDurations = new HashMap<TaskInfo, Long>();
+    private ReadyTaskQueue readyTasks;
+    private int waitingWorkers;
     private boolean tasksCancelled;
 
     private final boolean intraProjectParallelization;
+    private final TaskDurationRepository taskDurations;
 
     public DefaultTaskExecutionPlan(BuildCancellationToken cancellationToken, boolean intraProjectParallelization) {
+        this(cancellationToken, intraProjectParallelization, null);
+    }
+
+    /**
+     * @param taskDurations the durations used to start the tasks with the longest remaining critical path first, or null to start tasks in execution plan order.
+     */
+    public DefaultTaskExecutionPlan(BuildCancellationToken cancellationToken, boolean intraProjectParallelization, @Nullable TaskDurationRepository taskDurations) {
         this.cancellationToken = cancellationToken;
         this.intraProjectParallelization = intraProjectParallelization;
+        this.taskDurations = taskDurations;
 
         if (intraProjectParallelization) {
             LOGGER.info("intra project task parallelization is enabled");
         }
+        if (taskDurations != null) {
+            LOGGER.info("critical path task scheduling is enabled");
+        }
     }
 
     public DefaultTaskExecutionPlan(BuildCancellationToken cancellationToken) {
         this(cancellationToken, Boolean.getBoolean(INTRA_PROJECT_TOGGLE));
     }
 
+    public DefaultTaskExecutionPlan(BuildCancellationToken cancellationToken, TaskDurationRepository taskDurations) {
+        this(cancellationToken, Boolean.getBoolean(INTRA_PROJECT_TOGGLE), Boolean.getBoolean(CRITICAL_PATH_TOGGLE) ? taskDurations : null);
+    }
+
     public void addToTaskGraph(Collection<? extends Task> tasks) {
         List<TaskInfo> queue = new ArrayList<TaskInfo>();
 
@@ -427,6 +452,12 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
             canonicalizedOutputCache.clear();
             isParallelSafeCache.clear();
             runningTasks.clear();
+            runningTasksWithUnindexedOutputs.clear();
+            runningTaskOutputPaths.clear();
+            readyTasks = null;
+            predictedDurations.clear();
+            startTimes.clear();
+            actualDurations.clear();
         } finally {
             lock.unlock();
         }
@@ -447,38 +478,45 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
     public TaskInfo getTaskToExecute() {
         lock.lock();
         try {
+            ReadyTaskQueue readyTasks = getReadyTasks();
             while (true) {
                 if (cancellationToken.isCancellationRequested()) {
                     if (abortExecution()) {
                         tasksCancelled = true;
+                        signalWaitingWorkers(0);
                     }
                 }
+                if (readyTasks.isAllComplete()) {
+                    return null;
+                }
                 TaskInfo nextMatching = null;
-                boolean allTasksComplete = true;
-                for (TaskInfo taskInfo : executionPlan.values()) {
-                    allTasksComplete = allTasksComplete && taskInfo.isComplete();
-                    if (taskInfo.isReady() && taskInfo.allDependenciesComplete() && canRunWithWithCurrentlyExecutedTasks(taskInfo)) {
+                for (TaskInfo taskInfo : readyTasks) {
+                    if (canRunWithWithCurrentlyExecutedTasks(taskInfo)) {
                         nextMatching = taskInfo;
                         break;
                     }
                 }
-                if (allTasksComplete) {
-                    return null;
-                }
                 if (nextMatching == null) {
+                    waitingWorkers++;
                     try {
                         condition.await();
                     } catch (InterruptedException e) {
                         throw new RuntimeException(e);
+                    } finally {
+                        waitingWorkers--;
                     }
                 } else {
                     if (nextMatching.allDependenciesSuccessful()) {
                         nextMatching.startExecution();
+                        readyTasks.stateChanged(nextMatching);
                         recordTaskStarted(nextMatching);
+                        // Let another worker look for a task, as tasks held back by the tasks currently running may still be able to start
+                        signalWaitingWorkers(readyTasks.isEmpty() ? 0 : 1);
                         return nextMatching;
                     } else {
                         nextMatching.skipExecution();
-                        condition.signalAll();
+                        readyTasks.stateChanged(nextMatching);
+                        signalWaitingWorkers(0);
                     }
                 }
             }
@@ -487,6 +525,70 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         }
     }
 
+    private ReadyTaskQueue getReadyTasks() {
+        if (readyTasks == null) {
+            if (taskDurations == null) {
+                readyTasks = new ReadyTaskQueue(executionPlan.values());
+            } else {
+                predictDurations();
+                readyTasks = new ReadyTaskQueue(executionPlan.values(), CriticalPath.remainingDurations(executionPlan.values(), predictedDurations));
+            }
+        }
+        return readyTasks;
+    }
+
+    private void predictDurations() {
+        Map<String, Long> durations = taskDurations.getDurations(CollectionUtils.collect(executionPlan.keySet(), new Transformer<String, Task>() {
+            public String transform(Task task) {
+                return task.getPath();
+            }
+        }));
+        // Assume that a task that has never done any work takes as long as an average task
+        long defaultDuration = 0;
+        for (Long duration : durations.values()) {
+            defaultDuration += duration;
+        }
+        defaultDuration = durations.isEmpty() ? 0 : defaultDuration / durations.size();
+
+        for (TaskInfo taskInfo : executionPlan.values()) {
+            if (taskInfo.isReady()) {
+                Long duration = durations.get(taskInfo.getTask().getPath());
+                predictedDurations.put(taskInfo, duration == null ? defaultDuration : duration);
+            }
+        }
+    }
+
+    private Map<String, Long> getCompletedTaskDurations() {
+        Map<String, Long> durations = new HashMap<String, Long>();
+        for (Map.Entry<TaskInfo, Long> entry : actualDurations.entrySet()) {
+            TaskState state = entry.getKey().getTask().getState();
+            if (!state.getSkipped() && state.getFailure() == null) {
+                durations.put(entry.getKey().getTask().getPath(), entry.getValue());
+            }
+        }
+
+        LOGGER.info("Predicted critical path: {}", CriticalPath.of(executionPlan.values(), predictedDurations));
+        LOGGER.info("Actual critical path: {}", CriticalPath.of(executionPlan.values(), actualDurations));
+        return durations;
+    }
+
+    /**
+     * Wakes up one waiting worker for each task that has become ready, and at least the given number of workers. Wakes up all workers once every task is
+     * complete.
+     */
+    private void signalWaitingWorkers(int minWorkers) {
+        int newlyReady = readyTasks.takeNewlyReadyCount();
+        if (readyTasks.isAllComplete()) {
+            condition.signalAll();
+            completed.signalAll();
+            return;
+        }
+        int count = Math.min(Math.max(newlyReady, minWorkers), waitingWorkers);
+        for (int i = 0; i < count; i++) {
+            condition.signal();
+        }
+    }
+
     private boolean canRunWithWithCurrentlyExecutedTasks(TaskInfo taskInfo) {
         TaskInternal task = taskInfo.getTask();
         String projectPath = task.getProject().getPath();
@@ -538,35 +640,22 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
             return null;
         }
 
-        for (String candidateTaskOutputPath : canonicalizedOutputPaths(candidateTask)) {
-            for (TaskInternal runningTask : runningTasks) {
-                for (String runningTaskOutputPath : canonicalizedOutputPaths(runningTask)) {
-                    if (pathsOverlap(candidateTaskOutputPath, runningTaskOutputPath)) {
-                        return Tuple.of(runningTask, TextUtil.shorterOf(candidateTaskOutputPath, runningTaskOutputPath));
-                    }
-                }
+        // Index the outputs of running tasks only once they are needed, so that tasks executed one at a time never have their outputs resolved
+        for (TaskInternal runningTask : runningTasksWithUnindexedOutputs) {
+            for (String outputPath : canonicalizedOutputPaths(runningTask)) {
+                runningTaskOutputPaths.add(runningTask, outputPath);
             }
         }
+        runningTasksWithUnindexedOutputs.clear();
 
-        return null;
-    }
-
-
-    private boolean pathsOverlap(String firstPath, String secondPath) {
-        if (firstPath.equals(secondPath)) {
-            return true;
+        for (String candidateTaskOutputPath : canonicalizedOutputPaths(candidateTask)) {
+            Tuple<TaskInternal, String> overlap = runningTaskOutputPaths.findOverlap(candidateTaskOutputPath);
+            if (overlap != null) {
+                return overlap;
+            }
         }
 
-        String shorter;
-        String longer;
-        if (firstPath.length() > secondPath.length()) {
-            shorter = secondPath;
-            longer = firstPath;
-        } else {
-            shorter = firstPath;
-            longer = secondPath;
-        }
-        return longer.startsWith(shorter + StandardSystemProperty.FILE_SEPARATOR.value());
+        return null;
     }
 
     boolean isParallelizable(TaskInternal task) {
@@ -603,6 +692,10 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         }
         projectsWithRunningTasks.add(projectPath);
         runningTasks.add(task);
+        if (taskDurations != null) {
+            startTimes.put(taskInfo, System.currentTimeMillis());
+        }
+        runningTasksWithUnindexedOutputs.add(task);
     }
 
     private void recordTaskCompleted(TaskInfo taskInfo) {
@@ -612,22 +705,33 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
             projectsWithRunningNonParallelizableTasks.remove(projectPath);
         }
         projectsWithRunningTasks.remove(projectPath);
-        canonicalizedOutputCache.remove(task);
         isParallelSafeCache.remove(task);
         runningTasks.remove(task);
+        Long startTime = startTimes.remove(taskInfo);
+        if (startTime != null) {
+            actualDurations.put(taskInfo, System.currentTimeMillis() - startTime);
+        }
+        if (!runningTasksWithUnindexedOutputs.remove(task)) {
+            for (String outputPath : canonicalizedOutputPaths(task)) {
+                runningTaskOutputPaths.remove(task, outputPath);
+            }
+        }
     }
 
     public void taskComplete(TaskInfo taskInfo) {
         lock.lock();
         try {
+            ReadyTaskQueue readyTasks = getReadyTasks();
             enforceFinalizerTasks(taskInfo);
             if (taskInfo.isFailed()) {
                 handleFailure(taskInfo);
             }
 
             taskInfo.finishExecution();
+            readyTasks.stateChanged(taskInfo);
             recordTaskCompleted(taskInfo);
-            condition.signalAll();
+            // The completed task may have been holding back other ready tasks
+            signalWaitingWorkers(readyTasks.isEmpty() ? 0 : 1);
         } finally {
             lock.unlock();
         }
@@ -647,6 +751,7 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         }
         if (node.isMustNotRun() || node.isRequired()) {
             node.enforceRun();
+            readyTasks.stateChanged(node);
         }
     }
 
@@ -676,6 +781,7 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         for (TaskInfo taskInfo : executionPlan.values()) {
             if (taskInfo.isRequired()) {
                 taskInfo.skipExecution();
+                readyTasks.stateChanged(taskInfo);
                 aborted = true;
             }
         }
@@ -683,15 +789,31 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
     }
 
     public void awaitCompletion() {
+        Map<String, Long> durations = null;
         lock.lock();
         try {
-            while (!allTasksComplete()) {
+            ReadyTaskQueue readyTasks = getReadyTasks();
+            while (!readyTasks.isAllComplete()) {
                 try {
-                    condition.await();
+                    completed.await();
                 } catch (InterruptedException e) {
                     throw new RuntimeException(e);
                 }
             }
+            if (taskDurations != null) {
+                durations = getCompletedTaskDurations();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        // Written without holding the lock, as this may need to wait for other processes to release the cache
+        if (durations != null) {
+            taskDurations.recordDurations(durations);
+        }
+
+        lock.lock();
+        try {
             rethrowFailures();
         } finally {
             lock.unlock();
@@ -713,15 +835,6 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         throw UncheckedException.throwAsUncheckedException(failures.get(0));
     }
 
-    private boolean allTasksComplete() {
-        for (TaskInfo taskInfo : executionPlan.values()) {
-            if (!taskInfo.isComplete()) {
-                return false;
-            }
-        }
-        return true;
-    }
-
     private static class GraphEdge {
         private final TaskInfo from;
         private final TaskInfo to;
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph;
+
+import org.gradle.api.Nullable;
+import org.gradle.api.internal.TaskInternal;
+import org.gradle.internal.Tuple;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A trie of the canonical output paths claimed by tasks, keyed by path segment, so that overlapping outputs can be found in time proportional to the
+ * depth of the path rather than the number of claimed paths. Two paths overlap when they are equal or one is an ancestor of the other.
+ *
+ * <p>This class is not thread-safe.</p>
+ */
+class OutputPathIndex {
+    private final char separator;
+    private final Node root = new Node();
+
+    OutputPathIndex() {
+        this(File.separatorChar);
+    }
+
+    OutputPathIndex(char separator) {
+        this.separator = separator;
+    }
+
+    public void add(TaskInternal task, String path) {
+        Node node = root;
+        node.claims++;
+        int start = 0;
+        while (start < path.length()) {
+            int end = segmentEnd(path, start);
+            String segment = path.substring(start, end);
+            Node child = node.children.get(segment);
+            if (child == null) {
+                child = new Node();
+                node.children.put(segment, child);
+            }
+            node = child;
+            node.claims++;
+            start = end + 1;
+        }
+        node.owners.add(task);
+        node.path = path;
+    }
+
+    public void remove(TaskInternal task, String path) {
+        List<Node> visited = new ArrayList<Node>();
+        List<String> segments = new ArrayList<String>();
+        Node node = root;
+        visited.add(node);
+        int start = 0;
+        while (start < path.length()) {
+            int end = segmentEnd(path, start);
+            String segment = path.substring(start, end);
+            node = node.children.get(segment);
+            if (node == null) {
+                return;
+            }
+            visited.add(node);
+            segments.add(segment);
+            start = end + 1;
+        }
+        if (!node.owners.remove(task)) {
+            return;
+        }
+        for (Node visitedNode : visited) {
+            visitedNode.claims--;
+        }
+        for (int i = segments.size() - 1; i >= 0 && visited.get(i + 1).claims == 0; i--) {
+            visited.get(i).children.remove(segments.get(i));
+        }
+    }
+
+    /**
+     * Returns a task which has claimed a path that overlaps the given path, along with the shorter of the two paths, or null when there is no such task.
+     */
+    @Nullable
+    public Tuple<TaskInternal, String> findOverlap(String path) {
+        Node node = root;
+        int start = 0;
+        while (true) {
+            if (node.claims == 0) {
+                return null;
+            }
+            if (!node.owners.isEmpty()) {
+                // An ancestor of the path, or the path itself, has been claimed
+                return Tuple.of(node.owners.get(0), node.path);
+            }
+            if (start >= path.length()) {
+                break;
+            }
+            int end = segmentEnd(path, start);
+            node = node.children.get(path.substring(start, end));
+            if (node == null) {
+                return null;
+            }
+            start = end + 1;
+        }
+
+        // A descendant of the path has been claimed
+        while (node.owners.isEmpty()) {
+            for (Node child : node.children.values()) {
+                if (child.claims > 0) {
+                    node = child;
+                    break;
+                }
+            }
+        }
+        return Tuple.of(node.owners.get(0), path);
+    }
+
+    public boolean isEmpty() {
+        return root.claims == 0;
+    }
+
+    public void clear() {
+        root.children.clear();
+        root.owners.clear();
+        root.claims = 0;
+    }
+
+    private int segmentEnd(String path, int start) {
+        int end = path.indexOf(separator, start);
+        return end < 0 ? path.length() : end;
+    }
+
+    private static class Node {
+        private final Map<String, Node> children = new HashMap<String, Node>();
+        private final List<TaskInternal> owners = new ArrayList<TaskInternal>(1);
+        private String path;
+        // The number of paths claimed at or below this node
+        private int claims;
+    }
+}
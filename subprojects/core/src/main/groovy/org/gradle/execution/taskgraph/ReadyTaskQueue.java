@@ -0,0 +1,152 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Iterables;
+
+import java.util.*;
+
+/**
+ * Keeps track of the tasks of an execution plan that are ready to execute, ie that should run and whose dependencies are all complete.
+ *
+ * <p>Each task keeps a count of its incomplete dependencies, which is updated as the state of the tasks changes, so the ready tasks can be found without
+ * scanning the whole plan. Ready tasks are iterated in execution plan order, unless the tasks are given priorities, in which case ready tasks with a higher
+ * priority come first.</p>
+ *
+ * <p>This class is not thread-safe. Callers must notify the queue of every state change of a task in the plan using {@link #stateChanged(TaskInfo)}.</p>
+ */
+class ReadyTaskQueue implements Iterable<TaskInfo> {
+    private final Map<TaskInfo, Entry> entries = new HashMap<TaskInfo, Entry>();
+    private final TreeSet<Entry> readyTasks = new TreeSet<Entry>();
+    private int incompleteTasks;
+    private int newlyReadyTasks;
+
+    ReadyTaskQueue(Collection<TaskInfo> executionPlan) {
+        this(executionPlan, Collections.<TaskInfo, Long>emptyMap());
+    }
+
+    ReadyTaskQueue(Collection<TaskInfo> executionPlan, Map<TaskInfo, Long> priorities) {
+        List<Entry> planOrder = new ArrayList<Entry>(executionPlan.size());
+        for (TaskInfo taskInfo : executionPlan) {
+            Long priority = priorities.get(taskInfo);
+            Entry entry = new Entry(taskInfo, planOrder.size(), priority == null ? 0 : priority);
+            entries.put(taskInfo, entry);
+            planOrder.add(entry);
+        }
+        for (Entry entry : planOrder) {
+            for (TaskInfo dependency : Iterables.concat(entry.taskInfo.getMustSuccessors(), entry.taskInfo.getDependencySuccessors())) {
+                Entry dependencyEntry = entries.get(dependency);
+                if (dependencyEntry == null) {
+                    // Not part of the plan, so never executed
+                    continue;
+                }
+                dependencyEntry.dependents.add(entry);
+                if (!dependencyEntry.complete) {
+                    entry.incompleteDependencies++;
+                }
+            }
+            if (!entry.complete) {
+                incompleteTasks++;
+            }
+            updateReady(entry);
+        }
+        newlyReadyTasks = readyTasks.size();
+    }
+
+    /**
+     * Returns the tasks that are ready to execute, highest priority first.
+     */
+    public Iterator<TaskInfo> iterator() {
+        return Iterables.transform(readyTasks, new Function<Entry, TaskInfo>() {
+            public TaskInfo apply(Entry entry) {
+                return entry.taskInfo;
+            }
+        }).iterator();
+    }
+
+    public boolean isEmpty() {
+        return readyTasks.isEmpty();
+    }
+
+    public boolean isAllComplete() {
+        return incompleteTasks == 0;
+    }
+
+    /**
+     * Returns the number of tasks that have become ready since the last call to this method.
+     */
+    public int takeNewlyReadyCount() {
+        int count = newlyReadyTasks;
+        newlyReadyTasks = 0;
+        return count;
+    }
+
+    /**
+     * Updates the queue after the state of the given task has changed.
+     */
+    public void stateChanged(TaskInfo taskInfo) {
+        Entry entry = entries.get(taskInfo);
+        if (entry == null) {
+            return;
+        }
+        boolean complete = taskInfo.isComplete();
+        if (complete != entry.complete) {
+            entry.complete = complete;
+            int delta = complete ? -1 : 1;
+            incompleteTasks += delta;
+            for (Entry dependent : entry.dependents) {
+                dependent.incompleteDependencies += delta;
+                updateReady(dependent);
+            }
+        }
+        updateReady(entry);
+    }
+
+    private void updateReady(Entry entry) {
+        if (entry.taskInfo.isReady() && entry.incompleteDependencies == 0) {
+            if (readyTasks.add(entry)) {
+                newlyReadyTasks++;
+            }
+        } else {
+            readyTasks.remove(entry);
+        }
+    }
+
+    private static class Entry implements Comparable<Entry> {
+        private final TaskInfo taskInfo;
+        private final int planIndex;
+        private final long priority;
+        private final List<Entry> dependents = new ArrayList<Entry>();
+        private boolean complete;
+        private int incompleteDependencies;
+
+        private Entry(TaskInfo taskInfo, int planIndex, long priority) {
+            this.taskInfo = taskInfo;
+            this.planIndex = planIndex;
+            this.priority = priority;
+            this.complete = taskInfo.isComplete();
+        }
+
+        public int compareTo(Entry other) {
+            if (priority != other.priority) {
+                return priority > other.priority ? -1 : 1;
+            }
+            return planIndex - other.planIndex;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.filewatch;
+
+import org.gradle.internal.concurrent.Stoppable;
+
+import java.io.File;
+
+/**
+ * Watches directories for changes to their entries, so that information derived from the files of a directory can be reused for as long as the
+ * directory has not changed. Points in time are represented as marks, which increase as changes are reported.
+ *
+ * <p>Implementations must be thread-safe.</p>
+ */
+public interface FileWatcher extends Stoppable {
+    /**
+     * Starts watching the given directory for changes to its direct entries, if not already watched.
+     *
+     * @return false when the directory cannot be watched.
+     */
+    boolean watch(File directory);
+
+    /**
+     * Stops watching the given directory, if watched. The directory is considered changed from then on, until it is watched again.
+     */
+    void unwatch(File directory);
+
+    /**
+     * Returns the mark for the current point in time, taking into account the changes reported so far.
+     */
+    long mark();
+
+    /**
+     * Returns true when an entry of the given directory may have changed since the given mark. A directory which was not being watched at the mark is
+     * always considered changed.
+     */
+    boolean isChangedSince(File directory, long mark);
+
+    /**
+     * Considers the given file, and all files under it, to have changed now, regardless of whether a change has been reported for them.
+     */
+    void invalidate(File file);
+
+    /**
+     * Discards the record of the files invalidated at or before the given mark, once there is no longer interest in changes since an earlier mark. A
+     * directory is always considered changed since a mark earlier than the given one afterwards.
+     */
+    void discardInvalidationsBefore(long mark);
+}
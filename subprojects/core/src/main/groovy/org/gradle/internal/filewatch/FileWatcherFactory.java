@@ -0,0 +1,53 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.filewatch;
+
+import org.gradle.api.JavaVersion;
+import org.gradle.api.Nullable;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.os.OperatingSystem;
+
+public class FileWatcherFactory {
+    private static final Logger LOGGER = Logging.getLogger(FileWatcherFactory.class);
+    private static final String WATCH_SERVICE_FILE_WATCHER = "org.gradle.internal.filewatch.jdk7.WatchServiceFileWatcher";
+
+    /**
+     * Creates a watcher using the Java 7 watch service, or returns null when file watching is not available.
+     */
+    @Nullable
+    public FileWatcher create() {
+        if (!JavaVersion.current().isJava7Compatible()) {
+            LOGGER.debug("File watching requires Java 7 or later. Continuing without file watching.");
+            return null;
+        }
+        OperatingSystem operatingSystem = OperatingSystem.current();
+        if (!operatingSystem.isLinux() && !operatingSystem.isWindows()) {
+            // The watch service polls for changes on other platforms, and reports them too late to be relied on between builds
+            LOGGER.debug("File watching is not supported on {}. Continuing without file watching.", operatingSystem);
+            return null;
+        }
+        try {
+            return (FileWatcher) FileWatcherFactory.class.getClassLoader().loadClass(WATCH_SERVICE_FILE_WATCHER).newInstance();
+        } catch (ClassNotFoundException e) {
+            LOGGER.debug("Unable to load {}. Continuing without file watching.", WATCH_SERVICE_FILE_WATCHER);
+        } catch (Exception e) {
+            LOGGER.debug("Unable to start watching files. Continuing without file watching.", e);
+        }
+        return null;
+    }
+}
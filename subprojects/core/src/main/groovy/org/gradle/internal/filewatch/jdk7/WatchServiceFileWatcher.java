@@ -0,0 +1,191 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.filewatch.jdk7;
+
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.filewatch.FileWatcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * A {@link FileWatcher} backed by a {@link WatchService}. Events are collected whenever the watcher is queried, so no thread is required.
+ *
+ * <p>When the watch service overflows and events are lost, every directory is considered changed. When the maximum number of directories is being watched,
+ * the least recently used directory stops being watched to make room for a new one.</p>
+ */
+public class WatchServiceFileWatcher implements FileWatcher {
+    private static final Logger LOGGER = Logging.getLogger(WatchServiceFileWatcher.class);
+    // Keep well below the default per-user limits of the native watch mechanisms, which are shared with IDEs and other processes
+    static final int DEFAULT_MAX_WATCHED_DIRECTORIES = 1024;
+
+    private final WatchService watchService;
+    private final int maxWatchedDirectories;
+    // In least recently used order
+    private final Map<File, WatchedDirectory> directories = new LinkedHashMap<File, WatchedDirectory>(16, 0.75f, true);
+    private final Map<WatchKey, WatchedDirectory> keys = new HashMap<WatchKey, WatchedDirectory>();
+    // In order of invalidation
+    private final Map<File, Long> invalidated = new LinkedHashMap<File, Long>();
+    private long counter;
+    private long overflowedAt = -1;
+    private long invalidationsDiscardedAt;
+
+    public WatchServiceFileWatcher() throws IOException {
+        this(DEFAULT_MAX_WATCHED_DIRECTORIES);
+    }
+
+    WatchServiceFileWatcher(int maxWatchedDirectories) throws IOException {
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.maxWatchedDirectories = maxWatchedDirectories;
+    }
+
+    public synchronized boolean watch(File directory) {
+        if (directories.get(directory) != null) {
+            return true;
+        }
+        if (directories.size() >= maxWatchedDirectories) {
+            forget(directories.values().iterator().next());
+        }
+        WatchKey key;
+        try {
+            key = directory.toPath().register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+        } catch (IOException e) {
+            LOGGER.debug("Unable to watch directory {}.", directory, e);
+            return false;
+        } catch (InvalidPathException e) {
+            return false;
+        }
+        WatchedDirectory watchedDirectory = new WatchedDirectory(directory, key, ++counter);
+        directories.put(directory, watchedDirectory);
+        keys.put(key, watchedDirectory);
+        return true;
+    }
+
+    public synchronized void unwatch(File directory) {
+        forget(directories.get(directory));
+    }
+
+    public synchronized long mark() {
+        processEvents();
+        return counter;
+    }
+
+    public synchronized boolean isChangedSince(File directory, long mark) {
+        processEvents();
+        if (overflowedAt > mark || invalidationsDiscardedAt > mark) {
+            return true;
+        }
+        WatchedDirectory watchedDirectory = directories.get(directory);
+        if (watchedDirectory == null || watchedDirectory.watchedAt > mark || watchedDirectory.changedAt > mark) {
+            return true;
+        }
+        for (File file = directory; file != null; file = file.getParentFile()) {
+            Long invalidatedAt = invalidated.get(file);
+            if (invalidatedAt != null && invalidatedAt > mark) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized void invalidate(File file) {
+        long now = ++counter;
+        invalidated.remove(file);
+        invalidated.put(file, now);
+        WatchedDirectory parent = directories.get(file.getParentFile());
+        if (parent != null) {
+            parent.changedAt = now;
+        }
+    }
+
+    public synchronized void discardInvalidationsBefore(long mark) {
+        Iterator<Long> iterator = invalidated.values().iterator();
+        while (iterator.hasNext() && iterator.next() <= mark) {
+            iterator.remove();
+        }
+        invalidationsDiscardedAt = Math.max(invalidationsDiscardedAt, mark);
+    }
+
+    private void processEvents() {
+        WatchKey key;
+        while ((key = watchService.poll()) != null) {
+            long now = ++counter;
+            WatchedDirectory watchedDirectory = keys.get(key);
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == OVERFLOW) {
+                    LOGGER.debug("File watch events have been lost. Considering all watched directories to have changed.");
+                    overflowedAt = now;
+                } else if (watchedDirectory != null && event.kind() != ENTRY_MODIFY) {
+                    // The entry may be a watched directory that has been replaced, in which case its watch no longer applies
+                    Path name = (Path) event.context();
+                    forget(directories.get(new File(watchedDirectory.directory, name.toString())));
+                }
+            }
+            if (watchedDirectory == null) {
+                key.cancel();
+                continue;
+            }
+            watchedDirectory.changedAt = now;
+            if (!key.reset()) {
+                forget(watchedDirectory);
+            }
+        }
+    }
+
+    private void forget(WatchedDirectory watchedDirectory) {
+        if (watchedDirectory == null) {
+            return;
+        }
+        watchedDirectory.key.cancel();
+        directories.remove(watchedDirectory.directory);
+        keys.remove(watchedDirectory.key);
+    }
+
+    public synchronized void stop() {
+        directories.clear();
+        keys.clear();
+        invalidated.clear();
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static class WatchedDirectory {
+        final File directory;
+        final WatchKey key;
+        final long watchedAt;
+        long changedAt;
+
+        WatchedDirectory(File directory, WatchKey key, long watchedAt) {
+            this.directory = directory;
+            this.key = key;
+            this.watchedAt = watchedAt;
+            this.changedAt = watchedAt;
+        }
+    }
+}
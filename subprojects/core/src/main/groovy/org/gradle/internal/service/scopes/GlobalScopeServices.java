@@ -20,12 +20,14 @@ import com.google.common.collect.Iterables;
 import org.gradle.StartParameter;
 import org.gradle.api.internal.*;
 import org.gradle.api.internal.changedetection.state.InMemoryTaskArtifactCache;
+import org.gradle.api.internal.changedetection.state.WatchedFileCollectionSnapshots;
 import org.gradle.api.internal.classpath.DefaultModuleRegistry;
 import org.gradle.api.internal.classpath.DefaultPluginModuleRegistry;
 import org.gradle.api.internal.classpath.ModuleRegistry;
 import org.gradle.api.internal.classpath.PluginModuleRegistry;
 import org.gradle.api.internal.file.*;
 import org.gradle.api.internal.initialization.loadercache.ClassLoaderCacheFactory;
+import org.gradle.api.logging.LogLevel;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.cache.internal.*;
@@ -41,6 +43,8 @@ import org.gradle.internal.classloader.DefaultClassLoaderFactory;
 import org.gradle.internal.concurrent.DefaultExecutorFactory;
 import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.environment.GradleBuildEnvironment;
+import org.gradle.internal.filewatch.FileWatcherFactory;
+import org.gradle.internal.id.LongIdGenerator;
 import org.gradle.internal.nativeintegration.ProcessEnvironment;
 import org.gradle.internal.nativeintegration.filesystem.FileSystem;
 import org.gradle.internal.reflect.DirectInstantiator;
@@ -62,6 +66,8 @@ import org.gradle.model.internal.manage.schema.extract.DefaultModelSchemaStore;
 import org.gradle.model.persist.AlwaysNewModelRegistryStore;
 import org.gradle.model.persist.ModelRegistryStore;
 import org.gradle.model.persist.ReusingModelRegistryStore;
+import org.gradle.process.internal.DefaultWorkerProcessFactory;
+import org.gradle.process.internal.WorkerProcessPool;
 
 import java.util.List;
 
@@ -149,6 +155,11 @@ public class GlobalScopeServices {
         return messagingServices.get(MessagingServer.class);
     }
 
+    WorkerProcessPool createWorkerProcessPool(MessagingServer messagingServer, ClassPathRegistry classPathRegistry, FileResolver fileResolver) {
+        DefaultWorkerProcessFactory hostFactory = new DefaultWorkerProcessFactory(LogLevel.LIFECYCLE, messagingServer, classPathRegistry, fileResolver, new LongIdGenerator());
+        return new WorkerProcessPool(hostFactory, messagingServer, classPathRegistry, Runtime.getRuntime().availableProcessors());
+    }
+
     ClassGenerator createClassGenerator() {
         return new AsmBackedClassGenerator();
     }
@@ -172,6 +183,13 @@ public class GlobalScopeServices {
         return new InMemoryTaskArtifactCache();
     }
 
+    WatchedFileCollectionSnapshots createWatchedFileCollectionSnapshots(GradleBuildEnvironment buildEnvironment) {
+        if (buildEnvironment.isLongLivingProcess() && Boolean.getBoolean(WatchedFileCollectionSnapshots.TOGGLE)) {
+            return new WatchedFileCollectionSnapshots(new FileWatcherFactory().create());
+        }
+        return new WatchedFileCollectionSnapshots(null);
+    }
+
     DefaultFileLockContentionHandler createFileLockContentionHandler(ExecutorFactory executorFactory, MessagingServices messagingServices) {
         return new DefaultFileLockContentionHandler(
                 executorFactory,
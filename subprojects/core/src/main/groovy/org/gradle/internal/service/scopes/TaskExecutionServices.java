@@ -21,7 +21,8 @@ import org.gradle.api.internal.changedetection.TaskArtifactStateRepository;
 import org.gradle.api.internal.changedetection.changes.DefaultTaskArtifactStateRepository;
 import org.gradle.api.internal.changedetection.changes.ShortCircuitTaskArtifactStateRepository;
 import org.gradle.api.internal.changedetection.state.*;
-import org.gradle.api.internal.hash.DefaultHasher;
+import org.gradle.api.internal.file.copy.CopyWorkerPool;
+import org.gradle.api.internal.hash.FileHashAlgorithm;
 import org.gradle.api.internal.tasks.TaskExecuter;
 import org.gradle.api.internal.tasks.execution.*;
 import org.gradle.api.invocation.Gradle;
@@ -54,23 +55,24 @@ public class TaskExecutionServices {
     }
 
     TaskArtifactStateCacheAccess createCacheAccess(Gradle gradle, CacheRepository cacheRepository, InMemoryTaskArtifactCache inMemoryTaskArtifactCache, GradleBuildEnvironment environment) {
-        CacheDecorator decorator;
-        if (environment.isLongLivingProcess()) {
-            decorator = inMemoryTaskArtifactCache;
-        } else {
-            decorator = new NoOpDecorator();
-        }
+        // Only keep entries in memory across builds in a long-living process
+        CacheDecorator decorator = environment.isLongLivingProcess() ? inMemoryTaskArtifactCache : null;
         return new DefaultTaskArtifactStateCacheAccess(gradle, cacheRepository, decorator);
     }
 
-    FileSnapshotter createFileSnapshotter(TaskArtifactStateCacheAccess cacheAccess) {
-        return new CachingFileSnapshotter(new DefaultHasher(), cacheAccess);
+    FileSnapshotter createFileSnapshotter(TaskArtifactStateCacheAccess cacheAccess, ExecutorFactory executorFactory) {
+        return new CachingFileSnapshotter(FileHashAlgorithm.fromSystemProperties(), cacheAccess, executorFactory, Runtime.getRuntime().availableProcessors());
     }
 
-    TaskArtifactStateRepository createTaskArtifactStateRepository(Instantiator instantiator, TaskArtifactStateCacheAccess cacheAccess, StartParameter startParameter, FileSnapshotter fileSnapshotter) {
-        FileCollectionSnapshotter fileCollectionSnapshotter = new DefaultFileCollectionSnapshotter(fileSnapshotter, cacheAccess);
+    CopyWorkerPool createCopyWorkerPool(ExecutorFactory executorFactory) {
+        return new CopyWorkerPool(executorFactory, Runtime.getRuntime().availableProcessors());
+    }
+
+    TaskArtifactStateRepository createTaskArtifactStateRepository(Instantiator instantiator, TaskArtifactStateCacheAccess cacheAccess, StartParameter startParameter, FileSnapshotter fileSnapshotter,
+                                                                  WatchedFileCollectionSnapshots watchedSnapshots) {
+        FileCollectionSnapshotter fileCollectionSnapshotter = new DefaultFileCollectionSnapshotter(fileSnapshotter, cacheAccess, watchedSnapshots);
 
-        FileCollectionSnapshotter outputFilesSnapshotter = new OutputFilesCollectionSnapshotter(fileCollectionSnapshotter, new RandomLongIdGenerator(), cacheAccess);
+        FileCollectionSnapshotter outputFilesSnapshotter = new OutputFilesCollectionSnapshotter(fileCollectionSnapshotter, new RandomLongIdGenerator(), cacheAccess, watchedSnapshots);
 
         SerializerRegistry<FileCollectionSnapshot> serializerRegistry = new DefaultSerializerRegistry<FileCollectionSnapshot>();
         fileCollectionSnapshotter.registerSerializers(serializerRegistry);
@@ -93,6 +95,10 @@ public class TaskExecutionServices {
         );
     }
 
+    TaskDurationRepository createTaskDurationRepository(TaskArtifactStateCacheAccess cacheAccess) {
+        return new CacheBackedTaskDurationRepository(cacheAccess);
+    }
+
     TaskPlanExecutor createTaskExecutorFactory(StartParameter startParameter, ExecutorFactory executorFactory) {
         return new TaskPlanExecutorFactory(startParameter.getParallelThreadCount(), executorFactory).create();
     }
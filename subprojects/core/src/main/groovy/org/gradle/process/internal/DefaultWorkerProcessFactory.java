@@ -17,6 +17,7 @@
 package org.gradle.process.internal;
 
 import org.gradle.api.Action;
+import org.gradle.api.Nullable;
 import org.gradle.api.internal.ClassPathRegistry;
 import org.gradle.api.internal.file.FileResolver;
 import org.gradle.api.logging.LogLevel;
@@ -49,15 +50,26 @@ public class DefaultWorkerProcessFactory implements Factory<WorkerProcessBuilder
     private final ClassPathRegistry classPathRegistry;
     private final FileResolver resolver;
     private final IdGenerator<?> idGenerator;
+    private final WorkerProcessPool workerProcessPool;
 
     public DefaultWorkerProcessFactory(LogLevel workerLogLevel, MessagingServer server,
                                        ClassPathRegistry classPathRegistry, FileResolver resolver,
                                        IdGenerator<?> idGenerator) {
+        this(workerLogLevel, server, classPathRegistry, resolver, idGenerator, null);
+    }
+
+    /**
+     * @param workerProcessPool the pool to run reusable workers in, or null to run every worker in a process of its own.
+     */
+    public DefaultWorkerProcessFactory(LogLevel workerLogLevel, MessagingServer server,
+                                       ClassPathRegistry classPathRegistry, FileResolver resolver,
+                                       IdGenerator<?> idGenerator, @Nullable WorkerProcessPool workerProcessPool) {
         this.workerLogLevel = workerLogLevel;
         this.server = server;
         this.classPathRegistry = classPathRegistry;
         this.resolver = resolver;
         this.idGenerator = idGenerator;
+        this.workerProcessPool = workerProcessPool;
     }
 
     public WorkerProcessBuilder create() {
@@ -76,6 +88,16 @@ public class DefaultWorkerProcessFactory implements Factory<WorkerProcessBuilder
                 throw new IllegalStateException("No worker action specified for this worker process.");
             }
 
+            // Build configuration for GradleWorkerMain
+            List<URL> implementationClassPath = ClasspathUtil.getClasspath(getWorker().getClass().getClassLoader());
+            Object id = idGenerator.generateId();
+            String displayName = getBaseName() + " " + id;
+
+            if (isReusable() && workerProcessPool != null) {
+                LOGGER.debug("Creating {} to run in a worker host", displayName);
+                return workerProcessPool.createWorkerProcess(this, id, displayName, implementationClassPath);
+            }
+
             final DefaultWorkerProcess workerProcess = new DefaultWorkerProcess(120, TimeUnit.SECONDS);
             ConnectionAcceptor acceptor = server.accept(new Action<ObjectConnection>() {
                 public void execute(ObjectConnection connection) {
@@ -85,11 +107,6 @@ public class DefaultWorkerProcessFactory implements Factory<WorkerProcessBuilder
             workerProcess.startAccepting(acceptor);
             Address localAddress = acceptor.getAddress();
 
-            // Build configuration for GradleWorkerMain
-            List<URL> implementationClassPath = ClasspathUtil.getClasspath(getWorker().getClass().getClassLoader());
-            Object id = idGenerator.generateId();
-            String displayName = getBaseName() + " " + id;
-
             WorkerFactory workerFactory;
             if (isLoadApplicationInSystemClassLoader()) {
                 workerFactory = new ApplicationClassesInSystemClassLoaderWorkerFactory(id, displayName, this,
@@ -34,6 +34,9 @@ import java.util.Set;
  *
  * <p>A worker process can optionally specify an application classpath. The classes of this classpath are loaded into an isolated ClassLoader, which is made visible to the worker action ClassLoader.
  * Only the packages specified in the set of shared packages are visible to the worker action ClassLoader.</p>
+ *
+ * <p>A reusable worker may be run in a long-lived process shared with other reusable workers whose JVM options are the same, one after the other.
+ * The application classes of a reusable worker are always loaded into an isolated ClassLoader.</p>
  */
 public abstract class WorkerProcessBuilder {
     private final JavaExecHandleBuilder javaCommand;
@@ -42,6 +45,7 @@ public abstract class WorkerProcessBuilder {
     private Action<? super WorkerProcessContext> action;
     private LogLevel logLevel = LogLevel.LIFECYCLE;
     private boolean loadApplicationInSystemClassLoader;
+    private boolean reusable;
     private String baseName = "Gradle Worker";
 
     public WorkerProcessBuilder(FileResolver fileResolver) {
@@ -109,5 +113,13 @@ public abstract class WorkerProcessBuilder {
         this.loadApplicationInSystemClassLoader = loadApplicationInSystemClassLoader;
     }
 
+    public boolean isReusable() {
+        return reusable;
+    }
+
+    public void setReusable(boolean reusable) {
+        this.reusable = reusable;
+    }
+
     public abstract WorkerProcess build();
 }
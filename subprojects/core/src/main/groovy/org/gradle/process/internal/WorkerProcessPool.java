@@ -0,0 +1,488 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.process.internal;
+
+import org.gradle.api.Action;
+import org.gradle.api.Nullable;
+import org.gradle.api.internal.ClassPathRegistry;
+import org.gradle.api.logging.LogLevel;
+import org.gradle.internal.Factory;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.messaging.remote.ConnectionAcceptor;
+import org.gradle.messaging.remote.MessagingServer;
+import org.gradle.messaging.remote.ObjectConnection;
+import org.gradle.process.ExecResult;
+import org.gradle.process.internal.child.ApplicationClassesInIsolatedClassLoaderWorkerFactory;
+import org.gradle.process.internal.child.WorkerHost;
+import org.gradle.process.internal.child.WorkerHostListener;
+import org.gradle.process.internal.child.WorkerHostProtocol;
+import org.gradle.util.GUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.lang.String.format;
+
+/**
+ * A pool of long-lived worker host processes, which run {@link WorkerProcessBuilder#isReusable() reusable} workers one after the other, so that
+ * starting and warming up a JVM is paid for once rather than by every worker. A worker only runs in a host whose JVM was started with the same
+ * executable, JVM arguments, working directory and environment as the worker asks for. Each run loads its application classes into a fresh
+ * isolated ClassLoader and connects back to the build process over its own connection, as a worker in a process of its own does.
+ *
+ * <p>A host is retired after it has run {@value #DEFAULT_MAX_RUNS} workers, or when its heap after a run has grown by more than
+ * {@value #DEFAULT_MAX_HEAP_GROWTH}% of its maximum heap since its first run. Both limits can be changed using the {@value #MAX_RUNS_PROPERTY} and
+ * {@value #MAX_HEAP_GROWTH_PROPERTY} system properties. A host whose run fails is not reused.</p>
+ */
+public class WorkerProcessPool implements Stoppable {
+    public static final String MAX_RUNS_PROPERTY = "org.gradle.workers.maxRuns";
+    public static final String MAX_HEAP_GROWTH_PROPERTY = "org.gradle.workers.maxHeapGrowth";
+    static final int DEFAULT_MAX_RUNS = 20;
+    static final int DEFAULT_MAX_HEAP_GROWTH = 25;
+    private static final Logger LOGGER = LoggerFactory.getLogger(WorkerProcessPool.class);
+
+    private final Factory<WorkerProcessBuilder> hostFactory;
+    private final MessagingServer server;
+    private final ClassPathRegistry classPathRegistry;
+    private final int maxIdleHosts;
+    private final Object lock = new Object();
+    private final LinkedList<Host> idleHosts = new LinkedList<Host>();
+    private final Set<Host> hosts = new HashSet<Host>();
+    private boolean stopped;
+
+    public WorkerProcessPool(Factory<WorkerProcessBuilder> hostFactory, MessagingServer server, ClassPathRegistry classPathRegistry, int maxIdleHosts) {
+        this.hostFactory = hostFactory;
+        this.server = server;
+        this.classPathRegistry = classPathRegistry;
+        this.maxIdleHosts = maxIdleHosts;
+    }
+
+    /**
+     * Creates a worker process for the given worker, which runs in a host process from this pool when started.
+     */
+    WorkerProcess createWorkerProcess(WorkerProcessBuilder builder, Object workerId, String displayName, List<URL> implementationClassPath) {
+        final PooledWorkerProcess workerProcess = new PooledWorkerProcess(displayName, builder.getJavaCommand(), builder.getLogLevel(), 120, TimeUnit.SECONDS);
+        ConnectionAcceptor acceptor = server.accept(new Action<ObjectConnection>() {
+            public void execute(ObjectConnection connection) {
+                workerProcess.onConnect(connection);
+            }
+        });
+        workerProcess.startAccepting(acceptor);
+        ApplicationClassesInIsolatedClassLoaderWorkerFactory workerFactory = new ApplicationClassesInIsolatedClassLoaderWorkerFactory(workerId, displayName,
+                builder, implementationClassPath, acceptor.getAddress(), classPathRegistry);
+        workerProcess.setSerializedWorker(GUtil.serialize(workerFactory.create()));
+        return workerProcess;
+    }
+
+    public void stop() {
+        List<Host> toStop;
+        synchronized (lock) {
+            stopped = true;
+            toStop = new ArrayList<Host>(hosts);
+            hosts.clear();
+            idleHosts.clear();
+        }
+        for (Host host : toStop) {
+            host.stop();
+        }
+    }
+
+    private Host acquire(JavaExecHandleBuilder javaCommand, LogLevel logLevel) {
+        List<Object> key = keyOf(javaCommand);
+        synchronized (lock) {
+            if (stopped) {
+                throw new IllegalStateException("This worker process pool has been stopped.");
+            }
+            for (Iterator<Host> iterator = idleHosts.iterator(); iterator.hasNext();) {
+                Host host = iterator.next();
+                if (host.key.equals(key)) {
+                    iterator.remove();
+                    return host;
+                }
+            }
+        }
+
+        Host host = startHost(key, javaCommand, logLevel);
+        synchronized (lock) {
+            if (!stopped) {
+                hosts.add(host);
+                return host;
+            }
+        }
+        host.stop();
+        throw new IllegalStateException("This worker process pool has been stopped.");
+    }
+
+    private void release(Host host) {
+        int maxRuns = Integer.getInteger(MAX_RUNS_PROPERTY, DEFAULT_MAX_RUNS);
+        int maxHeapGrowth = Integer.getInteger(MAX_HEAP_GROWTH_PROPERTY, DEFAULT_MAX_HEAP_GROWTH);
+        Host toStop = host;
+        synchronized (lock) {
+            if (!stopped && host.canBeReused(maxRuns, maxHeapGrowth)) {
+                idleHosts.addFirst(host);
+                toStop = idleHosts.size() > maxIdleHosts ? idleHosts.removeLast() : null;
+            }
+            if (toStop != null) {
+                hosts.remove(toStop);
+            }
+        }
+        if (toStop != null) {
+            toStop.stop();
+        }
+    }
+
+    private Host startHost(List<Object> key, JavaExecHandleBuilder javaCommand, LogLevel logLevel) {
+        WorkerProcessBuilder builder = hostFactory.create();
+        builder.setBaseName("Gradle Worker Host");
+        builder.setLogLevel(logLevel);
+        builder.worker(new WorkerHost());
+        JavaExecHandleBuilder hostCommand = builder.getJavaCommand();
+        hostCommand.setExecutable(javaCommand.getExecutable());
+        hostCommand.setWorkingDir(javaCommand.getWorkingDir());
+        hostCommand.setEnvironment(javaCommand.getEnvironment());
+        hostCommand.jvmArgs(javaCommand.getAllJvmArgs());
+        // The host outlives the build which started it, so write its output to wherever System.out and System.err currently go
+        hostCommand.setStandardOutput(new CurrentSystemOutputStream(false));
+        hostCommand.setErrorOutput(new CurrentSystemOutputStream(true));
+
+        Host host = new Host(key);
+        hostCommand.listener(host);
+        WorkerProcess process = builder.build();
+        process.start();
+        host.connect(process);
+        return host;
+    }
+
+    private static List<Object> keyOf(JavaExecHandleBuilder javaCommand) {
+        return Arrays.<Object>asList(javaCommand.getExecutable(), javaCommand.getAllJvmArgs(), javaCommand.getWorkingDir(),
+                new HashMap<String, Object>(javaCommand.getEnvironment()));
+    }
+
+    /**
+     * A host process, which runs one worker at a time.
+     */
+    private static class Host implements WorkerHostListener, ExecHandleListener {
+        private final List<Object> key;
+        private WorkerProcess process;
+        private ExecHandle execHandle;
+        private WorkerHostProtocol protocol;
+        private PooledWorkerProcess currentWorker;
+        private int runs;
+        private long initialUsedHeap = -1;
+        private long usedHeap;
+        private long maxHeap;
+        private boolean broken;
+
+        private Host(List<Object> key) {
+            this.key = key;
+        }
+
+        void connect(WorkerProcess process) {
+            this.process = process;
+            ObjectConnection connection = process.getConnection();
+            connection.addIncoming(WorkerHostListener.class, this);
+            protocol = connection.addOutgoing(WorkerHostProtocol.class);
+            connection.connect();
+        }
+
+        void run(PooledWorkerProcess worker, byte[] serializedWorker) {
+            synchronized (this) {
+                if (broken) {
+                    throw new ExecException(format("Cannot run %s as its worker host has stopped.", worker.displayName));
+                }
+                currentWorker = worker;
+                runs++;
+            }
+            protocol.run(serializedWorker);
+        }
+
+        public void runCompleted(long usedHeap, long maxHeap, @Nullable String failure) {
+            PooledWorkerProcess worker;
+            synchronized (this) {
+                this.usedHeap = usedHeap;
+                this.maxHeap = maxHeap;
+                if (initialUsedHeap < 0) {
+                    initialUsedHeap = usedHeap;
+                }
+                if (failure != null) {
+                    broken = true;
+                }
+                worker = currentWorker;
+                currentWorker = null;
+            }
+            if (worker != null) {
+                worker.finished(failure == null ? null : new ExecException(format("%s failed: %s", worker.displayName, failure)));
+            }
+        }
+
+        public void executionStarted(ExecHandle execHandle) {
+            synchronized (this) {
+                this.execHandle = execHandle;
+            }
+        }
+
+        public void executionFinished(ExecHandle execHandle, ExecResult execResult) {
+            PooledWorkerProcess worker;
+            synchronized (this) {
+                broken = true;
+                worker = currentWorker;
+                currentWorker = null;
+            }
+            if (worker != null) {
+                Throwable failure = null;
+                try {
+                    execResult.rethrowFailure().assertNormalExitValue();
+                } catch (Throwable t) {
+                    failure = t;
+                }
+                worker.finished(failure);
+            }
+        }
+
+        synchronized boolean canBeReused(int maxRuns, int maxHeapGrowth) {
+            return !broken && currentWorker == null && runs < maxRuns && (usedHeap - initialUsedHeap) * 100 <= maxHeap * maxHeapGrowth;
+        }
+
+        /**
+         * Stops this host, killing it when it is still running a worker.
+         */
+        void stop() {
+            ExecHandle toAbort = null;
+            synchronized (this) {
+                if (currentWorker != null) {
+                    toAbort = execHandle;
+                }
+            }
+            try {
+                if (toAbort != null) {
+                    toAbort.abort();
+                } else {
+                    protocol.stop();
+                }
+                process.waitForStop();
+            } catch (Exception e) {
+                LOGGER.debug("Could not stop worker host.", e);
+            }
+        }
+    }
+
+    /**
+     * A worker which runs in a host process.
+     */
+    private class PooledWorkerProcess implements WorkerProcess {
+        private final Lock lock = new ReentrantLock();
+        private final Condition condition = lock.newCondition();
+        private final String displayName;
+        private final JavaExecHandleBuilder javaCommand;
+        private final LogLevel logLevel;
+        private final long connectTimeout;
+        private byte[] serializedWorker;
+        private ConnectionAcceptor acceptor;
+        private ObjectConnection connection;
+        private Host host;
+        private boolean running;
+        private Throwable failure;
+
+        PooledWorkerProcess(String displayName, JavaExecHandleBuilder javaCommand, LogLevel logLevel, int connectTimeoutValue, TimeUnit connectTimeoutUnits) {
+            this.displayName = displayName;
+            this.javaCommand = javaCommand;
+            this.logLevel = logLevel;
+            this.connectTimeout = connectTimeoutUnits.toMillis(connectTimeoutValue);
+        }
+
+        void setSerializedWorker(byte[] serializedWorker) {
+            this.serializedWorker = serializedWorker;
+        }
+
+        void startAccepting(ConnectionAcceptor acceptor) {
+            lock.lock();
+            try {
+                this.acceptor = acceptor;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void onConnect(ObjectConnection connection) {
+            ConnectionAcceptor stoppable;
+            lock.lock();
+            try {
+                this.connection = connection;
+                condition.signalAll();
+                stoppable = acceptor;
+            } finally {
+                lock.unlock();
+            }
+            stoppable.requestStop();
+        }
+
+        void finished(@Nullable Throwable failure) {
+            lock.lock();
+            try {
+                running = false;
+                this.failure = failure;
+                condition.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public ObjectConnection getConnection() {
+            return connection;
+        }
+
+        public void start() {
+            try {
+                doStart();
+            } catch (Throwable t) {
+                cleanup();
+                throw UncheckedException.throwAsUncheckedException(t);
+            }
+        }
+
+        private void doStart() throws InterruptedException {
+            Host host = acquire(javaCommand, logLevel);
+            lock.lock();
+            try {
+                this.host = host;
+                running = true;
+            } finally {
+                lock.unlock();
+            }
+            LOGGER.debug("Running {} in a worker host.", displayName);
+            host.run(this, serializedWorker);
+
+            Date connectExpiry = new Date(System.currentTimeMillis() + connectTimeout);
+            lock.lock();
+            try {
+                while (connection == null && running) {
+                    if (!condition.awaitUntil(connectExpiry)) {
+                        throw new ExecException(format("Unable to connect to %s running in a worker host.\n"
+                                + "The connection attempt hit a timeout after %.1f seconds.", displayName, ((double) connectTimeout) / 1000));
+                    }
+                }
+                if (failure != null) {
+                    throw UncheckedException.throwAsUncheckedException(failure);
+                }
+                if (connection == null) {
+                    throw new ExecException(format("Never received a connection from %s.", displayName));
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public ExecResult waitForStop() {
+            try {
+                lock.lock();
+                try {
+                    while (running) {
+                        condition.await();
+                    }
+                    if (failure != null) {
+                        throw UncheckedException.throwAsUncheckedException(failure);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                return new ExecResult() {
+                    public int getExitValue() {
+                        return 0;
+                    }
+
+                    public ExecResult assertNormalExitValue() throws ExecException {
+                        return this;
+                    }
+
+                    public ExecResult rethrowFailure() throws ExecException {
+                        return this;
+                    }
+                };
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            } finally {
+                cleanup();
+            }
+        }
+
+        private void cleanup() {
+            CompositeStoppable stoppable;
+            Host host;
+            lock.lock();
+            try {
+                stoppable = CompositeStoppable.stoppable(acceptor, connection);
+                host = this.host;
+            } finally {
+                this.connection = null;
+                this.acceptor = null;
+                this.host = null;
+                lock.unlock();
+            }
+            try {
+                stoppable.stop();
+            } finally {
+                if (host != null) {
+                    release(host);
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return displayName;
+        }
+    }
+
+    /**
+     * Writes to the current {@link System#out} or {@link System#err}, whatever it is at the time of writing.
+     */
+    private static class CurrentSystemOutputStream extends OutputStream {
+        private final boolean error;
+
+        private CurrentSystemOutputStream(boolean error) {
+            this.error = error;
+        }
+
+        private OutputStream current() {
+            return error ? System.err : System.out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            current().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            current().write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            current().flush();
+        }
+    }
+}
@@ -56,7 +56,15 @@ public class ImplementationClassLoaderWorker implements Action<WorkerContext>, S
     public void execute(WorkerContext workerContext) {
         LoggingManagerInternal loggingManager = createLoggingManager();
         loggingManager.setLevel(logLevel).start();
+        try {
+            executeInImplementationClassLoader(workerContext);
+        } finally {
+            // A worker host runs several workers, so put logging back as it was
+            loggingManager.stop();
+        }
+    }
 
+    private void executeInImplementationClassLoader(WorkerContext workerContext) {
         FilteringClassLoader filteredWorkerClassLoader = new FilteringClassLoader(getClass().getClassLoader());
         filteredWorkerClassLoader.allowPackage("org.slf4j");
         filteredWorkerClassLoader.allowClass(Action.class);
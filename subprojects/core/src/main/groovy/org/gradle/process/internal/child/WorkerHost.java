@@ -0,0 +1,96 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.process.internal.child;
+
+import org.gradle.api.Action;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.io.ClassLoaderObjectInputStream;
+import org.gradle.messaging.remote.ObjectConnection;
+import org.gradle.process.internal.WorkerProcessContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.Serializable;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * The worker action of a long-lived worker host process. Runs the workers it receives one after the other, each in the same way as {@link
+ * org.gradle.process.internal.launcher.GradleWorkerMain} runs a worker with isolated application classes, until it is asked to stop.
+ *
+ * <p>The system properties are restored after each run, so that a run does not see the properties set by an earlier one.</p>
+ */
+public class WorkerHost implements Action<WorkerProcessContext>, WorkerHostProtocol, Serializable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WorkerHost.class);
+    private static final byte[] STOP = new byte[0];
+    private transient BlockingQueue<byte[]> runs;
+
+    public void execute(WorkerProcessContext workerProcessContext) {
+        runs = new LinkedBlockingQueue<byte[]>();
+        ObjectConnection connection = workerProcessContext.getServerConnection();
+        connection.addIncoming(WorkerHostProtocol.class, this);
+        WorkerHostListener listener = connection.addOutgoing(WorkerHostListener.class);
+        connection.connect();
+        LOGGER.debug("{} waiting for workers to run.", workerProcessContext.getDisplayName());
+
+        while (true) {
+            byte[] serializedWorker;
+            try {
+                serializedWorker = runs.take();
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+            if (serializedWorker == STOP) {
+                break;
+            }
+            String failure = runWorker(serializedWorker);
+            Runtime runtime = Runtime.getRuntime();
+            System.gc();
+            listener.runCompleted(runtime.totalMemory() - runtime.freeMemory(), runtime.maxMemory(), failure);
+        }
+        LOGGER.debug("{} stopped.", workerProcessContext.getDisplayName());
+    }
+
+    private String runWorker(byte[] serializedWorker) {
+        Properties systemProperties = (Properties) System.getProperties().clone();
+        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        try {
+            // Deserialize the worker in the same ClassLoader as GradleWorkerMain does
+            ClassLoaderObjectInputStream instr = new ClassLoaderObjectInputStream(new ByteArrayInputStream(serializedWorker), ClassLoader.getSystemClassLoader());
+            Callable<?> worker = (Callable<?>) instr.readObject();
+            worker.call();
+            return null;
+        } catch (Throwable throwable) {
+            LOGGER.error("Worker failed.", throwable);
+            return throwable.toString();
+        } finally {
+            Thread.currentThread().setContextClassLoader(contextClassLoader);
+            System.setProperties(systemProperties);
+        }
+    }
+
+    public void run(byte[] serializedWorker) {
+        runs.add(serializedWorker);
+    }
+
+    public void stop() {
+        runs.add(STOP);
+    }
+}
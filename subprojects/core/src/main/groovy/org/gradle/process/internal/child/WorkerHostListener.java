@@ -0,0 +1,33 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.process.internal.child;
+
+import org.gradle.api.Nullable;
+
+/**
+ * The messages the build process receives from a long-lived worker host process.
+ */
+public interface WorkerHostListener {
+    /**
+     * Called when a run has completed.
+     *
+     * @param usedHeap the heap used by the host after the run, in bytes
+     * @param maxHeap the maximum heap of the host, in bytes
+     * @param failure a description of the failure of the run, or null when the run was successful
+     */
+    void runCompleted(long usedHeap, long maxHeap, @Nullable String failure);
+}
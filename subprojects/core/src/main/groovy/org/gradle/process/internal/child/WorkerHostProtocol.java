@@ -0,0 +1,32 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.process.internal.child;
+
+/**
+ * The messages a long-lived worker host process receives from the build process.
+ */
+public interface WorkerHostProtocol {
+    /**
+     * Runs the given serialized worker, as it would be run by a worker process of its own.
+     */
+    void run(byte[] serializedWorker);
+
+    /**
+     * Stops the host once any current run has completed.
+     */
+    void stop();
+}
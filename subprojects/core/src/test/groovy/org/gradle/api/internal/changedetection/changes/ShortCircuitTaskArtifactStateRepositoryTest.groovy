@@ -16,6 +16,8 @@
 package org.gradle.api.internal.changedetection.changes
 
 import org.gradle.StartParameter
+import org.gradle.api.file.FileCollection
+import org.gradle.api.internal.TaskExecutionHistory
 import org.gradle.api.internal.TaskInternal
 import org.gradle.api.internal.TaskOutputsInternal
 import org.gradle.api.internal.changedetection.TaskArtifactState
@@ -86,6 +88,32 @@ public class ShortCircuitTaskArtifactStateRepositoryTest extends Specification {
         !state.inputChanges.incremental
     }
 
+    def executionHistoryDoesNotReportIncrementalChangesWithRerunTasks() {
+        def history = Mock(TaskExecutionHistory)
+        def outputFiles = Mock(FileCollection)
+
+        when:
+        startParameter.setRerunTasks(true);
+        def executionHistory = repository.getStateFor(task).executionHistory
+
+        then:
+        1 * task.getOutputs() >> outputs
+        1 * outputs.getHasOutput() >> true
+        1 * delegate.getStateFor(task) >> taskArtifactState
+        1 * taskArtifactState.getExecutionHistory() >> history
+
+        and:
+        !executionHistory.inputChanges.incremental
+        0 * history.getInputChanges()
+
+        when:
+        def files = executionHistory.outputFiles
+
+        then:
+        files == outputFiles
+        1 * history.getOutputFiles() >> outputFiles
+    }
+
     def taskArtifactsAreAlwaysOutOfDateWhenUpToDateSpecReturnsFalse() {
         def messages = []
 
@@ -28,6 +28,7 @@ import spock.lang.Specification;
 public class OutputFilesStateChangeRuleTest extends Specification {
     def outputSnapshot = Mock(FileCollectionSnapshot)
     def previousOutputSnapshot = Mock(FileCollectionSnapshot)
+    def currentExecution = Mock(TaskExecution)
 
     TaskStateChanges createStateChanges() {
         def taskOutputs = Stub(TaskOutputsInternal) {
@@ -43,7 +44,7 @@ public class OutputFilesStateChangeRuleTest extends Specification {
         def previousExecution = Stub(TaskExecution) {
             getOutputFilesSnapshot() >> previousOutputSnapshot
         }
-        return OutputFilesStateChangeRule.create(task, previousExecution, Mock(TaskExecution), snapshotter)
+        return OutputFilesStateChangeRule.create(task, previousExecution, currentExecution, snapshotter)
     }
 
     def "emits change for no previous output snapshot"() {
@@ -79,4 +80,16 @@ public class OutputFilesStateChangeRuleTest extends Specification {
         and:
         messages == ["Output file one has been added.", "Output file two has been removed.", "Output file three has changed."]
     }
+
+    def "merges output files changed by the task into previous output snapshot"() {
+        def mergedSnapshot = Mock(FileCollectionSnapshot)
+
+        when:
+        createStateChanges().snapshotAfterTask()
+
+        then:
+        1 * outputSnapshot.mergeChangesSince(outputSnapshot, previousOutputSnapshot) >> mergedSnapshot
+        1 * currentExecution.setOutputFilesSnapshot(mergedSnapshot)
+        0 * outputSnapshot._
+    }
 }
@@ -16,8 +16,11 @@
 
 package org.gradle.api.internal.changedetection.state
 
+import org.gradle.api.internal.hash.FileHashAlgorithm
 import org.gradle.api.internal.hash.Hasher
 import org.gradle.cache.PersistentIndexedCache
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.concurrent.ExecutorFactory
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.junit.Rule
 import spock.lang.Specification
@@ -64,7 +67,7 @@ class CachingFileSnapshotterTest extends Specification {
         result.hash == hash
 
         and:
-        1 * cache.get(file) >> new CachingFileSnapshotter.FileInfo(hash, 1024, file.lastModified())
+        1 * cache.get(file) >> new CachingFileSnapshotter.FileInfo(FileHashAlgorithm.MD5, hash, 1024, file.lastModified())
         1 * target.hash(file) >> hash
         1 * cache.put(file, _) >> { File key, CachingFileSnapshotter.FileInfo fileInfo ->
             fileInfo.hash == hash
@@ -82,7 +85,7 @@ class CachingFileSnapshotterTest extends Specification {
         result.hash == hash
 
         and:
-        1 * cache.get(file) >> new CachingFileSnapshotter.FileInfo(hash, file.length(), 124)
+        1 * cache.get(file) >> new CachingFileSnapshotter.FileInfo(FileHashAlgorithm.MD5, hash, file.length(), 124)
         1 * target.hash(file) >> hash
         1 * cache.put(file, _) >> { File key, CachingFileSnapshotter.FileInfo fileInfo ->
             fileInfo.hash == hash
@@ -92,6 +95,20 @@ class CachingFileSnapshotterTest extends Specification {
         0 * _._
     }
 
+    def hashesFileWhenCachedHashUsesDifferentAlgorithm() {
+        when:
+        def result = hasher.snapshot(file)
+
+        then:
+        result.hash == hash
+
+        and:
+        1 * cache.get(file) >> new CachingFileSnapshotter.FileInfo(FileHashAlgorithm.MURMUR3_128, "other".bytes, file.length(), file.lastModified())
+        1 * target.hash(file) >> hash
+        1 * cache.put(file, _)
+        0 * _._
+    }
+
     def doesNotHashFileWhenTimestampAndLengthHaveNotChanged() {
         when:
         def result = hasher.snapshot(file)
@@ -100,7 +117,75 @@ class CachingFileSnapshotterTest extends Specification {
         result.hash == hash
 
         and:
-        1 * cache.get(file) >> new CachingFileSnapshotter.FileInfo(hash, file.length(), file.lastModified())
+        1 * cache.get(file) >> new CachingFileSnapshotter.FileInfo(FileHashAlgorithm.MD5, hash, file.length(), file.lastModified())
+        0 * _._
+    }
+
+    def snapshotsBatchOfFilesAndWritesOnlyChangedEntries() {
+        def unchanged = tmpDir.createFile("unchanged")
+        def dir = tmpDir.createDir("dir")
+        def missing = tmpDir.file("missing")
+        unchanged.write("unchanged")
+        def unchangedInfo = new CachingFileSnapshotter.FileInfo(FileHashAlgorithm.MD5, "unchanged".bytes, unchanged.length(), unchanged.lastModified())
+
+        when:
+        def result = hasher.snapshot([file, unchanged, dir, missing])
+
+        then:
+        result.keySet() as List == [file, unchanged]
+        result[file].hash == hash
+        result[unchanged].is(unchangedInfo)
+
+        and:
+        1 * cache.get(file) >> null
+        1 * cache.get(unchanged) >> unchangedInfo
+        1 * target.hash(file) >> hash
+        1 * cache.put(file, { it.hash == hash && it.length == file.length() && it.timestamp == file.lastModified() })
+        0 * _._
+    }
+
+    def hashesLargeBatchesOfFilesUsingOneBoundedExecutor() {
+        def executor = new DefaultExecutorFactory().create("test", 4)
+        def executorFactory = Mock(ExecutorFactory)
+        def files = (1..(CachingFileSnapshotter.MIN_FILES_PER_WORKER * 4)).collect {
+            def file = tmpDir.createFile("file$it")
+            file.text = "content $it"
+            return file
+        }
+
+        given:
+        1 * cacheAccess.createCache("fileHashes", _, _) >> cache
+        // Workers must not call back into a mock while the cache access mock is running the long running operation
+        def fileHasher = { File f -> f.text.bytes } as Hasher
+        def snapshotter = new CachingFileSnapshotter(fileHasher, FileHashAlgorithm.MD5, cacheAccess, executorFactory, 4)
+
+        when:
+        def result = snapshotter.snapshot(files)
+
+        then:
+        result.keySet() as List == files
+        files.every { result[it].hash == it.text.bytes }
+
+        and:
+        1 * executorFactory.create("File hasher", 4) >> executor
+        files.size() * cache.get(_) >> null
+        1 * cacheAccess.longRunningOperation("Hash files", _) >> { String name, Runnable action -> action.run() }
+        files.size() * cache.put(_, _)
+        0 * _._
+
+        when:
+        result = snapshotter.snapshot(files)
+
+        then:
+        result.keySet() as List == files
+
+        and:
+        files.size() * cache.get(_) >> null
+        1 * cacheAccess.longRunningOperation("Hash files", _) >> { String name, Runnable action -> action.run() }
+        files.size() * cache.put(_, _)
         0 * _._
+
+        cleanup:
+        snapshotter?.stop()
     }
 }
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state
+
+import spock.lang.Specification
+
+import static org.gradle.api.internal.changedetection.state.CompactFileSnapshots.*
+
+class CompactFileSnapshotsTest extends Specification {
+
+    def "sorts entries by directory and then by name"() {
+        def entries = new Builder(0)
+                .add("/root/b/file", MISSING, null)
+                .add("/root/a", DIR, null)
+                .add("/root/file2", FILE, "2".bytes)
+                .add("/root/a/file", FILE, "1".bytes)
+                .add("/root/file1", FILE, "3".bytes)
+                .build()
+
+        expect:
+        paths(entries) == ["/root/a", "/root/file1", "/root/file2", "/root/a/file", "/root/b/file"]
+    }
+
+    def "keeps the last entry added for a path"() {
+        def entries = new Builder(0)
+                .add("/root/file", FILE, "1".bytes)
+                .add("/root/other", DIR, null)
+                .add("/root/file", FILE, "2".bytes)
+                .build()
+
+        expect:
+        paths(entries) == ["/root/file", "/root/other"]
+        entries.getHash(0) == "2".bytes
+    }
+
+    def "keeps the kind and hash of each entry"() {
+        def entries = new Builder(0)
+                .add("/root/dir", DIR, null)
+                .add("/root/file1", FILE, "some-hash".bytes)
+                .add("/root/file2", FILE, "other".bytes)
+                .add("/root/missing", MISSING, null)
+                .build()
+
+        expect:
+        entries.getKind(0) == DIR
+        entries.getHash(0) == null
+        entries.getSnapshot(0) instanceof DefaultFileCollectionSnapshotter.DirSnapshot
+        entries.getKind(1) == FILE
+        entries.getHash(1) == "some-hash".bytes
+        entries.getHash(2) == "other".bytes
+        ((DefaultFileCollectionSnapshotter.FileHashSnapshot) entries.getSnapshot(2)).hash == "other".bytes
+        entries.getKind(3) == MISSING
+        entries.getSnapshot(3) instanceof DefaultFileCollectionSnapshotter.MissingFileSnapshot
+    }
+
+    def "can find entry by path"() {
+        def entries = new Builder(0)
+                .add("/root/a/file", FILE, "1".bytes)
+                .add("/root/file", FILE, "2".bytes)
+                .add("/root/b", DIR, null)
+                .add("relative", MISSING, null)
+                .add("c:\\windows\\file", MISSING, null)
+                .build()
+
+        expect:
+        entries.indexOf(path) >= 0 == found
+        !found || entries.getPath(entries.indexOf(path)) == path
+
+        where:
+        path               | found
+        "/root/a/file"     | true
+        "/root/file"       | true
+        "/root/b"          | true
+        "relative"         | true
+        "c:\\windows\\file" | true
+        "/root/a"          | false
+        "/root/c"          | false
+        "/other/file"      | false
+        "file"             | false
+    }
+
+    def "compares entries of different snapshots"() {
+        def entries = new Builder(0).add("/root/a", FILE, "1".bytes).add("/root/b", FILE, "1".bytes).add("/root/c", DIR, null).add("/root/d", MISSING, null).build()
+        def other = new Builder(0).add("/root/b", FILE, "1".bytes).add("/root/c", FILE, "1".bytes).add("/root/d", MISSING, null).add("/root/a", FILE, "12".bytes).build()
+
+        expect:
+        entries.compare(1, other, 1) == 0
+        entries.compare(0, other, 1) < 0
+        entries.compare(2, other, 1) > 0
+        !entries.isUpToDate(0, other, 0)
+        entries.isUpToDate(1, other, 1)
+        !entries.isUpToDate(2, other, 2)
+        entries.isUpToDate(3, other, 3)
+    }
+
+    def "empty snapshot has no entries"() {
+        expect:
+        EMPTY.size() == 0
+        EMPTY.indexOf("/root/file") == -1
+    }
+
+    def paths(CompactFileSnapshots entries) {
+        (0..<entries.size()).collect { entries.getPath(it) }
+    }
+}
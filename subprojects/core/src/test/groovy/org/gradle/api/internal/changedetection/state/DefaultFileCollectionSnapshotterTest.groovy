@@ -17,6 +17,7 @@ package org.gradle.api.internal.changedetection.state
 
 import org.gradle.api.file.FileCollection
 import org.gradle.api.file.FileTree
+import org.gradle.internal.filewatch.FileWatcher
 import org.gradle.internal.hash.HashUtil
 import org.gradle.test.fixtures.file.TestFile
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
@@ -34,10 +35,14 @@ public class DefaultFileCollectionSnapshotterTest extends Specification {
     public final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
 
     def setup() {
-        fileSnapshotter.snapshot(_) >> { File file ->
-            return Stub(FileSnapshot) {
-                getHash() >> HashUtil.sha1(file).asByteArray()
+        fileSnapshotter.snapshot(_ as Collection) >> { args ->
+            def snapshots = [:]
+            args[0].findAll { it.file }.each { File file ->
+                snapshots[file] = Stub(FileSnapshot) {
+                    getHash() >> HashUtil.sha1(file).asByteArray()
+                }
             }
+            return snapshots
         }
         cacheAccess.useCache(_, _) >> { String name, Runnable action ->
             action.run()
@@ -342,6 +347,94 @@ public class DefaultFileCollectionSnapshotterTest extends Specification {
         0 * _
     }
 
+    def reusesSnapshotRetainedByWatcherWhenFilesHaveNotChanged() {
+        given:
+        def watcher = Mock(FileWatcher)
+        def snapshotter = new DefaultFileCollectionSnapshotter(fileSnapshotter, cacheAccess, new WatchedFileCollectionSnapshots(watcher))
+        TestFile file = tmpDir.createFile('file1')
+
+        when:
+        def snapshot = snapshotter.snapshot(files(file))
+
+        then:
+        1 * watcher.watch(tmpDir.testDirectory) >> true
+        1 * watcher.mark() >> 12
+        0 * watcher._
+
+        when:
+        def reused = snapshotter.snapshot(files(file))
+
+        then:
+        1 * watcher.isChangedSince(tmpDir.testDirectory, 12) >> false
+        0 * watcher._
+        reused.is(snapshot)
+    }
+
+    def snapshotsAgainWhenWatcherReportsChange() {
+        given:
+        def watcher = Stub(FileWatcher) {
+            watch(_) >> true
+            isChangedSince(_, _) >> true
+        }
+        def snapshotter = new DefaultFileCollectionSnapshotter(fileSnapshotter, cacheAccess, new WatchedFileCollectionSnapshots(watcher))
+        TestFile file = tmpDir.createFile('file1')
+
+        when:
+        def snapshot = snapshotter.snapshot(files(file))
+        file.write('new content')
+        snapshotter.snapshot(files(file)).iterateChangesSince(snapshot).next(listener)
+
+        then:
+        1 * listener.changed(file.path)
+        0 * _
+    }
+
+    def mergesFilesAddedOrChangedSinceBeforeSnapshotIntoPreviousSnapshot() {
+        given:
+        TestFile unchanged = tmpDir.createFile('unchanged')
+        TestFile owned = tmpDir.createFile('owned')
+        TestFile changed = tmpDir.createFile('changed')
+        TestFile removed = tmpDir.createFile('removed')
+        TestFile added = tmpDir.file('added')
+        TestFile stale = tmpDir.file('stale')
+        def previous = snapshotter.snapshot(files(owned, changed, removed, stale))
+        def before = snapshotter.snapshot(files(unchanged, owned, changed, removed))
+        changed.write('new content')
+        removed.delete()
+        added.createFile()
+        def after = snapshotter.snapshot(files(unchanged, owned, changed, added))
+
+        when:
+        def merged = after.mergeChangesSince(before, previous)
+
+        then:
+        merged.files.files == [added, changed, owned] as Set
+        merged.snapshot.findSnapshot(changed).hash == after.snapshot.findSnapshot(changed).hash
+    }
+
+    def mergeGivesSameResultAsApplyingBothDiffs() {
+        given:
+        def names = (1..20).collect { "file$it" }
+        def created = names.collect { tmpDir.createFile(it) }
+        def previous = snapshotter.snapshot(files(created.findAll { it.name.contains('1') } as File[]))
+        def before = snapshotter.snapshot(files(created.findAll { !it.name.endsWith('3') } as File[]))
+        created.findAll { it.name.endsWith('2') }*.write('changed')
+        created.findAll { it.name.endsWith('4') }*.delete()
+        def after = snapshotter.snapshot(files(created.findAll { it.exists() } as File[]))
+        def ignoreAdded = Stub(ChangeListener) {
+            added(_) >> { FileCollectionSnapshot.Merge merge -> merge.ignore() }
+        }
+
+        when:
+        def merged = after.mergeChangesSince(before, previous)
+        def expected = after.changesSince(before).applyTo(before.changesSince(previous).applyTo(previous, ignoreAdded))
+
+        then:
+        merged.snapshots.keySet() == expected.snapshots.keySet()
+        merged.iterateChangesSince(expected).next(listener) == false
+        0 * listener._
+    }
+
     private FileCollection files(File... files) {
         FileTree collection = Mock(FileTree.class)
         _ * collection.asFileTree >> collection
@@ -19,10 +19,15 @@ import org.gradle.api.internal.GradleInternal
 import org.gradle.cache.CacheBuilder
 import org.gradle.cache.CacheRepository
 import org.gradle.cache.PersistentCache
+import org.gradle.cache.PersistentIndexedCacheParameters
+import org.gradle.cache.internal.CacheDecorator
 import org.gradle.cache.internal.FileLockManager
 import org.gradle.cache.internal.filelock.LockOptionsBuilder
+import org.gradle.messaging.serialize.Serializer
 import spock.lang.Specification
 
+import static org.gradle.cache.PersistentIndexedCacheParameters.StorageLayout.AppendOnlyLog
+
 class DefaultTaskArtifactStateCacheAccessTest extends Specification {
     final GradleInternal gradle = Mock()
     final CacheRepository cacheRepository = Mock()
@@ -41,4 +46,62 @@ class DefaultTaskArtifactStateCacheAccessTest extends Specification {
         1 * cacheBuilder.open() >> backingCache
         0 * _._
     }
+
+    def "creates caches with the given storage layout"() {
+        CacheBuilder cacheBuilder = Mock()
+        PersistentCache backingCache = Mock()
+
+        given:
+        cacheRepository.cache(gradle, "taskArtifacts") >> cacheBuilder
+        cacheBuilder.withDisplayName(_) >> cacheBuilder
+        cacheBuilder.withLockOptions(_) >> cacheBuilder
+        cacheBuilder.open() >> backingCache
+        def cacheAccess = new DefaultTaskArtifactStateCacheAccess(gradle, cacheRepository, new NoOpDecorator(), AppendOnlyLog)
+
+        when:
+        cacheAccess.createCache("cache", String, Stub(Serializer))
+
+        then:
+        1 * backingCache.createCache({ PersistentIndexedCacheParameters parameters -> parameters.cacheName == "cache" && parameters.storageLayout == AppendOnlyLog })
+    }
+
+    def "keeps entries in memory for the duration of the build when there is no decorator"() {
+        def backingCache = openBackingCache()
+        def decorator = Stub(CacheDecorator)
+
+        when:
+        new DefaultTaskArtifactStateCacheAccess(gradle, cacheRepository, null).createCache("cache", String, Stub(Serializer))
+
+        then:
+        1 * backingCache.createCache({ PersistentIndexedCacheParameters parameters -> parameters.cacheDecorator == null && parameters.maxEntriesInMemory > 0 })
+
+        when:
+        new DefaultTaskArtifactStateCacheAccess(gradle, cacheRepository, decorator).createCache("cache", String, Stub(Serializer))
+
+        then:
+        1 * backingCache.createCache({ PersistentIndexedCacheParameters parameters -> parameters.cacheDecorator == decorator && parameters.maxEntriesInMemory == 0 })
+    }
+
+    def "buffers writes to file hashes only"() {
+        def backingCache = openBackingCache()
+        def cacheAccess = new DefaultTaskArtifactStateCacheAccess(gradle, cacheRepository, new NoOpDecorator())
+
+        when:
+        cacheAccess.createCache("fileHashes", File, Stub(Serializer))
+        cacheAccess.createCache("taskArtifacts", String, Stub(Serializer))
+
+        then:
+        1 * backingCache.createCache({ PersistentIndexedCacheParameters parameters -> parameters.cacheName == "fileHashes" && parameters.maxPendingWrites > 0 })
+        1 * backingCache.createCache({ PersistentIndexedCacheParameters parameters -> parameters.cacheName == "taskArtifacts" && parameters.maxPendingWrites == 0 })
+    }
+
+    private PersistentCache openBackingCache() {
+        CacheBuilder cacheBuilder = Stub()
+        PersistentCache backingCache = Mock()
+        cacheRepository.cache(gradle, "taskArtifacts") >> cacheBuilder
+        cacheBuilder.withDisplayName(_) >> cacheBuilder
+        cacheBuilder.withLockOptions(_) >> cacheBuilder
+        cacheBuilder.open() >> backingCache
+        return backingCache
+    }
 }
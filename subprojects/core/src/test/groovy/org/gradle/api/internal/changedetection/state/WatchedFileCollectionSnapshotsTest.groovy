@@ -0,0 +1,176 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state
+
+import org.gradle.internal.filewatch.FileWatcher
+import spock.lang.Specification
+
+class WatchedFileCollectionSnapshotsTest extends Specification {
+    def watcher = Mock(FileWatcher)
+    def snapshots = new WatchedFileCollectionSnapshots(watcher)
+    def snapshot = Stub(FileCollectionSnapshot)
+    def dir1 = new File("/root/dir1")
+    def dir2 = new File("/root/dir2")
+    def files = [new File(dir1, "a"), new File(dir1, "b"), new File(dir2, "c")] as Set
+
+    def "does nothing without a watcher"() {
+        given:
+        def snapshots = new WatchedFileCollectionSnapshots(null)
+
+        when:
+        def mark = snapshots.watch(files)
+        snapshots.put(files, mark, snapshot)
+
+        then:
+        mark == WatchedFileCollectionSnapshots.NOT_WATCHED
+        snapshots.get(files) == null
+    }
+
+    def "watches the directories containing the files"() {
+        when:
+        def mark = snapshots.watch(files)
+
+        then:
+        1 * watcher.watch(dir1) >> true
+        1 * watcher.watch(dir2) >> true
+        1 * watcher.mark() >> 4
+        0 * watcher._
+        mark == 4
+    }
+
+    def "does not retain snapshot when a directory cannot be watched"() {
+        given:
+        watcher.watch(dir1) >> true
+        watcher.watch(dir2) >> false
+
+        when:
+        def mark = snapshots.watch(files)
+        snapshots.put(files, mark, snapshot)
+
+        then:
+        mark == WatchedFileCollectionSnapshots.NOT_WATCHED
+        snapshots.get(files) == null
+    }
+
+    def "hands out retained snapshot until a directory changes"() {
+        given:
+        snapshots.put(files, 4, snapshot)
+
+        when:
+        def retained = snapshots.get(files)
+
+        then:
+        1 * watcher.isChangedSince(dir1, 4) >> false
+        1 * watcher.isChangedSince(dir2, 4) >> false
+        retained.is(snapshot)
+
+        when:
+        retained = snapshots.get(files)
+
+        then:
+        _ * watcher.isChangedSince(dir1, 4) >> false
+        1 * watcher.isChangedSince(dir2, 4) >> true
+        retained == null
+
+        when:
+        retained = snapshots.get(files)
+
+        then:
+        0 * watcher._
+        retained == null
+    }
+
+    def "retained snapshot is only handed out for the same files"() {
+        given:
+        watcher.isChangedSince(_, _) >> false
+        snapshots.put(files, 4, snapshot)
+
+        expect:
+        snapshots.get(files + [new File(dir1, "d")]) == null
+        snapshots.get(files - [new File(dir1, "a")]) == null
+        snapshots.get((files as List).reverse() as Set).is(snapshot)
+    }
+
+    def "invalidates files with the watcher"() {
+        when:
+        snapshots.invalidate([dir1, dir2])
+
+        then:
+        1 * watcher.invalidate(dir1)
+        1 * watcher.invalidate(dir2)
+    }
+
+    def "stops watching directories once no retained snapshot uses them"() {
+        given:
+        def otherFiles = [new File(dir1, "d")] as Set
+        snapshots.put(files, 4, snapshot)
+        snapshots.put(otherFiles, 4, snapshot)
+
+        when:
+        snapshots.get(files)
+
+        then:
+        1 * watcher.isChangedSince(dir1, 4) >> true
+        1 * watcher.unwatch(dir2)
+        0 * watcher.unwatch(_)
+
+        when:
+        snapshots.get(otherFiles)
+
+        then:
+        1 * watcher.isChangedSince(dir1, 4) >> true
+        1 * watcher.unwatch(dir1)
+        0 * watcher.unwatch(_)
+    }
+
+    def "discards invalidations before the oldest retained snapshot"() {
+        given:
+        def otherFiles = [new File(dir1, "d")] as Set
+        watcher.isChangedSince(_, _) >> false
+        snapshots.put(files, 4, snapshot)
+        snapshots.put(otherFiles, 6, snapshot)
+
+        when:
+        snapshots.invalidate([dir1])
+
+        then:
+        1 * watcher.discardInvalidationsBefore(4)
+
+        when:
+        snapshots.put(files, 8, snapshot)
+        snapshots.invalidate([dir1])
+
+        then:
+        1 * watcher.discardInvalidationsBefore(6)
+    }
+
+    def "does not discard invalidations while no snapshot is retained"() {
+        when:
+        snapshots.invalidate([dir1])
+
+        then:
+        0 * watcher.discardInvalidationsBefore(_)
+    }
+
+    def "stops watcher"() {
+        when:
+        snapshots.stop()
+
+        then:
+        1 * watcher.stop()
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.file.archive;
+
+import org.gradle.api.file.FileVisitDetails;
+import org.gradle.api.file.FileVisitor;
+import org.gradle.internal.nativeintegration.filesystem.Chmod;
+import org.gradle.test.fixtures.file.TestFile;
+import org.gradle.util.SetSystemProperties;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Collections;
+
+import static org.gradle.api.internal.file.TestFiles.fileSystem;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Runs the {@link ZipFileTree} tests with entries read from a {@link ZipIndex}.
+ */
+public class IndexedZipFileTreeTest extends ZipFileTreeTest {
+    @Rule public final SetSystemProperties systemProperties = new SetSystemProperties(Collections.<String, Object>singletonMap(ZipFileTree.INDEX_TOGGLE, "true"));
+
+    @Test
+    public void reusesFileExtractedByEarlierVisitWhenUpToDate() {
+        TestFile zipFile = tmpDir.getTestDirectory().file("reuse.zip");
+        TestFile rootDir = tmpDir.getTestDirectory().file("reuse");
+        rootDir.file("file.txt").write("content");
+        rootDir.zipTo(zipFile);
+        CountingChmod chmod = new CountingChmod();
+        ZipFileTree tree = new ZipFileTree(zipFile, tmpDir.getTestDirectory().file("expanded"), chmod);
+
+        TestFile extracted = new TestFile(extract(tree));
+        extracted.assertContents(equalTo("content"));
+        assertThat(chmod.count, equalTo(1));
+
+        assertThat(extract(tree), equalTo((File) extracted));
+        extracted.assertContents(equalTo("content"));
+        assertThat(chmod.count, equalTo(1));
+
+        extracted.setLastModified(extracted.lastModified() - 10000);
+        extract(tree);
+        extracted.assertContents(equalTo("content"));
+        assertThat(chmod.count, equalTo(2));
+    }
+
+    @Test
+    public void extractsAgainWhenEarlierExtractedFileHasSameSizeAndTimestampButDifferentContent() {
+        TestFile zipFile = tmpDir.getTestDirectory().file("reuse.zip");
+        TestFile rootDir = tmpDir.getTestDirectory().file("reuse");
+        rootDir.file("file.txt").write("content");
+        rootDir.zipTo(zipFile);
+        ZipFileTree tree = new ZipFileTree(zipFile, tmpDir.getTestDirectory().file("expanded"), fileSystem());
+
+        TestFile extracted = new TestFile(extract(tree));
+        long lastModified = extracted.lastModified();
+        extracted.write("changed");
+        extracted.setLastModified(lastModified);
+
+        assertThat(extract(tree), equalTo((File) extracted));
+        extracted.assertContents(equalTo("content"));
+    }
+
+    private File extract(ZipFileTree tree) {
+        final File[] file = new File[1];
+        tree.visit(new FileVisitor() {
+            public void visitDir(FileVisitDetails dirDetails) {
+            }
+
+            public void visitFile(FileVisitDetails fileDetails) {
+                file[0] = fileDetails.getFile();
+            }
+        });
+        return file[0];
+    }
+
+    private static class CountingChmod implements Chmod {
+        int count;
+
+        public void chmod(File file, int mode) {
+            count++;
+        }
+    }
+}
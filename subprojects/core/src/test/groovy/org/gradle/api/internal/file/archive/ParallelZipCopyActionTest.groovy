@@ -0,0 +1,266 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.file.archive
+
+import org.apache.commons.io.IOUtils
+import org.apache.tools.zip.ZipFile
+import org.apache.tools.zip.ZipOutputStream
+import org.gradle.api.file.RelativePath
+import org.gradle.api.internal.DocumentationRegistry
+import org.gradle.api.internal.file.CopyActionProcessingStreamAction
+import org.gradle.api.internal.file.copy.CopyAction
+import org.gradle.api.internal.file.copy.CopyActionProcessingStream
+import org.gradle.api.internal.file.copy.DefaultZipCompressor
+import org.gradle.api.internal.file.copy.FileCopyDetailsInternal
+import org.gradle.api.tasks.bundling.Zip
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.concurrent.Executors
+import java.util.zip.ZipInputStream
+
+import static org.hamcrest.Matchers.equalTo
+
+class ParallelZipCopyActionTest extends Specification {
+
+    @Rule
+    public final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+
+    def executor = Executors.newFixedThreadPool(4)
+    TestFile zipFile
+    TestFile temporaryDir
+
+    def setup() {
+        zipFile = tmpDir.testDirectory.file("archive/test.zip")
+        zipFile.parentFile.createDir()
+        temporaryDir = tmpDir.testDirectory.file("tmp").createDir()
+    }
+
+    def cleanup() {
+        executor.shutdown()
+    }
+
+    void createsZipFile() {
+        given:
+        zip(action(ZipOutputStream.DEFLATED), dir("dir"), file("dir/file1"), file("file2"), sourceFile("dir/file3"))
+
+        when:
+        TestFile expandDir = tmpDir.getTestDirectory().file("expanded")
+        zipFile.unzipTo(expandDir)
+
+        then:
+        expandDir.file("dir/file1").assertContents(equalTo("contents of dir/file1"))
+        expandDir.file("file2").assertContents(equalTo("contents of file2"))
+        expandDir.file("dir/file3").assertContents(equalTo("contents of dir/file3"))
+
+        and:
+        streamedEntries(zipFile) == ["dir/": "", "dir/file1": "contents of dir/file1", "file2": "contents of file2", "dir/file3": "contents of dir/file3"]
+    }
+
+    void writesSameEntriesAsZipCopyAction() {
+        given:
+        def expectedZip = tmpDir.testDirectory.file("expected.zip")
+        def files = [dir("dir"), file("dir/file1"), file("file2"), sourceFile("dir/file3"), dir("dir/sub")]
+        zip(new ZipCopyAction(expectedZip, new DefaultZipCompressor(false, method), new DocumentationRegistry()), *files)
+        zip(action(method), *files)
+
+        expect:
+        // Small entries are stored rather than deflated
+        entries(zipFile)*.subMap(["name", "crc", "size", "time", "mode", "platform"]) == entries(expectedZip)*.subMap(["name", "crc", "size", "time", "mode", "platform"])
+
+        where:
+        method << [ZipOutputStream.STORED, ZipOutputStream.DEFLATED]
+    }
+
+    void keepsVisitOrderOfEntries() {
+        given:
+        def files = (0..<200).collect { file("file${it}") }
+        zip(action(ZipOutputStream.DEFLATED), *files)
+
+        expect:
+        entries(zipFile).collect { it.name } == (0..<200).collect { "file${it}" }
+    }
+
+    void storesEntriesWhichAreAlreadyCompressed() {
+        given:
+        def random = new Random(1)
+        def incompressible = new byte[4096]
+        random.nextBytes(incompressible)
+        zip(action(ZipOutputStream.DEFLATED), file("lib.jar"), file("image.PNG"), file("text.txt", ("text " * 100).bytes), file("random.bin", incompressible), file("empty.txt", new byte[0]))
+
+        expect:
+        entries(zipFile).collectEntries { [it.name, it.method] } == [
+                "lib.jar": ZipOutputStream.STORED,
+                "image.PNG": ZipOutputStream.STORED,
+                "text.txt": ZipOutputStream.DEFLATED,
+                "random.bin": ZipOutputStream.STORED,
+                "empty.txt": ZipOutputStream.STORED
+        ]
+    }
+
+    void storesAllEntriesWhenCompressionIsDisabled() {
+        given:
+        zip(action(ZipOutputStream.STORED), file("text.txt"), sourceFile("source.txt"))
+
+        expect:
+        entries(zipFile).every { it.method == ZipOutputStream.STORED }
+    }
+
+    void spillsLargeEntriesToTemporaryFiles() {
+        given:
+        def large = new byte[ParallelZipCopyAction.SPILL_THRESHOLD * 2 + 3]
+        new Random(1).nextBytes(large)
+        Arrays.fill(large, 0, ParallelZipCopyAction.SPILL_THRESHOLD, (byte) 'a')
+        def spillFiles = null
+        def small = Mock(FileCopyDetailsInternal)
+        small.getRelativePath() >> RelativePath.parse(true, "small.txt")
+        small.getLastModified() >> 1000L
+        small.isDirectory() >> false
+        small.getMode() >> 1
+        small.copyTo(_ as OutputStream) >> { OutputStream out ->
+            spillFiles = temporaryDir.list() as List
+            out.write("contents of small.txt".bytes)
+        }
+        zip(action(ZipOutputStream.DEFLATED), file("large.bin", large), small)
+
+        when:
+        TestFile expandDir = tmpDir.getTestDirectory().file("expanded")
+        zipFile.unzipTo(expandDir)
+
+        then:
+        expandDir.file("large.bin").bytes == large
+        expandDir.file("small.txt").assertContents(equalTo("contents of small.txt"))
+        !spillFiles.empty
+        zipFile.parentFile.list() as List == ["test.zip"]
+        temporaryDir.list().length == 0
+    }
+
+    void wrapsFailureToAddElement() {
+        given:
+        Throwable failure = new RuntimeException("broken")
+        def brokenFile = brokenFile("dir/file1", failure)
+
+        when:
+        zip(action(ZipOutputStream.DEFLATED), file("file2"), brokenFile)
+
+        then:
+        def e = thrown(Exception)
+        e.message == String.format("Could not add $brokenFile to ZIP '%s'.", zipFile)
+        e.cause.is(failure)
+        zipFile.parentFile.list() as List == ["test.zip"]
+        temporaryDir.list().length == 0
+    }
+
+    void wrapsZip64Failure() {
+        given:
+        def docRegistry = Mock(DocumentationRegistry)
+        1 * docRegistry.getDslRefForProperty(Zip, "zip64") >> "doc url"
+        0 * docRegistry._
+        def dirs = (0..65535).collect { index ->
+            [getRelativePath: { RelativePath.parse(false, "dir$index") }, getLastModified: { 1000L }, isDirectory: { true }, getMode: { 2 }] as FileCopyDetailsInternal
+        }
+
+        when:
+        zip(new ParallelZipCopyAction(zipFile, ZipOutputStream.DEFLATED, docRegistry, executor, 4, temporaryDir), *dirs)
+
+        then:
+        def e = thrown(org.gradle.api.tasks.bundling.internal.Zip64RequiredException)
+        e.message == "archive contains more than 65535 entries.\n\nTo build this archive, please enable the zip64 extension.\nSee: doc url"
+    }
+
+    private ParallelZipCopyAction action(int method) {
+        new ParallelZipCopyAction(zipFile, method, new DocumentationRegistry(), executor, 4, temporaryDir)
+    }
+
+    private static void zip(CopyAction action, final FileCopyDetailsInternal... files) {
+        action.execute(new CopyActionProcessingStream() {
+            public void process(CopyActionProcessingStreamAction streamAction) {
+                for (FileCopyDetailsInternal f : files) {
+                    streamAction.processFile(f);
+                }
+            }
+        });
+    }
+
+    private static List<Map<String, Object>> entries(File file) {
+        def zip = new ZipFile(file)
+        try {
+            return zip.entries.collect {
+                [name: it.name, method: it.method, crc: it.crc, size: it.size, time: it.time, mode: it.unixMode, platform: it.platform]
+            }
+        } finally {
+            zip.close()
+        }
+    }
+
+    private static Map<String, String> streamedEntries(File file) {
+        def entries = [:]
+        def zip = new ZipInputStream(new FileInputStream(file))
+        try {
+            for (def entry = zip.nextEntry; entry != null; entry = zip.nextEntry) {
+                entries[entry.name] = IOUtils.toString(zip)
+            }
+        } finally {
+            zip.close()
+        }
+        entries
+    }
+
+    private FileCopyDetailsInternal file(final String path, byte[] content = "contents of $path".bytes) {
+        def mock = Mock(FileCopyDetailsInternal)
+        mock.getRelativePath() >> RelativePath.parse(true, path)
+        mock.getLastModified() >> 1000L
+        mock.isDirectory() >> false
+        mock.getMode() >> 1
+        mock.copyTo(_ as OutputStream) >> { OutputStream out ->
+            out.write(content)
+        }
+        mock
+    }
+
+    private FileCopyDetailsInternal sourceFile(final String path) {
+        def source = tmpDir.testDirectory.file("src/$path")
+        source.createFile().text = "contents of $path"
+        def mock = file(path)
+        mock.getUnfilteredSourceFile() >> source
+        mock
+    }
+
+    private FileCopyDetailsInternal dir(final String path) {
+        def mock = Mock(FileCopyDetailsInternal)
+        mock.getRelativePath() >> RelativePath.parse(false, path)
+        mock.getLastModified() >> 1000L
+        mock.isDirectory() >> true
+        mock.getMode() >> 2
+        mock
+    }
+
+    private FileCopyDetailsInternal brokenFile(final String path, final Throwable failure) {
+        def mock = Mock(FileCopyDetailsInternal)
+        mock.getRelativePath() >> RelativePath.parse(true, path)
+        mock.getLastModified() >> 1000L
+        mock.isDirectory() >> false
+        mock.getMode() >> 1
+        mock.copyTo(_ as OutputStream) >> { OutputStream out ->
+            failure.fillInStackTrace()
+            throw failure
+        }
+        mock
+    }
+}
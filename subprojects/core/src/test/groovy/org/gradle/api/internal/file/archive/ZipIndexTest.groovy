@@ -0,0 +1,142 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.file.archive
+
+import org.apache.tools.zip.ZipEntry
+import org.apache.tools.zip.ZipOutputStream
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.zip.CRC32
+import java.util.zip.ZipException
+
+class ZipIndexTest extends Specification {
+    @Rule
+    public final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+
+    TestFile zipFile
+
+    def setup() {
+        zipFile = tmpDir.testDirectory.file("test.zip")
+    }
+
+    def "reads entries sorted by name"() {
+        given:
+        zip(ZipOutputStream.DEFLATED, "b.txt": "b", "dir/": null, "a.txt": "a", "dir/c.txt": "c")
+
+        when:
+        def index = ZipIndex.of(zipFile)
+
+        then:
+        index.entries*.name == ["a.txt", "b.txt", "dir/", "dir/c.txt"]
+        index.entries*.directory == [false, false, true, false]
+        index.entries*.size == [1L, 1L, 0L, 1L]
+        index.entries*.crc == [crc("a"), crc("b"), 0L, crc("c")]
+        index.entries*.unixMode == [0100644, 0100644, 040755, 0100644]
+        index.entries.every { it.time == new ZipEntry("x").with { setTime(1262304000000L); time } }
+    }
+
+    def "opens content of entries"() {
+        given:
+        def large = "some content " * 10000
+        zip(method, "empty.txt": "", "small.txt": "small", "large.txt": large)
+
+        when:
+        def index = ZipIndex.of(zipFile)
+
+        then:
+        index.entries.collect { read(index, it) } == ["", large, "small"]
+
+        where:
+        method << [ZipOutputStream.STORED, ZipOutputStream.DEFLATED]
+    }
+
+    def "reuses index while file is unchanged"() {
+        given:
+        zip(ZipOutputStream.DEFLATED, "a.txt": "a")
+        def index = ZipIndex.of(zipFile)
+
+        expect:
+        ZipIndex.of(zipFile).is(index)
+
+        when:
+        zip(ZipOutputStream.DEFLATED, "a.txt": "a", "b.txt": "b")
+        zipFile.setLastModified(zipFile.lastModified() + 2000)
+        def changed = ZipIndex.of(zipFile)
+
+        then:
+        !changed.is(index)
+        changed.entries*.name == ["a.txt", "b.txt"]
+    }
+
+    def "does not index file with data before archive"() {
+        given:
+        zip(ZipOutputStream.DEFLATED, "a.txt": "a")
+        def content = zipFile.bytes
+        zipFile.bytes = ("prefix".bytes as List<Byte>) + (content as List<Byte>) as byte[]
+
+        expect:
+        ZipIndex.of(zipFile) == null
+    }
+
+    def "fails for file which is not a ZIP"() {
+        given:
+        zipFile.text = "not a zip file"
+
+        when:
+        ZipIndex.of(zipFile)
+
+        then:
+        thrown(ZipException)
+    }
+
+    private void zip(Map<String, String> entries, int method) {
+        def outputStream = new ZipOutputStream(zipFile)
+        try {
+            outputStream.method = method
+            entries.each { name, content ->
+                def entry = new ZipEntry(name)
+                entry.time = 1262304000000L
+                entry.unixMode = content == null ? 040755 : 0100644
+                outputStream.putNextEntry(entry)
+                if (content) {
+                    outputStream.write(content.bytes)
+                }
+                outputStream.closeEntry()
+            }
+        } finally {
+            outputStream.close()
+        }
+    }
+
+    private static long crc(String content) {
+        def crc = new CRC32()
+        crc.update(content.bytes)
+        crc.value
+    }
+
+    private static String read(ZipIndex index, ZipIndex.Entry entry) {
+        def inputStream = index.open(entry)
+        try {
+            return inputStream.text
+        } finally {
+            inputStream.close()
+        }
+    }
+}
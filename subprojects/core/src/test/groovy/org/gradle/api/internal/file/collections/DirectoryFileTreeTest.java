@@ -20,6 +20,7 @@ import org.gradle.api.file.FileVisitor;
 import org.gradle.api.file.RelativePath;
 import org.gradle.api.specs.Spec;
 import org.gradle.api.tasks.util.PatternSet;
+import org.gradle.internal.nativeintegration.services.FileSystems;
 import org.gradle.test.fixtures.file.TestFile;
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider;
 import org.gradle.util.JUnit4GroovyMockery;
@@ -52,6 +53,8 @@ public class DirectoryFileTreeTest {
     public final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider();
     private JUnit4Mockery context = new JUnit4GroovyMockery();
     private FileVisitor visitor;
+    // Walks the mock files with File.listFiles()
+    private final DirectoryWalker walker = new DefaultDirectoryWalker(FileSystems.getDefault());
 
     @Before
     public void setUp() {
@@ -63,7 +66,7 @@ public class DirectoryFileTreeTest {
         final MockFile root = new MockFile(context, "root", false);
         root.setExpectations();
 
-        DirectoryFileTree fileTree = new DirectoryFileTree(root.getMock());
+        DirectoryFileTree fileTree = new DirectoryFileTree(root.getMock(), new PatternSet(), walker);
         root.setExpectations();
 
         fileTree.visit(visitor);
@@ -134,7 +137,7 @@ public class DirectoryFileTreeTest {
             inSequence(visiting);
         }});
 
-        DirectoryFileTree fileTree = new DirectoryFileTree(root.getMock());
+        DirectoryFileTree fileTree = new DirectoryFileTree(root.getMock(), new PatternSet(), walker);
         fileTree.visit(visitor);
     }
 
@@ -163,7 +166,7 @@ public class DirectoryFileTreeTest {
             inSequence(visiting);
         }});
 
-        DirectoryFileTree fileTree = new DirectoryFileTree(root.getMock()).postfix();
+        DirectoryFileTree fileTree = new DirectoryFileTree(root.getMock(), new PatternSet(), walker).postfix();
         fileTree.visit(visitor);
     }
 
@@ -189,7 +192,7 @@ public class DirectoryFileTreeTest {
         patterns.include("**/*2");
         PatternSet filter = new PatternSet();
         filter.include("dir1/**");
-        DirectoryFileTree fileTree = new DirectoryFileTree(root.getMock(), patterns).filter(filter);
+        DirectoryFileTree fileTree = new DirectoryFileTree(root.getMock(), patterns, walker).filter(filter);
         fileTree.visit(visitor);
     }
 
@@ -209,7 +212,7 @@ public class DirectoryFileTreeTest {
             will(stopVisiting());
         }});
 
-        DirectoryFileTree fileTree = new DirectoryFileTree(root.getMock());
+        DirectoryFileTree fileTree = new DirectoryFileTree(root.getMock(), new PatternSet(), walker);
         fileTree.visit(visitor);
 
         final Sequence visiting = context.sequence("visiting");
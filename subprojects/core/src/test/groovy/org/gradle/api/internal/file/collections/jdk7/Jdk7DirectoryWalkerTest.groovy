@@ -0,0 +1,137 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.file.collections.jdk7
+
+import org.gradle.api.GradleException
+import org.gradle.api.file.FileVisitDetails
+import org.gradle.api.file.FileVisitor
+import org.gradle.api.file.RelativePath
+import org.gradle.api.specs.Specs
+import org.gradle.api.tasks.util.PatternSet
+import org.gradle.internal.nativeintegration.services.FileSystems
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.util.Requires
+import org.gradle.util.TestPrecondition
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.concurrent.atomic.AtomicBoolean
+
+@Requires(TestPrecondition.JDK7_OR_LATER)
+class Jdk7DirectoryWalkerTest extends Specification {
+    @Rule TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def walker = new Jdk7DirectoryWalker(FileSystems.default)
+    TestFile root
+
+    def setup() {
+        root = tmpDir.createDir("root")
+        root.createFile("rootFile1")
+        root.createFile("dir1/dirFile1")
+        root.createFile("dir1/dir2/dirFile2")
+        root.createFile("rootFile2")
+    }
+
+    def "visits files of a directory before its subdirectories"() {
+        def visitor = new RecordingVisitor()
+
+        when:
+        walker.walkDir(root, new RelativePath(false), visitor, Specs.satisfyAll(), new AtomicBoolean(), false)
+
+        then:
+        visitor.visited.subList(0, 2) as Set == ["file rootFile1", "file rootFile2"] as Set
+        visitor.visited.subList(2, 6) == ["dir dir1", "file dir1/dirFile1", "dir dir1/dir2", "file dir1/dir2/dirFile2"]
+    }
+
+    def "visits directories after their contents in postfix order"() {
+        def visitor = new RecordingVisitor()
+
+        when:
+        walker.walkDir(root, new RelativePath(false), visitor, Specs.satisfyAll(), new AtomicBoolean(), true)
+
+        then:
+        visitor.visited.subList(2, 6) == ["file dir1/dirFile1", "file dir1/dir2/dirFile2", "dir dir1/dir2", "dir dir1"]
+    }
+
+    def "does not walk directories which are not satisfied by the spec"() {
+        def visitor = new RecordingVisitor()
+        def patterns = new PatternSet().exclude("**/dir2")
+
+        when:
+        walker.walkDir(root, new RelativePath(false), visitor, patterns.asSpec, new AtomicBoolean(), false)
+
+        then:
+        visitor.visited as Set == ["file rootFile1", "file rootFile2", "dir dir1", "file dir1/dirFile1"] as Set
+    }
+
+    def "provides the attributes read while listing the directory"() {
+        def file = root.file("rootFile1")
+        file.text = "some content"
+        def details = []
+        def visitor = Stub(FileVisitor) {
+            visitFile(_) >> { FileVisitDetails fileDetails -> details << fileDetails }
+            visitDir(_) >> { FileVisitDetails dirDetails -> details << dirDetails }
+        }
+
+        when:
+        walker.walkDir(root, new RelativePath(false), visitor, Specs.satisfyAll(), new AtomicBoolean(), false)
+
+        then:
+        def fileDetails = details.find { it.file == file }
+        fileDetails.size == file.length()
+        fileDetails.lastModified == file.lastModified()
+        !fileDetails.directory
+        details.find { it.file == root.file("dir1") }.directory
+    }
+
+    def "stops visiting when requested"() {
+        def visited = []
+        def visitor = Stub(FileVisitor) {
+            visitFile(_) >> { FileVisitDetails fileDetails ->
+                visited << fileDetails.path
+                fileDetails.stopVisiting()
+            }
+        }
+
+        when:
+        walker.walkDir(root, new RelativePath(false), visitor, Specs.satisfyAll(), new AtomicBoolean(), false)
+
+        then:
+        visited.size() == 1
+    }
+
+    def "fails when directory cannot be listed"() {
+        when:
+        walker.walkDir(root.file("missing"), new RelativePath(false), new RecordingVisitor(), Specs.satisfyAll(), new AtomicBoolean(), false)
+
+        then:
+        GradleException e = thrown()
+        e.message == "Could not list contents of '${root.file("missing")}'."
+    }
+
+    static class RecordingVisitor implements FileVisitor {
+        final List<String> visited = []
+
+        void visitDir(FileVisitDetails dirDetails) {
+            visited << "dir ${dirDetails.path}".toString()
+        }
+
+        void visitFile(FileVisitDetails fileDetails) {
+            visited << "file ${fileDetails.path}".toString()
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.file.copy
+
+import org.gradle.internal.concurrent.ExecutorFactory
+import org.gradle.internal.concurrent.StoppableExecutor
+import spock.lang.Specification
+
+class CopyWorkerPoolTest extends Specification {
+    def executorFactory = Mock(ExecutorFactory)
+    def executor = Mock(StoppableExecutor)
+    def pool = new CopyWorkerPool(executorFactory, 4)
+
+    def "starts a fixed number of workers when first used and shares them"() {
+        when:
+        def first = pool.executor
+        def second = pool.executor
+
+        then:
+        1 * executorFactory.create("Copy worker", 4) >> executor
+        first.is(executor)
+        second.is(executor)
+    }
+
+    def "stops workers"() {
+        given:
+        executorFactory.create(_, _) >> executor
+        pool.executor
+
+        when:
+        pool.stop()
+
+        then:
+        1 * executor.stop()
+    }
+
+    def "does not start workers when stopped before use"() {
+        when:
+        pool.stop()
+
+        then:
+        0 * executorFactory._
+    }
+}
@@ -18,6 +18,7 @@ package org.gradle.api.internal.file.copy;
 
 import org.gradle.api.file.RelativePath;
 import org.gradle.api.internal.file.TestFiles;
+import org.gradle.test.fixtures.file.TestFile;
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider;
 import org.jmock.Expectations;
 import org.jmock.integration.junit4.JMock;
@@ -29,8 +30,11 @@ import org.junit.runner.RunWith;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
 
 import static org.gradle.api.internal.file.copy.CopyActionExecuterUtil.visit;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 @RunWith(JMock.class)
 public class FileCopyActionTest {
@@ -54,12 +58,54 @@ public class FileCopyActionTest {
         );
     }
 
+    @Test
+    public void doesNotCopyUnchangedSourceFileWhenTargetExists() {
+        TestFile changed = tmpDir.createFile("src/changed.txt");
+        TestFile unchanged = tmpDir.createFile("src/unchanged.txt");
+        TestFile missing = tmpDir.createFile("src/missing.txt");
+        new TestFile(destDir, "unchanged.txt").createFile();
+        FileCopyAction visitor = new FileCopyAction(TestFiles.resolver(destDir), Collections.<File>singleton(changed), null, 1);
+
+        assertTrue(visit(visitor,
+                file(new RelativePath(true, "changed.txt"), changed, new File(destDir, "changed.txt")),
+                unchangedFile(new RelativePath(true, "unchanged.txt"), unchanged),
+                file(new RelativePath(true, "missing.txt"), missing, new File(destDir, "missing.txt"))
+        ).getDidWork());
+    }
+
+    @Test
+    public void doesNoWorkWhenAllSourceFilesAreUnchanged() {
+        TestFile unchanged = tmpDir.createFile("src/unchanged.txt");
+        new TestFile(destDir, "unchanged.txt").createFile();
+        FileCopyAction visitor = new FileCopyAction(TestFiles.resolver(destDir), Collections.<File>emptySet(), null, 1);
+
+        assertFalse(visit(visitor, unchangedFile(new RelativePath(true, "unchanged.txt"), unchanged)).getDidWork());
+    }
+
     private FileCopyDetailsInternal file(final RelativePath relativePath, final File targetFile) {
+        return file(relativePath, null, targetFile);
+    }
+
+    private FileCopyDetailsInternal file(final RelativePath relativePath, final File sourceFile, final File targetFile) {
         final FileCopyDetailsInternal details = context.mock(FileCopyDetailsInternal.class, relativePath.getPathString());
         context.checking(new Expectations() {{
             allowing(details).getRelativePath();
             will(returnValue(relativePath));
+            allowing(details).getUnfilteredSourceFile();
+            will(returnValue(sourceFile));
             one(details).copyTo(targetFile);
+            will(returnValue(true));
+        }});
+        return details;
+    }
+
+    private FileCopyDetailsInternal unchangedFile(final RelativePath relativePath, final File sourceFile) {
+        final FileCopyDetailsInternal details = context.mock(FileCopyDetailsInternal.class, relativePath.getPathString());
+        context.checking(new Expectations() {{
+            allowing(details).getRelativePath();
+            will(returnValue(relativePath));
+            allowing(details).getUnfilteredSourceFile();
+            will(returnValue(sourceFile));
         }});
         return details;
     }
@@ -17,9 +17,12 @@ package org.gradle.api.internal.file.copy
 
 import org.gradle.api.Action
 import org.gradle.api.internal.file.TestFiles
+import org.gradle.api.tasks.WorkResult
 import org.gradle.internal.reflect.DirectInstantiator
 import org.gradle.test.fixtures.file.WorkspaceTest
 
+import java.util.concurrent.Executors
+
 class SyncCopyActionDecoratorTest extends WorkspaceTest {
 
     FileCopier copier
@@ -54,4 +57,61 @@ class SyncCopyActionDecoratorTest extends WorkspaceTest {
         file("dest").assertHasDescendants("subdir/included.txt", "included.txt");
     }
 
+    void deletesOnlyPreviouslyCopiedFilesWhenPreviousFilesAreKnown() {
+        given:
+        file("src").with {
+            createFile("subdir/included.txt")
+            createFile("included.txt")
+        }
+
+        file("dest").with {
+            createFile("subdir/included.txt")
+            createFile("subdir/previous.txt")
+            createFile("other/previous.txt")
+            createFile("previous.txt")
+            createFile("extra.txt")
+        }
+        def previousFiles = ["subdir/included.txt", "subdir/previous.txt", "other/previous.txt", "previous.txt"].collect { file("dest/$it") }
+
+        when:
+        def result = sync(previousFiles) {
+            it.from "src"
+        }
+
+        then:
+        result.didWork
+        file("dest").assertHasDescendants("subdir/included.txt", "included.txt", "extra.txt")
+        !file("dest/other").exists()
+    }
+
+    void copiesFilesOnWorkers() {
+        given:
+        def names = (0..<FileCopyAction.MIN_FILES_PER_WORKER * 4).collect { "dir${it % 3}/file${it}.txt" }
+        names.each { file("src/$it").createFile().text = it }
+        file("dest/extra.txt").createFile()
+
+        when:
+        def result = sync(null) {
+            it.from "src"
+        }
+
+        then:
+        result.didWork
+        file("dest").assertHasDescendants(names as String[])
+        names.every { file("dest/$it").text == it }
+    }
+
+    WorkResult sync(Iterable<File> previousFiles, Closure action) {
+        def spec = new DestinationRootCopySpec(TestFiles.resolver(testDirectory), new DefaultCopySpec(TestFiles.resolver(testDirectory), new DirectInstantiator()))
+        spec.into "dest"
+        action.call(spec)
+        def executor = Executors.newFixedThreadPool(3)
+        try {
+            def copyAction = new FileCopyAction(TestFiles.resolver(file("dest")), null, executor, 4)
+            def syncAction = new SyncCopyActionDecorator(file("dest"), copyAction, previousFiles)
+            return new CopyActionExecuter(new DirectInstantiator(), TestFiles.fileSystem()).execute(spec, syncAction)
+        } finally {
+            executor.shutdown()
+        }
+    }
 }
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.file.pattern
+
+import org.gradle.api.file.RelativePath
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class PatternAutomatonTest extends Specification {
+    static final List<String> PATTERNS = ["", "a", "a/b", "a/b/", "a\\b\\c", "*", "*.java", "a*", "a?c", "**", "**/", "**/a", "a/**", "a/**/b", "**/a/**",
+            "**/*.java", "a/**/**/b", "*/b/**/*c*", "/a", "a//b", "A/b", "**/CVS/**", "**/.#*"]
+    static final List<List<String>> PATHS = [[], ["a"], ["b"], ["A"], ["abc"], ["Foo.java"], ["a", "b"], ["a", "B"], ["a", "b", "c"], ["a", "c", "b"],
+            ["x", "a", "b"], ["x", "y", "a"], ["a", "x", "y", "b"], ["a", "b", "abc"], ["src", "Foo.java"], ["", "a"], ["a", "", "b"], ["CVS", "x"],
+            ["x", ".#foo"]]
+
+    @Unroll
+    def "matches paths in the same way as individual matcher for pattern '#pattern' when case sensitive #caseSensitive"() {
+        def automaton = PatternAutomaton.compile([pattern], caseSensitive)
+        def fileMatcher = PatternMatcherFactory.getPatternMatcher(false, caseSensitive, pattern)
+        def dirMatcher = PatternMatcherFactory.getPatternMatcher(true, caseSensitive, pattern)
+
+        expect:
+        PATHS.each { path ->
+            String[] segments = path as String[]
+            if (segments.length > 0) {
+                assert automaton.matches(segments, 0) == fileMatcher.isSatisfiedBy(new RelativePath(true, segments)): "matches $path"
+                assert automaton.isPrefix(segments, 0) == dirMatcher.isSatisfiedBy(new RelativePath(false, segments)): "isPrefix $path"
+            }
+        }
+
+        where:
+        [pattern, caseSensitive] << [PATTERNS, [true, false]].combinations()
+    }
+
+    def "matches path when any pattern matches"() {
+        def automaton = PatternAutomaton.compile(["a/b/c", "a/b/d", "a/*.txt", "**/e"], true)
+
+        expect:
+        automaton.matches(["a", "b", "c"] as String[], 0)
+        automaton.matches(["a", "b", "d"] as String[], 0)
+        automaton.matches(["a", "b.txt"] as String[], 0)
+        automaton.matches(["x", "y", "e"] as String[], 0)
+        automaton.matches(["a", "b", "e"] as String[], 0)
+        !automaton.matches(["a", "b"] as String[], 0)
+        !automaton.matches(["a", "b", "x"] as String[], 0)
+        !automaton.matches(["x", "b.txt"] as String[], 0)
+    }
+
+    def "can tell whether anything below a directory can match"() {
+        def automaton = PatternAutomaton.compile(["src/main/**", "src/test/*.java", "lib/*.jar"], true)
+
+        expect:
+        automaton.isPrefix(["src"] as String[], 0)
+        automaton.isPrefix(["src", "main"] as String[], 0)
+        automaton.isPrefix(["src", "main", "java", "org"] as String[], 0)
+        automaton.isPrefix(["src", "test"] as String[], 0)
+        automaton.isPrefix(["lib"] as String[], 0)
+        !automaton.isPrefix(["build"] as String[], 0)
+        !automaton.isPrefix(["src", "other"] as String[], 0)
+        !automaton.isPrefix(["src", "test", "java", "org"] as String[], 0)
+        !automaton.isPrefix(["lib", "dir", "x"] as String[], 0)
+    }
+
+    def "calculates number of segments"() {
+        expect:
+        def automaton = PatternAutomaton.compile(patterns, true)
+        automaton.minSegments == min
+        automaton.maxSegments == max
+
+        where:
+        patterns               | min | max
+        []                     | 0   | 0
+        ["a"]                  | 1   | 1
+        ["a", "b/c/d", "e/f"]  | 1   | 3
+        ["a/**", "b/c"]        | 1   | Integer.MAX_VALUE
+        ["b/c", "a/**"]        | 1   | Integer.MAX_VALUE
+    }
+
+    def "matches using start index"() {
+        def automaton = PatternAutomaton.compile(["a/b"], true)
+
+        expect:
+        automaton.matches(["x", "a", "b"] as String[], 1)
+        !automaton.matches(["x", "a", "b"] as String[], 0)
+    }
+}
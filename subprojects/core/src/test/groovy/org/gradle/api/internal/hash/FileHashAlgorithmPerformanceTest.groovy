@@ -0,0 +1,59 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.hash
+
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.IgnoreIf
+import spock.lang.Specification
+import spock.lang.Unroll
+
+/**
+ * Compares the throughput of the file hash algorithms, for many small files and for a few large files. Run with -Dorg.gradle.hash.benchmark=true.
+ */
+@IgnoreIf({ !Boolean.getBoolean("org.gradle.hash.benchmark") })
+class FileHashAlgorithmPerformanceTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+
+    @Unroll
+    def "hashes #fileCount files of #fileSize bytes using #algorithm"() {
+        def random = new Random(1234)
+        def files = (1..fileCount).collect {
+            def bytes = new byte[fileSize]
+            random.nextBytes(bytes)
+            def file = tmpDir.file("file$it")
+            file.bytes = bytes
+            return file
+        }
+        def hasher = algorithm.hasher
+
+        // Warm up
+        files.each { hasher.hash(it) }
+
+        when:
+        def start = System.nanoTime()
+        files.each { hasher.hash(it) }
+        def elapsed = Math.max(System.nanoTime() - start, 1L)
+
+        then:
+        println String.format("%s: %d files of %d bytes hashed in %.2fms (%.1f MB/s)", algorithm, fileCount, fileSize, elapsed / 1000000.0, (fileCount * (long) fileSize) * 1000.0 / elapsed)
+
+        where:
+        [algorithm, fileCount, fileSize] << [FileHashAlgorithm.values(), [[1000, 1024], [4, 16 * 1024 * 1024]]].combinations().collect { [it[0], it[1][0], it[1][1]] }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.hash
+
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.util.SetSystemProperties
+import org.junit.Rule
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class FileHashAlgorithmTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    @Rule
+    SetSystemProperties systemProperties = new SetSystemProperties()
+
+    def "uses MD5 by default"() {
+        expect:
+        FileHashAlgorithm.fromSystemProperties() == FileHashAlgorithm.MD5
+    }
+
+    @Unroll
+    def "selects #algorithm using system property value '#value'"() {
+        given:
+        System.setProperty(FileHashAlgorithm.SYSTEM_PROPERTY, value)
+
+        expect:
+        FileHashAlgorithm.fromSystemProperties() == algorithm
+
+        where:
+        value         | algorithm
+        "md5"         | FileHashAlgorithm.MD5
+        "murmur3_128" | FileHashAlgorithm.MURMUR3_128
+        "MURMUR3-128" | FileHashAlgorithm.MURMUR3_128
+    }
+
+    def "fails for unknown algorithm"() {
+        given:
+        System.setProperty(FileHashAlgorithm.SYSTEM_PROPERTY, "crc32")
+
+        when:
+        FileHashAlgorithm.fromSystemProperties()
+
+        then:
+        IllegalArgumentException e = thrown()
+        e.message == "Unknown file hash algorithm 'crc32' specified using system property '${FileHashAlgorithm.SYSTEM_PROPERTY}'."
+    }
+
+    def "algorithms can be looked up by id"() {
+        expect:
+        FileHashAlgorithm.values().every { FileHashAlgorithm.forId(it.id) == it }
+        FileHashAlgorithm.forId((byte) 0) == null
+    }
+
+    @Unroll
+    def "#algorithm hash changes when file content changes"() {
+        def file = tmpDir.createFile("file")
+
+        when:
+        file.text = "content"
+        def original = algorithm.hasher.hash(file)
+        file.text = "content"
+        def same = algorithm.hasher.hash(file)
+        file.text = "other content"
+        def changed = algorithm.hasher.hash(file)
+
+        then:
+        original == same
+        original != changed
+
+        where:
+        algorithm << FileHashAlgorithm.values()
+    }
+}
@@ -103,6 +103,19 @@ class DefaultTaskOutputsTest extends Specification {
         1 * history.outputFiles >> outputFiles
     }
 
+    public void historyIsAvailableWhileSet() {
+        TaskExecutionHistory history = Mock()
+
+        expect:
+        outputs.history == null
+
+        when:
+        outputs.history = history
+
+        then:
+        outputs.history == history
+    }
+
     public void getPreviousFilesFailsWhenNoTaskHistoryAvailable() {
         when:
         outputs.previousFiles
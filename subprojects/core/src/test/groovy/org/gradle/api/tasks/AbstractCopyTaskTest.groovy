@@ -15,12 +15,21 @@
  */
 package org.gradle.api.tasks
 
+import org.gradle.api.Action
+import org.gradle.api.internal.TaskExecutionHistory
+import org.gradle.api.internal.file.copy.ChangedSourceFiles
 import org.gradle.api.internal.file.copy.CopyAction
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs
+import org.gradle.api.tasks.incremental.InputFileDetails
 import org.gradle.test.fixtures.file.WorkspaceTest
+import org.gradle.util.SetSystemProperties
 import org.gradle.util.TestUtil
+import org.junit.Rule
 import org.junit.Test
 
 class AbstractCopyTaskTest extends WorkspaceTest {
+    @Rule
+    public final SetSystemProperties systemProperties = new SetSystemProperties()
 
     TestCopyTask task
 
@@ -45,6 +54,66 @@ class AbstractCopyTaskTest extends WorkspaceTest {
         task.mainSpec.buildRootResolver().source.files == task.project.fileTree(testDirectory).files
     }
 
+    @Test
+    public void copyIsTheOnlyTaskActionAndIsNotIncremental() {
+        expect:
+        !task.outputs.hasOutput
+        TestUtil.createTask(AnnotatedCopyTask).actions.size() == task.actions.size()
+    }
+
+    @Test
+    public void collectsChangedSourcesFromTaskHistoryWhenIncrementalCopyingIsEnabled() {
+        given:
+        System.setProperty(ChangedSourceFiles.TOGGLE, "true")
+        def changed = file("changed")
+        task.outputs.history = history(true, changed)
+
+        expect:
+        task.collectChangedSources() == [changed] as Set
+    }
+
+    @Test
+    public void copiesAllFilesWhenChangesAreNotKnown() {
+        given:
+        System.setProperty(ChangedSourceFiles.TOGGLE, "true")
+
+        expect:
+        task.collectChangedSources() == null
+
+        when:
+        task.outputs.history = history(false, file("changed"))
+
+        then:
+        task.collectChangedSources() == null
+    }
+
+    @Test
+    public void copiesAllFilesWhenIncrementalCopyingIsDisabled() {
+        given:
+        def history = Mock(TaskExecutionHistory)
+        task.outputs.history = history
+
+        when:
+        def changedSources = task.collectChangedSources()
+
+        then:
+        changedSources == null
+        0 * history._
+    }
+
+    private TaskExecutionHistory history(boolean incremental, File changed) {
+        def details = Stub(InputFileDetails) {
+            getFile() >> changed
+        }
+        def inputs = Stub(IncrementalTaskInputs) {
+            isIncremental() >> incremental
+            outOfDate(_) >> { Action<InputFileDetails> action -> action.execute(details) }
+        }
+        return Stub(TaskExecutionHistory) {
+            getInputChanges() >> inputs
+        }
+    }
+
     static class TestCopyTask extends AbstractCopyTask {
         CopyAction copyAction
 
@@ -53,4 +122,11 @@ class AbstractCopyTaskTest extends WorkspaceTest {
         }
 
     }
+
+    static class AnnotatedCopyTask extends TestCopyTask {
+        @TaskAction
+        protected void copy() {
+            super.copy()
+        }
+    }
 }
@@ -16,14 +16,13 @@
 package org.gradle.cache.internal
 
 import org.gradle.internal.Factory
-import org.gradle.cache.internal.btree.BTreePersistentIndexedCache
 import spock.lang.Specification
 
 class MultiProcessSafePersistentIndexedCacheTest extends Specification {
     final FileAccess fileAccess = Mock()
-    final Factory<BTreePersistentIndexedCache<String, String>> factory = Mock()
-    final cache = new DefaultMultiProcessSafePersistentIndexedCache<String, String>(factory, fileAccess)
-    final BTreePersistentIndexedCache<String, String> backingCache = Mock()
+    final Factory<FileBackedPersistentIndexedCache<String, String>> factory = Mock()
+    def cache = new DefaultMultiProcessSafePersistentIndexedCache<String, String>(factory, fileAccess)
+    final FileBackedPersistentIndexedCache<String, String> backingCache = Mock()
     
     def "opens cache on first access"() {
         when:
@@ -76,6 +75,222 @@ class MultiProcessSafePersistentIndexedCacheTest extends Specification {
         0 * _._
     }
 
+    def "reads entry from cache file each time when entries are not kept in memory"() {
+        given:
+        cacheOpened()
+
+        when:
+        cache.get("value")
+        cache.get("value")
+
+        then:
+        2 * fileAccess.readFile(!null) >> { Factory action -> action.create() }
+        2 * backingCache.get("value") >> "result"
+        0 * _._
+    }
+
+    def "serves entry from memory once read"() {
+        given:
+        cache = inMemoryCache()
+        cacheOpened()
+
+        when:
+        def result = cache.get("value")
+
+        then:
+        1 * fileAccess.readFile(!null) >> { Factory action -> action.create() }
+        1 * backingCache.get("value") >> "result"
+        0 * _._
+
+        when:
+        def again = cache.get("value")
+
+        then:
+        result == "result"
+        again == "result"
+        0 * _._
+    }
+
+    def "serves missing entry from memory once read"() {
+        given:
+        cache = inMemoryCache()
+        cacheOpened()
+
+        when:
+        cache.get("value")
+        def result = cache.get("value")
+
+        then:
+        result == null
+        1 * fileAccess.readFile(!null) >> { Factory action -> action.create() }
+        1 * backingCache.get("value") >> null
+        0 * _._
+    }
+
+    def "does not cache entry when cache file is corrupt"() {
+        given:
+        cache = inMemoryCache()
+        cacheOpened()
+
+        when:
+        def result = cache.get("value")
+
+        then:
+        result == null
+        1 * fileAccess.readFile(!null) >> { throw new FileIntegrityViolationException("broken") }
+        0 * _._
+
+        when:
+        result = cache.get("value")
+
+        then:
+        result == "result"
+        1 * fileAccess.readFile(!null) >> { Factory action -> action.create() }
+        1 * backingCache.get("value") >> "result"
+    }
+
+    def "buffers put and remove in memory"() {
+        given:
+        cache = bufferedCache()
+        cacheOpened()
+
+        when:
+        cache.put("key", "value")
+        cache.remove("other")
+        def value = cache.get("key")
+        def other = cache.get("other")
+
+        then:
+        value == "value"
+        other == null
+        0 * _._
+    }
+
+    def "holds write lock while writing buffered entries on close"() {
+        given:
+        cache = bufferedCache()
+        cacheOpened()
+        cache.put("key", "value")
+        cache.put("key", "new value")
+        cache.remove("other")
+
+        when:
+        cache.close()
+
+        then:
+        1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
+        1 * backingCache.put("key", "new value")
+        1 * backingCache.remove("other")
+        1 * backingCache.close()
+        0 * _._
+    }
+
+    def "opens cache on close to write buffered entries"() {
+        given:
+        cache = bufferedCache()
+        cache.put("key", "value")
+
+        when:
+        cache.close()
+
+        then:
+        2 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
+        1 * factory.create() >> backingCache
+        1 * backingCache.put("key", "value")
+        1 * backingCache.close()
+        0 * _._
+    }
+
+    def "writes buffered entries in a batch when too many are pending"() {
+        given:
+        cache = bufferedCache()
+        cacheOpened()
+        def count = 10
+
+        when:
+        (count - 1).times { cache.put("key$it".toString(), "value") }
+
+        then:
+        0 * _._
+
+        when:
+        cache.put("last", "value")
+
+        then:
+        1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
+        count * backingCache.put(_, "value")
+        0 * _._
+
+        when:
+        cache.close()
+
+        then:
+        1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
+        1 * backingCache.close()
+        0 * _._
+    }
+
+    def "reads written entry from memory after it has been evicted but before it has been written"() {
+        given:
+        def cache = new DefaultMultiProcessSafePersistentIndexedCache<String, String>(factory, fileAccess, 1, 10)
+        cache.put("key", "value")
+        cache.put("other", "value")
+
+        when:
+        def result = cache.get("key")
+
+        then:
+        result == "value"
+        0 * _._
+    }
+
+    def "discards entries in memory when cache has been updated by another process"() {
+        given:
+        cache = inMemoryCache()
+        def endState = Mock(FileLock.State)
+        def startState = Mock(FileLock.State)
+        cacheOpened()
+        readFromBackingCache("key", "value")
+        cache.onEndWork(endState)
+
+        when:
+        cache.onStartWork("op", startState)
+        def result = cache.get("key")
+
+        then:
+        result == "value"
+        1 * startState.hasBeenUpdatedSince(endState) >> false
+        0 * _._
+
+        when:
+        cache.onStartWork("op", startState)
+        result = cache.get("key")
+
+        then:
+        result == "new value"
+        1 * startState.hasBeenUpdatedSince(endState) >> true
+        1 * fileAccess.readFile(!null) >> { Factory action -> action.create() }
+        1 * backingCache.get("key") >> "new value"
+        0 * _._
+    }
+
+    def "can read entries in memory from multiple threads without holding lock"() {
+        given:
+        cache = inMemoryCache()
+        cacheOpened()
+        readFromBackingCache("key", "value")
+        def results = Collections.synchronizedList([])
+
+        when:
+        def threads = (1..4).collect { Thread.start { 100.times { results << cache.get("key") } } }
+        threads*.join()
+
+        then:
+        results.size() == 400
+        results.every { it == "value" }
+        0 * _._
+    }
+
     def "holds write lock while closing cache"() {
         given:
         cacheOpened()
@@ -128,6 +343,21 @@ class MultiProcessSafePersistentIndexedCacheTest extends Specification {
         0 * _._
     }
 
+    def inMemoryCache() {
+        return new DefaultMultiProcessSafePersistentIndexedCache<String, String>(factory, fileAccess, 100, 0)
+    }
+
+    def bufferedCache() {
+        return new DefaultMultiProcessSafePersistentIndexedCache<String, String>(factory, fileAccess, 100, 10)
+    }
+
+    def readFromBackingCache(String key, String value) {
+        1 * fileAccess.readFile(!null) >> { Factory action -> action.create() }
+        1 * backingCache.get(key) >> value
+
+        cache.get(key)
+    }
+
     def cacheOpened() {
         1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
         1 * factory.create() >> backingCache
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.cache.internal.appendlog
+
+import org.gradle.messaging.serialize.DefaultSerializer
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class AppendOnlyLogPersistentIndexedCacheTest extends Specification {
+    @Rule TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def cacheFile = tmpDir.file("cache.log")
+    def cache = newCache()
+
+    def cleanup() {
+        cache.close()
+    }
+
+    def "returns null when entry does not exist"() {
+        expect:
+        cache.get("unknown") == null
+    }
+
+    def "can put, replace and remove entries"() {
+        when:
+        cache.put("a", 1)
+        cache.put("b", 2)
+        cache.put("a", 3)
+        cache.remove("b")
+        cache.remove("unknown")
+
+        then:
+        cache.get("a") == 3
+        cache.get("b") == null
+        cache.get("unknown") == null
+    }
+
+    def "persists entries when reopened"() {
+        given:
+        (1..10).each { cache.put("key$it".toString(), it) }
+        cache.put("key1", 100)
+        cache.remove("key2")
+
+        when:
+        reopen()
+
+        then:
+        cache.get("key1") == 100
+        cache.get("key2") == null
+        (3..10).each { assert cache.get("key$it".toString()) == it }
+    }
+
+    def "appends updates to the end of the file"() {
+        given:
+        cache.put("a", 1)
+        def length = cacheFile.length()
+
+        when:
+        cache.put("a", 2)
+
+        then:
+        cacheFile.length() > length
+
+        when:
+        length = cacheFile.length()
+        cache.remove("a")
+
+        then:
+        cacheFile.length() > length
+    }
+
+    def "compacts log on close when most of it is garbage"() {
+        given:
+        cache.close()
+        cache = newCache(1)
+        100.times { cache.put("key", it) }
+        cache.put("other", 1)
+        cache.put("removed", 2)
+        cache.remove("removed")
+        def length = cacheFile.length()
+
+        when:
+        reopen()
+
+        then:
+        cacheFile.length() < length / 10
+        cache.get("key") == 99
+        cache.get("other") == 1
+        cache.get("removed") == null
+
+        and:
+        !new File(cacheFile.parentFile, "cache.log.compact").exists()
+        !new File(cacheFile.parentFile, "cache.log.compact.tmp").exists()
+    }
+
+    def "completes compaction which was interrupted after the log was deleted"() {
+        given:
+        cache.put("a", 1)
+        cache.close()
+        cacheFile.renameTo(new File(cacheFile.parentFile, "cache.log.compact"))
+
+        when:
+        cache = newCache()
+
+        then:
+        cache.get("a") == 1
+        cacheFile.exists()
+        !new File(cacheFile.parentFile, "cache.log.compact").exists()
+    }
+
+    def "completes compaction which was interrupted before the log was replaced"() {
+        given:
+        cache.put("a", 1)
+        cache.close()
+        def staleLog = cacheFile.bytes
+        cache = newCache()
+        cache.put("a", 2)
+        cache.close()
+        new File(cacheFile.parentFile, "cache.log.compact").bytes = cacheFile.bytes
+        cacheFile.bytes = staleLog
+
+        when:
+        cache = newCache()
+
+        then:
+        cache.get("a") == 2
+        !new File(cacheFile.parentFile, "cache.log.compact").exists()
+    }
+
+    def "discards partially written compacted file"() {
+        given:
+        cache.put("a", 1)
+        cache.close()
+        def partialFile = new File(cacheFile.parentFile, "cache.log.compact.tmp")
+        partialFile.text = "partial"
+
+        when:
+        cache = newCache()
+
+        then:
+        cache.get("a") == 1
+        !partialFile.exists()
+    }
+
+    def "does not compact log when little of it is garbage"() {
+        given:
+        cache.close()
+        cache = newCache(1)
+        10.times { cache.put("key$it".toString(), it) }
+        cache.put("key0", 100)
+        def length = cacheFile.length()
+
+        when:
+        reopen()
+
+        then:
+        cacheFile.length() == length
+        cache.get("key0") == 100
+    }
+
+    def "discards incomplete entry at end of file"() {
+        given:
+        cache.put("a", 1)
+        cache.put("b", 2)
+        def length = cacheFile.length()
+        cache.close()
+
+        and:
+        def file = new RandomAccessFile(cacheFile, "rw")
+        file.setLength(length - 1)
+        file.close()
+
+        when:
+        cache = newCache()
+
+        then:
+        cache.get("a") == 1
+        cache.get("b") == null
+
+        when:
+        cache.put("c", 3)
+        reopen()
+
+        then:
+        cache.get("a") == 1
+        cache.get("b") == null
+        cache.get("c") == 3
+    }
+
+    def "discards entry with bad checksum and everything after it"() {
+        given:
+        cache.put("a", 1)
+        def length = cacheFile.length()
+        cache.put("b", 2)
+        cache.put("c", 3)
+        cache.close()
+
+        and:
+        def file = new RandomAccessFile(cacheFile, "rw")
+        file.seek(length + 10)
+        file.write(0xff)
+        file.close()
+
+        when:
+        cache = newCache()
+
+        then:
+        cache.get("a") == 1
+        cache.get("b") == null
+        cache.get("c") == null
+        cacheFile.length() == length
+    }
+
+    def "discards file which is not a log"() {
+        given:
+        cache.close()
+        cacheFile.text = "not a log"
+
+        when:
+        cache = newCache()
+
+        then:
+        cache.get("a") == null
+
+        when:
+        cache.put("a", 1)
+        reopen()
+
+        then:
+        cache.get("a") == 1
+    }
+
+    private AppendOnlyLogPersistentIndexedCache<String, Integer> newCache(long minCompactionGarbage = AppendOnlyLogPersistentIndexedCache.MIN_COMPACTION_GARBAGE) {
+        new AppendOnlyLogPersistentIndexedCache<String, Integer>(cacheFile, new DefaultSerializer<String>(), new DefaultSerializer<Integer>(), minCompactionGarbage)
+    }
+
+    private void reopen() {
+        cache.close()
+        cache = newCache()
+    }
+}
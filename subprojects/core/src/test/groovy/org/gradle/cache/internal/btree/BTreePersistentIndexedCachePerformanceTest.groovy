@@ -0,0 +1,86 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.cache.internal.btree
+
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.IgnoreIf
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import static org.gradle.messaging.serialize.BaseSerializerFactory.STRING_SERIALIZER
+
+/**
+ * Compares the throughput of the block stores on a large cache. Run with -Dorg.gradle.cache.benchmark=true, and optionally
+ * -Dorg.gradle.cache.benchmark.entries=&lt;count&gt; to change the number of entries from the default of 1,000,000.
+ */
+@IgnoreIf({ !Boolean.getBoolean("org.gradle.cache.benchmark") })
+class BTreePersistentIndexedCachePerformanceTest extends Specification {
+    static final int ENTRIES = Integer.getInteger("org.gradle.cache.benchmark.entries", 1000000)
+    @Rule TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+
+    @Unroll
+    def "measures put and get throughput of #storeType.simpleName"() {
+        def cacheFile = tmpDir.file("cache.bin")
+        def keys = (0..<ENTRIES).collect { "key-$it".toString() }
+        def random = new Random(1234)
+        def cache = open(cacheFile, storeType)
+
+        when:
+        def putTime = time {
+            keys.each { cache.put(it, "value-$it".toString()) }
+        }
+        Collections.shuffle(keys, random)
+        def getTime = time {
+            keys.each { assert cache.get(it) == "value-$it" }
+        }
+        cache.close()
+        cache = open(cacheFile, storeType)
+        Collections.shuffle(keys, random)
+        def reopenedGetTime = time {
+            keys.each { assert cache.get(it) == "value-$it" }
+        }
+        Collections.shuffle(keys, random)
+        def updateTime = time {
+            keys.each { cache.put(it, "updated-$it".toString()) }
+        }
+        cache.close()
+
+        then:
+        println "${storeType.simpleName} with ${ENTRIES} entries (${cacheFile.length()} bytes):"
+        println "  put:                ${throughput(putTime)}"
+        println "  get:                ${throughput(getTime)}"
+        println "  get after reopen:   ${throughput(reopenedGetTime)}"
+        println "  update:             ${throughput(updateTime)}"
+
+        where:
+        storeType << [FileBackedBlockStore, MappedFileBlockStore]
+    }
+
+    private static BTreePersistentIndexedCache<String, String> open(File cacheFile, Class<? extends BlockStore> storeType) {
+        new BTreePersistentIndexedCache<String, String>(cacheFile, STRING_SERIALIZER, STRING_SERIALIZER, storeType.newInstance(cacheFile))
+    }
+
+    private static long time(Closure action) {
+        long start = System.nanoTime()
+        action()
+        return System.nanoTime() - start
+    }
+
+    private static String throughput(long nanos) {
+        String.format("%,d ops/s (%,d ms)", (long) (ENTRIES * 1000000000L / Math.max(nanos, 1)), (long) (nanos / 1000000))
+    }
+}
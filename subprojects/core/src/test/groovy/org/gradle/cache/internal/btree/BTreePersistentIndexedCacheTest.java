@@ -40,10 +40,14 @@ public class BTreePersistentIndexedCacheTest {
     private BTreePersistentIndexedCache<String, Integer> cache;
     private TestFile cacheFile;
 
+    protected BlockStore createStore(File cacheFile) {
+        return new FileBackedBlockStore(cacheFile);
+    }
+
     @Before
     public void setup() {
         cacheFile = tmpDir.file("cache.bin");
-        cache = new BTreePersistentIndexedCache<String, Integer>(cacheFile, stringSerializer, integerSerializer, (short) 4, 100);
+        cache = new BTreePersistentIndexedCache<String, Integer>(cacheFile, stringSerializer, integerSerializer, (short) 4, 100, createStore(cacheFile));
     }
 
     @Test
@@ -111,7 +115,7 @@ public class BTreePersistentIndexedCacheTest {
 
     @Test
     public void reusesEmptySpaceWhenPuttingEntries() {
-        BTreePersistentIndexedCache<String, String> cache = new BTreePersistentIndexedCache<String, String>(cacheFile, stringSerializer, stringSerializer, (short) 4, 100);
+        BTreePersistentIndexedCache<String, String> cache = new BTreePersistentIndexedCache<String, String>(cacheFile, stringSerializer, stringSerializer, (short) 4, 100, createStore(cacheFile));
 
         cache.put("key_1", "abcd");
         cache.put("key_2", "abcd");
@@ -220,7 +224,7 @@ public class BTreePersistentIndexedCacheTest {
         cacheFile.assertIsFile();
         cacheFile.write("some junk");
 
-        BTreePersistentIndexedCache<String, Integer> cache = new BTreePersistentIndexedCache<String, Integer>(cacheFile, stringSerializer, integerSerializer);
+        BTreePersistentIndexedCache<String, Integer> cache = new BTreePersistentIndexedCache<String, Integer>(cacheFile, stringSerializer, integerSerializer, createStore(cacheFile));
 
         assertNull(cache.get("key_1"));
         cache.put("key_1", 99);
@@ -236,7 +240,7 @@ public class BTreePersistentIndexedCacheTest {
 
     @Test
     public void canUseFileAsKey() {
-        BTreePersistentIndexedCache<File, Integer> cache = new BTreePersistentIndexedCache<File, Integer>(cacheFile, new DefaultSerializer<File>(), integerSerializer);
+        BTreePersistentIndexedCache<File, Integer> cache = new BTreePersistentIndexedCache<File, Integer>(cacheFile, new DefaultSerializer<File>(), integerSerializer, createStore(cacheFile));
 
         cache.put(new File("file"), 1);
         cache.put(new File("dir/file"), 2);
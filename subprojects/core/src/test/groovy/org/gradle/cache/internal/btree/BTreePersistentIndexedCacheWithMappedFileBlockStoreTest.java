@@ -0,0 +1,89 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.cache.internal.btree;
+
+import org.gradle.messaging.serialize.DefaultSerializer;
+import org.gradle.messaging.serialize.Serializer;
+import org.gradle.test.fixtures.file.TestFile;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class BTreePersistentIndexedCacheWithMappedFileBlockStoreTest extends BTreePersistentIndexedCacheTest {
+    private final Serializer<String> stringSerializer = new DefaultSerializer<String>();
+
+    @Override
+    protected BlockStore createStore(File cacheFile) {
+        // Use small chunks, so that blocks are read from mapped chunks, from the unmapped end of the file and across chunk boundaries
+        return new MappedFileBlockStore(cacheFile, 256);
+    }
+
+    @Test
+    public void canReadAndUpdateFileWrittenByFileBackedBlockStore() {
+        TestFile cacheFile = tmpDir.file("other.bin");
+        BTreePersistentIndexedCache<String, String> cache = open(cacheFile, new FileBackedBlockStore(cacheFile));
+        for (int i = 0; i < 20; i++) {
+            cache.put("key_" + i, "value_" + i);
+        }
+        cache.close();
+
+        cache = open(cacheFile, createStore(cacheFile));
+        for (int i = 0; i < 20; i++) {
+            assertThat(cache.get("key_" + i), equalTo("value_" + i));
+        }
+        cache.put("key_0", "new value");
+        cache.put("key_20", "value_20");
+        cache.verify();
+        cache.close();
+
+        cache = open(cacheFile, new FileBackedBlockStore(cacheFile));
+        assertThat(cache.get("key_0"), equalTo("new value"));
+        assertThat(cache.get("key_20"), equalTo("value_20"));
+        cache.verify();
+        cache.close();
+    }
+
+    @Test
+    public void canReopenAndRecreateFileAfterReadingFromMappedChunks() {
+        TestFile cacheFile = tmpDir.file("mapped.bin");
+        BTreePersistentIndexedCache<String, String> cache = open(cacheFile, createStore(cacheFile));
+        for (int i = 0; i < 100; i++) {
+            cache.put("key_" + i, "value_" + i);
+        }
+        for (int i = 0; i < 100; i++) {
+            assertThat(cache.get("key_" + i), equalTo("value_" + i));
+        }
+        cache.reset();
+        assertThat(cache.get("key_50"), equalTo("value_50"));
+        cache.close();
+
+        assertThat(cacheFile.delete(), equalTo(true));
+
+        cache = open(cacheFile, createStore(cacheFile));
+        cache.put("key_0", "new value");
+        assertThat(cache.get("key_0"), equalTo("new value"));
+        assertThat(cache.get("key_1"), equalTo(null));
+        cache.verify();
+        cache.close();
+    }
+
+    private BTreePersistentIndexedCache<String, String> open(File cacheFile, BlockStore store) {
+        return new BTreePersistentIndexedCache<String, String>(cacheFile, stringSerializer, stringSerializer, (short) 4, 100, store);
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph
+
+import org.gradle.api.internal.TaskInternal
+import spock.lang.Specification
+
+class CriticalPathTest extends Specification {
+    def a = node('a')
+    def b = node('b')
+    def c = node('c')
+    def d = node('d')
+
+    private TaskInfo node(String name) {
+        def task = Mock(TaskInternal) {
+            getName() >> name
+            getPath() >> ":$name"
+            compareTo(_) >> { args -> name.compareTo(args[0].name) }
+        }
+        def node = new TaskInfo(task)
+        node.require()
+        return node
+    }
+
+    def "critical path is the longest chain of dependent tasks"() {
+        given:
+        c.addDependencySuccessor(a)
+        c.addMustSuccessor(b)
+        d.addDependencySuccessor(c)
+
+        when:
+        def path = CriticalPath.of([a, b, c, d], [(a): 10L, (b): 30L, (c): 5L, (d): 1L])
+
+        then:
+        path.tasks == [b, c, d]
+        path.duration == 36
+    }
+
+    def "critical path of independent tasks is the longest task"() {
+        when:
+        def path = CriticalPath.of([a, b, c], [(a): 10L, (b): 30L])
+
+        then:
+        path.tasks == [b]
+        path.duration == 30
+    }
+
+    def "critical path of empty plan is empty"() {
+        when:
+        def path = CriticalPath.of([], [:])
+
+        then:
+        path.tasks.empty
+        path.duration == 0
+    }
+
+    def "remaining duration of a task includes the longest chain of tasks waiting for it"() {
+        given:
+        b.addDependencySuccessor(a)
+        c.addDependencySuccessor(a)
+        d.addDependencySuccessor(c)
+
+        when:
+        def remaining = CriticalPath.remainingDurations([a, b, c, d], [(a): 10L, (b): 30L, (c): 5L, (d): 20L])
+
+        then:
+        remaining == [(a): 40L, (b): 30L, (c): 25L, (d): 20L]
+    }
+}
@@ -177,6 +177,27 @@ class DefaultTaskExecutionPlanParallelTaskHandlingTest extends Specification {
         requestedTasksBecomeAvailableForExecution()
     }
 
+    def "each waiting worker is given a task when several tasks become available at once"() {
+        given:
+        Task a = root.task("a", type: Parallel)
+        Task b = root.task("b", type: Parallel).dependsOn(a)
+        Task c = root.task("c", type: Parallel).dependsOn(a)
+
+        when:
+        addToGraphAndPopulate(b, c)
+        startTasks(1)
+
+        then:
+        noMoreTasksCurrentlyAvailableForExecution()
+        noMoreTasksCurrentlyAvailableForExecution()
+
+        when:
+        completeAllStartedTasks()
+
+        then:
+        requestedTasksBecomeAvailableForExecution()
+    }
+
     def "a parallelizable task with custom actions is not run in parallel"() {
         given:
         Task a = root.task("a", type: Parallel)
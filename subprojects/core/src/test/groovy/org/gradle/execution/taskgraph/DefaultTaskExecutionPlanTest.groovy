@@ -21,6 +21,7 @@ import org.gradle.api.CircularReferenceException
 import org.gradle.api.Task
 import org.gradle.api.internal.TaskInternal
 import org.gradle.api.internal.TaskOutputsInternal
+import org.gradle.api.internal.changedetection.state.TaskDurationRepository
 import org.gradle.api.internal.project.DefaultProject
 import org.gradle.api.internal.tasks.TaskStateInternal
 import org.gradle.api.specs.Spec
@@ -865,6 +866,50 @@ public class DefaultTaskExecutionPlanTest extends Specification {
         t3.task.project != t4.task.project
     }
 
+    def "starts tasks with the longest remaining critical path first when scheduling by critical path"() {
+        given:
+        def taskDurations = Mock(TaskDurationRepository)
+        executionPlan = new DefaultTaskExecutionPlan(cancellationHandler, false, taskDurations)
+        Task a = task("a")
+        Task b = task("b")
+        Task c = task("c", dependsOn: [b])
+        Task d = task("d")
+
+        when:
+        addToGraphAndPopulate([a, c, d])
+        def tasks = executedTasks
+
+        then:
+        tasks == [b, c, d, a]
+
+        and:
+        1 * taskDurations.getDurations({ it == [":a", ":b", ":c", ":d"] as Set }) >> [":a": 10L, ":b": 20L, ":c": 50L]
+    }
+
+    def "records durations of tasks that did work when scheduling by critical path"() {
+        given:
+        def taskDurations = Mock(TaskDurationRepository)
+        executionPlan = new DefaultTaskExecutionPlan(cancellationHandler, false, taskDurations)
+        Task a = task("a")
+        Task b = task("b")
+        b.state.skipped >> true
+        addToGraphAndPopulate([a, b])
+
+        when:
+        def tasks = executedTasks
+        executionPlan.awaitCompletion()
+
+        then:
+        tasks == [a, b]
+
+        and:
+        1 * taskDurations.getDurations(_) >> [:]
+        1 * taskDurations.recordDurations({ it.keySet() == [":a"] as Set }) >> {
+            // The durations are written without holding the plan lock
+            assert !executionPlan.lock.heldByCurrentThread
+        }
+    }
+
     void executes(Task... expectedTasks) {
         assert executionPlan.tasks == expectedTasks as List
         assert expectedTasks == expectedTasks as List
@@ -20,6 +20,7 @@ import org.gradle.api.BuildCancelledException
 import org.gradle.api.Task
 import org.gradle.api.internal.TaskInternal
 import org.gradle.api.internal.TaskOutputsInternal
+import org.gradle.api.internal.changedetection.state.TaskDurationRepository
 import org.gradle.api.internal.tasks.TaskStateInternal
 import org.gradle.api.tasks.TaskDependency
 import org.gradle.initialization.BuildCancellationToken
@@ -34,7 +35,7 @@ class DefaultTaskGraphExecuterSpec extends Specification {
     def listenerManager = Stub(ListenerManager) {
         _ * createAnonymousBroadcaster(_) >> { Class cl -> new ListenerBroadcast(cl) }
     }
-    def taskExecuter = new DefaultTaskGraphExecuter(listenerManager, new DefaultTaskPlanExecutor(), cancellationToken)
+    def taskExecuter = new DefaultTaskGraphExecuter(listenerManager, new DefaultTaskPlanExecutor(), cancellationToken, Stub(TaskDurationRepository))
 
     def "stops running tasks and fails with exception when build is cancelled"() {
         def a = task("a")
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph
+
+import org.gradle.api.internal.TaskInternal
+import spock.lang.Specification
+
+class OutputPathIndexTest extends Specification {
+    def index = new OutputPathIndex('/' as char)
+    def a = Mock(TaskInternal)
+    def b = Mock(TaskInternal)
+
+    def "finds no overlap when no paths are claimed"() {
+        expect:
+        index.empty
+        index.findOverlap("/build/out") == null
+    }
+
+    def "finds overlap with same path"() {
+        given:
+        index.add(a, "/build/out")
+
+        when:
+        def overlap = index.findOverlap("/build/out")
+
+        then:
+        overlap.left == a
+        overlap.right == "/build/out"
+    }
+
+    def "finds overlap with claimed ancestor"() {
+        given:
+        index.add(a, "/build/out")
+
+        when:
+        def overlap = index.findOverlap("/build/out/classes/Foo.class")
+
+        then:
+        overlap.left == a
+        overlap.right == "/build/out"
+    }
+
+    def "finds overlap with claimed descendant"() {
+        given:
+        index.add(a, "/build/other")
+        index.add(b, "/build/out/classes/Foo.class")
+
+        when:
+        def overlap = index.findOverlap("/build/out")
+
+        then:
+        overlap.left == b
+        overlap.right == "/build/out"
+    }
+
+    def "paths sharing a name prefix do not overlap"() {
+        given:
+        index.add(a, "/build/out")
+        index.add(b, "/build/output/file")
+
+        expect:
+        index.findOverlap("/build/outputs") == null
+        index.findOverlap("/build/ou") == null
+        index.findOverlap("/build/other/out") == null
+    }
+
+    def "removed paths no longer overlap"() {
+        given:
+        index.add(a, "/build/out")
+        index.add(b, "/build/out/classes")
+
+        when:
+        index.remove(b, "/build/out/classes")
+
+        then:
+        index.findOverlap("/build/out/classes").left == a
+
+        when:
+        index.remove(a, "/build/out")
+
+        then:
+        index.empty
+        index.findOverlap("/build/out/classes") == null
+        index.findOverlap("/build") == null
+    }
+
+    def "path remains claimed until removed by all tasks claiming it"() {
+        given:
+        index.add(a, "/build/out")
+        index.add(b, "/build/out")
+
+        when:
+        index.remove(a, "/build/out")
+
+        then:
+        index.findOverlap("/build").left == b
+
+        when:
+        index.remove(a, "/build/out")
+        index.remove(b, "/build/out")
+
+        then:
+        index.empty
+    }
+}
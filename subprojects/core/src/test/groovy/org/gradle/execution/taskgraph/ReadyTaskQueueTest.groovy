@@ -0,0 +1,149 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph
+
+import org.gradle.api.internal.TaskInternal
+import spock.lang.Specification
+
+class ReadyTaskQueueTest extends Specification {
+    def a = node('a')
+    def b = node('b')
+    def c = node('c')
+    def d = node('d')
+
+    private TaskInfo node(String name) {
+        def task = Mock(TaskInternal) {
+            getName() >> name
+            compareTo(_) >> { args -> name.compareTo(args[0].name) }
+        }
+        def node = new TaskInfo(task)
+        node.require()
+        return node
+    }
+
+    def "tasks without incomplete dependencies are ready in plan order"() {
+        given:
+        c.addDependencySuccessor(a)
+
+        when:
+        def queue = new ReadyTaskQueue([b, a, c])
+
+        then:
+        queue as List == [b, a]
+        queue.takeNewlyReadyCount() == 2
+        queue.takeNewlyReadyCount() == 0
+        !queue.allComplete
+    }
+
+    def "task becomes ready when its dependencies complete"() {
+        given:
+        c.addDependencySuccessor(a)
+        c.addMustSuccessor(b)
+        def queue = new ReadyTaskQueue([a, b, c])
+        queue.takeNewlyReadyCount()
+
+        when:
+        start(queue, a)
+        start(queue, b)
+
+        then:
+        queue.empty
+
+        when:
+        finish(queue, a)
+
+        then:
+        queue.empty
+        queue.takeNewlyReadyCount() == 0
+
+        when:
+        finish(queue, b)
+
+        then:
+        queue as List == [c]
+        queue.takeNewlyReadyCount() == 1
+    }
+
+    def "skipped task completes its dependents' dependencies"() {
+        given:
+        b.addDependencySuccessor(a)
+        def queue = new ReadyTaskQueue([a, b])
+
+        when:
+        a.skipExecution()
+        queue.stateChanged(a)
+
+        then:
+        queue as List == [b]
+
+        when:
+        b.skipExecution()
+        queue.stateChanged(b)
+
+        then:
+        queue.empty
+        queue.allComplete
+    }
+
+    def "task that must not run does not hold back its dependents until it is enforced"() {
+        given:
+        d.mustNotRun()
+        c.addMustSuccessor(d)
+        d.addMustSuccessor(a)
+        def queue = new ReadyTaskQueue([a, d, c])
+
+        expect:
+        queue as List == [a, c]
+
+        when:
+        d.enforceRun()
+        queue.stateChanged(d)
+
+        then:
+        queue as List == [a]
+
+        when:
+        start(queue, a)
+        finish(queue, a)
+
+        then:
+        queue as List == [d]
+    }
+
+    def "ignores tasks that are not part of the plan"() {
+        given:
+        b.addDependencySuccessor(a)
+        a.doNotRequire()
+
+        when:
+        def queue = new ReadyTaskQueue([b])
+        queue.stateChanged(a)
+
+        then:
+        queue as List == [b]
+    }
+
+    private static void start(ReadyTaskQueue queue, TaskInfo node) {
+        node.startExecution()
+        queue.stateChanged(node)
+    }
+
+    private static void finish(ReadyTaskQueue queue, TaskInfo node) {
+        node.finishExecution()
+        queue.stateChanged(node)
+    }
+}
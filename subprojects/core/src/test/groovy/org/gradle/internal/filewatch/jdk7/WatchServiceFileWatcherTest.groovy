@@ -0,0 +1,169 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.filewatch.jdk7
+
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.util.Requires
+import org.gradle.util.TestPrecondition
+import org.junit.Rule
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+@Requires([TestPrecondition.JDK7_OR_LATER, TestPrecondition.LINUX])
+class WatchServiceFileWatcherTest extends Specification {
+    @Rule TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def watcher = new WatchServiceFileWatcher(2)
+    def conditions = new PollingConditions(timeout: 10)
+
+    def cleanup() {
+        watcher.stop()
+    }
+
+    def "directory is unchanged until an entry changes"() {
+        given:
+        def dir = tmpDir.createDir("dir")
+        def file = dir.createFile("file")
+        watcher.watch(dir)
+        def mark = watcher.mark()
+
+        expect:
+        !watcher.isChangedSince(dir, mark)
+
+        when:
+        file.text = "changed"
+
+        then:
+        conditions.eventually {
+            assert watcher.isChangedSince(dir, mark)
+        }
+    }
+
+    def "directory that is not watched is always changed"() {
+        given:
+        def dir = tmpDir.createDir("dir")
+        def other = tmpDir.createDir("other")
+        watcher.watch(dir)
+
+        expect:
+        watcher.isChangedSince(other, watcher.mark())
+    }
+
+    def "directory watched after the mark is changed"() {
+        given:
+        def dir = tmpDir.createDir("dir")
+        def mark = watcher.mark()
+        watcher.watch(dir)
+
+        expect:
+        watcher.isChangedSince(dir, mark)
+        !watcher.isChangedSince(dir, watcher.mark())
+    }
+
+    def "cannot watch missing directory"() {
+        expect:
+        !watcher.watch(tmpDir.file("missing"))
+    }
+
+    def "stops watching least recently used directory when the maximum number of directories is watched"() {
+        given:
+        def a = tmpDir.createDir("a")
+        def b = tmpDir.createDir("b")
+        def c = tmpDir.createDir("c")
+        watcher.watch(a)
+        watcher.watch(b)
+        watcher.watch(a)
+        def mark = watcher.mark()
+
+        when:
+        def watched = watcher.watch(c)
+
+        then:
+        watched
+        !watcher.isChangedSince(a, mark)
+        watcher.isChangedSince(b, mark)
+        !watcher.isChangedSince(c, watcher.mark())
+    }
+
+    def "directory is changed once it is no longer watched"() {
+        given:
+        def dir = tmpDir.createDir("dir")
+        watcher.watch(dir)
+        def mark = watcher.mark()
+
+        when:
+        watcher.unwatch(dir)
+
+        then:
+        watcher.isChangedSince(dir, mark)
+        watcher.isChangedSince(dir, watcher.mark())
+    }
+
+    def "invalidated file changes its parent and everything under it"() {
+        given:
+        def parent = tmpDir.createDir("parent")
+        def dir = parent.createDir("dir")
+        def child = dir.createDir("child")
+        watcher.watch(parent)
+        watcher.watch(child)
+        def mark = watcher.mark()
+
+        when:
+        watcher.invalidate(dir)
+
+        then:
+        watcher.isChangedSince(parent, mark)
+        watcher.isChangedSince(child, mark)
+        !watcher.isChangedSince(child, watcher.mark())
+    }
+
+    def "directory is changed since a mark before the discarded invalidations"() {
+        given:
+        def parent = tmpDir.createDir("parent")
+        def dir = parent.createDir("dir")
+        watcher.watch(dir)
+        def before = watcher.mark()
+        watcher.invalidate(parent)
+        def after = watcher.mark()
+
+        expect:
+        watcher.isChangedSince(dir, before)
+        !watcher.isChangedSince(dir, after)
+
+        when:
+        watcher.discardInvalidationsBefore(after)
+
+        then:
+        watcher.invalidated.isEmpty()
+        watcher.isChangedSince(dir, before)
+        !watcher.isChangedSince(dir, after)
+    }
+
+    def "deleted directory is no longer watched"() {
+        given:
+        def dir = tmpDir.createDir("dir")
+        dir.createFile("file")
+        watcher.watch(dir)
+
+        when:
+        dir.deleteDir()
+
+        then:
+        conditions.eventually {
+            assert watcher.isChangedSince(dir, watcher.mark())
+        }
+    }
+}
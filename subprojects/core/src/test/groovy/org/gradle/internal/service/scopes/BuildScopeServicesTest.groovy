@@ -49,6 +49,7 @@ import org.gradle.model.internal.inspect.ModelRuleSourceDetector
 import org.gradle.plugin.use.internal.PluginRequestApplicator
 import org.gradle.process.internal.DefaultWorkerProcessFactory
 import org.gradle.process.internal.WorkerProcessBuilder
+import org.gradle.process.internal.WorkerProcessPool
 import org.gradle.profile.ProfileEventAdapter
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.junit.Rule
@@ -217,6 +218,7 @@ public class BuildScopeServicesTest extends Specification {
     def providesAWorkerProcessFactory() {
         setup:
         expectParentServiceLocated(MessagingServer)
+        expectParentServiceLocated(WorkerProcessPool)
 
         expect:
         assertThat(registry.getFactory(WorkerProcessBuilder), instanceOf(DefaultWorkerProcessFactory))
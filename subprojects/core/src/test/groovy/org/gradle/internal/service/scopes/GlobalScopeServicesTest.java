@@ -48,6 +48,7 @@ import org.gradle.logging.ProgressLoggerFactory;
 import org.gradle.logging.internal.DefaultLoggingManagerFactory;
 import org.gradle.logging.internal.DefaultProgressLoggerFactory;
 import org.gradle.messaging.remote.MessagingServer;
+import org.gradle.process.internal.WorkerProcessPool;
 import org.junit.Test;
 import spock.lang.Shared;
 
@@ -125,6 +126,11 @@ public class GlobalScopeServicesTest {
         assertThat(registry.get(MessagingServer.class), instanceOf(MessagingServer.class));
     }
 
+    @Test
+    public void providesAWorkerProcessPool() {
+        assertThat(registry.get(WorkerProcessPool.class), instanceOf(WorkerProcessPool.class));
+    }
+
     @Test
     public void providesAClassGenerator() {
         assertThat(registry.get(ClassGenerator.class), instanceOf(AsmBackedClassGenerator.class));
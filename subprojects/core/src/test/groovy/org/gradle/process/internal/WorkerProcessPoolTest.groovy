@@ -0,0 +1,247 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.process.internal
+
+import org.gradle.api.Action
+import org.gradle.api.internal.ClassPathRegistry
+import org.gradle.api.internal.file.FileResolver
+import org.gradle.api.internal.file.TestFiles
+import org.gradle.internal.Factory
+import org.gradle.messaging.remote.ConnectionAcceptor
+import org.gradle.messaging.remote.MessagingServer
+import org.gradle.messaging.remote.ObjectConnection
+import org.gradle.messaging.remote.internal.inet.SocketInetAddress
+import org.gradle.process.ExecResult
+import org.gradle.process.internal.child.WorkerHostListener
+import org.gradle.process.internal.child.WorkerHostProtocol
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.util.SetSystemProperties
+import org.junit.Rule
+import spock.lang.Specification
+
+class WorkerProcessPoolTest extends Specification {
+    @Rule
+    public final SetSystemProperties systemProperties = new SetSystemProperties()
+    @Rule
+    public final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+
+    final hostFactory = Mock(Factory)
+    final server = Mock(MessagingServer)
+    final pool = new WorkerProcessPool(hostFactory, server, Mock(ClassPathRegistry), 2)
+    final List<Host> hosts = []
+    final List<Action<ObjectConnection>> acceptActions = []
+
+    def setup() {
+        _ * server.accept(_) >> { Action<ObjectConnection> action ->
+            acceptActions << action
+            def address = new SocketInetAddress(InetAddress.getByName("localhost"), 1234)
+            [getAddress: { address }, requestStop: {}, stop: {}] as ConnectionAcceptor
+        }
+        _ * hostFactory.create() >> {
+            def host = new Host()
+            hosts << host
+            host.builder
+        }
+    }
+
+    def "runs workers with the same JVM options in the same host"() {
+        when:
+        run(worker("-Xmx64m"))
+        run(worker("-Xmx64m"))
+
+        then:
+        hosts.size() == 1
+        hosts[0].runs == 2
+        hosts[0].builder.javaCommand.allJvmArgs.contains("-Xmx64m")
+    }
+
+    def "runs workers with different JVM options in different hosts"() {
+        when:
+        run(worker("-Xmx64m"))
+        run(worker("-Xmx128m"))
+        run(worker("-Xmx64m"))
+
+        then:
+        hosts.size() == 2
+        hosts*.runs == [2, 1]
+    }
+
+    def "retires host after the maximum number of runs"() {
+        System.setProperty(WorkerProcessPool.MAX_RUNS_PROPERTY, "2")
+
+        when:
+        3.times { run(worker("-Xmx64m")) }
+
+        then:
+        hosts*.runs == [2, 1]
+        hosts[0].stopped
+        hosts[0].waitedForStop
+        !hosts[1].stopped
+    }
+
+    def "retires host whose heap has grown too much"() {
+        when:
+        run(worker("-Xmx64m"), 10)
+        run(worker("-Xmx64m"), 30)
+        run(worker("-Xmx64m"), 36)
+        run(worker("-Xmx64m"), 10)
+
+        then:
+        hosts*.runs == [3, 1]
+        hosts[0].stopped
+    }
+
+    def "does not reuse host when worker fails"() {
+        when:
+        def process = worker("-Xmx64m")
+        process.start()
+        hosts[0].complete(10, "broken")
+        process.waitForStop()
+
+        then:
+        def e = thrown(ExecException)
+        e.message == "Test Worker 1 failed: broken"
+        hosts[0].stopped
+
+        when:
+        run(worker("-Xmx64m"))
+
+        then:
+        hosts.size() == 2
+    }
+
+    def "fails worker when host stops while running it"() {
+        when:
+        def process = worker("-Xmx64m")
+        process.start()
+        hosts[0].stopProcess(3)
+        process.waitForStop()
+
+        then:
+        thrown(ExecException)
+    }
+
+    def "keeps a limited number of idle hosts"() {
+        when:
+        def processes = (1..3).collect { worker("-Xmx64m") }
+        processes*.start()
+        hosts.each { it.complete(10, null) }
+        processes*.waitForStop()
+
+        then:
+        hosts.size() == 3
+        hosts*.stopped == [true, false, false]
+    }
+
+    def "stops idle hosts when stopped"() {
+        given:
+        run(worker("-Xmx64m"))
+        run(worker("-Xmx128m"))
+
+        when:
+        pool.stop()
+
+        then:
+        hosts*.stopped == [true, true]
+
+        when:
+        worker("-Xmx64m").start()
+
+        then:
+        thrown(IllegalStateException)
+    }
+
+    private int workerCount
+
+    private WorkerProcess worker(String... jvmArgs) {
+        def builder = new TestWorkerProcessBuilder(TestFiles.resolver(tmpDir.testDirectory))
+        builder.worker(new TestAction())
+        builder.javaCommand.jvmArgs(jvmArgs)
+        workerCount++
+        pool.createWorkerProcess(builder, workerCount, "Test Worker $workerCount", [])
+    }
+
+    private void run(WorkerProcess process, long usedHeap = 10) {
+        process.start()
+        hosts.find { it.running }.complete(usedHeap, null)
+        process.waitForStop()
+    }
+
+    private class Host {
+        final builder = new TestWorkerProcessBuilder(TestFiles.resolver(tmpDir.testDirectory))
+        WorkerHostListener listener
+        int runs
+        boolean running
+        boolean stopped
+        boolean waitedForStop
+        final WorkerHostProtocol protocol = [
+                run: { byte[] worker ->
+                    runs++
+                    running = true
+                    acceptActions.remove(0).execute([stop: {}, requestStop: {}] as ObjectConnection)
+                },
+                stop: { stopped = true }
+        ] as WorkerHostProtocol
+        final ObjectConnection connection = [
+                addIncoming: { Class type, Object instance -> listener = instance },
+                addOutgoing: { Class type -> protocol },
+                connect: {}
+        ] as ObjectConnection
+        final WorkerProcess process = [
+                start: {},
+                getConnection: { connection },
+                waitForStop: { waitedForStop = true; null }
+        ] as WorkerProcess
+
+        Host() {
+            builder.buildAction = { process }
+        }
+
+        void complete(long usedHeap, String failure) {
+            running = false
+            listener.runCompleted(usedHeap * 1024 * 1024, 100 * 1024 * 1024, failure)
+        }
+
+        void stopProcess(int exitValue) {
+            running = false
+            ExecResult result
+            result = [
+                    rethrowFailure: { result },
+                    assertNormalExitValue: { throw new ExecException("exit value $exitValue") }
+            ] as ExecResult
+            (listener as ExecHandleListener).executionFinished(null, result)
+        }
+    }
+
+    private static class TestWorkerProcessBuilder extends WorkerProcessBuilder {
+        Closure<WorkerProcess> buildAction
+
+        TestWorkerProcessBuilder(FileResolver resolver) {
+            super(resolver)
+        }
+
+        @Override
+        WorkerProcess build() {
+            buildAction.call()
+        }
+    }
+
+    private static class TestAction implements Action<WorkerProcessContext>, Serializable {
+        void execute(WorkerProcessContext context) {
+        }
+    }
+}
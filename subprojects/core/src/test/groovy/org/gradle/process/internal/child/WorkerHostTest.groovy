@@ -0,0 +1,107 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.process.internal.child
+
+import org.gradle.messaging.remote.ObjectConnection
+import org.gradle.process.internal.WorkerProcessContext
+import org.gradle.util.GUtil
+import org.gradle.util.SetSystemProperties
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.concurrent.Callable
+
+class WorkerHostTest extends Specification {
+    @Rule
+    public final SetSystemProperties systemProperties = new SetSystemProperties()
+
+    final connection = Mock(ObjectConnection)
+    final listener = Mock(WorkerHostListener)
+    final context = Stub(WorkerProcessContext) {
+        getServerConnection() >> connection
+    }
+    final host = new WorkerHost()
+
+    def setup() {
+        SetPropertyWorker.values.clear()
+    }
+
+    def "runs each worker it receives until stopped"() {
+        when:
+        host.execute(context)
+
+        then:
+        1 * connection.addIncoming(WorkerHostProtocol, host)
+        1 * connection.addOutgoing(WorkerHostListener) >> listener
+        1 * connection.connect() >> {
+            host.run(GUtil.serialize(new SetPropertyWorker(value: "1")))
+            host.run(GUtil.serialize(new SetPropertyWorker(value: "2")))
+            host.stop()
+        }
+        2 * listener.runCompleted({ it > 0 }, { it > 0 }, null)
+        SetPropertyWorker.values == ["1", "2"]
+    }
+
+    def "restores system properties after each run"() {
+        System.setProperty("org.gradle.test.value", "original")
+
+        when:
+        host.execute(context)
+
+        then:
+        1 * connection.addOutgoing(WorkerHostListener) >> listener
+        1 * connection.connect() >> {
+            host.run(GUtil.serialize(new SetPropertyWorker(value: "changed")))
+            host.stop()
+        }
+        System.getProperty("org.gradle.test.value") == "original"
+    }
+
+    def "reports failure of a worker and carries on"() {
+        when:
+        host.execute(context)
+
+        then:
+        1 * connection.addOutgoing(WorkerHostListener) >> listener
+        1 * connection.connect() >> {
+            host.run(GUtil.serialize(new BrokenWorker()))
+            host.run(GUtil.serialize(new SetPropertyWorker(value: "1")))
+            host.stop()
+        }
+        1 * listener.runCompleted(_, _, "java.lang.RuntimeException: broken")
+
+        then:
+        1 * listener.runCompleted(_, _, null)
+    }
+
+    static class SetPropertyWorker implements Callable<Void>, Serializable {
+        static List<String> values = []
+        String value
+
+        Void call() {
+            values << value
+            System.setProperty("org.gradle.test.value", value)
+            null
+        }
+    }
+
+    static class BrokenWorker implements Callable<Void>, Serializable {
+        Void call() {
+            throw new RuntimeException("broken")
+        }
+    }
+}
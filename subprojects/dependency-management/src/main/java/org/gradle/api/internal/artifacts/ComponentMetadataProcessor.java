@@ -19,4 +19,6 @@ import org.gradle.internal.component.external.model.MutableModuleComponentResolv
 
 public interface ComponentMetadataProcessor {
     void processMetadata(MutableModuleComponentResolveMetaData metadata);
+
+    boolean hasRules();
 }
@@ -16,21 +16,31 @@
 
 package org.gradle.api.internal.artifacts;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import org.gradle.api.artifacts.ModuleIdentifier;
 
+/**
+ * Identifiers created by {@link #newId(String, String)} are interned, so that the many identifiers for the same module created while resolving
+ * dependencies, or read back from resolution results, are the same instance and are cheap to compare and to use as keys.
+ */
 public class DefaultModuleIdentifier implements ModuleIdentifier {
+    private static final Interner<DefaultModuleIdentifier> IDENTIFIERS = Interners.newWeakInterner();
+
     private final String group;
     private final String name;
+    private final int hashCode;
 
     public DefaultModuleIdentifier(String group, String name) {
         assert group != null : "group cannot be null";
         assert name != null : "name cannot be null";
         this.group = group;
         this.name = name;
+        this.hashCode = group.hashCode() ^ name.hashCode();
     }
 
-    public static ModuleIdentifier newId(String group, String name) {
-        return new DefaultModuleIdentifier(group, name);
+    public static DefaultModuleIdentifier newId(String group, String name) {
+        return IDENTIFIERS.intern(new DefaultModuleIdentifier(group, name));
     }
 
     public String getGroup() {
@@ -55,6 +65,9 @@ public class DefaultModuleIdentifier implements ModuleIdentifier {
             return false;
         }
         DefaultModuleIdentifier other = (DefaultModuleIdentifier) obj;
+        if (hashCode != other.hashCode) {
+            return false;
+        }
         if (!group.equals(other.group)) {
             return false;
         }
@@ -66,6 +79,6 @@ public class DefaultModuleIdentifier implements ModuleIdentifier {
 
     @Override
     public int hashCode() {
-        return group.hashCode() ^ name.hashCode();
+        return hashCode;
     }
 }
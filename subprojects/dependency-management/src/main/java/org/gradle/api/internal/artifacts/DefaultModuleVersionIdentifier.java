@@ -15,16 +15,25 @@
  */
 package org.gradle.api.internal.artifacts;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
 import org.gradle.api.artifacts.Module;
 import org.gradle.api.artifacts.ModuleIdentifier;
 import org.gradle.api.artifacts.ModuleVersionIdentifier;
 import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
 
+/**
+ * Identifiers created by the {@code newId()} methods are interned, so that the many identifiers for the same module version created while resolving
+ * dependencies, or read back from resolution results, are the same instance and are cheap to compare and to use as keys. The module identifier of
+ * an interned identifier is also interned.
+ */
 public class DefaultModuleVersionIdentifier implements ModuleVersionIdentifier {
+    private static final Interner<DefaultModuleVersionIdentifier> IDENTIFIERS = Interners.newWeakInterner();
 
     private final DefaultModuleIdentifier id;
     private final String version;
+    private final int hashCode;
 
     public DefaultModuleVersionIdentifier(String group, String name, String version) {
         assert group != null : "group cannot be null";
@@ -32,11 +41,14 @@ public class DefaultModuleVersionIdentifier implements ModuleVersionIdentifier {
         assert version != null : "version cannot be null";
         this.id = new DefaultModuleIdentifier(group, name);
         this.version = version;
+        this.hashCode = this.id.hashCode() ^ version.hashCode();
     }
 
     public DefaultModuleVersionIdentifier(ModuleIdentifier id, String version) {
-        this.id = new DefaultModuleIdentifier(id.getGroup(), id.getName());
+        assert version != null : "version cannot be null";
+        this.id = id instanceof DefaultModuleIdentifier ? (DefaultModuleIdentifier) id : new DefaultModuleIdentifier(id.getGroup(), id.getName());
         this.version = version;
+        this.hashCode = this.id.hashCode() ^ version.hashCode();
     }
 
     public String getGroup() {
@@ -65,6 +77,9 @@ public class DefaultModuleVersionIdentifier implements ModuleVersionIdentifier {
             return false;
         }
         DefaultModuleVersionIdentifier other = (DefaultModuleVersionIdentifier) obj;
+        if (hashCode != other.hashCode) {
+            return false;
+        }
         if (!id.equals(other.id)) {
             return false;
         }
@@ -76,7 +91,7 @@ public class DefaultModuleVersionIdentifier implements ModuleVersionIdentifier {
 
     @Override
     public int hashCode() {
-        return id.hashCode() ^ version.hashCode();
+        return hashCode;
     }
 
     public ModuleIdentifier getModule() {
@@ -84,18 +99,18 @@ public class DefaultModuleVersionIdentifier implements ModuleVersionIdentifier {
     }
 
     public static ModuleVersionIdentifier newId(Module module) {
-        return new DefaultModuleVersionIdentifier(module.getGroup(), module.getName(), module.getVersion());
+        return newId(module.getGroup(), module.getName(), module.getVersion());
     }
 
     public static ModuleVersionIdentifier newId(String group, String name, String version) {
-        return new DefaultModuleVersionIdentifier(group, name, version);
+        return IDENTIFIERS.intern(new DefaultModuleVersionIdentifier(DefaultModuleIdentifier.newId(group, name), version));
     }
 
     public static ModuleVersionIdentifier newId(ModuleRevisionId moduleRevisionId) {
-        return new DefaultModuleVersionIdentifier(moduleRevisionId.getOrganisation(), moduleRevisionId.getName(), moduleRevisionId.getRevision());
+        return newId(moduleRevisionId.getOrganisation(), moduleRevisionId.getName(), moduleRevisionId.getRevision());
     }
 
     public static ModuleVersionIdentifier newId(ModuleComponentIdentifier componentId) {
-        return new DefaultModuleVersionIdentifier(componentId.getGroup(), componentId.getModule(), componentId.getVersion());
+        return newId(componentId.getGroup(), componentId.getModule(), componentId.getVersion());
     }
 }
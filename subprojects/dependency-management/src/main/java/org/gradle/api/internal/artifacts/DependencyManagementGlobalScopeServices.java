@@ -23,6 +23,7 @@ import org.gradle.api.internal.artifacts.ivyservice.IvyContextManager;
 import org.gradle.api.internal.artifacts.ivyservice.LocalComponentFactory;
 import org.gradle.api.internal.artifacts.ivyservice.moduleconverter.*;
 import org.gradle.api.internal.artifacts.ivyservice.moduleconverter.dependencies.*;
+import org.gradle.internal.resource.transport.http.HttpConnectionPool;
 
 class DependencyManagementGlobalScopeServices {
     IvyContextManager createIvyContextManager() {
@@ -37,6 +38,10 @@ class DependencyManagementGlobalScopeServices {
         return new DefaultComponentIdentifierFactory();
     }
 
+    HttpConnectionPool createHttpConnectionPool() {
+        return new HttpConnectionPool();
+    }
+
     ExternalModuleIvyDependencyDescriptorFactory createExternalModuleDependencyDescriptorFactory(ExcludeRuleConverter excludeRuleConverter) {
         return new ExternalModuleIvyDependencyDescriptorFactory(excludeRuleConverter);
     }
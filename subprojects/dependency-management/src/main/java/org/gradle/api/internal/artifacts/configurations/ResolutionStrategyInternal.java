@@ -50,6 +50,11 @@ public interface ResolutionStrategyInternal extends ResolutionStrategy {
      */
     Action<DependencyResolveDetailsInternal> getDependencyResolveRule();
 
+    /**
+     * @return whether any dependency resolve rules have been added, not counting the forced modules
+     */
+    boolean hasDependencyResolveRules();
+
     /**
      * @return the version selection rules object
      */
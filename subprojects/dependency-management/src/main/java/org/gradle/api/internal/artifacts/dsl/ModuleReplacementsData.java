@@ -21,4 +21,6 @@ import org.gradle.api.artifacts.ModuleIdentifier;
 
 public interface ModuleReplacementsData {
     @Nullable ModuleIdentifier getReplacementFor(ModuleIdentifier sourceModule);
+
+    boolean hasReplacements();
 }
@@ -15,6 +15,7 @@
  */
 package org.gradle.api.internal.artifacts.ivyservice;
 
+import org.gradle.api.Nullable;
 import org.gradle.api.artifacts.*;
 import org.gradle.internal.resolve.ArtifactResolveException;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.oldresult.ResolvedConfigurationResults;
@@ -32,11 +33,22 @@ public class DefaultLenientConfiguration implements LenientConfiguration {
     private CacheLockingManager cacheLockingManager;
     private final Configuration configuration;
     private ResolvedConfigurationResults results;
+    private final ParallelArtifactDownloader artifactDownloader;
 
     public DefaultLenientConfiguration(Configuration configuration, ResolvedConfigurationResults results, CacheLockingManager cacheLockingManager) {
+        this(configuration, results, cacheLockingManager, null);
+    }
+
+    /**
+     * @param artifactDownloader Used to download the artifacts of this configuration concurrently before their files are collected. May be null,
+     * in which case the artifacts are downloaded one after the other as their files are collected.
+     */
+    public DefaultLenientConfiguration(Configuration configuration, ResolvedConfigurationResults results, CacheLockingManager cacheLockingManager,
+                                       @Nullable ParallelArtifactDownloader artifactDownloader) {
         this.configuration = configuration;
         this.results = results;
         this.cacheLockingManager = cacheLockingManager;
+        this.artifactDownloader = artifactDownloader;
     }
 
     public boolean hasError() {
@@ -90,10 +102,11 @@ public class DefaultLenientConfiguration implements LenientConfiguration {
         final Set<ResolvedArtifact> allArtifacts = getAllArtifacts(dependencySpec);
         return cacheLockingManager.useCache("retrieve artifacts from " + configuration, new Factory<Set<ResolvedArtifact>>() {
             public Set<ResolvedArtifact> create() {
+                final Map<ResolvedArtifact, RuntimeException> failures = download(allArtifacts);
                 return CollectionUtils.filter(allArtifacts, new Spec<ResolvedArtifact>() {
                     public boolean isSatisfiedBy(ResolvedArtifact element) {
                         try {
-                            File file = element.getFile();
+                            File file = getFile(element, failures);
                             return file != null;
                         } catch (ArtifactResolveException e) {
                             return false;
@@ -108,8 +121,9 @@ public class DefaultLenientConfiguration implements LenientConfiguration {
         final Set<File> files = new LinkedHashSet<File>();
         cacheLockingManager.useCache("resolve files from " + configuration, new Runnable() {
             public void run() {
+                Map<ResolvedArtifact, RuntimeException> failures = download(artifacts);
                 for (ResolvedArtifact artifact : artifacts) {
-                    File depFile = artifact.getFile();
+                    File depFile = getFile(artifact, failures);
                     if (depFile != null) {
                         files.add(depFile);
                     }
@@ -119,6 +133,24 @@ public class DefaultLenientConfiguration implements LenientConfiguration {
         return files;
     }
 
+    private Map<ResolvedArtifact, RuntimeException> download(Set<ResolvedArtifact> artifacts) {
+        if (artifactDownloader != null) {
+            return artifactDownloader.download(configuration, artifacts);
+        }
+        return Collections.emptyMap();
+    }
+
+    /**
+     * Returns the file of the given artifact, or rethrows the failure to download it concurrently, so that the download is not attempted again.
+     */
+    private File getFile(ResolvedArtifact artifact, Map<ResolvedArtifact, RuntimeException> failures) {
+        RuntimeException failure = failures.get(artifact);
+        if (failure != null) {
+            throw failure;
+        }
+        return artifact.getFile();
+    }
+
     /**
      * Recursive, includes unsuccessfully resolved artifacts
      *
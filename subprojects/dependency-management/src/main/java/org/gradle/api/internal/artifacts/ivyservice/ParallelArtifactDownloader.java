@@ -0,0 +1,124 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.StoppableExecutor;
+import org.gradle.logging.ProgressLogger;
+import org.gradle.logging.ProgressLoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Resolves the files of a set of artifacts on a bounded number of worker threads, so that the artifacts which are not cached yet are downloaded
+ * concurrently. Reports the number of artifacts done so far as the progress of a single operation.
+ *
+ * <p>Must be called from within a cache action. The cache lock is released while waiting for the workers, which take it for each artifact in
+ * the same way as a single thread resolving the files does.</p>
+ *
+ * <p>A failure to resolve an artifact is returned rather than thrown, so that the caller can report it in the usual way when it collects the
+ * files, without attempting to resolve the artifact again.</p>
+ */
+public class ParallelArtifactDownloader {
+    public static final String TOGGLE = "org.gradle.artifacts.parallelDownload";
+    public static final int DEFAULT_MAX_WORKERS = 8;
+
+    private final CacheLockingManager cacheLockingManager;
+    private final ExecutorFactory executorFactory;
+    private final ProgressLoggerFactory progressLoggerFactory;
+    private final int maxWorkers;
+
+    public ParallelArtifactDownloader(CacheLockingManager cacheLockingManager, ExecutorFactory executorFactory, ProgressLoggerFactory progressLoggerFactory, int maxWorkers) {
+        if (maxWorkers < 1) {
+            throw new IllegalArgumentException("Not a valid number of workers: " + maxWorkers);
+        }
+        this.cacheLockingManager = cacheLockingManager;
+        this.executorFactory = executorFactory;
+        this.progressLoggerFactory = progressLoggerFactory;
+        this.maxWorkers = maxWorkers;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(TOGGLE);
+    }
+
+    /**
+     * Resolves the files of the given artifacts.
+     *
+     * @return the failure to resolve each artifact which could not be resolved. Artifacts which were not attempted, because there are too few
+     * artifacts to resolve them concurrently, are not included.
+     */
+    public Map<ResolvedArtifact, RuntimeException> download(final Object owner, Collection<? extends ResolvedArtifact> artifacts) {
+        final List<ResolvedArtifact> queue = new ArrayList<ResolvedArtifact>(artifacts);
+        final int workerCount = Math.min(maxWorkers, queue.size());
+        if (workerCount < 2) {
+            return Collections.emptyMap();
+        }
+
+        final Map<ResolvedArtifact, RuntimeException> failures = new ConcurrentHashMap<ResolvedArtifact, RuntimeException>();
+
+        cacheLockingManager.longRunningOperation(String.format("Download artifacts for %s", owner), new Runnable() {
+            public void run() {
+                ProgressLogger progressLogger = progressLoggerFactory.newOperation(ParallelArtifactDownloader.class);
+                progressLogger.setDescription(String.format("Download artifacts for %s", owner));
+                progressLogger.started();
+                StoppableExecutor executor = executorFactory.create("Download artifacts");
+                try {
+                    final AtomicInteger nextArtifact = new AtomicInteger();
+                    final BlockingQueue<ResolvedArtifact> completed = new LinkedBlockingQueue<ResolvedArtifact>();
+                    for (int i = 0; i < workerCount; i++) {
+                        executor.execute(new Runnable() {
+                            public void run() {
+                                int index;
+                                while ((index = nextArtifact.getAndIncrement()) < queue.size()) {
+                                    ResolvedArtifact artifact = queue.get(index);
+                                    try {
+                                        artifact.getFile();
+                                    } catch (RuntimeException e) {
+                                        failures.put(artifact, e);
+                                    } finally {
+                                        completed.add(artifact);
+                                    }
+                                }
+                            }
+                        });
+                    }
+                    for (int done = 1; done <= queue.size(); done++) {
+                        completed.take();
+                        progressLogger.progress(String.format("%d/%d artifacts", done, queue.size()));
+                    }
+                } catch (InterruptedException e) {
+                    throw UncheckedException.throwAsUncheckedException(e);
+                } finally {
+                    executor.stop();
+                    progressLogger.completed();
+                }
+            }
+        });
+        return failures;
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.apache.ivy.Ivy;
+import org.gradle.api.Action;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.component.model.DependencyMetaData;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.StoppableExecutor;
+import org.gradle.internal.resolve.resolver.ComponentMetaDataPrefetcher;
+import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver;
+import org.gradle.internal.resolve.result.BuildableComponentResolveResult;
+import org.gradle.internal.resolve.result.DefaultBuildableComponentResolveResult;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link ComponentMetaDataResolver} which resolves the meta-data of the components it is asked to prefetch on a bounded number of worker threads,
+ * while the dependency graph is being traversed.
+ *
+ * <p>Each worker resolves against the delegate holding the cache lock, in the same way as {@link ContextualArtifactResolver} does. A thread which asks
+ * for meta-data that is still being prefetched waits for it as a long running operation, so that the worker can take the cache lock. Meta-data which
+ * has not been picked up by a worker yet is resolved by the asking thread itself.</p>
+ */
+public class PrefetchingComponentMetaDataResolver implements ComponentMetaDataResolver, ComponentMetaDataPrefetcher, Stoppable {
+    public static final String TOGGLE = "org.gradle.resolve.prefetch";
+    public static final int DEFAULT_MAX_WORKERS = 8;
+
+    private final ComponentMetaDataResolver delegate;
+    private final CacheLockingManager lockingManager;
+    private final IvyContextManager ivyContextManager;
+    private final ExecutorFactory executorFactory;
+    private final int maxWorkers;
+    private final Lock lock = new ReentrantLock();
+    private final Condition condition = lock.newCondition();
+    private final Map<ComponentIdentifier, Prefetch> prefetches = new HashMap<ComponentIdentifier, Prefetch>();
+    private final LinkedList<Prefetch> queue = new LinkedList<Prefetch>();
+    private StoppableExecutor executor;
+    private int workers;
+    private boolean stopped;
+
+    public PrefetchingComponentMetaDataResolver(ComponentMetaDataResolver delegate, CacheLockingManager lockingManager, IvyContextManager ivyContextManager,
+                                                ExecutorFactory executorFactory, int maxWorkers) {
+        if (maxWorkers < 1) {
+            throw new IllegalArgumentException("Not a valid number of workers: " + maxWorkers);
+        }
+        this.delegate = delegate;
+        this.lockingManager = lockingManager;
+        this.ivyContextManager = ivyContextManager;
+        this.executorFactory = executorFactory;
+        this.maxWorkers = maxWorkers;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(TOGGLE);
+    }
+
+    public void prefetch(DependencyMetaData dependency, ComponentIdentifier identifier) {
+        lock.lock();
+        try {
+            if (stopped || prefetches.containsKey(identifier)) {
+                return;
+            }
+            Prefetch prefetch = new Prefetch(dependency, identifier);
+            prefetches.put(identifier, prefetch);
+            queue.add(prefetch);
+            if (workers < maxWorkers) {
+                if (executor == null) {
+                    executor = executorFactory.create("Prefetch component meta-data");
+                }
+                workers++;
+                executor.execute(new Worker());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void resolve(DependencyMetaData dependency, ComponentIdentifier identifier, BuildableComponentResolveResult result) {
+        final Prefetch prefetch = takeStarted(dependency, identifier);
+        if (prefetch == null) {
+            delegate.resolve(dependency, identifier, result);
+            return;
+        }
+        if (!prefetch.isCompleted()) {
+            lockingManager.longRunningOperation(String.format("Wait for meta-data of %s", identifier), new Runnable() {
+                public void run() {
+                    prefetch.waitForCompletion();
+                }
+            });
+        }
+        prefetch.applyTo(result);
+    }
+
+    /**
+     * Removes the prefetch of the given component, and returns it if it has been started for the given dependency.
+     */
+    private Prefetch takeStarted(DependencyMetaData dependency, ComponentIdentifier identifier) {
+        lock.lock();
+        try {
+            Prefetch prefetch = prefetches.remove(identifier);
+            if (prefetch == null) {
+                return null;
+            }
+            if (queue.remove(prefetch) || prefetch.dependency != dependency) {
+                return null;
+            }
+            return prefetch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void stop() {
+        final StoppableExecutor executor;
+        lock.lock();
+        try {
+            stopped = true;
+            queue.clear();
+            executor = this.executor;
+        } finally {
+            lock.unlock();
+        }
+        if (executor != null) {
+            lockingManager.longRunningOperation("Stop prefetching component meta-data", new Runnable() {
+                public void run() {
+                    executor.stop();
+                }
+            });
+        }
+    }
+
+    private class Worker implements Runnable {
+        public void run() {
+            while (true) {
+                Prefetch prefetch;
+                lock.lock();
+                try {
+                    prefetch = queue.poll();
+                    if (prefetch == null) {
+                        workers--;
+                        return;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                prefetch.run();
+            }
+        }
+    }
+
+    private class Prefetch {
+        final DependencyMetaData dependency;
+        final ComponentIdentifier identifier;
+        final DefaultBuildableComponentResolveResult result = new DefaultBuildableComponentResolveResult();
+        Throwable failure;
+        boolean completed;
+
+        Prefetch(DependencyMetaData dependency, ComponentIdentifier identifier) {
+            this.dependency = dependency;
+            this.identifier = identifier;
+        }
+
+        void run() {
+            Throwable failure = null;
+            try {
+                lockingManager.useCache(String.format("Resolve %s", identifier), new Runnable() {
+                    public void run() {
+                        ivyContextManager.withIvy(new Action<Ivy>() {
+                            public void execute(Ivy ivy) {
+                                delegate.resolve(dependency, identifier, result);
+                            }
+                        });
+                    }
+                });
+            } catch (Throwable t) {
+                failure = t;
+            }
+            lock.lock();
+            try {
+                this.failure = failure;
+                completed = true;
+                condition.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean isCompleted() {
+            lock.lock();
+            try {
+                return completed;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void waitForCompletion() {
+            lock.lock();
+            try {
+                while (!completed) {
+                    condition.await();
+                }
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void applyTo(BuildableComponentResolveResult target) {
+            if (failure != null) {
+                throw UncheckedException.throwAsUncheckedException(failure);
+            }
+            result.applyTo(target);
+            if (!result.hasResult()) {
+                return;
+            }
+            if (result.getFailure() != null) {
+                target.failed(result.getFailure());
+            } else {
+                target.resolved(result.getMetaData());
+            }
+        }
+    }
+}
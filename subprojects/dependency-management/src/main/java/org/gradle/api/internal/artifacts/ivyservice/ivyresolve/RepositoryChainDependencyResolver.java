@@ -58,7 +58,7 @@ public class RepositoryChainDependencyResolver implements DependencyToComponentR
         ModuleVersionSelector requested = dependency.getRequested();
         LOGGER.debug("Attempting to resolve {} using repositories {}", requested, repositoryNames);
         ModuleComponentIdentifier moduleComponentIdentifier = new DefaultModuleComponentIdentifier(requested.getGroup(), requested.getName(), requested.getVersion());
-        ModuleVersionIdentifier moduleVersionIdentifier = new DefaultModuleVersionIdentifier(requested.getGroup(), requested.getName(), requested.getVersion());
+        ModuleVersionIdentifier moduleVersionIdentifier = DefaultModuleVersionIdentifier.newId(requested.getGroup(), requested.getName(), requested.getVersion());
 
         List<Throwable> errors = new ArrayList<Throwable>();
 
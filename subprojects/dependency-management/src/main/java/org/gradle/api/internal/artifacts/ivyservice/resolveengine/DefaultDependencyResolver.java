@@ -39,15 +39,20 @@ import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.Dependen
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.conflicts.ConflictHandler;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.conflicts.DefaultConflictHandler;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.oldresult.DefaultResolvedConfigurationBuilder;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.oldresult.ResolvedConfigurationBuilder;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.oldresult.TransientConfigurationResults;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.oldresult.TransientConfigurationResultsBuilder;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ResolutionResultBuilder;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.StreamingResolutionResultBuilder;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.store.ResolutionResultsStoreFactory;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.store.ResolvedGraphCache;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.store.ResolvedGraphRecorder;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.store.StoreSet;
 import org.gradle.api.internal.artifacts.repositories.ResolutionAwareRepository;
 import org.gradle.api.internal.cache.BinaryStore;
 import org.gradle.api.internal.cache.Store;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.logging.ProgressLoggerFactory;
 import org.gradle.internal.resolve.resolver.ArtifactResolver;
 import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver;
 import org.gradle.internal.resolve.resolver.DependencyToComponentIdResolver;
@@ -66,10 +71,14 @@ public class DefaultDependencyResolver implements ArtifactDependencyResolver {
     private final IvyContextManager ivyContextManager;
     private final ResolutionResultsStoreFactory storeFactory;
     private final VersionComparator versionComparator;
+    private final ExecutorFactory executorFactory;
+    private final ProgressLoggerFactory progressLoggerFactory;
+    private final ResolvedGraphCache resolvedGraphCache;
 
     public DefaultDependencyResolver(ResolveIvyFactory ivyFactory, LocalComponentFactory localComponentFactory, DependencyDescriptorFactory dependencyDescriptorFactory,
                                      ProjectComponentRegistry projectComponentRegistry, CacheLockingManager cacheLockingManager, IvyContextManager ivyContextManager,
-                                     ResolutionResultsStoreFactory storeFactory, VersionComparator versionComparator) {
+                                     ResolutionResultsStoreFactory storeFactory, VersionComparator versionComparator, ExecutorFactory executorFactory,
+                                     ProgressLoggerFactory progressLoggerFactory, ResolvedGraphCache resolvedGraphCache) {
         this.ivyFactory = ivyFactory;
         this.localComponentFactory = localComponentFactory;
         this.dependencyDescriptorFactory = dependencyDescriptorFactory;
@@ -78,6 +87,9 @@ public class DefaultDependencyResolver implements ArtifactDependencyResolver {
         this.ivyContextManager = ivyContextManager;
         this.storeFactory = storeFactory;
         this.versionComparator = versionComparator;
+        this.executorFactory = executorFactory;
+        this.progressLoggerFactory = progressLoggerFactory;
+        this.resolvedGraphCache = resolvedGraphCache;
     }
 
     public void resolve(final ConfigurationInternal configuration,
@@ -88,26 +100,8 @@ public class DefaultDependencyResolver implements ArtifactDependencyResolver {
         ivyContextManager.withIvy(new Action<Ivy>() {
             public void execute(Ivy ivy) {
                 RepositoryChain repositoryChain = ivyFactory.create(configuration, repositories, metadataHandler.getComponentMetadataProcessor());
-
-                ComponentMetaDataResolver metaDataResolver = new ClientModuleResolver(repositoryChain.getComponentMetaDataResolver(), dependencyDescriptorFactory);
-
-                ProjectDependencyResolver projectDependencyResolver = new ProjectDependencyResolver(projectComponentRegistry, localComponentFactory, repositoryChain.getComponentIdResolver());
-                ResolutionStrategyInternal resolutionStrategy = configuration.getResolutionStrategy();
-                DependencyToComponentIdResolver idResolver = new DependencySubstitutionResolver(projectDependencyResolver, resolutionStrategy.getDependencyResolveRule());
-
                 ArtifactResolver artifactResolver = createArtifactResolver(repositoryChain);
 
-                ModuleConflictResolver conflictResolver;
-                if (resolutionStrategy.getConflictResolution() instanceof StrictConflictResolution) {
-                    conflictResolver = new StrictConflictResolver();
-                } else {
-                    conflictResolver = new LatestModuleConflictResolver(versionComparator);
-                }
-                conflictResolver = new VersionSelectionReasonResolver(conflictResolver);
-                ConflictHandler conflictHandler = new DefaultConflictHandler(conflictResolver, metadataHandler.getModuleMetadataProcessor().getModuleReplacements());
-
-                DependencyGraphBuilder builder = new DependencyGraphBuilder(idResolver, metaDataResolver, projectDependencyResolver, artifactResolver, conflictHandler, new DefaultDependencyToConfigurationResolver());
-
                 StoreSet stores = storeFactory.createStoreSet();
 
                 BinaryStore newModelStore = stores.nextBinaryStore();
@@ -119,13 +113,61 @@ public class DefaultDependencyResolver implements ArtifactDependencyResolver {
                 TransientConfigurationResultsBuilder oldTransientModelBuilder = new TransientConfigurationResultsBuilder(oldModelStore, oldModelCache);
                 DefaultResolvedConfigurationBuilder oldModelBuilder = new DefaultResolvedConfigurationBuilder(oldTransientModelBuilder);
 
-                builder.resolve(configuration, newModelBuilder, oldModelBuilder);
-                DefaultLenientConfiguration result = new DefaultLenientConfiguration(configuration, oldModelBuilder, cacheLockingManager);
+                ResolvedGraphCache.Key graphKey = ResolvedGraphCache.isEnabled() ? resolvedGraphCache.createKey(configuration, repositories, metadataHandler) : null;
+                if (graphKey != null && resolvedGraphCache.replay(graphKey, newModelBuilder, oldModelBuilder, artifactResolver)) {
+                    LOGGER.debug("Reusing cached resolution results of {}", configuration);
+                } else if (graphKey != null) {
+                    ResolvedGraphRecorder recorder = resolvedGraphCache.record(graphKey, newModelBuilder, oldModelBuilder);
+                    resolveGraph(configuration, repositoryChain, artifactResolver, metadataHandler, recorder.getNewModelBuilder(), recorder.getOldModelBuilder());
+                    resolvedGraphCache.store(recorder);
+                } else {
+                    resolveGraph(configuration, repositoryChain, artifactResolver, metadataHandler, newModelBuilder, oldModelBuilder);
+                }
+
+                ParallelArtifactDownloader artifactDownloader = null;
+                if (ParallelArtifactDownloader.isEnabled()) {
+                    artifactDownloader = new ParallelArtifactDownloader(cacheLockingManager, executorFactory, progressLoggerFactory, ParallelArtifactDownloader.DEFAULT_MAX_WORKERS);
+                }
+                DefaultLenientConfiguration result = new DefaultLenientConfiguration(configuration, oldModelBuilder, cacheLockingManager, artifactDownloader);
                 results.resolved(new DefaultResolvedConfiguration(result), newModelBuilder.complete());
             }
         });
     }
 
+    private void resolveGraph(ConfigurationInternal configuration, RepositoryChain repositoryChain, ArtifactResolver artifactResolver, GlobalDependencyResolutionRules metadataHandler,
+                              ResolutionResultBuilder newModelBuilder, ResolvedConfigurationBuilder oldModelBuilder) {
+        ComponentMetaDataResolver metaDataResolver = new ClientModuleResolver(repositoryChain.getComponentMetaDataResolver(), dependencyDescriptorFactory);
+        PrefetchingComponentMetaDataResolver prefetchingResolver = null;
+        if (PrefetchingComponentMetaDataResolver.isEnabled()) {
+            prefetchingResolver = new PrefetchingComponentMetaDataResolver(metaDataResolver, cacheLockingManager, ivyContextManager, executorFactory,
+                    PrefetchingComponentMetaDataResolver.DEFAULT_MAX_WORKERS);
+            metaDataResolver = prefetchingResolver;
+        }
+
+        ProjectDependencyResolver projectDependencyResolver = new ProjectDependencyResolver(projectComponentRegistry, localComponentFactory, repositoryChain.getComponentIdResolver());
+        ResolutionStrategyInternal resolutionStrategy = configuration.getResolutionStrategy();
+        DependencyToComponentIdResolver idResolver = new DependencySubstitutionResolver(projectDependencyResolver, resolutionStrategy.getDependencyResolveRule());
+
+        ModuleConflictResolver conflictResolver;
+        if (resolutionStrategy.getConflictResolution() instanceof StrictConflictResolution) {
+            conflictResolver = new StrictConflictResolver();
+        } else {
+            conflictResolver = new LatestModuleConflictResolver(versionComparator);
+        }
+        conflictResolver = new VersionSelectionReasonResolver(conflictResolver);
+        ConflictHandler conflictHandler = new DefaultConflictHandler(conflictResolver, metadataHandler.getModuleMetadataProcessor().getModuleReplacements());
+
+        DependencyGraphBuilder builder = new DependencyGraphBuilder(idResolver, metaDataResolver, prefetchingResolver, projectDependencyResolver, artifactResolver, conflictHandler, new DefaultDependencyToConfigurationResolver());
+
+        try {
+            builder.resolve(configuration, newModelBuilder, oldModelBuilder);
+        } finally {
+            if (prefetchingResolver != null) {
+                prefetchingResolver.stop();
+            }
+        }
+    }
+
     private ArtifactResolver createArtifactResolver(RepositoryChain repositoryChain) {
         ArtifactResolver artifactResolver = repositoryChain.getArtifactResolver();
         artifactResolver = new ProjectArtifactResolver(artifactResolver);
@@ -17,6 +17,7 @@ package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph;
 
 import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
 import org.gradle.api.Action;
+import org.gradle.api.Nullable;
 import org.gradle.api.artifacts.*;
 import org.gradle.api.artifacts.component.ComponentIdentifier;
 import org.gradle.api.artifacts.component.ComponentSelector;
@@ -38,6 +39,7 @@ import org.gradle.internal.component.local.model.DslOriginDependencyMetaData;
 import org.gradle.internal.component.model.*;
 import org.gradle.internal.resolve.ModuleVersionResolveException;
 import org.gradle.internal.resolve.resolver.ArtifactResolver;
+import org.gradle.internal.resolve.resolver.ComponentMetaDataPrefetcher;
 import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver;
 import org.gradle.internal.resolve.resolver.DependencyToComponentIdResolver;
 import org.gradle.internal.resolve.resolver.ModuleToComponentResolver;
@@ -55,6 +57,7 @@ public class DependencyGraphBuilder {
     private final ArtifactResolver artifactResolver;
     private final DependencyToComponentIdResolver idResolver;
     private final ComponentMetaDataResolver metaDataResolver;
+    private final ComponentMetaDataPrefetcher metaDataPrefetcher;
 
     public DependencyGraphBuilder(DependencyToComponentIdResolver idResolver,
                                   ComponentMetaDataResolver metaDataResolver,
@@ -62,8 +65,23 @@ public class DependencyGraphBuilder {
                                   ArtifactResolver artifactResolver,
                                   ConflictHandler conflictHandler,
                                   DependencyToConfigurationResolver dependencyToConfigurationResolver) {
+        this(idResolver, metaDataResolver, null, moduleResolver, artifactResolver, conflictHandler, dependencyToConfigurationResolver);
+    }
+
+    /**
+     * @param metaDataPrefetcher Used to start fetching the meta-data of the components selected by the outgoing edges of a configuration before the
+     * edges are visited. The meta-data is then handed out by the given meta-data resolver. May be null, in which case nothing is prefetched.
+     */
+    public DependencyGraphBuilder(DependencyToComponentIdResolver idResolver,
+                                  ComponentMetaDataResolver metaDataResolver,
+                                  @Nullable ComponentMetaDataPrefetcher metaDataPrefetcher,
+                                  ModuleToComponentResolver moduleResolver,
+                                  ArtifactResolver artifactResolver,
+                                  ConflictHandler conflictHandler,
+                                  DependencyToConfigurationResolver dependencyToConfigurationResolver) {
         this.idResolver = idResolver;
         this.metaDataResolver = metaDataResolver;
+        this.metaDataPrefetcher = metaDataPrefetcher;
         this.moduleResolver = moduleResolver;
         this.artifactResolver = artifactResolver;
         this.conflictHandler = conflictHandler;
@@ -108,6 +126,14 @@ public class DependencyGraphBuilder {
                 dependencies.clear();
                 node.visitOutgoingDependencies(dependencies);
 
+                if (metaDataPrefetcher != null) {
+                    // Resolve the selectors of all edges first, so that the meta-data of the selected versions can be fetched in the background.
+                    // The versions are only registered with the graph below, so conflicts are detected in the same order as without prefetching.
+                    for (DependencyEdge dependency : dependencies) {
+                        dependency.selector.prefetchMetaData(metaDataPrefetcher);
+                    }
+                }
+
                 for (DependencyEdge dependency : dependencies) {
                     LOGGER.debug("Visiting dependency {}", dependency);
 
@@ -844,7 +870,7 @@ public class DependencyGraphBuilder {
             this.dependencyMetaData = dependencyMetaData;
             this.resolver = resolver;
             this.resolveState = resolveState;
-            targetModule = resolveState.getModule(new DefaultModuleIdentifier(dependencyMetaData.getRequested().getGroup(), dependencyMetaData.getRequested().getName()));
+            targetModule = resolveState.getModule(DefaultModuleIdentifier.newId(dependencyMetaData.getRequested().getGroup(), dependencyMetaData.getRequested().getName()));
         }
 
         @Override
@@ -875,14 +901,7 @@ public class DependencyGraphBuilder {
             if (targetModuleRevision != null) {
                 return targetModuleRevision;
             }
-            if (failure != null) {
-                return null;
-            }
-
-            idResolveResult = new DefaultBuildableComponentIdResolveResult();
-            resolver.resolve(dependencyMetaData, idResolveResult);
-            if (idResolveResult.getFailure() != null) {
-                failure = idResolveResult.getFailure();
+            if (!resolveComponentId()) {
                 return null;
             }
 
@@ -895,6 +914,49 @@ public class DependencyGraphBuilder {
             return targetModuleRevision;
         }
 
+        /**
+         * Resolves the id of the selected component, without adding the selected module version to the graph.
+         *
+         * @return true if the id was resolved, false if there is a failure to resolve this selector.
+         */
+        private boolean resolveComponentId() {
+            if (idResolveResult == null) {
+                idResolveResult = new DefaultBuildableComponentIdResolveResult();
+                resolver.resolve(dependencyMetaData, idResolveResult);
+                if (idResolveResult.getFailure() != null) {
+                    failure = idResolveResult.getFailure();
+                }
+            }
+            return failure == null;
+        }
+
+        /**
+         * Starts fetching the meta-data of the module version this selector resolves to, unless the meta-data is already known or the version
+         * would be evicted by the currently selected version of the module.
+         */
+        public void prefetchMetaData(ComponentMetaDataPrefetcher prefetcher) {
+            if (!resolveComponentId()) {
+                return;
+            }
+            ModuleVersionIdentifier id = idResolveResult.getModuleVersionId();
+            ModuleResolveState module = resolveState.getModule(id.getModule());
+            if (module.selected != null && !module.selected.id.equals(id)) {
+                return;
+            }
+            ModuleVersionSelectorResolveState reference = this;
+            ModuleVersionResolveState version = module.versions.get(id);
+            if (version != null) {
+                if (version.metaData != null || version.failure != null || version.firstReference == null) {
+                    return;
+                }
+                reference = version.firstReference;
+            }
+            if (reference.idResolveResult.getMetaData() != null) {
+                return;
+            }
+            prefetcher.prefetch(reference.dependencyMetaData, reference.idResolveResult.getId());
+        }
+
         public void restart(ModuleVersionResolveState moduleRevision) {
             this.targetModuleRevision = moduleRevision;
             this.targetModule = moduleRevision.module;
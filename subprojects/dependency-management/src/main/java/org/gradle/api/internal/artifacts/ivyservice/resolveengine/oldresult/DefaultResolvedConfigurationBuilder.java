@@ -78,7 +78,11 @@ public class DefaultResolvedConfigurationBuilder implements
     }
 
     public ResolvedArtifact newArtifact(ResolvedConfigurationIdentifier owner, ComponentResolveMetaData component, ComponentArtifactMetaData artifact, ArtifactResolver artifactResolver) {
-        Factory<File> artifactSource = new LazyArtifactSource(artifact, component.getSource(), artifactResolver);
+        return newArtifact(owner, component.getSource(), artifact, artifactResolver);
+    }
+
+    public ResolvedArtifact newArtifact(ResolvedConfigurationIdentifier owner, ModuleSource moduleSource, ComponentArtifactMetaData artifact, ArtifactResolver artifactResolver) {
+        Factory<File> artifactSource = new LazyArtifactSource(artifact, moduleSource, artifactResolver);
         long id = idGenerator.generateId();
         ResolvedArtifact newArtifact = new DefaultResolvedArtifact(new DefaultResolvedModuleVersion(owner.getId()), artifact.getName(), artifactSource, id);
         artifacts.put(id, newArtifact);
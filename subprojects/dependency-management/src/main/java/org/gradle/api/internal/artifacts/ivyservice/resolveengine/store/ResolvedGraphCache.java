@@ -0,0 +1,250 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.store;
+
+import org.gradle.api.Nullable;
+import org.gradle.api.artifacts.ClientModule;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.Dependency;
+import org.gradle.api.artifacts.DependencyArtifact;
+import org.gradle.api.artifacts.ExcludeRule;
+import org.gradle.api.artifacts.ExternalModuleDependency;
+import org.gradle.api.artifacts.Module;
+import org.gradle.api.artifacts.ModuleDependency;
+import org.gradle.api.artifacts.ModuleVersionSelector;
+import org.gradle.api.internal.artifacts.GlobalDependencyResolutionRules;
+import org.gradle.api.internal.artifacts.configurations.ConfigurationInternal;
+import org.gradle.api.internal.artifacts.configurations.ResolutionStrategyInternal;
+import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ConfiguredModuleComponentRepository;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
+import org.gradle.api.internal.artifacts.ivyservice.resolutionstrategy.StrictConflictResolution;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.oldresult.DefaultResolvedConfigurationBuilder;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.oldresult.ResolvedConfigurationBuilder;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ResolutionResultBuilder;
+import org.gradle.api.internal.artifacts.repositories.ResolutionAwareRepository;
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.internal.hash.HashUtil;
+import org.gradle.internal.resolve.resolver.ArtifactResolver;
+import org.gradle.messaging.serialize.BaseSerializerFactory;
+import org.gradle.messaging.serialize.kryo.KryoBackedEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A persistent cache of resolution results, which allows a configuration to be resolved without traversing its dependency graph again when
+ * nothing that the graph depends on has changed since it was last resolved. The cache is shared by all builds using the same artifact cache.
+ *
+ * <p>The results are keyed by a hash of the declared inputs of the resolution: the configuration and its dependencies, the resolution strategy
+ * and the repositories. Meta-data of a static version of a module is cached indefinitely by the module cache, so it is covered by the
+ * repositories. Resolution results are only cached when they cannot change without the inputs changing: the declared dependencies must use
+ * static versions of external modules, there must be no local repositories and no rules, and the resolved graph must not contain failures,
+ * dynamic versions or changing modules. Nothing is read from the cache when dependencies are refreshed.</p>
+ *
+ * <p>Must be used from within a cache action.</p>
+ */
+public class ResolvedGraphCache {
+    public static final String TOGGLE = "org.gradle.resolve.graphCache";
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResolvedGraphCache.class);
+    private static final int FORMAT_VERSION = 1;
+
+    private final CacheLockingManager cacheLockingManager;
+    private final VersionSelectorScheme versionSelectorScheme;
+    private final boolean refreshDependencies;
+    private PersistentIndexedCache<String, byte[]> cache;
+
+    public ResolvedGraphCache(CacheLockingManager cacheLockingManager, VersionSelectorScheme versionSelectorScheme, boolean refreshDependencies) {
+        this.cacheLockingManager = cacheLockingManager;
+        this.versionSelectorScheme = versionSelectorScheme;
+        this.refreshDependencies = refreshDependencies;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(TOGGLE);
+    }
+
+    private PersistentIndexedCache<String, byte[]> getCache() {
+        if (cache == null) {
+            cache = cacheLockingManager.createCache("resolved-graphs", BaseSerializerFactory.STRING_SERIALIZER, BaseSerializerFactory.BYTE_ARRAY_SERIALIZER);
+        }
+        return cache;
+    }
+
+    /**
+     * Calculates the key for the results of resolving the given configuration.
+     *
+     * @return the key, or null when the results of resolving the configuration cannot be cached.
+     */
+    @Nullable
+    public Key createKey(ConfigurationInternal configuration, List<? extends ResolutionAwareRepository> repositories, GlobalDependencyResolutionRules rules) {
+        ResolutionStrategyInternal resolutionStrategy = configuration.getResolutionStrategy();
+        if (resolutionStrategy.hasDependencyResolveRules() || !resolutionStrategy.getComponentSelection().getRules().isEmpty()
+                || rules.getComponentMetadataProcessor().hasRules() || rules.getModuleMetadataProcessor().getModuleReplacements().hasReplacements()) {
+            return notCacheable(configuration, "rules are defined");
+        }
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        KryoBackedEncoder encoder = new KryoBackedEncoder(outputStream);
+        encoder.writeSmallInt(FORMAT_VERSION);
+
+        encoder.writeString(configuration.getPath());
+        Module module = configuration.getModule();
+        encoder.writeNullableString(module.getGroup());
+        encoder.writeNullableString(module.getName());
+        encoder.writeNullableString(module.getVersion());
+        encoder.writeNullableString(module.getStatus());
+
+        List<ModuleDependency> dependencies = new ArrayList<ModuleDependency>();
+        for (Configuration declaringConfiguration : configuration.getHierarchy()) {
+            encoder.writeString(declaringConfiguration.getName());
+            encoder.writeBoolean(declaringConfiguration.isTransitive());
+            writeExcludeRules(encoder, declaringConfiguration.getExcludeRules());
+            for (Dependency dependency : declaringConfiguration.getDependencies()) {
+                if (!(dependency instanceof ModuleDependency)) {
+                    // Not part of the dependency graph
+                    continue;
+                }
+                if (!(dependency instanceof ExternalModuleDependency) || dependency instanceof ClientModule) {
+                    return notCacheable(configuration, String.format("%s is not an external module", dependency));
+                }
+                ExternalModuleDependency moduleDependency = (ExternalModuleDependency) dependency;
+                if (moduleDependency.isChanging()) {
+                    return notCacheable(configuration, String.format("%s is changing", dependency));
+                }
+                if (moduleDependency.getVersion() == null || versionSelectorScheme.parseSelector(moduleDependency.getVersion()).isDynamic()) {
+                    return notCacheable(configuration, String.format("%s does not declare a static version", dependency));
+                }
+                dependencies.add(moduleDependency);
+                writeDependency(encoder, moduleDependency);
+            }
+        }
+
+        encoder.writeBoolean(resolutionStrategy.getConflictResolution() instanceof StrictConflictResolution);
+        encoder.writeSmallInt(resolutionStrategy.getForcedModules().size());
+        for (ModuleVersionSelector forcedModule : resolutionStrategy.getForcedModules()) {
+            encoder.writeNullableString(forcedModule.getGroup());
+            encoder.writeString(forcedModule.getName());
+            encoder.writeNullableString(forcedModule.getVersion());
+        }
+
+        for (ResolutionAwareRepository repository : repositories) {
+            ConfiguredModuleComponentRepository resolver = repository.createResolver();
+            if (resolver.isLocal()) {
+                return notCacheable(configuration, String.format("repository '%s' is local", resolver.getName()));
+            }
+            encoder.writeString(resolver.getId());
+        }
+
+        encoder.flush();
+        return new Key(HashUtil.sha1(outputStream.toByteArray()).asHexString(), Collections.unmodifiableList(dependencies));
+    }
+
+    private Key notCacheable(ConfigurationInternal configuration, String reason) {
+        LOGGER.debug("Not caching resolution results of {}, as {}.", configuration, reason);
+        return null;
+    }
+
+    private void writeDependency(KryoBackedEncoder encoder, ExternalModuleDependency dependency) {
+        encoder.writeNullableString(dependency.getGroup());
+        encoder.writeString(dependency.getName());
+        encoder.writeString(dependency.getVersion());
+        encoder.writeNullableString(dependency.getConfiguration());
+        encoder.writeBoolean(dependency.isTransitive());
+        encoder.writeBoolean(dependency.isForce());
+        writeExcludeRules(encoder, dependency.getExcludeRules());
+        encoder.writeSmallInt(dependency.getArtifacts().size());
+        for (DependencyArtifact artifact : dependency.getArtifacts()) {
+            encoder.writeString(artifact.getName());
+            encoder.writeNullableString(artifact.getType());
+            encoder.writeNullableString(artifact.getExtension());
+            encoder.writeNullableString(artifact.getClassifier());
+            encoder.writeNullableString(artifact.getUrl());
+        }
+    }
+
+    private void writeExcludeRules(KryoBackedEncoder encoder, Iterable<ExcludeRule> excludeRules) {
+        for (ExcludeRule excludeRule : excludeRules) {
+            encoder.writeBoolean(true);
+            encoder.writeNullableString(excludeRule.getGroup());
+            encoder.writeNullableString(excludeRule.getModule());
+        }
+        encoder.writeBoolean(false);
+    }
+
+    /**
+     * Builds the results for the given key from the cache.
+     *
+     * @return true when the results were found in the cache, false when the configuration needs to be resolved.
+     */
+    public boolean replay(Key key, ResolutionResultBuilder newModelBuilder, DefaultResolvedConfigurationBuilder oldModelBuilder, ArtifactResolver artifactResolver) {
+        if (refreshDependencies) {
+            return false;
+        }
+        byte[] recording = getCache().get(key.hash);
+        if (recording == null) {
+            return false;
+        }
+        ResolvedGraphRecorder.replay(recording, key.dependencies, newModelBuilder, oldModelBuilder, artifactResolver);
+        return true;
+    }
+
+    /**
+     * Starts recording the results for the given key. The results are written to the cache by {@link #store(ResolvedGraphRecorder)}.
+     */
+    public ResolvedGraphRecorder record(Key key, ResolutionResultBuilder newModelBuilder, ResolvedConfigurationBuilder oldModelBuilder) {
+        return new ResolvedGraphRecorder(key, versionSelectorScheme, newModelBuilder, oldModelBuilder);
+    }
+
+    public void store(ResolvedGraphRecorder recorder) {
+        String reason = recorder.getNotReusableReason();
+        if (reason != null) {
+            LOGGER.debug("Not caching resolution results, as {}.", reason);
+            return;
+        }
+        getCache().put(recorder.getKey().hash, recorder.getRecording());
+    }
+
+    /**
+     * The key of the results of resolving a configuration.
+     */
+    public static class Key {
+        private final String hash;
+        private final List<ModuleDependency> dependencies;
+
+        Key(String hash, List<ModuleDependency> dependencies) {
+            this.hash = hash;
+            this.dependencies = dependencies;
+        }
+
+        /**
+         * Returns the declared dependencies, in the order in which the results refer to them.
+         */
+        public List<ModuleDependency> getDependencies() {
+            return dependencies;
+        }
+
+        @Override
+        public String toString() {
+            return hash;
+        }
+    }
+}
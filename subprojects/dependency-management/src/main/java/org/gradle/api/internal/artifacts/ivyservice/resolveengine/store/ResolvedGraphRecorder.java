@@ -0,0 +1,395 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.store;
+
+import org.gradle.api.Nullable;
+import org.gradle.api.artifacts.ModuleDependency;
+import org.gradle.api.artifacts.ModuleVersionIdentifier;
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.artifacts.UnresolvedDependency;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
+import org.gradle.api.artifacts.result.ResolutionResult;
+import org.gradle.api.internal.artifacts.DefaultResolvedArtifact;
+import org.gradle.api.internal.artifacts.ModuleVersionIdentifierSerializer;
+import org.gradle.api.internal.artifacts.ResolvedConfigurationIdentifier;
+import org.gradle.api.internal.artifacts.ResolvedConfigurationIdentifierSerializer;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.oldresult.DefaultResolvedConfigurationBuilder;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.oldresult.ResolvedConfigurationBuilder;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ComponentIdentifierSerializer;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.InternalDependencyResult;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.InternalDependencyResultSerializer;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ModuleVersionSelection;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ModuleVersionSelectionSerializer;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ResolutionResultBuilder;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.component.external.model.DefaultModuleComponentArtifactMetaData;
+import org.gradle.internal.component.external.model.ModuleComponentArtifactMetaData;
+import org.gradle.internal.component.model.ComponentArtifactMetaData;
+import org.gradle.internal.component.model.ComponentResolveMetaData;
+import org.gradle.internal.component.model.DefaultIvyArtifactName;
+import org.gradle.internal.component.model.IvyArtifactName;
+import org.gradle.internal.component.model.ModuleSource;
+import org.gradle.internal.resolve.ModuleVersionResolveException;
+import org.gradle.internal.resolve.resolver.ArtifactResolver;
+import org.gradle.messaging.serialize.BaseSerializerFactory;
+import org.gradle.messaging.serialize.Decoder;
+import org.gradle.messaging.serialize.DefaultSerializer;
+import org.gradle.messaging.serialize.Serializer;
+import org.gradle.messaging.serialize.kryo.KryoBackedDecoder;
+import org.gradle.messaging.serialize.kryo.KryoBackedEncoder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Records the events sent to the builders of the resolution results, so that the same results can be built again later by replaying the events.
+ * Stops recording as soon as an event is seen that makes the results unsuitable for reuse: a failure, a dynamic selector or a changing module.
+ */
+public class ResolvedGraphRecorder {
+    private static final byte ROOT = 1;
+    private static final byte MODULE = 2;
+    private static final byte DEPENDENCIES = 3;
+    private static final byte NEW_DEPENDENCY = 4;
+    private static final byte FIRST_LEVEL = 5;
+    private static final byte CHILD = 6;
+    private static final byte NEW_ARTIFACT = 7;
+    private static final byte PARENT_ARTIFACTS = 8;
+    private static final byte DONE = 9;
+    private static final byte END = 10;
+
+    private static final ModuleVersionIdentifierSerializer MODULE_VERSION_ID_SERIALIZER = new ModuleVersionIdentifierSerializer();
+    private static final ComponentIdentifierSerializer COMPONENT_ID_SERIALIZER = new ComponentIdentifierSerializer();
+    private static final ModuleVersionSelectionSerializer MODULE_VERSION_SELECTION_SERIALIZER = new ModuleVersionSelectionSerializer();
+    private static final InternalDependencyResultSerializer DEPENDENCY_RESULT_SERIALIZER = new InternalDependencyResultSerializer();
+    private static final ResolvedConfigurationIdentifierSerializer CONFIGURATION_ID_SERIALIZER = new ResolvedConfigurationIdentifierSerializer();
+    private static final Serializer<Map<String, String>> ATTRIBUTES_SERIALIZER = BaseSerializerFactory.NO_NULL_STRING_MAP_SERIALIZER;
+    private static final DefaultSerializer<ModuleSource> MODULE_SOURCE_SERIALIZER = new DefaultSerializer<ModuleSource>(ModuleSource.class.getClassLoader());
+
+    private final ResolvedGraphCache.Key key;
+    private final VersionSelectorScheme versionSelectorScheme;
+    private final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    private final KryoBackedEncoder encoder = new KryoBackedEncoder(outputStream);
+    private final RecordingResolutionResultBuilder newModelBuilder;
+    private final RecordingResolvedConfigurationBuilder oldModelBuilder;
+    private String notReusableReason;
+
+    public ResolvedGraphRecorder(ResolvedGraphCache.Key key, VersionSelectorScheme versionSelectorScheme, ResolutionResultBuilder newModelBuilder, ResolvedConfigurationBuilder oldModelBuilder) {
+        this.key = key;
+        this.versionSelectorScheme = versionSelectorScheme;
+        this.newModelBuilder = new RecordingResolutionResultBuilder(newModelBuilder);
+        this.oldModelBuilder = new RecordingResolvedConfigurationBuilder(oldModelBuilder);
+    }
+
+    public ResolvedGraphCache.Key getKey() {
+        return key;
+    }
+
+    public ResolutionResultBuilder getNewModelBuilder() {
+        return newModelBuilder;
+    }
+
+    public ResolvedConfigurationBuilder getOldModelBuilder() {
+        return oldModelBuilder;
+    }
+
+    /**
+     * Returns the reason why the recorded results cannot be reused, or null when they can.
+     */
+    @Nullable
+    public String getNotReusableReason() {
+        return notReusableReason;
+    }
+
+    /**
+     * Returns the recorded events. May only be called when the results can be reused.
+     */
+    public byte[] getRecording() {
+        if (notReusableReason != null) {
+            throw new IllegalStateException(String.format("Cannot reuse the resolution results: %s.", notReusableReason));
+        }
+        encoder.writeByte(END);
+        encoder.flush();
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Builds the resolution results again from the given recorded events.
+     */
+    public static void replay(byte[] recording, List<ModuleDependency> dependencies, ResolutionResultBuilder newModelBuilder, DefaultResolvedConfigurationBuilder oldModelBuilder, ArtifactResolver artifactResolver) {
+        Decoder decoder = new KryoBackedDecoder(new ByteArrayInputStream(recording));
+        Map<Long, ResolvedArtifact> artifacts = new HashMap<Long, ResolvedArtifact>();
+        Map<ComponentSelector, ModuleVersionResolveException> failures = Collections.emptyMap();
+        try {
+            while (true) {
+                byte type = decoder.readByte();
+                switch (type) {
+                    case ROOT:
+                        newModelBuilder.start(MODULE_VERSION_ID_SERIALIZER.read(decoder), COMPONENT_ID_SERIALIZER.read(decoder));
+                        break;
+                    case MODULE:
+                        newModelBuilder.resolvedModuleVersion(MODULE_VERSION_SELECTION_SERIALIZER.read(decoder));
+                        break;
+                    case DEPENDENCIES:
+                        ModuleVersionIdentifier from = MODULE_VERSION_ID_SERIALIZER.read(decoder);
+                        int count = decoder.readSmallInt();
+                        List<InternalDependencyResult> results = new ArrayList<InternalDependencyResult>(count);
+                        for (int i = 0; i < count; i++) {
+                            results.add(DEPENDENCY_RESULT_SERIALIZER.read(decoder, failures));
+                        }
+                        newModelBuilder.resolvedConfiguration(from, results);
+                        break;
+                    case NEW_DEPENDENCY:
+                        oldModelBuilder.newResolvedDependency(CONFIGURATION_ID_SERIALIZER.read(decoder));
+                        break;
+                    case FIRST_LEVEL:
+                        ModuleDependency moduleDependency = dependencies.get(decoder.readSmallInt());
+                        oldModelBuilder.addFirstLevelDependency(moduleDependency, CONFIGURATION_ID_SERIALIZER.read(decoder));
+                        break;
+                    case CHILD:
+                        oldModelBuilder.addChild(CONFIGURATION_ID_SERIALIZER.read(decoder), CONFIGURATION_ID_SERIALIZER.read(decoder));
+                        break;
+                    case NEW_ARTIFACT:
+                        long recordedId = decoder.readLong();
+                        ResolvedConfigurationIdentifier owner = CONFIGURATION_ID_SERIALIZER.read(decoder);
+                        ModuleComponentIdentifier componentId = (ModuleComponentIdentifier) COMPONENT_ID_SERIALIZER.read(decoder);
+                        IvyArtifactName name = new DefaultIvyArtifactName(decoder.readString(), decoder.readString(), decoder.readNullableString(), ATTRIBUTES_SERIALIZER.read(decoder));
+                        ModuleSource moduleSource = MODULE_SOURCE_SERIALIZER.read(decoder);
+                        ComponentArtifactMetaData artifact = new DefaultModuleComponentArtifactMetaData(componentId, name);
+                        artifacts.put(recordedId, oldModelBuilder.newArtifact(owner, moduleSource, artifact, artifactResolver));
+                        break;
+                    case PARENT_ARTIFACTS:
+                        ResolvedConfigurationIdentifier child = CONFIGURATION_ID_SERIALIZER.read(decoder);
+                        ResolvedConfigurationIdentifier parent = CONFIGURATION_ID_SERIALIZER.read(decoder);
+                        int artifactCount = decoder.readSmallInt();
+                        Set<ResolvedArtifact> parentArtifacts = new LinkedHashSet<ResolvedArtifact>();
+                        for (int i = 0; i < artifactCount; i++) {
+                            parentArtifacts.add(artifacts.get(decoder.readLong()));
+                        }
+                        oldModelBuilder.addParentSpecificArtifacts(child, parent, parentArtifacts);
+                        break;
+                    case DONE:
+                        oldModelBuilder.done(CONFIGURATION_ID_SERIALIZER.read(decoder));
+                        break;
+                    case END:
+                        return;
+                    default:
+                        throw new IllegalArgumentException("Unknown resolution event type: " + type);
+                }
+            }
+        } catch (Exception e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
+    private boolean isRecording() {
+        return notReusableReason == null;
+    }
+
+    private void notReusable(String reason) {
+        if (notReusableReason == null) {
+            notReusableReason = reason;
+        }
+    }
+
+    private class RecordingResolutionResultBuilder implements ResolutionResultBuilder {
+        private final ResolutionResultBuilder delegate;
+
+        public RecordingResolutionResultBuilder(ResolutionResultBuilder delegate) {
+            this.delegate = delegate;
+        }
+
+        public ResolutionResultBuilder start(ModuleVersionIdentifier root, ComponentIdentifier componentIdentifier) {
+            delegate.start(root, componentIdentifier);
+            if (isRecording()) {
+                try {
+                    encoder.writeByte(ROOT);
+                    MODULE_VERSION_ID_SERIALIZER.write(encoder, root);
+                    COMPONENT_ID_SERIALIZER.write(encoder, componentIdentifier);
+                } catch (Exception e) {
+                    throw UncheckedException.throwAsUncheckedException(e);
+                }
+            }
+            return this;
+        }
+
+        public void resolvedModuleVersion(ModuleVersionSelection moduleVersion) {
+            delegate.resolvedModuleVersion(moduleVersion);
+            if (moduleVersion.getId().getVersion().endsWith("-SNAPSHOT")) {
+                notReusable(String.format("%s is a snapshot", moduleVersion.getId()));
+            }
+            if (isRecording()) {
+                try {
+                    encoder.writeByte(MODULE);
+                    MODULE_VERSION_SELECTION_SERIALIZER.write(encoder, moduleVersion);
+                } catch (Exception e) {
+                    throw UncheckedException.throwAsUncheckedException(e);
+                }
+            }
+        }
+
+        public void resolvedConfiguration(ModuleVersionIdentifier id, Collection<? extends InternalDependencyResult> dependencies) {
+            delegate.resolvedConfiguration(id, dependencies);
+            for (InternalDependencyResult dependency : dependencies) {
+                if (dependency.getFailure() != null) {
+                    notReusable(String.format("%s could not be resolved", dependency.getRequested()));
+                } else if (dependency.getRequested() instanceof ModuleComponentSelector
+                        && versionSelectorScheme.parseSelector(((ModuleComponentSelector) dependency.getRequested()).getVersion()).isDynamic()) {
+                    notReusable(String.format("%s is a dynamic version", dependency.getRequested()));
+                }
+            }
+            if (isRecording()) {
+                try {
+                    encoder.writeByte(DEPENDENCIES);
+                    MODULE_VERSION_ID_SERIALIZER.write(encoder, id);
+                    encoder.writeSmallInt(dependencies.size());
+                    for (InternalDependencyResult dependency : dependencies) {
+                        DEPENDENCY_RESULT_SERIALIZER.write(encoder, dependency);
+                    }
+                } catch (Exception e) {
+                    throw UncheckedException.throwAsUncheckedException(e);
+                }
+            }
+        }
+
+        public ResolutionResult complete() {
+            return delegate.complete();
+        }
+    }
+
+    private class RecordingResolvedConfigurationBuilder implements ResolvedConfigurationBuilder {
+        private final ResolvedConfigurationBuilder delegate;
+
+        public RecordingResolvedConfigurationBuilder(ResolvedConfigurationBuilder delegate) {
+            this.delegate = delegate;
+        }
+
+        public void addFirstLevelDependency(ModuleDependency moduleDependency, ResolvedConfigurationIdentifier dependency) {
+            delegate.addFirstLevelDependency(moduleDependency, dependency);
+            int index = key.getDependencies().indexOf(moduleDependency);
+            if (index < 0) {
+                notReusable(String.format("%s is not a declared dependency", moduleDependency));
+            }
+            if (isRecording()) {
+                try {
+                    encoder.writeByte(FIRST_LEVEL);
+                    encoder.writeSmallInt(index);
+                    CONFIGURATION_ID_SERIALIZER.write(encoder, dependency);
+                } catch (Exception e) {
+                    throw UncheckedException.throwAsUncheckedException(e);
+                }
+            }
+        }
+
+        public void addUnresolvedDependency(UnresolvedDependency unresolvedDependency) {
+            delegate.addUnresolvedDependency(unresolvedDependency);
+            notReusable(String.format("%s could not be resolved", unresolvedDependency.getSelector()));
+        }
+
+        public void addChild(ResolvedConfigurationIdentifier parent, ResolvedConfigurationIdentifier child) {
+            delegate.addChild(parent, child);
+            if (isRecording()) {
+                try {
+                    encoder.writeByte(CHILD);
+                    CONFIGURATION_ID_SERIALIZER.write(encoder, parent);
+                    CONFIGURATION_ID_SERIALIZER.write(encoder, child);
+                } catch (Exception e) {
+                    throw UncheckedException.throwAsUncheckedException(e);
+                }
+            }
+        }
+
+        public void done(ResolvedConfigurationIdentifier root) {
+            delegate.done(root);
+            if (isRecording()) {
+                try {
+                    encoder.writeByte(DONE);
+                    CONFIGURATION_ID_SERIALIZER.write(encoder, root);
+                } catch (Exception e) {
+                    throw UncheckedException.throwAsUncheckedException(e);
+                }
+            }
+        }
+
+        public void addParentSpecificArtifacts(ResolvedConfigurationIdentifier child, ResolvedConfigurationIdentifier parent, Set<ResolvedArtifact> artifacts) {
+            delegate.addParentSpecificArtifacts(child, parent, artifacts);
+            if (isRecording()) {
+                try {
+                    encoder.writeByte(PARENT_ARTIFACTS);
+                    CONFIGURATION_ID_SERIALIZER.write(encoder, child);
+                    CONFIGURATION_ID_SERIALIZER.write(encoder, parent);
+                    encoder.writeSmallInt(artifacts.size());
+                    for (ResolvedArtifact artifact : artifacts) {
+                        encoder.writeLong(((DefaultResolvedArtifact) artifact).getId());
+                    }
+                } catch (Exception e) {
+                    throw UncheckedException.throwAsUncheckedException(e);
+                }
+            }
+        }
+
+        public void newResolvedDependency(ResolvedConfigurationIdentifier id) {
+            delegate.newResolvedDependency(id);
+            if (isRecording()) {
+                try {
+                    encoder.writeByte(NEW_DEPENDENCY);
+                    CONFIGURATION_ID_SERIALIZER.write(encoder, id);
+                } catch (Exception e) {
+                    throw UncheckedException.throwAsUncheckedException(e);
+                }
+            }
+        }
+
+        public ResolvedArtifact newArtifact(ResolvedConfigurationIdentifier owner, ComponentResolveMetaData component, ComponentArtifactMetaData artifact, ArtifactResolver artifactResolver) {
+            ResolvedArtifact resolvedArtifact = delegate.newArtifact(owner, component, artifact, artifactResolver);
+            if (component.isChanging()) {
+                notReusable(String.format("%s is a changing module", component.getId()));
+            } else if (!(artifact instanceof ModuleComponentArtifactMetaData)) {
+                notReusable(String.format("%s is not a module artifact", artifact));
+            }
+            if (isRecording()) {
+                try {
+                    ModuleComponentArtifactMetaData moduleArtifact = (ModuleComponentArtifactMetaData) artifact;
+                    IvyArtifactName name = moduleArtifact.getName();
+                    encoder.writeByte(NEW_ARTIFACT);
+                    encoder.writeLong(((DefaultResolvedArtifact) resolvedArtifact).getId());
+                    CONFIGURATION_ID_SERIALIZER.write(encoder, owner);
+                    COMPONENT_ID_SERIALIZER.write(encoder, moduleArtifact.getComponentId());
+                    encoder.writeString(name.getName());
+                    encoder.writeString(name.getType());
+                    encoder.writeNullableString(name.getExtension());
+                    ATTRIBUTES_SERIALIZER.write(encoder, name.getAttributes());
+                    MODULE_SOURCE_SERIALIZER.write(encoder, component.getSource());
+                } catch (Exception e) {
+                    throw UncheckedException.throwAsUncheckedException(e);
+                }
+            }
+            return resolvedArtifact;
+        }
+    }
+}
@@ -27,6 +27,7 @@ import org.gradle.internal.resource.transport.file.FileTransport;
 import org.gradle.internal.resource.transport.HttpTransport;
 import org.gradle.internal.resource.transport.sftp.SftpClientFactory;
 import org.gradle.internal.resource.transport.SftpTransport;
+import org.gradle.internal.resource.transport.http.HttpConnectionPool;
 import org.gradle.logging.ProgressLoggerFactory;
 import org.gradle.util.BuildCommencedTimeProvider;
 import org.gradle.util.WrapUtil;
@@ -41,6 +42,7 @@ public class RepositoryTransportFactory {
     private final ProgressLoggerFactory progressLoggerFactory;
     private final BuildCommencedTimeProvider timeProvider;
     private final SftpClientFactory sftpClientFactory;
+    private final HttpConnectionPool httpConnectionPool;
     private final CacheLockingManager cacheLockingManager;
 
     public RepositoryTransportFactory(ProgressLoggerFactory progressLoggerFactory,
@@ -48,17 +50,19 @@ public class RepositoryTransportFactory {
                                       CachedExternalResourceIndex<String> cachedExternalResourceIndex,
                                       BuildCommencedTimeProvider timeProvider,
                                       SftpClientFactory sftpClientFactory,
+                                      HttpConnectionPool httpConnectionPool,
                                       CacheLockingManager cacheLockingManager) {
         this.progressLoggerFactory = progressLoggerFactory;
         this.temporaryFileProvider = temporaryFileProvider;
         this.cachedExternalResourceIndex = cachedExternalResourceIndex;
         this.timeProvider = timeProvider;
         this.sftpClientFactory = sftpClientFactory;
+        this.httpConnectionPool = httpConnectionPool;
         this.cacheLockingManager = cacheLockingManager;
     }
 
     private RepositoryTransport createHttpTransport(String name, Credentials credentials) {
-        return new HttpTransport(name, convertPasswordCredentials(credentials), progressLoggerFactory, temporaryFileProvider, cachedExternalResourceIndex, timeProvider, cacheLockingManager);
+        return new HttpTransport(name, convertPasswordCredentials(credentials), progressLoggerFactory, temporaryFileProvider, cachedExternalResourceIndex, timeProvider, httpConnectionPool, cacheLockingManager);
     }
 
     private RepositoryTransport createFileTransport(String name) {
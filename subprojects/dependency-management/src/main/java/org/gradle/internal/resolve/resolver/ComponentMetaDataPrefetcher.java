@@ -0,0 +1,28 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.resolve.resolver;
+
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.internal.component.model.DependencyMetaData;
+
+public interface ComponentMetaDataPrefetcher {
+    /**
+     * Starts resolving the meta-data for a component instance in the background, if this has not been done already. The result is handed out by
+     * the {@link ComponentMetaDataResolver} this prefetcher belongs to, when it is asked for the same dependency and component.
+     */
+    void prefetch(DependencyMetaData dependency, ComponentIdentifier identifier);
+}
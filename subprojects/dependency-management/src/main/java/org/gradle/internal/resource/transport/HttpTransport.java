@@ -36,9 +36,10 @@ public class HttpTransport extends AbstractRepositoryTransport {
                          TemporaryFileProvider temporaryFileProvider,
                          CachedExternalResourceIndex<String> cachedExternalResourceIndex,
                          BuildCommencedTimeProvider timeProvider,
+                         HttpConnectionPool connectionPool,
                          CacheLockingManager cacheLockingManager) {
         super(name);
-        HttpClientHelper http = new HttpClientHelper(new DefaultHttpSettings(credentials));
+        HttpClientHelper http = new HttpClientHelper(new DefaultHttpSettings(credentials), connectionPool);
         HttpResourceAccessor accessor = new HttpResourceAccessor(http);
         HttpResourceUploader uploader = new HttpResourceUploader(http);
         ProgressLoggingExternalResourceAccessor loggingAccessor = new ProgressLoggingExternalResourceAccessor(accessor, progressLoggerFactory);
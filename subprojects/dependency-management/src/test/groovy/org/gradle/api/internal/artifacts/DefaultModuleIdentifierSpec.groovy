@@ -39,4 +39,13 @@ class DefaultModuleIdentifierSpec extends Specification {
         module != differentGroup
         module != differentModule
     }
+
+    def "interns ids created by factory method"() {
+        def module = DefaultModuleIdentifier.newId("group", "module")
+
+        expect:
+        DefaultModuleIdentifier.newId("group", "module").is(module)
+        !DefaultModuleIdentifier.newId("group", "other").is(module)
+        module strictlyEqual(new DefaultModuleIdentifier("group", "module"))
+    }
 }
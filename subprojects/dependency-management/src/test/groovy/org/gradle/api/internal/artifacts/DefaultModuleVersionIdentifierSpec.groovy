@@ -15,6 +15,7 @@
  */
 package org.gradle.api.internal.artifacts
 
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
 import spock.lang.Specification
 
 import static org.gradle.util.Matchers.strictlyEqual
@@ -47,4 +48,22 @@ class DefaultModuleVersionIdentifierSpec extends Specification {
         id.group == id.module.group
         id.name == id.module.name
     }
+
+    def "interns ids created by factory methods"() {
+        def module = DefaultModuleVersionIdentifier.newId("group", "module", "version")
+
+        expect:
+        DefaultModuleVersionIdentifier.newId("group", "module", "version").is(module)
+        DefaultModuleVersionIdentifier.newId(DefaultModuleComponentIdentifier.newId("group", "module", "version")).is(module)
+        !DefaultModuleVersionIdentifier.newId("group", "module", "other").is(module)
+        module.module.is(DefaultModuleIdentifier.newId("group", "module"))
+        module strictlyEqual(new DefaultModuleVersionIdentifier("group", "module", "version"))
+    }
+
+    def "reuses module identifier"() {
+        def moduleId = DefaultModuleIdentifier.newId("group", "module")
+
+        expect:
+        new DefaultModuleVersionIdentifier(moduleId, "version").module.is(moduleId)
+    }
 }
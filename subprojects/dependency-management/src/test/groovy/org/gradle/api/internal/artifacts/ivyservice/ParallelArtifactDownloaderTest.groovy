@@ -0,0 +1,135 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice
+
+import org.gradle.api.artifacts.ResolvedArtifact
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.resolve.ArtifactResolveException
+import org.gradle.logging.ProgressLogger
+import org.gradle.logging.ProgressLoggerFactory
+import spock.lang.Specification
+
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class ParallelArtifactDownloaderTest extends Specification {
+    final executorFactory = new DefaultExecutorFactory()
+    final List<String> longRunningOperations = []
+    final cacheLockingManager = [longRunningOperation: { String name, Runnable action -> longRunningOperations << name; action.run() }] as CacheLockingManager
+    final progressLogger = Mock(ProgressLogger)
+    final progressLoggerFactory = Stub(ProgressLoggerFactory) {
+        newOperation(_) >> progressLogger
+    }
+    final downloader = new ParallelArtifactDownloader(cacheLockingManager, executorFactory, progressLoggerFactory, 3)
+    final List<Thread> downloadedBy = new CopyOnWriteArrayList<Thread>()
+
+    def cleanup() {
+        executorFactory.stop()
+    }
+
+    def "downloads artifacts concurrently while the cache lock is released"() {
+        def started = new CountDownLatch(3)
+        def artifacts = (1..3).collect { i ->
+            artifact {
+                downloadedBy << Thread.currentThread()
+                started.countDown()
+                assert started.await(10, TimeUnit.SECONDS)
+                new File("file$i")
+            }
+        }
+
+        when:
+        downloader.download("configuration ':compile'", artifacts)
+
+        then:
+        downloadedBy.size() == 3
+        downloadedBy.toSet().size() == 3
+        !downloadedBy.contains(Thread.currentThread())
+        longRunningOperations == ["Download artifacts for configuration ':compile'"]
+    }
+
+    def "reports the number of artifacts downloaded as progress"() {
+        def artifacts = (1..4).collect { artifact { new File("file") } }
+
+        when:
+        downloader.download("configuration ':compile'", artifacts)
+
+        then:
+        1 * progressLogger.setDescription("Download artifacts for configuration ':compile'")
+        1 * progressLogger.started()
+
+        then:
+        1 * progressLogger.progress("1/4 artifacts")
+
+        then:
+        1 * progressLogger.progress("2/4 artifacts")
+
+        then:
+        1 * progressLogger.progress("3/4 artifacts")
+
+        then:
+        1 * progressLogger.progress("4/4 artifacts")
+
+        then:
+        1 * progressLogger.completed()
+    }
+
+    def "returns failure to download an artifact"() {
+        def failure = new ArtifactResolveException("broken")
+        def broken = artifact { throw failure }
+        def artifacts = [
+                broken,
+                artifact { downloadedBy << Thread.currentThread(); new File("file") }
+        ]
+
+        when:
+        def failures = downloader.download("configuration ':compile'", artifacts)
+
+        then:
+        failures.size() == 1
+        failures[broken].is(failure)
+        downloadedBy.size() == 1
+        1 * progressLogger.completed()
+    }
+
+    def "does nothing when there are not enough artifacts to download concurrently"() {
+        def artifacts = [artifact { downloadedBy << Thread.currentThread(); new File("file") }]
+
+        when:
+        def failures = downloader.download("configuration ':compile'", artifacts)
+
+        then:
+        failures.isEmpty()
+        downloadedBy.empty
+        longRunningOperations.empty
+        0 * progressLogger._
+    }
+
+    def "fails when number of workers is not valid"() {
+        when:
+        new ParallelArtifactDownloader(cacheLockingManager, executorFactory, progressLoggerFactory, 0)
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message == "Not a valid number of workers: 0"
+    }
+
+    private ResolvedArtifact artifact(Closure<File> getFile) {
+        return [getFile: getFile] as ResolvedArtifact
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice
+
+import org.gradle.api.Action
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
+import org.gradle.internal.component.model.ComponentResolveMetaData
+import org.gradle.internal.component.model.DependencyMetaData
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.resolve.ModuleVersionResolveException
+import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver
+import org.gradle.internal.resolve.result.BuildableComponentResolveResult
+import org.gradle.internal.resolve.result.DefaultBuildableComponentResolveResult
+import spock.lang.Specification
+
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class PrefetchingComponentMetaDataResolverTest extends Specification {
+    final dependency = Stub(DependencyMetaData)
+    final id = new DefaultModuleComponentIdentifier("group", "module", "1.0")
+    final metaData = Stub(ComponentResolveMetaData)
+    final List<String> cacheActions = new CopyOnWriteArrayList<String>()
+    final List<String> longRunningOperations = new CopyOnWriteArrayList<String>()
+    final List<Thread> resolvedBy = new CopyOnWriteArrayList<Thread>()
+    final started = new CountDownLatch(1)
+    final release = new CountDownLatch(1)
+    Closure delegateAction = { BuildableComponentResolveResult result -> result.resolved(metaData) }
+    final executorFactory = new DefaultExecutorFactory()
+    final lockingManager = [
+            useCache: { String name, Runnable action -> cacheActions << name; action.run() },
+            longRunningOperation: { String name, Runnable action -> longRunningOperations << name; release.countDown(); action.run() }
+    ] as CacheLockingManager
+    final ivyContextManager = [withIvy: { Action action -> action.execute(null) }] as IvyContextManager
+    final delegate = [resolve: { DependencyMetaData dependency, Object id, BuildableComponentResolveResult result ->
+        resolvedBy << Thread.currentThread()
+        delegateAction.call(result)
+    }] as ComponentMetaDataResolver
+    final resolver = new PrefetchingComponentMetaDataResolver(delegate, lockingManager, ivyContextManager, executorFactory, 2)
+
+    def cleanup() {
+        resolver.stop()
+        executorFactory.stop()
+    }
+
+    def "hands out meta-data that has been prefetched in the background"() {
+        def result = new DefaultBuildableComponentResolveResult()
+        delegateAction = { BuildableComponentResolveResult r ->
+            started.countDown()
+            release.await(10, TimeUnit.SECONDS)
+            r.attempted("somewhere")
+            r.resolved(metaData)
+        }
+
+        when:
+        resolver.prefetch(dependency, id)
+        started.await(10, TimeUnit.SECONDS)
+        resolver.resolve(dependency, id, result)
+
+        then:
+        result.metaData == metaData
+        result.attempted == ["somewhere"]
+        resolvedBy.size() == 1
+        resolvedBy[0] != Thread.currentThread()
+        cacheActions == ["Resolve group:module:1.0"]
+        longRunningOperations == ["Wait for meta-data of group:module:1.0"]
+    }
+
+    def "hands out failure to resolve prefetched meta-data"() {
+        def result = new DefaultBuildableComponentResolveResult()
+        def failure = new ModuleVersionResolveException(id, "broken")
+        delegateAction = { BuildableComponentResolveResult r ->
+            started.countDown()
+            release.await(10, TimeUnit.SECONDS)
+            r.failed(failure)
+        }
+
+        when:
+        resolver.prefetch(dependency, id)
+        started.await(10, TimeUnit.SECONDS)
+        resolver.resolve(dependency, id, result)
+
+        then:
+        result.failure == failure
+    }
+
+    def "rethrows exception thrown while prefetching meta-data"() {
+        def failure = new RuntimeException("broken")
+        delegateAction = { BuildableComponentResolveResult r ->
+            started.countDown()
+            release.await(10, TimeUnit.SECONDS)
+            throw failure
+        }
+
+        when:
+        resolver.prefetch(dependency, id)
+        started.await(10, TimeUnit.SECONDS)
+        resolver.resolve(dependency, id, new DefaultBuildableComponentResolveResult())
+
+        then:
+        def e = thrown(RuntimeException)
+        e == failure
+    }
+
+    def "resolves meta-data which has not been prefetched in the calling thread"() {
+        def result = new DefaultBuildableComponentResolveResult()
+
+        when:
+        resolver.resolve(dependency, id, result)
+
+        then:
+        result.metaData == metaData
+        resolvedBy == [Thread.currentThread()]
+        cacheActions.empty
+        longRunningOperations.empty
+    }
+
+    def "resolves meta-data in the calling thread when it was prefetched for a different dependency"() {
+        def result = new DefaultBuildableComponentResolveResult()
+        delegateAction = { BuildableComponentResolveResult r ->
+            started.countDown()
+            r.resolved(metaData)
+        }
+
+        when:
+        resolver.prefetch(Stub(DependencyMetaData), id)
+        started.await(10, TimeUnit.SECONDS)
+        resolver.resolve(dependency, id, result)
+
+        then:
+        result.metaData == metaData
+        resolvedBy.size() == 2
+        resolvedBy[1] == Thread.currentThread()
+    }
+
+    def "prefetches meta-data of a component only once"() {
+        delegateAction = { BuildableComponentResolveResult r ->
+            started.countDown()
+            r.resolved(metaData)
+        }
+
+        when:
+        resolver.prefetch(dependency, id)
+        resolver.prefetch(dependency, id)
+        started.await(10, TimeUnit.SECONDS)
+        resolver.stop()
+
+        then:
+        resolvedBy.size() == 1
+    }
+
+    def "does not prefetch meta-data once stopped"() {
+        when:
+        resolver.stop()
+        resolver.prefetch(dependency, id)
+
+        then:
+        resolvedBy.empty
+        longRunningOperations.empty
+    }
+
+    def "fails when number of workers is not valid"() {
+        when:
+        new PrefetchingComponentMetaDataResolver(delegate, lockingManager, ivyContextManager, executorFactory, 0)
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message == "Not a valid number of workers: 0"
+    }
+}
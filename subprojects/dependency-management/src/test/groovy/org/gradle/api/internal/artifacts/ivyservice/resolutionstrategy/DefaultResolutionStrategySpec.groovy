@@ -131,6 +131,23 @@ public class DefaultResolutionStrategySpec extends Specification {
         0 * details._
     }
 
+    def "knows whether user specified rules have been added"() {
+        expect:
+        !strategy.hasDependencyResolveRules()
+
+        when:
+        strategy.force 'org:bar:1.0'
+
+        then:
+        !strategy.hasDependencyResolveRules()
+
+        when:
+        strategy.eachDependency({ it.useVersion("1.0") } as Action)
+
+        then:
+        strategy.hasDependencyResolveRules()
+    }
+
     def "copied instance does not share state"() {
         when:
         def copy = strategy.copy()
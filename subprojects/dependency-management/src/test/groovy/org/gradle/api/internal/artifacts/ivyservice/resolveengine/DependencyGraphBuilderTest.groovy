@@ -50,6 +50,7 @@ import org.gradle.internal.component.model.DependencyMetaData
 import org.gradle.internal.resolve.ModuleVersionNotFoundException
 import org.gradle.internal.resolve.ModuleVersionResolveException
 import org.gradle.internal.resolve.resolver.ArtifactResolver
+import org.gradle.internal.resolve.resolver.ComponentMetaDataPrefetcher
 import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver
 import org.gradle.internal.resolve.resolver.DependencyToComponentIdResolver
 import org.gradle.internal.resolve.resolver.ModuleToComponentResolver
@@ -896,6 +897,56 @@ class DependencyGraphBuilderTest extends Specification {
         modules(result) == ids(forced, b)
     }
 
+    def "prefetches meta-data of the module versions selected by the outgoing edges of a configuration"() {
+        given:
+        def prefetcher = Mock(ComponentMetaDataPrefetcher)
+        builder = new DependencyGraphBuilder(idResolver, metaDataResolver, prefetcher, moduleResolver, artifactResolver, new DefaultConflictHandler(conflictResolver, moduleReplacements), dependencyToConfigurationResolver)
+        def a = revision("a")
+        def b = revision("b")
+        def c = revision("c")
+        traverses root, a
+        traverses root, b
+        traverses a, c
+        def prefetched = []
+
+        when:
+        def result = resolve()
+        result.rethrowFailure()
+
+        then:
+        3 * prefetcher.prefetch(!null, _) >> { DependencyMetaData dependency, ComponentIdentifier id -> prefetched << id }
+        prefetched == [a.componentId, b.componentId, c.componentId]
+        modules(result) == ids(a, b, c)
+    }
+
+    def "does not prefetch meta-data of a module version that is evicted by the selected version"() {
+        given:
+        def prefetcher = Mock(ComponentMetaDataPrefetcher)
+        builder = new DependencyGraphBuilder(idResolver, metaDataResolver, prefetcher, moduleResolver, artifactResolver, new DefaultConflictHandler(conflictResolver, moduleReplacements), dependencyToConfigurationResolver)
+        def selected = revision("a", "1.2")
+        def evicted = revision("a", "1.1")
+        def b = revision("b")
+        traverses root, selected
+        traverses root, b
+        doesNotTraverse b, evicted
+
+        when:
+        def result = resolve()
+        result.rethrowFailure()
+
+        then:
+        1 * prefetcher.prefetch(_, selected.componentId)
+        1 * prefetcher.prefetch(_, b.componentId)
+        0 * prefetcher.prefetch(_, evicted.componentId)
+        1 * conflictResolver.select(!null) >> {
+            Collection<ModuleRevisionResolveState> candidates = it[0]
+            return candidates.find { it.version == '1.2' }
+        }
+
+        and:
+        modules(result) == ids(selected, b)
+    }
+
     def revision(String name, String revision = '1.0') {
         def descriptor = new DefaultModuleDescriptor(createModuleRevisionId("group", name, revision), "release", new Date())
         def metaData = new TestMetaData(descriptor)
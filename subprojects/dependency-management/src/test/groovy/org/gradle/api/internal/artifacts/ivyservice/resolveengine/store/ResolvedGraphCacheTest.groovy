@@ -0,0 +1,169 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.store
+
+import org.gradle.api.artifacts.Dependency
+import org.gradle.api.artifacts.DependencySet
+import org.gradle.api.artifacts.ProjectDependency
+import org.gradle.api.artifacts.UnresolvedDependency
+import org.gradle.api.internal.artifacts.GlobalDependencyResolutionRules
+import org.gradle.api.internal.artifacts.ModuleInternal
+import org.gradle.api.internal.artifacts.configurations.ConfigurationInternal
+import org.gradle.api.internal.artifacts.configurations.ResolutionStrategyInternal
+import org.gradle.api.internal.artifacts.dependencies.DefaultExternalModuleDependency
+import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ConfiguredModuleComponentRepository
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionSelectorScheme
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.oldresult.DefaultResolvedConfigurationBuilder
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.oldresult.ResolvedConfigurationBuilder
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ResolutionResultBuilder
+import org.gradle.api.internal.artifacts.repositories.ResolutionAwareRepository
+import org.gradle.cache.PersistentIndexedCache
+import org.gradle.internal.resolve.resolver.ArtifactResolver
+import spock.lang.Specification
+
+class ResolvedGraphCacheTest extends Specification {
+    final Map<String, byte[]> entries = [:]
+    final persistentCache = [get: { String key -> entries[key] }, put: { String key, byte[] value -> entries[key] = value }] as PersistentIndexedCache
+    final cacheLockingManager = Stub(CacheLockingManager) {
+        createCache("resolved-graphs", _, _) >> persistentCache
+    }
+    final rules = Stub(GlobalDependencyResolutionRules)
+    final resolutionStrategy = Stub(ResolutionStrategyInternal) {
+        getForcedModules() >> ([] as Set)
+    }
+    final cache = new ResolvedGraphCache(cacheLockingManager, new DefaultVersionSelectorScheme(), false)
+
+    def "creates same key for same declared inputs"() {
+        expect:
+        key([dependency("1.0")], [repository("repo")]) == key([dependency("1.0")], [repository("repo")])
+        cache.createKey(configuration([dependency("1.0")]), [repository("repo")], rules).dependencies == [dependency("1.0")]
+    }
+
+    def "creates different key when declared inputs change"() {
+        def original = key([dependency("1.0")], [repository("repo")])
+
+        expect:
+        key([dependency("1.1")], [repository("repo")]) != original
+        key([dependency("1.0"), dependency("1.0", "other")], [repository("repo")]) != original
+        key([dependency("1.0")], [repository("other")]) != original
+        key([dependency("1.0")], [repository("repo"), repository("other")]) != original
+    }
+
+    def "cannot cache results of configuration with dynamic or changing dependencies"() {
+        def changing = dependency("1.0")
+        changing.changing = true
+
+        expect:
+        key([dependency("1.+")], [repository("repo")]) == null
+        key([dependency("latest.release")], [repository("repo")]) == null
+        key([changing], [repository("repo")]) == null
+    }
+
+    def "cannot cache results of configuration with project dependencies"() {
+        expect:
+        key([dependency("1.0"), Stub(ProjectDependency)], [repository("repo")]) == null
+    }
+
+    def "cannot cache results of configuration resolved from a local repository"() {
+        expect:
+        key([dependency("1.0")], [repository("repo"), repository("local", true)]) == null
+    }
+
+    def "cannot cache results of configuration with dependency resolve rules"() {
+        resolutionStrategy.hasDependencyResolveRules() >> true
+
+        expect:
+        key([dependency("1.0")], [repository("repo")]) == null
+    }
+
+    def "replays stored results"() {
+        def key = cache.createKey(configuration([dependency("1.0")]), [repository("repo")], rules)
+        def recorder = cache.record(key, Stub(ResolutionResultBuilder), Stub(ResolvedConfigurationBuilder))
+        def newModelBuilder = Mock(ResolutionResultBuilder)
+
+        expect:
+        !cache.replay(key, newModelBuilder, Stub(DefaultResolvedConfigurationBuilder), Stub(ArtifactResolver))
+
+        when:
+        cache.store(recorder)
+        def replayed = cache.replay(key, newModelBuilder, Stub(DefaultResolvedConfigurationBuilder), Stub(ArtifactResolver))
+
+        then:
+        replayed
+        entries.size() == 1
+    }
+
+    def "does not store results which cannot be reused"() {
+        def key = cache.createKey(configuration([dependency("1.0")]), [repository("repo")], rules)
+        def recorder = cache.record(key, Stub(ResolutionResultBuilder), Stub(ResolvedConfigurationBuilder))
+        recorder.oldModelBuilder.addUnresolvedDependency(Stub(UnresolvedDependency))
+
+        when:
+        cache.store(recorder)
+
+        then:
+        entries.isEmpty()
+    }
+
+    def "does not replay results when dependencies are refreshed"() {
+        def refreshingCache = new ResolvedGraphCache(cacheLockingManager, new DefaultVersionSelectorScheme(), true)
+        def key = refreshingCache.createKey(configuration([dependency("1.0")]), [repository("repo")], rules)
+        refreshingCache.store(refreshingCache.record(key, Stub(ResolutionResultBuilder), Stub(ResolvedConfigurationBuilder)))
+
+        expect:
+        entries.size() == 1
+        !refreshingCache.replay(key, Mock(ResolutionResultBuilder), Stub(DefaultResolvedConfigurationBuilder), Stub(ArtifactResolver))
+    }
+
+    private String key(List<Dependency> dependencies, List<ResolutionAwareRepository> repositories) {
+        return cache.createKey(configuration(dependencies), repositories, rules)?.toString()
+    }
+
+    private ConfigurationInternal configuration(List<Dependency> dependencies) {
+        def configuration = Stub(ConfigurationInternal)
+        configuration.path >> ":compile"
+        configuration.name >> "compile"
+        configuration.transitive >> true
+        configuration.excludeRules >> ([] as Set)
+        configuration.module >> Stub(ModuleInternal) {
+            getGroup() >> "group"
+            getName() >> "project"
+            getVersion() >> "1.0"
+        }
+        configuration.resolutionStrategy >> resolutionStrategy
+        configuration.hierarchy >> ([configuration] as Set)
+        configuration.dependencies >> Stub(DependencySet) {
+            iterator() >> { dependencies.iterator() }
+        }
+        return configuration
+    }
+
+    private static DefaultExternalModuleDependency dependency(String version, String name = "module") {
+        return new DefaultExternalModuleDependency("org", name, version)
+    }
+
+    private ResolutionAwareRepository repository(String id, boolean local = false) {
+        return Stub(ResolutionAwareRepository) {
+            createResolver() >> Stub(ConfiguredModuleComponentRepository) {
+                getId() >> id
+                getName() >> id
+                isLocal() >> local
+            }
+        }
+    }
+}
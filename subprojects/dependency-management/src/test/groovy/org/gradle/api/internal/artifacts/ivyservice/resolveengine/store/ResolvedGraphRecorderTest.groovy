@@ -0,0 +1,178 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.store
+
+import org.gradle.api.artifacts.ModuleDependency
+import org.gradle.api.artifacts.UnresolvedDependency
+import org.gradle.api.internal.artifacts.ResolvedConfigurationIdentifier
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionSelectorScheme
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.oldresult.DefaultResolvedConfigurationBuilder
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.oldresult.TransientConfigurationResultsBuilder
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.DefaultInternalDependencyResult
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.DefaultModuleVersionSelection
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.DummyBinaryStore
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.DummyStore
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.StreamingResolutionResultBuilder
+import org.gradle.internal.component.external.model.DefaultModuleComponentArtifactMetaData
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
+import org.gradle.internal.component.external.model.DefaultModuleComponentSelector
+import org.gradle.internal.component.model.ComponentResolveMetaData
+import org.gradle.internal.component.model.DefaultIvyArtifactName
+import org.gradle.internal.component.model.ModuleSource
+import org.gradle.internal.resolve.ModuleVersionResolveException
+import org.gradle.internal.resolve.resolver.ArtifactResolver
+import org.gradle.internal.resolve.result.BuildableArtifactResolveResult
+import spock.lang.Specification
+
+import static org.gradle.api.internal.artifacts.DefaultModuleVersionIdentifier.newId
+import static org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ResolutionResultPrinter.printGraph
+import static org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.VersionSelectionReasons.REQUESTED
+
+class ResolvedGraphRecorderTest extends Specification {
+    final dependency = Stub(ModuleDependency)
+    final key = new ResolvedGraphCache.Key("hash", [dependency])
+    final artifactResolver = Mock(ArtifactResolver)
+    final moduleSource = new TestModuleSource(value: "source")
+    final rootId = new ResolvedConfigurationIdentifier(newId("org", "root", "1.0"), "compile")
+    final childId = new ResolvedConfigurationIdentifier(newId("org", "dep", "2.0"), "default")
+    final artifact = new DefaultModuleComponentArtifactMetaData(DefaultModuleComponentIdentifier.newId("org", "dep", "2.0"), new DefaultIvyArtifactName("dep", "jar", "jar", [classifier: "api"]))
+    final newModelBuilder = new StreamingResolutionResultBuilder(new DummyBinaryStore(), new DummyStore())
+    final oldModelBuilder = newOldModelBuilder()
+    final recorder = new ResolvedGraphRecorder(key, new DefaultVersionSelectorScheme(), newModelBuilder, oldModelBuilder)
+
+    def "replays recorded results"() {
+        given:
+        resolveGraph("2.0", component(false))
+        def recording = recorder.recording
+
+        when:
+        def replayedNewModel = new StreamingResolutionResultBuilder(new DummyBinaryStore(), new DummyStore())
+        def replayedOldModel = newOldModelBuilder()
+        ResolvedGraphRecorder.replay(recording, [dependency], replayedNewModel, replayedOldModel, artifactResolver)
+
+        then:
+        printGraph(replayedNewModel.complete().root) == printGraph(newModelBuilder.complete().root)
+        printGraph(replayedNewModel.complete().root) == """org:root:1.0
+  org:dep:2.0 [root]
+"""
+
+        and:
+        def firstLevelDependencies = replayedOldModel.more().firstLevelDependencies
+        firstLevelDependencies.keySet() == [dependency] as Set
+        def resolvedDependency = firstLevelDependencies[dependency]
+        resolvedDependency.module.id == newId("org", "dep", "2.0")
+        resolvedDependency.configuration == "default"
+        resolvedDependency.parents*.module*.id == [newId("org", "root", "1.0")]
+
+        when:
+        def artifacts = resolvedDependency.getParentArtifacts(replayedOldModel.more().root)
+
+        then:
+        artifacts*.name == ["dep"]
+        artifacts*.classifier == ["api"]
+
+        when:
+        def file = artifacts.iterator().next().file
+
+        then:
+        file == new File("dep.jar")
+        1 * artifactResolver.resolveArtifact({ it.id == artifact.id }, moduleSource, _) >> { args -> (args[2] as BuildableArtifactResolveResult).resolved(new File("dep.jar")) }
+    }
+
+    def "results are not reusable when a dependency could not be resolved"() {
+        when:
+        recorder.oldModelBuilder.addUnresolvedDependency(Stub(UnresolvedDependency))
+
+        then:
+        recorder.notReusableReason != null
+
+        when:
+        recorder.recording
+
+        then:
+        thrown(IllegalStateException)
+    }
+
+    def "results are not reusable when a dependency failed"() {
+        when:
+        recorder.newModelBuilder.start(newId("org", "root", "1.0"), DefaultModuleComponentIdentifier.newId("org", "root", "1.0"))
+        recorder.newModelBuilder.resolvedConfiguration(newId("org", "root", "1.0"), [
+                new DefaultInternalDependencyResult(DefaultModuleComponentSelector.newSelector("org", "dep", "2.0"), null, REQUESTED, new ModuleVersionResolveException(DefaultModuleComponentSelector.newSelector("org", "dep", "2.0"), "broken"))
+        ])
+
+        then:
+        recorder.notReusableReason == "org:dep:2.0 could not be resolved"
+    }
+
+    def "results are not reusable when a dependency uses a dynamic version"() {
+        when:
+        resolveGraph("2.+", component(false))
+
+        then:
+        recorder.notReusableReason == "org:dep:2.+ is a dynamic version"
+    }
+
+    def "results are not reusable when they contain a changing module"() {
+        when:
+        resolveGraph("2.0", component(true))
+
+        then:
+        recorder.notReusableReason == "org:dep:2.0 is a changing module"
+    }
+
+    private void resolveGraph(String requestedVersion, ComponentResolveMetaData component) {
+        def newModel = recorder.newModelBuilder
+        newModel.start(newId("org", "root", "1.0"), DefaultModuleComponentIdentifier.newId("org", "root", "1.0"))
+        newModel.resolvedModuleVersion(new DefaultModuleVersionSelection(newId("org", "dep", "2.0"), REQUESTED, DefaultModuleComponentIdentifier.newId("org", "dep", "2.0")))
+        newModel.resolvedConfiguration(newId("org", "root", "1.0"), [
+                new DefaultInternalDependencyResult(DefaultModuleComponentSelector.newSelector("org", "dep", requestedVersion), newId("org", "dep", "2.0"), REQUESTED, null)
+        ])
+
+        def oldModel = recorder.oldModelBuilder
+        oldModel.newResolvedDependency(rootId)
+        oldModel.newResolvedDependency(childId)
+        def resolvedArtifact = oldModel.newArtifact(childId, component, artifact, artifactResolver)
+        oldModel.addChild(rootId, childId)
+        oldModel.addParentSpecificArtifacts(childId, rootId, [resolvedArtifact] as Set)
+        oldModel.addFirstLevelDependency(dependency, childId)
+        oldModel.done(rootId)
+    }
+
+    private ComponentResolveMetaData component(boolean changing) {
+        return Stub(ComponentResolveMetaData) {
+            getId() >> newId("org", "dep", "2.0")
+            getSource() >> moduleSource
+            isChanging() >> changing
+        }
+    }
+
+    private static DefaultResolvedConfigurationBuilder newOldModelBuilder() {
+        return new DefaultResolvedConfigurationBuilder(new TransientConfigurationResultsBuilder(new DummyBinaryStore(), new DummyStore()))
+    }
+
+    static class TestModuleSource implements ModuleSource {
+        String value
+
+        boolean equals(Object o) {
+            return o instanceof TestModuleSource && o.value == value
+        }
+
+        int hashCode() {
+            return value.hashCode()
+        }
+    }
+}
@@ -28,7 +28,7 @@ import spock.lang.Unroll
 
 class RepositoryTransportFactoryTest extends Specification {
 
-    def repositoryTransportFactory = new RepositoryTransportFactory(null, null, null, null, null, null)
+    def repositoryTransportFactory = new RepositoryTransportFactory(null, null, null, null, null, null, null)
 
     def "cannot create a transport for url with unsupported scheme"() {
         when:
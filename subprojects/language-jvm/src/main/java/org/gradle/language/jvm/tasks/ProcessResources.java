@@ -19,6 +19,9 @@ import org.gradle.api.tasks.Copy;
 import org.gradle.language.base.internal.tasks.SimpleStaleClassCleaner;
 import org.gradle.language.base.internal.tasks.StaleClassCleaner;
 
+import java.io.File;
+import java.util.Set;
+
 /**
  * Copies resources from their source to their target directory, potentially processing them.
  * Makes sure no stale resources remain in the target directory.
@@ -32,4 +35,12 @@ public class ProcessResources extends Copy {
         cleaner.execute();
         super.copy();
     }
+
+    /**
+     * Always copies all resources, as the resources copied by the previous execution are deleted before copying.
+     */
+    @Override
+    protected Set<File> collectChangedSources() {
+        return null;
+    }
 }
\ No newline at end of file
@@ -23,6 +23,10 @@ import org.gradle.api.internal.tasks.testing.junit.result.TestMethodResult;
 import org.gradle.api.internal.tasks.testing.junit.result.TestResultsProvider;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
+import org.gradle.internal.Actions;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.StoppableExecutor;
 import org.gradle.reporting.HtmlReportBuilder;
 import org.gradle.reporting.HtmlReportRenderer;
 import org.gradle.reporting.ReportRenderer;
@@ -30,27 +34,59 @@ import org.gradle.util.Clock;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.gradle.api.tasks.testing.TestResult.ResultType.SKIPPED;
 
+/**
+ * Generates the HTML test report. The overview and package pages are rendered on the calling thread, and the class pages on a pool of workers.
+ *
+ * <p>The class pages are rendered in the order of the class ids, which is the order in which the output of the classes was written. So the workers read the
+ * output of the classes from front to back, rather than seeking back and forth through it.</p>
+ */
 public class DefaultTestReport implements TestReporter {
     private final static Logger LOG = Logging.getLogger(DefaultTestReport.class);
+    private final ExecutorFactory executorFactory;
+    private final int maxWorkers;
+
+    /**
+     * @param executorFactory the factory for the workers which render the class pages.
+     * @param maxWorkers the maximum number of workers to use.
+     */
+    public DefaultTestReport(ExecutorFactory executorFactory, int maxWorkers) {
+        if (maxWorkers < 1) {
+            throw new IllegalArgumentException("Not a valid number of workers: " + maxWorkers);
+        }
+        this.executorFactory = executorFactory;
+        this.maxWorkers = maxWorkers;
+    }
 
     public void generateReport(TestResultsProvider resultsProvider, File reportDir) {
+        generateReport(resultsProvider, reportDir, Actions.doNothing());
+    }
+
+    public void generateReport(TestResultsProvider resultsProvider, File reportDir, Action<? super TestClassResult> classResultAction) {
         LOG.info("Generating HTML test report...");
 
         Clock clock = new Clock();
-        AllTestResults model = loadModelFromProvider(resultsProvider);
-        generateFiles(model, resultsProvider, reportDir);
+        List<ClassReport> classReports = new ArrayList<ClassReport>();
+        AllTestResults model = loadModelFromProvider(resultsProvider, classReports);
+        generateFiles(model, classReports, resultsProvider, classResultAction, reportDir);
         LOG.info("Finished generating test html results ({}) into: {}", clock.getTime(), reportDir);
     }
 
-    private AllTestResults loadModelFromProvider(TestResultsProvider resultsProvider) {
+    private AllTestResults loadModelFromProvider(TestResultsProvider resultsProvider, final List<ClassReport> classReports) {
         final AllTestResults model = new AllTestResults();
         resultsProvider.visitClasses(new Action<TestClassResult>() {
             public void execute(TestClassResult classResult) {
-                model.addTestClass(classResult.getId(), classResult.getClassName());
+                ClassTestResults classResults = model.addTestClass(classResult.getId(), classResult.getClassName());
+                classReports.add(new ClassReport(classResult, classResults));
                 List<TestMethodResult> collectedResults = classResult.getResults();
                 for (TestMethodResult collectedResult : collectedResults) {
                     final TestResult testResult = model.addTest(classResult.getId(), classResult.getClassName(), collectedResult.getName(), collectedResult.getDuration());
@@ -65,29 +101,90 @@ public class DefaultTestReport implements TestReporter {
                 }
             }
         });
+        Collections.sort(classReports, new Comparator<ClassReport>() {
+            public int compare(ClassReport left, ClassReport right) {
+                long leftId = left.classResults.getId();
+                long rightId = right.classResults.getId();
+                return leftId < rightId ? -1 : leftId == rightId ? 0 : 1;
+            }
+        });
         return model;
     }
 
-    private void generateFiles(AllTestResults model, final TestResultsProvider resultsProvider, File reportDir) {
+    private void generateFiles(AllTestResults model, final List<ClassReport> classReports, final TestResultsProvider resultsProvider,
+                               final Action<? super TestClassResult> classResultAction, File reportDir) {
         try {
             HtmlReportRenderer htmlRenderer = new HtmlReportRenderer();
             htmlRenderer.render(model, new ReportRenderer<AllTestResults, HtmlReportBuilder>() {
                 @Override
                 public void render(AllTestResults model, HtmlReportBuilder output) throws IOException {
                     PackagePageRenderer packagePageRenderer = new PackagePageRenderer();
-                    ClassPageRenderer classPageRenderer = new ClassPageRenderer(resultsProvider);
 
                     output.renderHtmlPage("index.html", model, new OverviewPageRenderer());
                     for (PackageTestResults packageResults : model.getPackages()) {
                         output.renderHtmlPage(packageResults.getBaseUrl(), packageResults, packagePageRenderer);
-                        for (ClassTestResults classResults : packageResults.getClasses()) {
-                            output.renderHtmlPage(classResults.getBaseUrl(), classResults, classPageRenderer);
-                        }
                     }
+                    renderClasses(classReports, resultsProvider, classResultAction, output);
                 }
             }, reportDir);
         } catch (Exception e) {
             throw new GradleException(String.format("Could not generate test report to '%s'.", reportDir), e);
         }
     }
+
+    private void renderClasses(final List<ClassReport> classReports, final TestResultsProvider resultsProvider, final Action<? super TestClassResult> classResultAction,
+                               final HtmlReportBuilder output) {
+        int workerCount = Math.min(maxWorkers, classReports.size());
+        if (workerCount < 2) {
+            for (ClassReport classReport : classReports) {
+                classReport.render(resultsProvider, classResultAction, output);
+            }
+            return;
+        }
+
+        final AtomicInteger nextIndex = new AtomicInteger();
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final CountDownLatch finished = new CountDownLatch(workerCount);
+        StoppableExecutor executor = executorFactory.create("Test report renderer");
+        try {
+            for (int i = 0; i < workerCount; i++) {
+                executor.execute(new Runnable() {
+                    public void run() {
+                        try {
+                            for (int index = nextIndex.getAndIncrement(); index < classReports.size() && failure.get() == null; index = nextIndex.getAndIncrement()) {
+                                classReports.get(index).render(resultsProvider, classResultAction, output);
+                            }
+                        } catch (Throwable throwable) {
+                            failure.compareAndSet(null, throwable);
+                        } finally {
+                            finished.countDown();
+                        }
+                    }
+                });
+            }
+            finished.await();
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        } finally {
+            executor.stop();
+        }
+        if (failure.get() != null) {
+            throw UncheckedException.throwAsUncheckedException(failure.get());
+        }
+    }
+
+    private static class ClassReport {
+        final TestClassResult classResult;
+        final ClassTestResults classResults;
+
+        private ClassReport(TestClassResult classResult, ClassTestResults classResults) {
+            this.classResult = classResult;
+            this.classResults = classResults;
+        }
+
+        void render(TestResultsProvider resultsProvider, Action<? super TestClassResult> classResultAction, HtmlReportBuilder output) {
+            classResultAction.execute(classResult);
+            output.renderHtmlPage(classResults.getBaseUrl(), classResults, new ClassPageRenderer(resultsProvider));
+        }
+    }
 }
@@ -15,10 +15,18 @@
  */
 package org.gradle.api.internal.tasks.testing.junit.report;
 
+import org.gradle.api.Action;
+import org.gradle.api.internal.tasks.testing.junit.result.TestClassResult;
 import org.gradle.api.internal.tasks.testing.junit.result.TestResultsProvider;
 
 import java.io.File;
 
 public interface TestReporter {
     void generateReport(TestResultsProvider testResultsProvider, File reportDir);
+
+    /**
+     * Generates the report, and runs the given action for each test class in the same pass over the results. The action may be run concurrently for
+     * different classes.
+     */
+    void generateReport(TestResultsProvider testResultsProvider, File reportDir, Action<? super TestClassResult> classResultAction);
 }
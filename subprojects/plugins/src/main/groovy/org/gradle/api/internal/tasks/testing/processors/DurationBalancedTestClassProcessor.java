@@ -0,0 +1,231 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.processors;
+
+import org.gradle.api.internal.tasks.testing.*;
+import org.gradle.api.tasks.testing.TestOutputEvent;
+import org.gradle.internal.Factory;
+import org.gradle.internal.TimeProvider;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.messaging.actor.Actor;
+import org.gradle.messaging.actor.ActorFactory;
+import org.gradle.messaging.dispatch.DispatchException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+/**
+ * Manages a set of parallel TestClassProcessors. Test classes are collected until the scan has finished, and are then assigned longest first to
+ * the processor which is expected to finish earliest, using the durations of the test classes from the previous run. The durations observed in
+ * this run are kept for the next one.
+ */
+public class DurationBalancedTestClassProcessor implements TestClassProcessor {
+    public static final String TOGGLE = "org.gradle.test.balanced";
+    private static final Logger LOGGER = LoggerFactory.getLogger(DurationBalancedTestClassProcessor.class);
+
+    private final int maxProcessors;
+    private final Factory<TestClassProcessor> factory;
+    private final ActorFactory actorFactory;
+    private final TestClassDurationStore durationStore;
+    private final TimeProvider timeProvider;
+    private final List<TestClassRunInfo> testClasses = new ArrayList<TestClassRunInfo>();
+    private final List<TestClassProcessor> processors = new ArrayList<TestClassProcessor>();
+    private final List<Actor> actors = new ArrayList<Actor>();
+    private final List<DurationRecordingResultProcessor> recorders = new ArrayList<DurationRecordingResultProcessor>();
+    private TestResultProcessor resultProcessor;
+    private Actor resultProcessorActor;
+
+    public DurationBalancedTestClassProcessor(int maxProcessors, Factory<TestClassProcessor> factory, ActorFactory actorFactory,
+                                              TestClassDurationStore durationStore, TimeProvider timeProvider) {
+        this.maxProcessors = maxProcessors;
+        this.factory = factory;
+        this.actorFactory = actorFactory;
+        this.durationStore = durationStore;
+        this.timeProvider = timeProvider;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(TOGGLE);
+    }
+
+    public void startProcessing(TestResultProcessor resultProcessor) {
+        resultProcessorActor = actorFactory.createActor(resultProcessor);
+        this.resultProcessor = resultProcessorActor.getProxy(TestResultProcessor.class);
+    }
+
+    public void processTestClass(TestClassRunInfo testClass) {
+        testClasses.add(testClass);
+    }
+
+    public void stop() {
+        Map<String, Long> durations = durationStore.read();
+        long startTime = timeProvider.getCurrentTime();
+        try {
+            try {
+                dispatch(durations);
+            } finally {
+                CompositeStoppable.stoppable(processors).add(actors).add(resultProcessorActor).stop();
+            }
+        } catch (DispatchException e) {
+            throw UncheckedException.throwAsUncheckedException(e.getCause());
+        } finally {
+            long wallTime = timeProvider.getCurrentTime() - startTime;
+            for (int i = 0; i < recorders.size(); i++) {
+                DurationRecordingResultProcessor recorder = recorders.get(i);
+                durations.putAll(recorder.getDurations());
+                LOGGER.info("Test fork {} of {} ran {} test classes in {}ms of {}ms ({}% busy).", new Object[]{
+                        i + 1, recorders.size(), recorder.getDurations().size(), recorder.getBusyTime(), wallTime,
+                        wallTime > 0 ? recorder.getBusyTime() * 100 / wallTime : 100
+                });
+            }
+            if (!recorders.isEmpty()) {
+                try {
+                    durationStore.write(durations);
+                } catch (RuntimeException e) {
+                    // Should not fail the tests
+                    LOGGER.warn("Could not write test class durations.", e);
+                }
+            }
+        }
+    }
+
+    private void dispatch(Map<String, Long> durations) {
+        if (testClasses.isEmpty()) {
+            return;
+        }
+
+        // Classes which have not run before are expected to take the average time of those which have
+        long knownTotal = 0;
+        int knownCount = 0;
+        for (TestClassRunInfo testClass : testClasses) {
+            Long duration = durations.get(testClass.getTestClassName());
+            if (duration != null) {
+                knownTotal += duration;
+                knownCount++;
+            }
+        }
+        long defaultDuration = knownCount > 0 ? Math.max(1, knownTotal / knownCount) : 1;
+        final Map<TestClassRunInfo, Long> estimates = new HashMap<TestClassRunInfo, Long>();
+        for (TestClassRunInfo testClass : testClasses) {
+            Long duration = durations.get(testClass.getTestClassName());
+            estimates.put(testClass, duration != null ? duration : defaultDuration);
+        }
+        List<TestClassRunInfo> sorted = new ArrayList<TestClassRunInfo>(testClasses);
+        Collections.sort(sorted, new Comparator<TestClassRunInfo>() {
+            public int compare(TestClassRunInfo left, TestClassRunInfo right) {
+                return estimates.get(right).compareTo(estimates.get(left));
+            }
+        });
+
+        PriorityQueue<Slot> slots = new PriorityQueue<Slot>();
+        int processorCount = Math.min(maxProcessors, sorted.size());
+        for (int i = 0; i < processorCount; i++) {
+            slots.add(new Slot(i, startProcessor()));
+        }
+        for (TestClassRunInfo testClass : sorted) {
+            Slot slot = slots.remove();
+            slot.processor.processTestClass(testClass);
+            slot.expectedEnd += estimates.get(testClass);
+            slots.add(slot);
+        }
+    }
+
+    private TestClassProcessor startProcessor() {
+        TestClassProcessor processor = factory.create();
+        Actor actor = actorFactory.createActor(processor);
+        processor = actor.getProxy(TestClassProcessor.class);
+        actors.add(actor);
+        processors.add(processor);
+        DurationRecordingResultProcessor recorder = new DurationRecordingResultProcessor(resultProcessor);
+        recorders.add(recorder);
+        processor.startProcessing(recorder);
+        return processor;
+    }
+
+    private static class Slot implements Comparable<Slot> {
+        private final int index;
+        private final TestClassProcessor processor;
+        private long expectedEnd;
+
+        private Slot(int index, TestClassProcessor processor) {
+            this.index = index;
+            this.processor = processor;
+        }
+
+        public int compareTo(Slot other) {
+            if (expectedEnd != other.expectedEnd) {
+                return expectedEnd < other.expectedEnd ? -1 : 1;
+            }
+            return index - other.index;
+        }
+    }
+
+    /**
+     * Forwards the results of a single processor, recording how long each test class took.
+     */
+    private static class DurationRecordingResultProcessor implements TestResultProcessor {
+        private final TestResultProcessor delegate;
+        private final Map<Object, TestDescriptorInternal> runningClasses = new HashMap<Object, TestDescriptorInternal>();
+        private final Map<Object, Long> startTimes = new HashMap<Object, Long>();
+        private final Map<String, Long> durations = new HashMap<String, Long>();
+        private long busyTime;
+
+        private DurationRecordingResultProcessor(TestResultProcessor delegate) {
+            this.delegate = delegate;
+        }
+
+        public void started(TestDescriptorInternal test, TestStartEvent event) {
+            if (test.isComposite() && test.getClassName() != null) {
+                synchronized (this) {
+                    runningClasses.put(test.getId(), test);
+                    startTimes.put(test.getId(), event.getStartTime());
+                }
+            }
+            delegate.started(test, event);
+        }
+
+        public void completed(Object testId, TestCompleteEvent event) {
+            synchronized (this) {
+                TestDescriptorInternal test = runningClasses.remove(testId);
+                if (test != null) {
+                    long duration = Math.max(0, event.getEndTime() - startTimes.remove(testId));
+                    durations.put(test.getClassName(), duration);
+                    busyTime += duration;
+                }
+            }
+            delegate.completed(testId, event);
+        }
+
+        public void output(Object testId, TestOutputEvent event) {
+            delegate.output(testId, event);
+        }
+
+        public void failure(Object testId, Throwable result) {
+            delegate.failure(testId, result);
+        }
+
+        synchronized Map<String, Long> getDurations() {
+            return new HashMap<String, Long>(durations);
+        }
+
+        synchronized long getBusyTime() {
+            return busyTime;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.processors;
+
+import org.gradle.api.UncheckedIOException;
+import org.gradle.messaging.serialize.Decoder;
+import org.gradle.messaging.serialize.FlushableEncoder;
+import org.gradle.messaging.serialize.kryo.KryoBackedDecoder;
+import org.gradle.messaging.serialize.kryo.KryoBackedEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps the duration of each test class between runs, so that test classes can be scheduled using how long they took the last time they ran.
+ */
+public class TestClassDurationStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestClassDurationStore.class);
+    private static final int VERSION = 1;
+
+    private final File durationsFile;
+
+    public TestClassDurationStore(File dir) {
+        this.durationsFile = new File(dir, "class-durations.bin");
+    }
+
+    /**
+     * Returns the known durations in milliseconds, keyed by test class name. Returns an empty map when there are no usable durations.
+     */
+    public Map<String, Long> read() {
+        Map<String, Long> durations = new HashMap<String, Long>();
+        if (!durationsFile.isFile()) {
+            return durations;
+        }
+        try {
+            InputStream inputStream = new BufferedInputStream(new FileInputStream(durationsFile));
+            try {
+                Decoder decoder = new KryoBackedDecoder(inputStream);
+                if (decoder.readSmallInt() != VERSION) {
+                    return durations;
+                }
+                int count = decoder.readSmallInt();
+                for (int i = 0; i < count; i++) {
+                    String className = decoder.readString();
+                    durations.put(className, decoder.readSmallLong());
+                }
+            } finally {
+                inputStream.close();
+            }
+        } catch (Exception e) {
+            // The durations are only used to schedule test classes, so carry on without them
+            LOGGER.debug(String.format("Could not read test class durations from %s.", durationsFile), e);
+            durations.clear();
+        }
+        return durations;
+    }
+
+    public void write(Map<String, Long> durations) {
+        try {
+            File parent = durationsFile.getParentFile();
+            if (!parent.isDirectory() && !parent.mkdirs()) {
+                throw new IOException(String.format("Could not create directory '%s'.", parent));
+            }
+            OutputStream outputStream = new FileOutputStream(durationsFile);
+            try {
+                FlushableEncoder encoder = new KryoBackedEncoder(outputStream);
+                encoder.writeSmallInt(VERSION);
+                encoder.writeSmallInt(durations.size());
+                for (Map.Entry<String, Long> entry : durations.entrySet()) {
+                    encoder.writeString(entry.getKey());
+                    encoder.writeSmallLong(entry.getValue());
+                }
+                encoder.flush();
+            } finally {
+                outputStream.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -30,21 +30,37 @@ import org.gradle.process.internal.WorkerProcessBuilder;
 import java.io.File;
 
 public class ForkingTestClassProcessor implements TestClassProcessor {
+    public static final String REUSE_WORKERS_TOGGLE = "org.gradle.test.reuseWorkers";
     private final Factory<WorkerProcessBuilder> workerFactory;
     private final WorkerTestClassProcessorFactory processorFactory;
     private final JavaForkOptions options;
     private final Iterable<File> classPath;
     private final Action<WorkerProcessBuilder> buildConfigAction;
+    private final boolean reuseWorkers;
     private RemoteTestClassProcessor remoteProcessor;
     private WorkerProcess workerProcess;
     private TestResultProcessor resultProcessor;
 
     public ForkingTestClassProcessor(Factory<WorkerProcessBuilder> workerFactory, WorkerTestClassProcessorFactory processorFactory, JavaForkOptions options, Iterable<File> classPath, Action<WorkerProcessBuilder> buildConfigAction) {
+        this(workerFactory, processorFactory, options, classPath, buildConfigAction, false);
+    }
+
+    /**
+     * @param reuseWorkers whether the tests may run in a long-lived worker process, with the test classes loaded into a fresh isolated ClassLoader
+     * rather than the system ClassLoader
+     */
+    public ForkingTestClassProcessor(Factory<WorkerProcessBuilder> workerFactory, WorkerTestClassProcessorFactory processorFactory, JavaForkOptions options, Iterable<File> classPath, Action<WorkerProcessBuilder> buildConfigAction,
+                                     boolean reuseWorkers) {
         this.workerFactory = workerFactory;
         this.processorFactory = processorFactory;
         this.options = options;
         this.classPath = classPath;
         this.buildConfigAction = buildConfigAction;
+        this.reuseWorkers = reuseWorkers;
+    }
+
+    public static boolean isReuseWorkersEnabled() {
+        return Boolean.getBoolean(REUSE_WORKERS_TOGGLE);
     }
 
     public void startProcessing(TestResultProcessor resultProcessor) {
@@ -63,7 +79,11 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
         WorkerProcessBuilder builder = workerFactory.create();
         builder.setBaseName("Gradle Test Executor");
         builder.applicationClasspath(classPath);
-        builder.setLoadApplicationInSystemClassLoader(true);
+        if (reuseWorkers) {
+            builder.setReusable(true);
+        } else {
+            builder.setLoadApplicationInSystemClassLoader(true);
+        }
         builder.worker(new TestWorker(processorFactory));
         options.copyTo(builder.getJavaCommand());
         buildConfigAction.execute(builder);
@@ -52,6 +52,7 @@ import org.gradle.api.tasks.util.PatternFilterable;
 import org.gradle.api.tasks.util.PatternSet;
 import org.gradle.internal.Factory;
 import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.reflect.Instantiator;
 import org.gradle.listener.ClosureBackedMethodInvocationDispatch;
 import org.gradle.listener.ListenerBroadcast;
@@ -197,6 +198,11 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
         throw new UnsupportedOperationException();
     }
 
+    @Inject
+    protected ExecutorFactory getExecutorFactory() {
+        throw new UnsupportedOperationException();
+    }
+
     /**
      * ATM. for testing only
      */
@@ -521,21 +527,27 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
 
         try {
             if (testReporter == null) {
-                testReporter = new DefaultTestReport();
+                testReporter = new DefaultTestReport(getExecutorFactory(), Runtime.getRuntime().availableProcessors());
             }
 
             JUnitXmlReport junitXml = reports.getJunitXml();
+            Binary2JUnitXmlReportGenerator binary2JUnitXmlReportGenerator = null;
             if (junitXml.isEnabled()) {
                 TestOutputAssociation outputAssociation = junitXml.isOutputPerTestCase()
                         ? TestOutputAssociation.WITH_TESTCASE
                         : TestOutputAssociation.WITH_SUITE;
-                Binary2JUnitXmlReportGenerator binary2JUnitXmlReportGenerator = new Binary2JUnitXmlReportGenerator(junitXml.getDestination(), testResultsProvider, outputAssociation);
-                binary2JUnitXmlReportGenerator.generate();
+                binary2JUnitXmlReportGenerator = new Binary2JUnitXmlReportGenerator(junitXml.getDestination(), testResultsProvider, outputAssociation);
             }
 
             DirectoryReport html = reports.getHtml();
             if (!html.isEnabled()) {
                 getLogger().info("Test report disabled, omitting generation of the HTML test report.");
+                if (binary2JUnitXmlReportGenerator != null) {
+                    binary2JUnitXmlReportGenerator.generate();
+                }
+            } else if (binary2JUnitXmlReportGenerator != null) {
+                // Write the XML results in the same pass over the results as the HTML report
+                testReporter.generateReport(testResultsProvider, html.getDestination(), binary2JUnitXmlReportGenerator);
             } else {
                 testReporter.generateReport(testResultsProvider, html.getDestination());
             }
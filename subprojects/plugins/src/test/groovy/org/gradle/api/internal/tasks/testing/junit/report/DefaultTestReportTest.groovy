@@ -15,9 +15,13 @@
  */
 package org.gradle.api.internal.tasks.testing.junit.report
 
+import org.gradle.api.Action
+import org.gradle.api.GradleException
 import org.gradle.api.internal.tasks.testing.BuildableTestResultsProvider
 import org.gradle.api.internal.tasks.testing.junit.result.AggregateTestResultsProvider
+import org.gradle.api.internal.tasks.testing.junit.result.TestClassResult
 import org.gradle.api.internal.tasks.testing.junit.result.TestResultsProvider
+import org.gradle.internal.concurrent.DefaultExecutorFactory
 import org.gradle.test.fixtures.file.TestFile
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.gradle.util.ConfigureUtil
@@ -27,7 +31,7 @@ import spock.lang.Specification
 class DefaultTestReportTest extends Specification {
     @Rule
     public final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
-    final DefaultTestReport report = new DefaultTestReport()
+    final DefaultTestReport report = new DefaultTestReport(new DefaultExecutorFactory(), 4)
     final TestFile reportDir = tmpDir.file('report')
     final TestFile indexFile = reportDir.file('index.html')
     final TestResultsProvider testResultProvider = Mock()
@@ -477,6 +481,40 @@ class DefaultTestReportTest extends Specification {
         testClassFile.assertHasStandardError('err:\u0102')
     }
 
+    def runsActionForEachTestClassInTheSamePassAsTheReport() {
+        given:
+        def testTestResults = failingBuildResults()
+        def visited = Collections.synchronizedList([])
+        def action = { TestClassResult result -> visited << result.className } as Action
+
+        when:
+        report.generateReport(testTestResults, reportDir, action)
+
+        then:
+        visited.sort() == ["org.gradle.failing.SomeIgnoredSomePassedSomeFailed", "org.gradle.ignoring.SomeIgnoredSomePassed", "org.gradle.passing.AlsoPassed", "org.gradle.passing.Passed"]
+        reportDir.file('classes/org.gradle.passing.Passed.html').assertIsFile()
+        reportDir.file('classes/org.gradle.failing.SomeIgnoredSomePassedSomeFailed.html').assertIsFile()
+    }
+
+    def reportsFailureOfActionForTestClass() {
+        given:
+        def testTestResults = failingBuildResults()
+        def failure = new RuntimeException("broken")
+        def action = { TestClassResult result ->
+            if (result.className == "org.gradle.passing.Passed") {
+                throw failure
+            }
+        } as Action
+
+        when:
+        report.generateReport(testTestResults, reportDir, action)
+
+        then:
+        def e = thrown(GradleException)
+        e.message == "Could not generate test report to '$reportDir'."
+        e.cause == failure
+    }
+
     TestResultsProvider buildResults(Closure closure) {
         ConfigureUtil.configure(closure, new BuildableTestResultsProvider())
     }
@@ -89,6 +89,33 @@ class TestOutputStoreSpec extends WorkspaceTest {
         collectOutput(reader, 2, StdOut) == "[out-6]"
     }
 
+    def "can read output of different classes concurrently"() {
+        when:
+        def writer = output.writer()
+        10.times { index ->
+            (1..100).each { classId -> writer.onOutput(classId, output(StdOut, "[$classId-$index]")) }
+        }
+        writer.close()
+        def reader = output.reader()
+        def collected = new String[101]
+        def threads = (1..4).collect { thread ->
+            Thread.start {
+                for (int classId = thread; classId <= 100; classId += 4) {
+                    collected[classId] = collectAllOutput(reader, classId, StdOut)
+                }
+            }
+        }
+        threads*.join()
+
+        then:
+        (1..100).each { classId ->
+            assert collected[classId] == (0..<10).collect { "[$classId-$it]" }.join("")
+        }
+
+        cleanup:
+        reader?.close()
+    }
+
     def DefaultTestOutputEvent output(TestOutputEvent.Destination destination, String msg) {
         new DefaultTestOutputEvent(destination, msg)
     }
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.processors
+
+import org.gradle.api.internal.tasks.testing.*
+import org.gradle.internal.Factory
+import org.gradle.internal.TimeProvider
+import org.gradle.messaging.actor.Actor
+import org.gradle.messaging.actor.ActorFactory
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class DurationBalancedTestClassProcessorTest extends Specification {
+    @Rule
+    public final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+
+    private final Factory<TestClassProcessor> factory = Mock()
+    private final TestResultProcessor resultProcessor = Mock()
+    private final TestResultProcessor asyncResultProcessor = Mock()
+    private final Actor resultProcessorActor = Mock()
+    private final ActorFactory actorFactory = Mock()
+    private final TimeProvider timeProvider = Mock()
+    private TestClassDurationStore durationStore
+    private DurationBalancedTestClassProcessor processor
+
+    def setup() {
+        durationStore = new TestClassDurationStore(tmpDir.testDirectory)
+        processor = new DurationBalancedTestClassProcessor(2, factory, actorFactory, durationStore, timeProvider)
+        _ * actorFactory.createActor(resultProcessor) >> resultProcessorActor
+        _ * resultProcessorActor.getProxy(TestResultProcessor) >> asyncResultProcessor
+        _ * actorFactory.createActor({ it instanceof TestClassProcessor }) >> { TestClassProcessor target -> [getProxy: { Class type -> target }, stop: {}] as Actor }
+        processor.startProcessing(resultProcessor)
+    }
+
+    def doesNothingWhenNoTestsProcessed() {
+        when:
+        processor.stop()
+
+        then:
+        0 * factory.create()
+        1 * resultProcessorActor.stop()
+        durationStore.read().isEmpty()
+    }
+
+    def dispatchesTestClassesOnlyOnStop() {
+        when:
+        processor.processTestClass(testClass("A"))
+
+        then:
+        0 * factory.create()
+    }
+
+    def startsNoMoreProcessorsThanTestClasses() {
+        TestClassProcessor processor1 = Mock()
+        def test = testClass("A")
+
+        when:
+        processor.processTestClass(test)
+        processor.stop()
+
+        then:
+        1 * factory.create() >> processor1
+        1 * processor1.startProcessing(_)
+        1 * processor1.processTestClass(test)
+        1 * processor1.stop()
+        1 * resultProcessorActor.stop()
+    }
+
+    def assignsLongestTestClassesFirstToProcessorExpectedToFinishEarliest() {
+        durationStore.write([A: 100L, B: 60L, C: 50L, D: 40L])
+        TestClassProcessor processor1 = Mock()
+        TestClassProcessor processor2 = Mock()
+        def a = testClass("A")
+        def b = testClass("B")
+        def c = testClass("C")
+        def d = testClass("D")
+
+        when:
+        [d, c, b, a].each { processor.processTestClass(it) }
+        processor.stop()
+
+        then:
+        2 * factory.create() >>> [processor1, processor2]
+
+        then:
+        1 * processor1.processTestClass(a)
+
+        then:
+        1 * processor2.processTestClass(b)
+
+        then:
+        1 * processor2.processTestClass(c)
+
+        then:
+        1 * processor1.processTestClass(d)
+    }
+
+    def expectsTestClassesWhichHaveNotRunBeforeToTakeTheAverageTime() {
+        durationStore.write([A: 100L, B: 20L])
+        TestClassProcessor processor1 = Mock()
+        TestClassProcessor processor2 = Mock()
+        def a = testClass("A")
+        def b = testClass("B")
+        def c = testClass("C")
+
+        when:
+        [b, c, a].each { processor.processTestClass(it) }
+        processor.stop()
+
+        then:
+        2 * factory.create() >>> [processor1, processor2]
+
+        then:
+        1 * processor1.processTestClass(a)
+
+        then:
+        1 * processor2.processTestClass(c)
+
+        then:
+        1 * processor2.processTestClass(b)
+    }
+
+    def recordsDurationsOfTestClassesForNextRun() {
+        durationStore.write([A: 100L, Other: 5L])
+        TestClassProcessor processor1 = Mock()
+        TestResultProcessor forkResults = null
+        def classDescriptor = new DefaultTestClassDescriptor(1, "A")
+        def methodDescriptor = new DefaultTestMethodDescriptor(2, "A", "test")
+
+        when:
+        processor.processTestClass(testClass("A"))
+        processor.stop()
+
+        then:
+        1 * factory.create() >> processor1
+        1 * processor1.startProcessing(_) >> { TestResultProcessor results -> forkResults = results }
+        1 * processor1.stop() >> {
+            forkResults.started(classDescriptor, new TestStartEvent(1000))
+            forkResults.started(methodDescriptor, new TestStartEvent(1010, 1))
+            forkResults.completed(2, new TestCompleteEvent(1020))
+            forkResults.completed(1, new TestCompleteEvent(1030))
+        }
+        1 * asyncResultProcessor.started(classDescriptor, _)
+        1 * asyncResultProcessor.started(methodDescriptor, _)
+        1 * asyncResultProcessor.completed(2, _)
+        1 * asyncResultProcessor.completed(1, _)
+        durationStore.read() == [A: 30L, Other: 5L]
+    }
+
+    private static TestClassRunInfo testClass(String name) {
+        new DefaultTestClassRunInfo(name)
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.processors
+
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class TestClassDurationStoreTest extends Specification {
+    @Rule
+    public final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+
+    def "has no durations when none have been written"() {
+        expect:
+        new TestClassDurationStore(tmpDir.file("missing")).read().isEmpty()
+    }
+
+    def "reads durations written previously"() {
+        def store = new TestClassDurationStore(tmpDir.file("durations"))
+
+        when:
+        store.write(["org.gradle.SomeTest": 12L, "org.gradle.OtherTest": 123456789L])
+
+        then:
+        store.read() == ["org.gradle.SomeTest": 12L, "org.gradle.OtherTest": 123456789L]
+        new TestClassDurationStore(tmpDir.file("durations")).read() == ["org.gradle.SomeTest": 12L, "org.gradle.OtherTest": 123456789L]
+    }
+
+    def "ignores unreadable durations"() {
+        def store = new TestClassDurationStore(tmpDir.testDirectory)
+        store.write(["org.gradle.SomeTest": 12L])
+
+        when:
+        tmpDir.file("class-durations.bin").bytes = [1, 2] as byte[]
+
+        then:
+        store.read().isEmpty()
+    }
+}
@@ -18,9 +18,13 @@ package org.gradle.api.internal.tasks.testing.worker
 
 import org.gradle.api.Action
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo
+import org.gradle.api.internal.tasks.testing.TestResultProcessor
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory
 import org.gradle.internal.Factory
+import org.gradle.messaging.remote.ObjectConnection
 import org.gradle.process.JavaForkOptions
+import org.gradle.process.internal.WorkerProcess
+import org.gradle.process.internal.WorkerProcessBuilder
 import spock.lang.Specification
 import spock.lang.Subject
 
@@ -43,4 +47,41 @@ class ForkingTestClassProcessorTest extends Specification {
         1 * remoteProcessor.processTestClass(test2)
         0 * remoteProcessor._
     }
+
+    def "loads test classes in the system ClassLoader of a new worker process"() {
+        def builder = Mock(WorkerProcessBuilder)
+
+        when:
+        forkWith(builder, false)
+
+        then:
+        1 * builder.setLoadApplicationInSystemClassLoader(true)
+        0 * builder.setReusable(_)
+    }
+
+    def "loads test classes in an isolated ClassLoader of a reusable worker process"() {
+        def builder = Mock(WorkerProcessBuilder)
+
+        when:
+        forkWith(builder, true)
+
+        then:
+        1 * builder.setReusable(true)
+        0 * builder.setLoadApplicationInSystemClassLoader(_)
+    }
+
+    private void forkWith(WorkerProcessBuilder builder, boolean reuseWorkers) {
+        def workerFactory = Stub(Factory) {
+            create() >> builder
+        }
+        def connection = Stub(ObjectConnection) {
+            addOutgoing(RemoteTestClassProcessor) >> Stub(RemoteTestClassProcessor)
+        }
+        builder.build() >> Stub(WorkerProcess) {
+            getConnection() >> connection
+        }
+        def processor = new ForkingTestClassProcessor(workerFactory, Mock(WorkerTestClassProcessorFactory), Mock(JavaForkOptions), [new File("classpath.jar")], Mock(Action), reuseWorkers)
+        processor.startProcessing(Mock(TestResultProcessor))
+        processor.processTestClass(Mock(TestClassRunInfo))
+    }
 }
@@ -21,9 +21,11 @@ import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpHead;
 import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.conn.ClientConnectionManager;
 import org.apache.http.impl.client.*;
 import org.apache.http.protocol.BasicHttpContext;
 import org.apache.http.util.EntityUtils;
+import org.gradle.api.Nullable;
 import org.gradle.api.UncheckedIOException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,18 +34,38 @@ import java.io.IOException;
 
 /**
  * Provides some convenience and unified logging.
+ *
+ * <p>Requests can be made from multiple threads. Each thread uses its own context, so that the authentication state established by a thread is
+ * reused for its later requests.</p>
  */
 public class HttpClientHelper {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpClientHelper.class);
     private final HttpClient client;
-    private final BasicHttpContext httpContext = new BasicHttpContext();
+    private final HttpConnectionPool connectionPool;
+    private final ThreadLocal<BasicHttpContext> httpContext = new ThreadLocal<BasicHttpContext>() {
+        @Override
+        protected BasicHttpContext initialValue() {
+            return new BasicHttpContext();
+        }
+    };
 
     public HttpClientHelper(HttpSettings settings) {
+        this(settings, null);
+    }
+
+    /**
+     * @param connectionPool The pool to take the connections from. May be null, in which case the client uses a pool of its own.
+     */
+    public HttpClientHelper(HttpSettings settings, @Nullable HttpConnectionPool connectionPool) {
         alwaysUseKeepAliveConnections();
 
-        DefaultHttpClient client = new SystemDefaultHttpClient();
+        this.connectionPool = connectionPool;
+        DefaultHttpClient client = connectionPool == null ? new SystemDefaultHttpClient() : new PooledHttpClient(connectionPool.getConnectionManager());
         new HttpClientConfigurer(settings).configure(client);
+        if (connectionPool != null) {
+            connectionPool.instrument(client);
+        }
         this.client = new DecompressingHttpClient(client);
     }
 
@@ -105,10 +127,17 @@ public class HttpClientHelper {
 
     public HttpResponse performHttpRequest(HttpRequestBase request) throws IOException {
         // Without this, HTTP Client prohibits multiple redirects to the same location within the same context
-        httpContext.removeAttribute(DefaultRedirectStrategy.REDIRECT_LOCATIONS);
+        BasicHttpContext context = httpContext.get();
+        context.removeAttribute(DefaultRedirectStrategy.REDIRECT_LOCATIONS);
 
         LOGGER.debug("Performing HTTP {}: {}", request.getMethod(), request.getURI());
-        return client.execute(request, httpContext);
+        if (connectionPool == null) {
+            return client.execute(request, context);
+        }
+        long start = System.currentTimeMillis();
+        HttpResponse response = client.execute(request, context);
+        connectionPool.responseReceived(System.currentTimeMillis() - start);
+        return response;
     }
 
     private HttpResponse processResponse(String source, String method, HttpResponse response) {
@@ -125,5 +154,19 @@ public class HttpClientHelper {
         return response;
     }
 
+    /**
+     * A client configured from the system properties in the same way as {@link SystemDefaultHttpClient}, which takes its connections from a shared pool.
+     */
+    private static class PooledHttpClient extends SystemDefaultHttpClient {
+        private final ClientConnectionManager connectionManager;
+
+        PooledHttpClient(ClientConnectionManager connectionManager) {
+            this.connectionManager = connectionManager;
+        }
 
+        @Override
+        protected ClientConnectionManager createClientConnectionManager() {
+            return connectionManager;
+        }
+    }
 }
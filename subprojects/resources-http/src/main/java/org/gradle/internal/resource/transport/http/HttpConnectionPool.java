@@ -0,0 +1,126 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.resource.transport.http;
+
+import org.apache.http.HttpConnection;
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.impl.conn.SchemeRegistryFactory;
+import org.apache.http.protocol.ExecutionContext;
+import org.apache.http.protocol.HttpContext;
+import org.gradle.internal.concurrent.Stoppable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of keep-alive HTTP connections, which is shared by the HTTP clients of all repositories so that connections are reused across builds.
+ * Connections to a route which have been idle for longer than the idle timeout are closed when a new client is created.
+ *
+ * <p>The pool is sized using the following system properties:</p>
+ *
+ * <ul>
+ *     <li>{@value #MAX_CONNECTIONS_PER_ROUTE_PROPERTY}: the maximum number of connections to a single host, defaults to {@value #DEFAULT_MAX_CONNECTIONS_PER_ROUTE}.</li>
+ *     <li>{@value #MAX_CONNECTIONS_PROPERTY}: the maximum number of connections in total, defaults to {@value #DEFAULT_MAX_CONNECTIONS}.</li>
+ *     <li>{@value #IDLE_TIMEOUT_PROPERTY}: the number of seconds a connection may be idle before it is closed, defaults to {@value #DEFAULT_IDLE_TIMEOUT}.</li>
+ * </ul>
+ *
+ * <p>Also keeps track of the number of requests, how many of these reused a connection and how long it took to receive the responses.</p>
+ */
+public class HttpConnectionPool implements Stoppable {
+    public static final String MAX_CONNECTIONS_PER_ROUTE_PROPERTY = "org.gradle.internal.http.maxConnectionsPerRoute";
+    public static final String MAX_CONNECTIONS_PROPERTY = "org.gradle.internal.http.maxConnections";
+    public static final String IDLE_TIMEOUT_PROPERTY = "org.gradle.internal.http.idleTimeout";
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 8;
+    public static final int DEFAULT_MAX_CONNECTIONS = 64;
+    public static final int DEFAULT_IDLE_TIMEOUT = 60;
+    private static final Logger LOGGER = LoggerFactory.getLogger(HttpConnectionPool.class);
+
+    private final PoolingClientConnectionManager connectionManager;
+    private final long idleTimeout;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong reusedConnections = new AtomicLong();
+    private final AtomicLong responseTime = new AtomicLong();
+
+    public HttpConnectionPool() {
+        this(Integer.getInteger(MAX_CONNECTIONS_PER_ROUTE_PROPERTY, DEFAULT_MAX_CONNECTIONS_PER_ROUTE), Integer.getInteger(MAX_CONNECTIONS_PROPERTY, DEFAULT_MAX_CONNECTIONS),
+                Integer.getInteger(IDLE_TIMEOUT_PROPERTY, DEFAULT_IDLE_TIMEOUT));
+    }
+
+    public HttpConnectionPool(int maxConnectionsPerRoute, int maxConnections, int idleTimeoutSeconds) {
+        connectionManager = new PoolingClientConnectionManager(SchemeRegistryFactory.createSystemDefault());
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+        connectionManager.setMaxTotal(Math.max(maxConnections, maxConnectionsPerRoute));
+        idleTimeout = idleTimeoutSeconds;
+    }
+
+    /**
+     * Returns the connection manager for a new client, after closing the connections which have expired or been idle for too long.
+     */
+    public ClientConnectionManager getConnectionManager() {
+        connectionManager.closeExpiredConnections();
+        connectionManager.closeIdleConnections(idleTimeout, TimeUnit.SECONDS);
+        return connectionManager;
+    }
+
+    /**
+     * Counts the requests made by the given client, and how many of them reused a connection.
+     */
+    public void instrument(DefaultHttpClient client) {
+        client.addRequestInterceptor(new HttpRequestInterceptor() {
+            public void process(HttpRequest request, HttpContext context) throws HttpException, IOException {
+                requests.incrementAndGet();
+                HttpConnection connection = (HttpConnection) context.getAttribute(ExecutionContext.HTTP_CONNECTION);
+                if (connection != null && connection.getMetrics().getRequestCount() > 0) {
+                    reusedConnections.incrementAndGet();
+                }
+            }
+        });
+    }
+
+    public void responseReceived(long responseTimeMillis) {
+        responseTime.addAndGet(responseTimeMillis);
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    public long getReusedConnectionCount() {
+        return reusedConnections.get();
+    }
+
+    public long getTotalResponseTime() {
+        return responseTime.get();
+    }
+
+    public void stop() {
+        long requestCount = requests.get();
+        if (requestCount > 0) {
+            LOGGER.debug("Made {} HTTP requests, {} of which reused a connection. Average response time {}ms.",
+                    new Object[]{requestCount, reusedConnections.get(), responseTime.get() / requestCount});
+        }
+        connectionManager.shutdown();
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.resource.transport.http
+
+import com.sun.net.httpserver.HttpExchange
+import com.sun.net.httpserver.HttpHandler
+import com.sun.net.httpserver.HttpServer
+import org.apache.http.util.EntityUtils
+import org.gradle.internal.resource.PasswordCredentials
+import org.gradle.util.SetSystemProperties
+import org.junit.Rule
+import spock.lang.Specification
+
+class HttpConnectionPoolTest extends Specification {
+    @Rule SetSystemProperties sysProp = new SetSystemProperties()
+    HttpServer server
+    HttpConnectionPool pool
+
+    def setup() {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0)
+        server.createContext("/", new HttpHandler() {
+            void handle(HttpExchange exchange) {
+                byte[] content = "content".bytes
+                exchange.sendResponseHeaders(200, content.length)
+                exchange.responseBody.write(content)
+                exchange.close()
+            }
+        })
+        server.start()
+    }
+
+    def cleanup() {
+        pool?.stop()
+        server.stop(0)
+    }
+
+    def "clients reuse the connections of the pool"() {
+        pool = new HttpConnectionPool(2, 4, 60)
+        def first = new HttpClientHelper(httpSettings, pool)
+        def second = new HttpClientHelper(httpSettings, pool)
+
+        when:
+        get(first)
+        get(first)
+        get(second)
+
+        then:
+        pool.requestCount == 3
+        pool.reusedConnectionCount == 2
+        pool.totalResponseTime >= 0
+    }
+
+    def "sizes pool using system properties"() {
+        System.setProperty(HttpConnectionPool.MAX_CONNECTIONS_PER_ROUTE_PROPERTY, "3")
+        System.setProperty(HttpConnectionPool.MAX_CONNECTIONS_PROPERTY, "5")
+
+        when:
+        pool = new HttpConnectionPool()
+
+        then:
+        pool.connectionManager.defaultMaxPerRoute == 3
+        pool.connectionManager.maxTotal == 5
+    }
+
+    def "uses defaults when pool size is not configured"() {
+        when:
+        pool = new HttpConnectionPool()
+
+        then:
+        pool.connectionManager.defaultMaxPerRoute == HttpConnectionPool.DEFAULT_MAX_CONNECTIONS_PER_ROUTE
+        pool.connectionManager.maxTotal == HttpConnectionPool.DEFAULT_MAX_CONNECTIONS
+    }
+
+    private void get(HttpClientHelper client) {
+        def response = client.performGet("http://localhost:${server.address.port}/file")
+        assert EntityUtils.toString(response.entity) == "content"
+    }
+
+    private HttpSettings getHttpSettings() {
+        return Stub(HttpSettings) {
+            getCredentials() >> Stub(PasswordCredentials)
+            getProxySettings() >> Stub(HttpProxySettings)
+        }
+    }
+}